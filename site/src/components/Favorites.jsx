@@ -24,7 +24,8 @@ const mockFavorites = [
 ];
 
 
-function Favorites({ initialFavorites = null }) {
+// onChange is called after a change reaches the server, so views built from the favorites can refresh
+function Favorites({ initialFavorites = null, onChange }) {
     const [showMenu, setShowMenu] = useState(false)
     const [isPrivate, setIsPrivate] = useState(true)
     const [showDeleteConfirmation, setShowDeleteConfirmation] = useState(false)
@@ -200,6 +201,7 @@ function Favorites({ initialFavorites = null }) {
         setFavorites(newFavorites)
         setShowRemoveConfirmation(false)
         setSongToRemove(null)
+        if (onChange) onChange()
     }
 
     const handleCancelRemoveSong = () => {
@@ -338,6 +338,24 @@ describe("Favorites Component", () => {
         expect(screen.getByText("Test Song 3")).toBeInTheDocument()
     })
 
+    test("reports a removal to onChange", async () => {
+        const onChange = jest.fn()
+        render(<Favorites initialFavorites={testFavorites} onChange={onChange} />)
+
+        fireEvent.mouseEnter(screen.getAllByTestId("list-song-title")[0])
+        await waitFor(() => {
+            fireEvent.click(screen.getByText("Remove song"))
+        })
+        expect(onChange).not.toHaveBeenCalled()
+
+        await act(async () => {
+            fireEvent.click(screen.getByText("Remove", { selector: ".delete-button" }))
+        })
+
+        await waitFor(() => expect(onChange).toHaveBeenCalledTimes(1))
+        expect(FavoriteService.removeFavorites).toHaveBeenCalledWith({ username: "test_user", songId: "101" })
+    })
+
     test("cancels song removal", async () => {
         render(<Favorites initialFavorites={testFavorites} />)
 
@@ -3,9 +3,12 @@ import {stemmer} from "porter-stemmer";
 import WordCloudHeader from "../components/WordCloudHeader";
 import SongList from "./SongList";
 import GeniusService from "../services/GeniusService";
+import FavoriteService from "../services/FavoriteService";
 import "../styles/WordCloud.css";
 import Cloud from "react-d3-cloud";
 
+// Only for clouds of songs the server has not stored, like search results; the favorites cloud comes from
+// /api/favorite/get/wordcloud. Kept in sync with LyricAnalyzer.STOP_WORDS on the server.
 const STOP_WORDS = new Set([
     "i", "me", "my", "myself", "we", "our", "ours", "ourselves", "you", "your", "yours", "yourself", "yourselves", "he", "him", "his",
     "himself", "she", "her", "hers", "herself", "it", "its", "itself", "they", "them", "their", "theirs", "themselves", "what",
@@ -87,7 +90,7 @@ const getGeniusPathFromUrl = (url) => {
     }
 };
 
-const WordCloudContent = ({ songsData = [], variant = "default", onAddFavorites, onCompareWithFriends }) => {
+const WordCloudContent = ({ songsData = [], variant = "default", username, version = 0, onAddFavorites, onCompareWithFriends }) => {
     const [selectedType, setSelectedType] = useState("cloud")
     const [wordFrequencies, setWordFrequencies] = useState([])
     const [allLyricsText, setAllLyricsText] = useState("")
@@ -102,7 +105,41 @@ const WordCloudContent = ({ songsData = [], variant = "default", onAddFavorites,
     const songListRef = useRef(null)
     const lastFocusedElementRef = useRef(null)
 
+    // the favorites cloud is analyzed by the server, the same way the matcher sees the lyrics;
+    // the page bumps version whenever the favorites change, and the cloud is fetched again
+    const serverCloud = variant === "favorites" && Boolean(username)
+
+    useEffect(() => {
+        if (!serverCloud) return
+
+        let cancelled = false
+        const fetchServerCloud = async () => {
+            setIsLoading(true)
+            setError(null)
+            setWordFrequencies([])
+            try {
+                const response = await FavoriteService.fetchWordCloud(username)
+                if (!response) throw new Error("No response")
+                const body = await response.json()
+                if (cancelled) return
+                if (response.ok) setWordFrequencies(body.words || [])
+                else if (response.status !== 404) setError(body.message || "Could not load the word cloud.")
+            } catch (err) {
+                console.error("Word cloud fetch failed:", err)
+                if (!cancelled) setError("Could not load the word cloud.")
+            } finally {
+                if (!cancelled) setIsLoading(false)
+            }
+        }
+
+        fetchServerCloud()
+        return () => {
+            cancelled = true
+        }
+    }, [serverCloud, username, version])
+
     useEffect(() => {
+        if (serverCloud) return
         if (!songsData.length) {
             setWordFrequencies([])
             setAllLyricsText("")
@@ -156,12 +193,13 @@ const WordCloudContent = ({ songsData = [], variant = "default", onAddFavorites,
         }
 
         fetchAllLyrics()
-    }, [songsData])
+    }, [songsData, serverCloud])
 
     useEffect(() => {
+        if (serverCloud) return
         if (allLyricsText && !isLoading) setWordFrequencies(getFrequencies(allLyricsText))
         else if (!isLoading) setWordFrequencies([])
-    }, [allLyricsText, isLoading])
+    }, [allLyricsText, isLoading, serverCloud])
 
     const handleTypeChange = useCallback((type) => {
         setSelectedType(type)
@@ -215,7 +253,7 @@ const WordCloudContent = ({ songsData = [], variant = "default", onAddFavorites,
         if (isLoading)
             return (
                 <div className="word-cloud-loading" role="status" aria-live="polite">
-                    Fetching lyrics…
+                    {serverCloud ? "Loading word cloud…" : "Fetching lyrics…"}
                 </div>
             )
         if (error && !wordFrequencies.length)
@@ -227,7 +265,9 @@ const WordCloudContent = ({ songsData = [], variant = "default", onAddFavorites,
         if (!wordFrequencies.length)
             return (
                 <div className="word-cloud-info" role="status">
-                    {songsData.length ? "No significant words found." : "Select songs to generate a word cloud."}
+                    {serverCloud
+                        ? "No favorite songs found."
+                        : songsData.length ? "No significant words found." : "Select songs to generate a word cloud."}
                 </div>
             )
 
@@ -18,6 +18,12 @@ jest.mock("../services/GeniusService", () => ({
     default: { getLyrics: (...args) => mockGetLyrics(...args) },
 }));
 
+const mockFetchWordCloud = jest.fn();
+jest.mock("../services/FavoriteService", () => ({
+    __esModule: true,
+    default: { fetchWordCloud: (...args) => mockFetchWordCloud(...args) },
+}));
+
 jest.mock("../components/WordCloudHeader", () => (props) => {
     const { selectedType, onTypeChange } = props;
     return (
@@ -187,4 +193,78 @@ describe("WordCloudContent", () => {
         expect(screen.getByTestId("song-list")).toBeInTheDocument();
         expect(screen.getByTestId("search-term")).toHaveTextContent("banana");
     });
+
+    test("favorites variant renders the server's word cloud", async () => {
+        mockFetchWordCloud.mockResolvedValueOnce({
+            ok: true,
+            status: 200,
+            json: async () => ({
+                id: 1,
+                message: "Word cloud found.",
+                words: [{ word: "rain", frequency: 3 }, { word: "storm", frequency: 1 }],
+            }),
+        });
+
+        render(<WordCloudContent variant="favorites" username="alice" />);
+        expect(screen.getByText(/loading word cloud/i)).toBeInTheDocument();
+
+        await waitFor(() =>
+            expect(screen.getByTestId("word-rain")).toBeInTheDocument()
+        );
+        expect(screen.getByTestId("word-storm")).toBeInTheDocument();
+        expect(mockFetchWordCloud).toHaveBeenCalledWith("alice");
+        expect(mockGetLyrics).not.toHaveBeenCalled();
+    });
+
+    test("favorites variant fetches the cloud again when the version changes", async () => {
+        const cloud = (words) => ({
+            ok: true,
+            status: 200,
+            json: async () => ({ id: 1, message: "Word cloud found.", words }),
+        });
+        mockFetchWordCloud
+            .mockResolvedValueOnce(cloud([{ word: "rain", frequency: 3 }]))
+            .mockResolvedValueOnce(cloud([{ word: "sun", frequency: 2 }]));
+
+        const { rerender } = render(<WordCloudContent variant="favorites" username="alice" version={0} />);
+        await waitFor(() =>
+            expect(screen.getByTestId("word-rain")).toBeInTheDocument()
+        );
+
+        rerender(<WordCloudContent variant="favorites" username="alice" version={1} />);
+        await waitFor(() =>
+            expect(screen.getByTestId("word-sun")).toBeInTheDocument()
+        );
+        expect(screen.queryByTestId("word-rain")).not.toBeInTheDocument();
+        expect(mockFetchWordCloud).toHaveBeenCalledTimes(2);
+    });
+
+    test("favorites variant without favorites shows a message", async () => {
+        mockFetchWordCloud.mockResolvedValueOnce({
+            ok: false,
+            status: 404,
+            json: async () => ({ id: -2, message: "No favorite songs found.", words: [] }),
+        });
+
+        render(<WordCloudContent variant="favorites" username="alice" />);
+
+        await waitFor(() =>
+            expect(screen.getByText(/no favorite songs found/i)).toBeInTheDocument()
+        );
+        expect(screen.queryByRole("alert")).not.toBeInTheDocument();
+    });
+
+    test("favorites variant surfaces a server error", async () => {
+        mockFetchWordCloud.mockResolvedValueOnce({
+            ok: false,
+            status: 500,
+            json: async () => ({ id: -1, message: "database is locked", words: null }),
+        });
+
+        render(<WordCloudContent variant="favorites" username="alice" />);
+
+        await waitFor(() =>
+            expect(screen.getByRole("alert")).toHaveTextContent("database is locked")
+        );
+    });
 });
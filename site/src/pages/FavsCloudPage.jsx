@@ -9,7 +9,7 @@ import SkipLink from "../components/SkipLink"
 import "../styles/LandingPage.css"
 
 const FavsCloudPage = () => {
-    const { logout } = useAuth()
+    const { user, logout } = useAuth()
     const navigate = useNavigate()
     const location = useLocation()
 
@@ -22,6 +22,8 @@ const FavsCloudPage = () => {
 
     const [isCloudGenerated, setIsCloudGenerated] = useState(shouldGenerateCloud)
     const [statusMessage, setStatusMessage] = useState("")
+    // bumped on every change in <Favorites/>, so the server cloud is fetched again
+    const [favoritesVersion, setFavoritesVersion] = useState(0)
 
     useEffect(() => {
         if (shouldGenerateCloud) {
@@ -37,6 +39,10 @@ const FavsCloudPage = () => {
         setStatusMessage("Favorites word cloud has been generated")
     }
 
+    const handleFavoritesChange = () => {
+        setFavoritesVersion((version) => version + 1)
+    }
+
     const handleCompareWithFriends = () => {
         console.log("Comparing with friends...")
         navigate("/compare")
@@ -59,6 +65,8 @@ const FavsCloudPage = () => {
                 <section className="main-content" aria-label="Word cloud visualization">
                     <WordCloudContent
                         variant="favorites"
+                        username={user?.username}
+                        version={favoritesVersion}
                         isCloudGenerated={isCloudGenerated}
                         onGenerateFavorites={handleGenerateFavorites}
                         onCompareWithFriends={handleCompareWithFriends}
@@ -66,7 +74,7 @@ const FavsCloudPage = () => {
                 </section>
 
                 <section className="favorites-container" aria-label="Your favorites">
-                    <Favorites />
+                    <Favorites onChange={handleFavoritesChange} />
                 </section>
             </main>
 
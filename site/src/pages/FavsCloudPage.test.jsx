@@ -24,15 +24,23 @@ jest.mock("../components/Footer", () => {
     }
 })
 jest.mock("../components/Favorites", () => {
-    return function MockFavorites() {
-        return <div data-testid="favorites"></div>
+    return function MockFavorites({ onChange }) {
+        return (
+            <div data-testid="favorites">
+                <button onClick={onChange} data-testid="favorites-change-button">
+                    Change
+                </button>
+            </div>
+        )
     }
 })
 jest.mock("../components/WordCloudContent", () => {
-    return function MockWordCloud({ variant, isCloudGenerated, onGenerateFavorites, onCompareWithFriends }) {
+    return function MockWordCloud({ variant, username, version, isCloudGenerated, onGenerateFavorites, onCompareWithFriends }) {
         return (
             <div data-testid="word-cloud">
                 <span>Variant: {variant}</span>
+                <span>Username: {username}</span>
+                <span>Version: {version}</span>
                 <span>Is Generated: {isCloudGenerated ? "true" : "false"}</span>
                 <button onClick={onGenerateFavorites} data-testid="generate-button">
                     Generate
@@ -53,7 +61,7 @@ describe("FavsCloudPage Component", () => {
     beforeEach(() => {
         jest.clearAllMocks()
         useNavigate.mockReturnValue(mockNavigate)
-        useAuth.mockReturnValue({ user: { id: "1" }, logout: mockLogout })
+        useAuth.mockReturnValue({ user: { id: "1", username: "alice" }, logout: mockLogout })
         useLocation.mockReturnValue({ state: null })
     })
 
@@ -76,6 +84,7 @@ describe("FavsCloudPage Component", () => {
         // Check for word cloud
         expect(screen.getByTestId("word-cloud")).toBeInTheDocument()
         expect(screen.getByText("Variant: favorites")).toBeInTheDocument()
+        expect(screen.getByText("Username: alice")).toBeInTheDocument()
         expect(screen.getByText("Is Generated: false")).toBeInTheDocument()
     })
 
@@ -97,6 +106,17 @@ describe("FavsCloudPage Component", () => {
         expect(isGeneratedElement).toBeInTheDocument()
     })
 
+    test("a change in favorites bumps the word cloud's version", () => {
+        render(<FavsCloudPage />)
+        expect(screen.getByText("Version: 0")).toBeInTheDocument()
+
+        fireEvent.click(screen.getByTestId("favorites-change-button"))
+        expect(screen.getByText("Version: 1")).toBeInTheDocument()
+
+        fireEvent.click(screen.getByTestId("favorites-change-button"))
+        expect(screen.getByText("Version: 2")).toBeInTheDocument()
+    })
+
     test("handles compare with friends button click", () => {
         render(<FavsCloudPage />)
 
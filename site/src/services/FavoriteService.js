@@ -57,6 +57,29 @@ const FavoriteService = {
         }
     },
 
+    // Top words of the user's favorites, analyzed by the server like the matcher does
+    fetchWordCloud: async(username) => {
+        try {
+            const yourData = {
+                username: username,
+                password: ""
+            }
+
+            const response = await fetch("/api/favorite/get/wordcloud", {
+                method: "POST",
+                headers: {
+                    "Content-Type": "application/json"
+                },
+                body: JSON.stringify(yourData)
+            });
+
+            return response;
+        }
+        catch(error) {
+            console.error(error);
+        }
+    },
+
 
 }
 
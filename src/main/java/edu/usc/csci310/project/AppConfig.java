@@ -3,12 +3,15 @@ package edu.usc.csci310.project;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class AppConfig {
 
+    // the default for injection; the shard coordinator asks for its own by name
     @Bean
+    @Primary
     public RestTemplate restTemplate(RestTemplateBuilder builder) {
         return builder
                 .build();
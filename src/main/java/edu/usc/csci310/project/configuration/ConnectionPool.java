@@ -0,0 +1,361 @@
+package edu.usc.csci310.project.configuration;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The SQLite connections every service shares: one writer connection, handed to one thread at a time,
+ * and a fixed set of read-only reader connections. The database runs in WAL mode, so readers see the
+ * last committed state while the writer is busy. SQLite only ever allows one writer, so serializing
+ * writes here means they queue in the JVM instead of failing with SQLITE_BUSY.
+ *
+ * Connections are borrowed with {@link #reader()} or {@link #writer()} and given back by closing them,
+ * so callers use try-with-resources. Borrowing is reentrant per thread: a thread that already holds
+ * a connection gets the same one back, and a thread holding the writer reads through it, so a write
+ * and the reads it depends on see the same state. Each borrow gets its own handle on the connection,
+ * which gives it back on its first close only; closing a handle again does nothing.
+ *
+ * Each connection keeps its prepared statements in a {@link StatementCache}, so preparing the same SQL
+ * again on the same connection reuses the statement instead of parsing it again.
+ *
+ * Waits for a connection and how long connections are held are counted per role, and the statement
+ * caches count their hits and misses; see {@link #stats()}.
+ *
+ * As a {@link DataSource}, {@link #getConnection()} borrows the writer, so JDBC tooling that knows nothing
+ * of the two roles can both read and write; code that only reads should borrow {@link #reader()}.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+    private final Connection writer;
+    private final StatementCache writerStatements;
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private long writerAcquiredAt;
+
+    private final List<Lease> readers = new ArrayList<>();
+    private final BlockingQueue<Lease> idleReaders;
+    private final ThreadLocal<Lease> heldReader = new ThreadLocal<>();
+
+    private final long acquireTimeoutMs;
+    private final Usage writerUsage = new Usage();
+    private final Usage readerUsage = new Usage();
+    private final int statementCacheSize;
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+    private volatile PrintWriter logWriter;
+
+    /** One reader connection and the thread borrowing it. */
+    private final class Lease {
+        final Connection connection;
+        final StatementCache statements;
+        int depth = 0;
+        long acquiredAt;
+
+        Lease(Connection connection) {
+            this.connection = connection;
+            this.statements = statementCache(connection);
+        }
+
+        Connection handle() {
+            return ConnectionPool.handle(connection, statements, () -> releaseReader(this));
+        }
+    }
+
+    /** Borrow counters of one role. */
+    private static final class Usage {
+        final LongAdder acquired = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final LongAdder heldNanos = new LongAdder();
+        final AtomicLong inUse = new AtomicLong();
+        final AtomicLong peakInUse = new AtomicLong();
+
+        void acquired(long waited) {
+            acquired.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            peakInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+        }
+
+        void released(long held) {
+            heldNanos.add(held);
+            inUse.decrementAndGet();
+        }
+
+        Map<String, Long> stats(int size) {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("size", (long) size);
+            stats.put("inUse", inUse.get());
+            stats.put("peakInUse", peakInUse.get());
+            stats.put("acquired", acquired.sum());
+            stats.put("timeouts", timeouts.sum());
+            stats.put("waitMicros", waitNanos.sum() / 1000);
+            stats.put("maxWaitMicros", maxWaitNanos.get() / 1000);
+            stats.put("heldMicros", heldNanos.sum() / 1000);
+            return stats;
+        }
+    }
+
+    /**
+     * @param writer            the only connection writes go through
+     * @param readers           read-only connections; with none, reads go through the writer too
+     * @param acquireTimeoutMs  how long a borrow waits before it fails with an SQLException
+     * @param statementCacheSize  prepared statements kept open per connection; 0 prepares every statement anew
+     */
+    public ConnectionPool(Connection writer, List<Connection> readers, long acquireTimeoutMs, int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+        this.writer = writer;
+        this.writerStatements = statementCache(writer);
+        this.idleReaders = new ArrayBlockingQueue<>(Math.max(1, readers.size()));
+        for (Connection reader : readers) {
+            Lease lease = new Lease(reader);
+            this.readers.add(lease);
+            idleReaders.add(lease);
+        }
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+//  A pool of one connection that does both jobs and caches no statements, for tools and tests that already have a connection
+    public static ConnectionPool of(Connection connection) {
+        return new ConnectionPool(connection, List.of(), Long.MAX_VALUE, 0);
+    }
+
+    /**
+     * Opens the writer, switches the database to WAL journaling, and opens the readers.
+     * Foreign keys are enforced on the writer, the only connection that changes data.
+     * Readers only see the writer's data through a database file, so an in-memory url needs readers = 0.
+     * @param busyTimeoutMs  how long SQLite itself retries a locked database, e.g. one held by another process
+     */
+    public static ConnectionPool open(String url, int readers, long busyTimeoutMs, long acquireTimeoutMs,
+                                      int statementCacheSize) throws SQLException {
+        Connection writer = DriverManager.getConnection(url);
+        List<Connection> opened = new ArrayList<>();
+        try {
+            try (Statement st = writer.createStatement()) {
+                st.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+                st.execute("PRAGMA journal_mode = WAL");
+                // with WAL a commit survives a crash of the process; only a power loss can lose the last ones
+                st.execute("PRAGMA synchronous = NORMAL");
+                st.execute("PRAGMA foreign_keys = ON");
+            }
+            for (int i = 0; i < readers; i++) {
+                Connection reader = DriverManager.getConnection(url);
+                opened.add(reader);
+                try (Statement st = reader.createStatement()) {
+                    st.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+                    st.execute("PRAGMA query_only = ON");
+                }
+            }
+        }
+        catch (SQLException e) {
+            for (Connection c : opened) c.close();
+            writer.close();
+            throw e;
+        }
+        return new ConnectionPool(writer, opened, acquireTimeoutMs, statementCacheSize);
+    }
+
+//  Borrows the writer, waiting while another thread holds it
+    public Connection writer() throws SQLException {
+        if (writerLock.isHeldByCurrentThread()) {
+            writerLock.lock();
+            return handle(writer, writerStatements, this::releaseWriter);
+        }
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = writerLock.tryLock(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer connection", e);
+        }
+        if (!locked) {
+            writerUsage.timeouts.increment();
+            throw new SQLException("Timed out after " + acquireTimeoutMs + " ms waiting for the writer connection");
+        }
+        writerAcquiredAt = System.nanoTime();
+        writerUsage.acquired(writerAcquiredAt - start);
+        return handle(writer, writerStatements, this::releaseWriter);
+    }
+
+    private void releaseWriter() throws SQLException {
+        try {
+            if (writerLock.getHoldCount() == 1) {
+                if (writerStatements != null) writerStatements.releaseAll();
+                writerUsage.released(System.nanoTime() - writerAcquiredAt);
+            }
+        }
+        finally {
+            writerLock.unlock();
+        }
+    }
+
+//  Borrows a read-only connection, or the writer if this thread holds it or there are no readers
+    public Connection reader() throws SQLException {
+        if (writerLock.isHeldByCurrentThread() || readers.isEmpty()) return writer();
+        Lease lease = heldReader.get();
+        if (lease != null) {
+            lease.depth++;
+            return lease.handle();
+        }
+
+        long start = System.nanoTime();
+        try {
+            lease = idleReaders.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+        if (lease == null) {
+            readerUsage.timeouts.increment();
+            throw new SQLException("Timed out after " + acquireTimeoutMs + " ms waiting for a reader connection");
+        }
+        lease.depth = 1;
+        lease.acquiredAt = System.nanoTime();
+        readerUsage.acquired(lease.acquiredAt - start);
+        heldReader.set(lease);
+        return lease.handle();
+    }
+
+    private void releaseReader(Lease lease) throws SQLException {
+        if (heldReader.get() != lease) throw new IllegalStateException("Reader connection closed by a thread that does not hold it");
+        if (--lease.depth > 0) return;
+        heldReader.remove();
+        readerUsage.released(System.nanoTime() - lease.acquiredAt);
+        try {
+            if (lease.statements != null) lease.statements.releaseAll();
+        }
+        finally {
+            idleReaders.add(lease);
+        }
+    }
+
+//  Borrows the writer, the one connection that can do everything a DataSource user may ask of it
+    @Override
+    public Connection getConnection() throws SQLException {
+        return writer();
+    }
+
+//  The connections are opened by the pool, so there are no per-borrow credentials
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ConnectionPool does not take credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        logWriter = out;
+    }
+
+//  How long a borrow waits is set by acquireTimeoutMs when the pool is created
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Set the acquire timeout when opening the pool");
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return (int) Math.min(Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toSeconds(acquireTimeoutMs));
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("ConnectionPool does not log through java.util.logging");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("ConnectionPool is not a " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+//  Size, current and peak use, borrow count, timeouts, and total wait and hold times of the writer and the readers,
+//  and the hit and miss counts of the statement caches
+    public Map<String, Map<String, Long>> stats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        stats.put("writer", writerUsage.stats(1));
+        stats.put("readers", readerUsage.stats(readers.size()));
+        stats.put("statements", statementCounters.stats(statementCacheSize));
+        return stats;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (Lease lease : readers) {
+            if (lease.statements != null) lease.statements.close();
+            lease.connection.close();
+        }
+        if (writerStatements != null) writerStatements.close();
+        if (writer != null) writer.close();
+    }
+
+    private StatementCache statementCache(Connection connection) {
+        return statementCacheSize > 0 ? new StatementCache(connection, statementCacheSize, statementCounters) : null;
+    }
+
+    private interface Release {
+        void run() throws SQLException;
+    }
+
+    // one borrow's view of the connection: its first close() gives the connection back to the pool instead of
+    // closing it, after which the handle acts closed; prepareStatement(sql) goes through the statement cache
+    private static Connection handle(Connection connection, StatementCache statements, Release release) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            // releasing again would give back a hold this handle no longer has
+                            if (closed.compareAndSet(false, true)) release.run();
+                            return null;
+                        case "isClosed":
+                            if (closed.get()) return true;
+                            break;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    if (closed.get()) throw new SQLException("Connection has been given back to the pool");
+                    if (method.getName().equals("prepareStatement") && statements != null && args.length == 1) {
+                        return statements.prepare((String) args[0]);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    }
+                    catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -1,10 +1,9 @@
 package edu.usc.csci310.project.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 @Configuration
@@ -12,9 +11,14 @@ public class DatabaseConfig {
 
     private static final String DATABASE_URL = "jdbc:sqlite:dataUsers.db";
 
+//  Closed by Spring on shutdown, which checkpoints the WAL back into the database file
     @Bean
-    public Connection sqliteConnection() throws SQLException {
-        return DriverManager.getConnection(DATABASE_URL);
+    public ConnectionPool connectionPool(@Value("${favorites.db.url:" + DATABASE_URL + "}") String url,
+                                         @Value("${favorites.db.readers:4}") int readers,
+                                         @Value("${favorites.db.busy-timeout-ms:5000}") long busyTimeoutMs,
+                                         @Value("${favorites.db.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+                                         @Value("${favorites.db.statement-cache-size:64}") int statementCacheSize) throws SQLException {
+        return ConnectionPool.open(url, readers, busyTimeoutMs, acquireTimeoutMs, statementCacheSize);
     }
 
-}
\ No newline at end of file
+}
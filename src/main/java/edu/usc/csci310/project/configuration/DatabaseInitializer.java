@@ -5,50 +5,168 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
+/**
+ * Brings the database schema up to date on startup. The schema is built by an ordered list of
+ * migrations, and the schema_version table records each one that has been applied, so a start only runs
+ * the ones still pending. Each migration runs in one transaction together with its schema_version row,
+ * so a failed migration leaves the schema where it was.
+ *
+ * Migrations are never edited once released; a schema change is a new migration at the end of the list.
+ */
 @Service
 public class DatabaseInitializer {
 
-    private final Connection connection;
+    /** One step of the schema, identified by its position in {@link #MIGRATIONS}. */
+    public static final class Migration {
+        public final int version;
+        public final String description;
+        public final List<String> statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = List.of(statements);
+        }
+    }
+
+    public static final List<Migration> MIGRATIONS = List.of(
+            // the schema as created before migrations were tracked; a no-op for databases that already have it
+            new Migration(1, "Create tables",
+                    "CREATE TABLE IF NOT EXISTS users (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "username TEXT NOT NULL, " +
+                            "password TEXT NOT NULL)",
+                    "CREATE TABLE IF NOT EXISTS songs (" +
+                            "songId INTEGER PRIMARY KEY NOT NULL, " +
+                            "songName TEXT NOT NULL, " +
+                            "songArtist TEXT NOT NULL, " +
+                            "fullTitle TEXT NOT NULL, " +
+                            "dateReleased TEXT NOT NULL, " +
+                            "album TEXT NOT NULL, " +
+                            "lyrics TEXT NOT NULL)",
+                    "CREATE TABLE IF NOT EXISTS favorites (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "userId TEXT NOT NULL, " +
+                            "songId TEXT NOT NULL)",
+                    "CREATE TABLE IF NOT EXISTS user_terms (" +
+                            "userId INTEGER NOT NULL, " +
+                            "term TEXT NOT NULL, " +
+                            "count INTEGER NOT NULL, " +
+                            "PRIMARY KEY (userId, term))",
+                    "CREATE TABLE IF NOT EXISTS song_terms (" +
+                            "songId INTEGER NOT NULL, " +
+                            "term TEXT NOT NULL, " +
+                            "count INTEGER NOT NULL, " +
+                            "PRIMARY KEY (songId, term))",
+                    "CREATE TABLE IF NOT EXISTS term_store_meta (" +
+                            "name TEXT PRIMARY KEY NOT NULL, " +
+                            "value INTEGER NOT NULL)"),
+            // SQLite cannot change a column's type, so favorites is copied into a new table. The copy keeps
+            // the first of any duplicate favorites and drops rows whose user or song does not exist.
+            // Registration used to check a username and insert it without a lock, so a name can have been
+            // registered twice: its favorites move to the user with the lowest id, and the other users are deleted.
+            new Migration(2, "Index usernames and favorites, make favorites INTEGER foreign keys",
+                    "CREATE TABLE favorites_typed (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "userId INTEGER NOT NULL REFERENCES users (id), " +
+                            "songId INTEGER NOT NULL REFERENCES songs (songId))",
+                    "INSERT INTO favorites_typed (id, userId, songId) " +
+                            "SELECT MIN(f.id), u.keepId, CAST(f.songId AS INTEGER) FROM favorites f " +
+                            "JOIN (SELECT id, (SELECT MIN(d.id) FROM users d WHERE d.username = users.username) AS keepId " +
+                            "FROM users) u ON u.id = CAST(f.userId AS INTEGER) " +
+                            "WHERE CAST(f.songId AS INTEGER) IN (SELECT songId FROM songs) " +
+                            "GROUP BY u.keepId, CAST(f.songId AS INTEGER)",
+                    "DROP TABLE favorites",
+                    "ALTER TABLE favorites_typed RENAME TO favorites",
+                    "CREATE UNIQUE INDEX favorites_user_song ON favorites (userId, songId)",
+                    "CREATE INDEX favorites_song ON favorites (songId)",
+                    "DELETE FROM users WHERE id NOT IN (SELECT MIN(id) FROM users GROUP BY username)",
+                    "CREATE UNIQUE INDEX users_username ON users (username)",
+                    // the user clouds were summed over the old rows, so have the matcher rebuild them
+                    "DELETE FROM term_store_meta WHERE name = 'user_terms'"),
+            // songs used to be inserted with the lyrics in the album column and the album in the lyrics column,
+            // so every song stored so far has them the wrong way round, and its terms came from the album name
+            new Migration(3, "Swap the lyrics and album of songs stored before the fix",
+                    "UPDATE songs SET lyrics = album, album = lyrics",
+                    "DELETE FROM term_store_meta WHERE name IN ('song_terms', 'user_terms')")
+    );
+
+    private final ConnectionPool pool;
 
     @Autowired
-    public DatabaseInitializer(Connection connection) {
-        this.connection = connection;
+    public DatabaseInitializer(ConnectionPool pool) {
+        this.pool = pool;
     }
 
     @PostConstruct
     public void initializeDatabase() {
-        try (Statement stmt = connection.createStatement()) {
-            String createUsersTableSQL = "CREATE TABLE IF NOT EXISTS users (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "username TEXT NOT NULL, " +
-                    "password TEXT NOT NULL)";
-            stmt.executeUpdate(createUsersTableSQL);
-            System.out.println("Table users created");
-
-            String createSongsTableSQL = "CREATE TABLE IF NOT EXISTS songs (" +
-                    "songId INTEGER PRIMARY KEY NOT NULL, " +
-                    "songName TEXT NOT NULL, " +
-                    "songArtist TEXT NOT NULL, " +
-                    "fullTitle TEXT NOT NULL, " +
-                    "dateReleased TEXT NOT NULL, " +
-                    "album TEXT NOT NULL, " +
-                    "lyrics TEXT NOT NULL)";
-            stmt.executeUpdate(createSongsTableSQL);
-            System.out.println("Table songs created");
-
-            String createFavoritesTableSQL = "CREATE TABLE IF NOT EXISTS favorites (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "userId TEXT NOT NULL, " +
-                    "songId TEXT NOT NULL)";
-            stmt.executeUpdate(createFavoritesTableSQL);
-            System.out.println("Table favorites created");
+        try {
+            int applied = migrate(MIGRATIONS.size());
+            System.out.println("Database schema at version " + schemaVersion() + ", " + applied + " migrations applied");
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Error initializing the database schema", e);
         }
     }
-}
 
+    /**
+     * Applies the pending migrations up to and including the given version, in order.
+     * @return how many migrations were applied
+     */
+    public int migrate(int targetVersion) throws SQLException {
+        try (Connection connection = pool.writer()) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INTEGER PRIMARY KEY NOT NULL, " +
+                        "description TEXT NOT NULL, " +
+                        "appliedAt INTEGER NOT NULL)");
+            }
+            int current = schemaVersion();
+            int applied = 0;
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= current || migration.version > targetVersion) continue;
+                apply(connection, migration);
+                applied++;
+            }
+            return applied;
+        }
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement();
+             PreparedStatement record = connection.prepareStatement(
+                     "INSERT INTO schema_version (version, description, appliedAt) VALUES (?, ?, ?)")) {
+            for (String sql : migration.statements) stmt.executeUpdate(sql);
+            record.setInt(1, migration.version);
+            record.setString(2, migration.description);
+            record.setLong(3, System.currentTimeMillis());
+            record.executeUpdate();
+            connection.commit();
+            System.out.println("Applied migration " + migration.version + ": " + migration.description);
+        }
+        catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Migration " + migration.version + " failed", e);
+        }
+        finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+//  Highest applied migration, 0 for an empty database
+    public int schemaVersion() throws SQLException {
+        try (Connection connection = pool.reader();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package edu.usc.csci310.project.configuration;
+
+import edu.usc.csci310.project.services.LshIndex;
+import edu.usc.csci310.project.services.MatchEngine;
+import edu.usc.csci310.project.services.SimilarityKernel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MatchEngineConfig {
+
+    /**
+     * The matcher behind soulmate/enemy lookups. favorites.match-mode=exact (the default) keeps every
+     * user's matches current; approximate finds soulmates through LSH for very large user bases.
+     * The approximate mode's knobs: more bands raise recall, more rows cut candidates, and the shortlist
+     * bounds how many candidates are scored exactly per lookup. favorites.similarity-kernel picks the
+     * scoring loop for that shortlist: auto (vector when built with -Pvector-api and the JVM has jdk.incubator.vector), scalar or vector.
+     */
+    @Bean
+    public MatchEngine matchEngine(@Value("${favorites.match-mode:exact}") String mode,
+                                   @Value("${favorites.lsh.bands:" + LshIndex.DEFAULT_BANDS + "}") int bands,
+                                   @Value("${favorites.lsh.rows:" + LshIndex.DEFAULT_ROWS + "}") int rows,
+                                   @Value("${favorites.lsh.shortlist:" + LshIndex.DEFAULT_SHORTLIST + "}") int shortlist,
+                                   @Value("${favorites.similarity-kernel:auto}") String kernel) {
+        switch (mode) {
+            case "exact":
+                return new MatchEngine();
+            case "approximate":
+                return new MatchEngine(new LshIndex(bands, rows, shortlist), SimilarityKernel.named(kernel));
+            default:
+                throw new IllegalArgumentException("Unknown favorites.match-mode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package edu.usc.csci310.project.configuration;
+
+import edu.usc.csci310.project.services.ShardCoordinator;
+import edu.usc.csci310.project.services.ShardTopology;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+public class ShardConfig {
+
+    /**
+     * This instance's place in a sharded matcher. favorites.shard.count (default 1, unsharded) and
+     * favorites.shard.index pick which users it indexes; favorites.shard.urls, a comma-separated list
+     * of every shard's base URL, makes it coordinate match queries across them.
+     */
+    @Bean
+    public ShardTopology shardTopology(@Value("${favorites.shard.index:0}") int index,
+                                       @Value("${favorites.shard.count:1}") int count,
+                                       @Value("${favorites.shard.urls:}") String urls) {
+        List<String> shardUrls = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        return new ShardTopology(index, count, shardUrls);
+    }
+
+    /**
+     * What the coordinator calls the shards with. Connecting to a shard and waiting for its answer each
+     * give up after favorites.shard.timeout-ms, so a shard that hangs fails the match request instead of
+     * holding its thread forever. Every call carries favorites.shard.secret, which the shards check.
+     */
+    @Bean
+    public RestTemplate shardRestTemplate(RestTemplateBuilder builder,
+                                          @Value("${favorites.shard.timeout-ms:2000}") long timeoutMs,
+                                          @Value("${favorites.shard.secret:}") String secret) {
+        return builder
+                .setConnectTimeout(Duration.ofMillis(timeoutMs))
+                .setReadTimeout(Duration.ofMillis(timeoutMs))
+                .defaultHeader(ShardCoordinator.SECRET_HEADER, secret)
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package edu.usc.csci310.project.configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The prepared statements of one pooled connection, kept open and handed out again by SQL text, so
+ * SQLite parses and plans each statement once per connection instead of once per request.
+ * Closing a statement from the cache gives it back: its open result set is closed, which resets the
+ * statement, and its parameters and batch are cleared. A statement that is still out when the same SQL
+ * is prepared again, e.g. by a nested call, is not shared; the caller gets an uncached statement.
+ * Holds at most capacity statements and closes the least recently used one beyond that.
+ *
+ * Not thread-safe: only the thread that has borrowed the connection from the {@link ConnectionPool} uses it.
+ */
+class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final Counters counters;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Counters shared by the caches of every connection in a pool. */
+    static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder inUse = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+        final AtomicLong cached = new AtomicLong();
+
+        Map<String, Long> stats(int capacity) {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("capacityPerConnection", (long) capacity);
+            stats.put("cached", cached.get());
+            stats.put("hits", hits.sum());
+            stats.put("misses", misses.sum());
+            stats.put("inUseMisses", inUse.sum());
+            stats.put("evictions", evictions.sum());
+            return stats;
+        }
+    }
+
+    /** One cached statement, and the result set its current borrower opened. */
+    private static final class Entry {
+        final PreparedStatement statement;
+        PreparedStatement handle;
+        ResultSet resultSet;
+        boolean borrowed;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    StatementCache(Connection connection, int capacity, Counters counters) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.counters = counters;
+    }
+
+    PreparedStatement prepare(String sql) throws SQLException {
+        Entry entry = entries.get(sql);
+        if (entry != null && entry.borrowed) {
+            counters.inUse.increment();
+            return connection.prepareStatement(sql);
+        }
+        if (entry != null) {
+            counters.hits.increment();
+        }
+        else {
+            counters.misses.increment();
+            entry = new Entry(connection.prepareStatement(sql));
+            entry.handle = handle(entry);
+            entries.put(sql, entry);
+            counters.cached.incrementAndGet();
+            evict();
+        }
+        entry.borrowed = true;
+        return entry.handle;
+    }
+
+    // closes least recently used statements that are not out until the cache fits
+    private void evict() throws SQLException {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.borrowed) continue;
+            it.remove();
+            counters.cached.decrementAndGet();
+            counters.evictions.increment();
+            eldest.statement.close();
+        }
+    }
+
+    private void release(Entry entry) throws SQLException {
+        if (!entry.borrowed) return;
+        entry.borrowed = false;
+        if (entry.resultSet != null) {
+            entry.resultSet.close();
+            entry.resultSet = null;
+        }
+        entry.statement.clearParameters();
+        entry.statement.clearBatch();
+    }
+
+//  Gives back every statement still out, for when the connection goes back to the pool
+    void releaseAll() throws SQLException {
+        for (Entry entry : entries.values()) release(entry);
+    }
+
+    void close() throws SQLException {
+        for (Entry entry : entries.values()) entry.statement.close();
+        counters.cached.addAndGet(-entries.size());
+        entries.clear();
+    }
+
+    // a view of the statement whose close() gives it back, and which remembers the result set it returns
+    private PreparedStatement handle(Entry entry) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            release(entry);
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(entry.statement, args);
+                    }
+                    catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof ResultSet rs) entry.resultSet = rs;
+                    return result;
+                });
+    }
+}
@@ -1,14 +1,25 @@
 package edu.usc.csci310.project.controllers;
 
 import edu.usc.csci310.project.models.FavoriteSong;
+import edu.usc.csci310.project.models.MatchExplanation;
+import edu.usc.csci310.project.models.MatchList;
 import edu.usc.csci310.project.models.MatchResult;
+import edu.usc.csci310.project.models.WordFrequency;
+import edu.usc.csci310.project.requests.CreateUserRequest;
 import edu.usc.csci310.project.requests.FavoriteGetRequest;
 import edu.usc.csci310.project.requests.FavoriteSongRequest;
 import edu.usc.csci310.project.requests.FavoriteRemoveRequest;
+import edu.usc.csci310.project.requests.MatchExplainRequest;
+import edu.usc.csci310.project.requests.MatchListRequest;
+import edu.usc.csci310.project.responses.FavoriteBatchResponse;
+import edu.usc.csci310.project.responses.MatchExplanationResponse;
+import edu.usc.csci310.project.responses.MatchListResponse;
 import edu.usc.csci310.project.responses.MatchResultResponse;
 import edu.usc.csci310.project.responses.UserFavoritesResponse;
 import edu.usc.csci310.project.responses.UserResponse;
+import edu.usc.csci310.project.responses.WordCloudResponse;
 import edu.usc.csci310.project.services.FavoriteService;
+import edu.usc.csci310.project.services.SimilarityMetric;
 import org.apache.coyote.Response;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +32,13 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/favorite")
 public class FavoriteController {
+    // same number of words the React word cloud shows
+    private static final int WORD_CLOUD_SIZE = 100;
+    private static final int DEFAULT_MATCH_PAGE_SIZE = 10;
+    private static final int MAX_MATCH_PAGE_SIZE = 100;
+    // favorites one batch request may add or remove, all written in one transaction
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final FavoriteService favoriteService;
     public FavoriteController(FavoriteService favoriteService) { this.favoriteService = favoriteService; }
 
@@ -62,6 +80,45 @@ public class FavoriteController {
         }
     }
 
+    @PostMapping("/add/batch")
+    public ResponseEntity<FavoriteBatchResponse> addFavorites(@RequestBody List<FavoriteSongRequest> requests) {
+        if (!isValidBatch(requests)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new FavoriteBatchResponse(-1, "Send 1 to " + MAX_BATCH_SIZE + " favorites.", null));
+        }
+        try {
+            // per item: the songId or 0 if added, -1 if the user was not found, -2 if already favorited
+            List<Integer> results = favoriteService.addFavoriteSongs(requests);
+            long added = results.stream().filter(result -> result >= 0).count();
+            return ResponseEntity.ok(new FavoriteBatchResponse(1, "Added " + added + " of " + results.size() + " to favorites!", results));
+        }
+        catch (RuntimeException rte) {
+            String exceptionMessage = rte.getMessage();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new FavoriteBatchResponse(-1, exceptionMessage, null));
+        }
+    }
+
+    @PostMapping("/remove/batch")
+    public ResponseEntity<FavoriteBatchResponse> removeFavorites(@RequestBody List<FavoriteRemoveRequest> requests) {
+        if (!isValidBatch(requests)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new FavoriteBatchResponse(-1, "Send 1 to " + MAX_BATCH_SIZE + " favorites.", null));
+        }
+        try {
+            // per item: 1 if removed, 0 if it was not a favorite, -1 if the user was not found
+            List<Integer> results = favoriteService.removeFavoriteSongs(requests);
+            long removed = results.stream().filter(result -> result == 1).count();
+            return ResponseEntity.ok(new FavoriteBatchResponse(1, "Removed " + removed + " of " + results.size() + " from favorites!", results));
+        }
+        catch (RuntimeException rte) {
+            String exceptionMessage = rte.getMessage();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new FavoriteBatchResponse(-1, exceptionMessage, null));
+        }
+    }
+
+    private static boolean isValidBatch(List<? extends CreateUserRequest> requests) {
+        return requests != null && !requests.isEmpty() && requests.size() <= MAX_BATCH_SIZE
+                && requests.stream().allMatch(request -> request != null && request.getUsername() != null);
+    }
+
     @PostMapping("/get")
     public ResponseEntity<UserFavoritesResponse> getFavoriteSong(@RequestBody FavoriteGetRequest request) {
         try {
@@ -79,6 +136,23 @@ public class FavoriteController {
         }
     }
 
+    @PostMapping("/get/wordcloud")
+    public ResponseEntity<WordCloudResponse> getWordCloud(@RequestBody FavoriteGetRequest request) {
+        try {
+            List<WordFrequency> result = favoriteService.getWordCloud(request, WORD_CLOUD_SIZE);
+            if (result.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new WordCloudResponse(-2, "No favorite songs found.", result));
+            }
+            else {
+                return ResponseEntity.ok(new WordCloudResponse(1, "Word cloud found.", result));
+            }
+        }
+        catch (RuntimeException rte) {
+            String exceptionMessage = rte.getMessage();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new WordCloudResponse(-1, exceptionMessage, null));
+        }
+    }
+
     @PostMapping("/get/soulmate")
     public ResponseEntity<MatchResultResponse> getSoulmate(@RequestBody FavoriteGetRequest request) {
         try {
@@ -92,11 +166,63 @@ public class FavoriteController {
                 return ResponseEntity.ok().body(new MatchResultResponse(new MatchResult()));
             }
             MatchResult result = favoriteService.findMatches(userId);
-            return ResponseEntity.ok(new MatchResultResponse(result));
+            return ResponseEntity.ok(new MatchResultResponse(result, favoriteService.getMatchSnapshotAgeMillis()));
         } catch (Exception e) {
 //            String exceptionMessage = e.getMessage();
            e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new MatchResultResponse(new MatchResult()));
         }
     }
+
+    @PostMapping("/get/matches")
+    public ResponseEntity<MatchListResponse> getMatches(@RequestBody MatchListRequest request) {
+        try {
+            String username = request.getUsername();
+            int size = request.getSize() <= 0 ? DEFAULT_MATCH_PAGE_SIZE : request.getSize();
+            if (username == null || username.isEmpty() || request.getPage() < 0 || size > MAX_MATCH_PAGE_SIZE) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new MatchListResponse(new MatchList()));
+            }
+            SimilarityMetric metric;
+            try {
+                metric = SimilarityMetric.of(request.getMetric());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new MatchListResponse(new MatchList()));
+            }
+            int userId = favoriteService.getUserId(username);
+            if (userId == -1) {
+                return ResponseEntity.ok().body(new MatchListResponse(new MatchList()));
+            }
+            MatchList result = favoriteService.findTopMatches(userId, request.getPage(), size, metric);
+            return ResponseEntity.ok(new MatchListResponse(result));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new MatchListResponse(new MatchList()));
+        }
+    }
+
+    @PostMapping("/get/explain")
+    public ResponseEntity<MatchExplanationResponse> explainMatch(@RequestBody MatchExplainRequest request) {
+        try {
+            String username = request.getUsername();
+            String otherUsername = request.getOtherUsername();
+            int size = request.getSize() <= 0 ? DEFAULT_MATCH_PAGE_SIZE : request.getSize();
+            if (username == null || username.isEmpty() || otherUsername == null || otherUsername.isEmpty()
+                    || size > MAX_MATCH_PAGE_SIZE) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new MatchExplanationResponse(new MatchExplanation()));
+            }
+            int userId = favoriteService.getUserId(username);
+            int otherUserId = favoriteService.getUserId(otherUsername);
+            if (userId == -1 || otherUserId == -1) {
+                return ResponseEntity.ok().body(new MatchExplanationResponse(new MatchExplanation()));
+            }
+            MatchExplanation result = favoriteService.explainMatch(userId, otherUserId, size);
+            if (result == null) {   // otherUsername is not one of the user's matches
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new MatchExplanationResponse(new MatchExplanation()));
+            }
+            return ResponseEntity.ok(new MatchExplanationResponse(result));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new MatchExplanationResponse(new MatchExplanation()));
+        }
+    }
 }
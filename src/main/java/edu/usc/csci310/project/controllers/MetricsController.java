@@ -0,0 +1,32 @@
+package edu.usc.csci310.project.controllers;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.services.FavoriteService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+    private final FavoriteService favoriteService;
+    private final ConnectionPool connectionPool;
+
+    public MetricsController(FavoriteService favoriteService, ConnectionPool connectionPool) {
+        this.favoriteService = favoriteService;
+        this.connectionPool = connectionPool;
+    }
+
+    @GetMapping
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("matchCache", favoriteService.getMatchCacheStats());
+        metrics.put("songCache", favoriteService.getSongCacheStats());
+        metrics.put("matchSnapshot", favoriteService.getMatchSnapshotStats());
+        metrics.put("connectionPool", connectionPool.stats());
+        return metrics;
+    }
+}
@@ -0,0 +1,61 @@
+package edu.usc.csci310.project.controllers;
+
+import edu.usc.csci310.project.requests.ShardQueryRequest;
+import edu.usc.csci310.project.responses.ShardCandidatesResponse;
+import edu.usc.csci310.project.services.FavoriteService;
+import edu.usc.csci310.project.services.MatchCandidates;
+import edu.usc.csci310.project.services.ShardCoordinator;
+import edu.usc.csci310.project.services.ShardTopology;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/shard")
+public class ShardController {
+    private final FavoriteService favoriteService;
+    private final ShardTopology topology;
+    private final byte[] secret;
+
+    public ShardController(FavoriteService favoriteService, ShardTopology topology,
+                           @Value("${favorites.shard.secret:}") String secret) {
+        this.favoriteService = favoriteService;
+        this.topology = topology;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+//  This shard's best and worst candidates for a query cloud, called by the coordinating instance.
+//  Not found on an unsharded instance, which would otherwise score any cloud against every user.
+//  Forbidden unless the call carries favorites.shard.secret, and always forbidden if no secret is set.
+    @PostMapping("/candidates")
+    public ResponseEntity<ShardCandidatesResponse> getCandidates(
+            @RequestHeader(value = ShardCoordinator.SECRET_HEADER, required = false) String callerSecret,
+            @RequestBody ShardQueryRequest request) {
+        if (!topology.isSharded()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ShardCandidatesResponse());
+        }
+        if (!isCoordinator(callerSecret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new ShardCandidatesResponse());
+        }
+        try {
+            Map<String, Integer> terms = request.getTerms() == null ? Map.of() : request.getTerms();
+            MatchCandidates found = favoriteService.findLocalCandidates(request.getUserId(), terms);
+            return ResponseEntity.ok(new ShardCandidatesResponse(found.bestUser, found.bestScore,
+                    found.worstUser, found.worstScore));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ShardCandidatesResponse());
+        }
+    }
+
+//  Compared in constant time, so response times do not give the secret away
+    private boolean isCoordinator(String callerSecret) {
+        return secret.length > 0 && callerSecret != null
+                && MessageDigest.isEqual(secret, callerSecret.getBytes(StandardCharsets.UTF_8));
+    }
+}
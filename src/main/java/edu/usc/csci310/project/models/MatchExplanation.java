@@ -0,0 +1,21 @@
+package edu.usc.csci310.project.models;
+
+import java.util.List;
+
+public class MatchExplanation {
+    public final String username;        // the user the match is explained against
+    public final double score;           // weighted Jaccard similarity of the two word clouds
+    public final long sharedTotal;       // sum of min counts over every shared word
+    public final List<SharedWord> words; // the words adding most to sharedTotal, most first
+
+    public MatchExplanation(String username, double score, long sharedTotal, List<SharedWord> words) {
+        this.username = username;
+        this.score = score;
+        this.sharedTotal = sharedTotal;
+        this.words = words;
+    }
+
+    public MatchExplanation() {
+        this(null, 0.0, 0L, List.of());
+    }
+}
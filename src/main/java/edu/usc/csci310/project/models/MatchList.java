@@ -0,0 +1,23 @@
+package edu.usc.csci310.project.models;
+
+import java.util.List;
+
+public class MatchList {
+    public final List<RankedMatch> soulmates; // most similar first
+    public final List<RankedMatch> enemies;   // least similar first
+    public final int page;
+    public final int size;
+    public final int total;                   // how many users were ranked
+
+    public MatchList(List<RankedMatch> soulmates, List<RankedMatch> enemies, int page, int size, int total) {
+        this.soulmates = soulmates;
+        this.enemies = enemies;
+        this.page = page;
+        this.size = size;
+        this.total = total;
+    }
+
+    public MatchList() {
+        this(List.of(), List.of(), 0, 0, 0);
+    }
+}
@@ -0,0 +1,13 @@
+package edu.usc.csci310.project.models;
+
+public class RankedMatch {
+    public final String username;
+    public final double score;   // similarity of the two word clouds under the requested metric, weighted Jaccard by default
+    public final boolean mutual; // whether they rank us first in the same list
+
+    public RankedMatch(String username, double score, boolean mutual) {
+        this.username = username;
+        this.score = score;
+        this.mutual = mutual;
+    }
+}
@@ -0,0 +1,15 @@
+package edu.usc.csci310.project.models;
+
+public class SharedWord {
+    public final String word;   // the analyzed (stemmed) term
+    public final int shared;    // min of the two counts, what the word adds to the match
+    public final int mine;
+    public final int theirs;
+
+    public SharedWord(String word, int shared, int mine, int theirs) {
+        this.word = word;
+        this.shared = shared;
+        this.mine = mine;
+        this.theirs = theirs;
+    }
+}
@@ -0,0 +1,11 @@
+package edu.usc.csci310.project.models;
+
+public class WordFrequency {
+    public String word; // the analyzed (stemmed) term
+    public int frequency;
+
+    public WordFrequency(String word, int frequency) {
+        this.word = word;
+        this.frequency = frequency;
+    }
+}
@@ -0,0 +1,22 @@
+package edu.usc.csci310.project.requests;
+
+public class MatchExplainRequest extends FavoriteGetRequest {
+    private String otherUsername;
+    private int size;
+
+    public String getOtherUsername() {
+        return otherUsername;
+    }
+
+    public void setOtherUsername(String otherUsername) {
+        this.otherUsername = otherUsername;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
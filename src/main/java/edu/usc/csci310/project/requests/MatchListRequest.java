@@ -0,0 +1,31 @@
+package edu.usc.csci310.project.requests;
+
+public class MatchListRequest extends FavoriteGetRequest {
+    private int page;
+    private int size;
+    private String metric;
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+    }
+}
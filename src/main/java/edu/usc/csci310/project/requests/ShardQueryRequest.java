@@ -0,0 +1,32 @@
+package edu.usc.csci310.project.requests;
+
+import java.util.Map;
+
+public class ShardQueryRequest {
+    private int userId;
+    private Map<String, Integer> terms;
+
+    public ShardQueryRequest() {
+    }
+
+    public ShardQueryRequest(int userId, Map<String, Integer> terms) {
+        this.userId = userId;
+        this.terms = terms;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public Map<String, Integer> getTerms() {
+        return terms;
+    }
+
+    public void setTerms(Map<String, Integer> terms) {
+        this.terms = terms;
+    }
+}
@@ -0,0 +1,28 @@
+package edu.usc.csci310.project.responses;
+
+import java.util.List;
+
+public class FavoriteBatchResponse {
+    private final int id;
+    private final String message;
+    // one code per item of the batch, in the order they were sent
+    private final List<Integer> results;
+
+    public FavoriteBatchResponse(int id, String message, List<Integer> results) {
+        this.id = id;
+        this.message = message;
+        this.results = results;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public List<Integer> getResults() {
+        return results;
+    }
+}
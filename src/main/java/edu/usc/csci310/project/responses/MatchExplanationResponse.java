@@ -0,0 +1,18 @@
+package edu.usc.csci310.project.responses;
+
+import edu.usc.csci310.project.models.MatchExplanation;
+
+public class MatchExplanationResponse {
+
+    public MatchExplanation matchExplanation;
+    public MatchExplanationResponse(MatchExplanation matchExplanation) {
+        this.matchExplanation = matchExplanation;
+    }
+
+    public MatchExplanation getMatchExplanation() {
+        return matchExplanation;
+    }
+    public void setMatchExplanation(MatchExplanation matchExplanation) {
+        this.matchExplanation = matchExplanation;
+    }
+}
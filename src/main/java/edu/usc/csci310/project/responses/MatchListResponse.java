@@ -0,0 +1,18 @@
+package edu.usc.csci310.project.responses;
+
+import edu.usc.csci310.project.models.MatchList;
+
+public class MatchListResponse {
+
+    public MatchList matchList;
+    public MatchListResponse(MatchList matchList) {
+        this.matchList = matchList;
+    }
+
+    public MatchList getMatchList() {
+        return matchList;
+    }
+    public void setMatchList(MatchList matchList) {
+        this.matchList = matchList;
+    }
+}
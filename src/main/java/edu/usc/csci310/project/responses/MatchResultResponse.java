@@ -8,10 +8,18 @@ import java.util.List;
 public class MatchResultResponse {
 
     public MatchResult matchResult;
+    // how long ago the matches were computed, 0 if they were computed for this request
+    public long snapshotAgeMillis;
+
     public MatchResultResponse(MatchResult matchResult) {
         this.matchResult = matchResult;
     }
 
+    public MatchResultResponse(MatchResult matchResult, long snapshotAgeMillis) {
+        this.matchResult = matchResult;
+        this.snapshotAgeMillis = snapshotAgeMillis;
+    }
+
     public MatchResultResponse(int i, String s, List<FavoriteSong> result) {
     }
 
@@ -21,4 +29,12 @@ public class MatchResultResponse {
     public void setMatchResult(MatchResult matchResult) {
         this.matchResult = matchResult;
     }
+
+    public long getSnapshotAgeMillis() {
+        return snapshotAgeMillis;
+    }
+
+    public void setSnapshotAgeMillis(long snapshotAgeMillis) {
+        this.snapshotAgeMillis = snapshotAgeMillis;
+    }
 }
@@ -0,0 +1,50 @@
+package edu.usc.csci310.project.responses;
+
+public class ShardCandidatesResponse {
+    public int bestUser = -1;    // -1 if the shard has no candidate
+    public double bestScore;
+    public int worstUser = -1;
+    public double worstScore;
+
+    public ShardCandidatesResponse() {
+    }
+
+    public ShardCandidatesResponse(int bestUser, double bestScore, int worstUser, double worstScore) {
+        this.bestUser = bestUser;
+        this.bestScore = bestScore;
+        this.worstUser = worstUser;
+        this.worstScore = worstScore;
+    }
+
+    public int getBestUser() {
+        return bestUser;
+    }
+
+    public void setBestUser(int bestUser) {
+        this.bestUser = bestUser;
+    }
+
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    public void setBestScore(double bestScore) {
+        this.bestScore = bestScore;
+    }
+
+    public int getWorstUser() {
+        return worstUser;
+    }
+
+    public void setWorstUser(int worstUser) {
+        this.worstUser = worstUser;
+    }
+
+    public double getWorstScore() {
+        return worstScore;
+    }
+
+    public void setWorstScore(double worstScore) {
+        this.worstScore = worstScore;
+    }
+}
@@ -0,0 +1,29 @@
+package edu.usc.csci310.project.responses;
+
+import edu.usc.csci310.project.models.WordFrequency;
+
+import java.util.List;
+
+public class WordCloudResponse {
+    private int id;
+    private String message;
+    private List<WordFrequency> words;
+
+    public WordCloudResponse(int id, String message, List<WordFrequency> words) {
+        this.id = id;
+        this.message = message;
+        this.words = words;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<WordFrequency> getWords() {
+        return words;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
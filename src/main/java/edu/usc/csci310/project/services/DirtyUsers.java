@@ -0,0 +1,48 @@
+package edu.usc.csci310.project.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Users whose favorites changed and whose matches still have to be recomputed, debounced: a user only
+ * becomes due once they have gone debounce milliseconds without another change, so a burst of favorites
+ * is recomputed once. A user who keeps changing is still due maxWait milliseconds after the first
+ * change of the burst. Thread-safe.
+ */
+public class DirtyUsers {
+    private final long debounce;
+    private final long maxWait;
+    // user -> {first change of the burst, last change}
+    private final Map<Integer, long[]> changes = new HashMap<>();
+
+    public DirtyUsers(long debounce, long maxWait) {
+        if (debounce < 0 || maxWait < debounce) {
+            throw new IllegalArgumentException("Need 0 <= debounce <= maxWait");
+        }
+        this.debounce = debounce;
+        this.maxWait = maxWait;
+    }
+
+    public synchronized void mark(int userId, long now) {
+        long[] times = changes.computeIfAbsent(userId, id -> new long[] {now, now});
+        times[1] = now;
+    }
+
+//  Removes and returns every user that is due at the given time
+    public synchronized List<Integer> drainDue(long now) {
+        List<Integer> due = new ArrayList<>();
+        changes.entrySet().removeIf(e -> {
+            long[] times = e.getValue();
+            boolean ready = now - times[1] >= debounce || now - times[0] >= maxWait;
+            if (ready) due.add(e.getKey());
+            return ready;
+        });
+        return due;
+    }
+
+    public synchronized int size() {
+        return changes.size();
+    }
+}
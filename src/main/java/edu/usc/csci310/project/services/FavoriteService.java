@@ -1,17 +1,34 @@
 package edu.usc.csci310.project.services;
 
 import edu.usc.csci310.project.Utils;
+import edu.usc.csci310.project.configuration.ConnectionPool;
 import edu.usc.csci310.project.models.FavoriteSong;
+import edu.usc.csci310.project.models.MatchExplanation;
+import edu.usc.csci310.project.models.MatchList;
 import edu.usc.csci310.project.models.MatchResult;
+import edu.usc.csci310.project.models.RankedMatch;
+import edu.usc.csci310.project.models.SharedWord;
+import edu.usc.csci310.project.models.WordFrequency;
 import edu.usc.csci310.project.requests.FavoriteGetRequest;
 import edu.usc.csci310.project.requests.FavoriteRemoveRequest;
 import edu.usc.csci310.project.requests.FavoriteSongRequest;
 import edu.usc.csci310.project.requests.LoginUserRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 import static edu.usc.csci310.project.Utils.hashUsername;
 
@@ -34,90 +51,217 @@ import static edu.usc.csci310.project.Utils.hashUsername;
 
 @Service
 public class FavoriteService {
-    private final Connection connection;
-
-    private static final HashMap<Integer, MatchResult > matchCache = new HashMap<>();
-
-    public FavoriteService(Connection connection) { this.connection = connection; }
+    // songs analyzed per read/write round trip of the one-time song_terms backfill
+    static final int BACKFILL_CHUNK_SIZE = 500;
+    // how far down a user's ranked lists explainMatch looks for the other user, the largest /get/matches page
+    static final int EXPLAINABLE_RANKS = 100;
+    private static final Logger logger = LoggerFactory.getLogger(FavoriteService.class);
+
+    private final ConnectionPool pool;
+    private final UserTermStore termStore;
+    private final SongTermStore songTermStore;
+    private final MatchEngine engine;
+    private final LyricAnalyzer analyzer;
+    // who favorited what, for approximate mode's soulmate search order
+    private final SongUserIndex songUsers = new SongUserIndex();
+    // null when favorites.vector-file is empty or the matcher is sharded
+    private final VectorFile vectorFile;
+    // which users this instance indexes; the coordinator is null unless it scatters queries to the shards
+    private final ShardTopology topology;
+    private final ShardCoordinator coordinator;
+    // set once the matcher is loaded; read without a lock by every request after that
+    private volatile boolean matcherReady = false;
+    private final Object matcherLock = new Object();
+
+    // bumped whenever match results can change: by every published snapshot, or in approximate mode by every
+    // favorite change; cached match results are only valid for the epoch they were computed in
+    private final AtomicLong favoritesEpoch = new AtomicLong();
+    private final MatchResultCache matchCache;
+
+    // what findMatches reads in exact mode; replaced whole by publishMatchSnapshot
+    private volatile MatchSnapshot snapshot = MatchSnapshot.EMPTY;
+    private final DirtyUsers dirtyUsers;
+    private final Object publishLock = new Object();
+
+    public FavoriteService(ConnectionPool pool, UserTermStore termStore, SongTermStore songTermStore,
+                           MatchEngine engine, @Value("${favorites.match-cache.size:10000}") int matchCacheSize,
+                           @Value("${favorites.vector-file:dataUsers.vec}") String vectorFilePath,
+                           ShardTopology topology, @Qualifier("shardRestTemplate") RestTemplate shardRestTemplate,
+                           @Value("${favorites.match-snapshot.debounce-ms:500}") long snapshotDebounceMs) {
+        this.pool = pool;
+        this.termStore = termStore;
+        this.songTermStore = songTermStore;
+        this.engine = engine;
+        this.analyzer = new LyricAnalyzer(engine.dictionary());
+        engine.useSongIndex(songUsers);
+        this.matchCache = new MatchResultCache(matchCacheSize);
+        // the generation counter covers every user, so a shard's file of its own users would never be current
+        this.vectorFile = vectorFilePath.isEmpty() || topology.isSharded() ? null : new VectorFile(Path.of(vectorFilePath));
+        this.topology = topology;
+        this.coordinator = topology.isCoordinator()
+                ? new ShardCoordinator(shardRestTemplate, topology.getShardUrls()) : null;
+        // a user who keeps changing favorites is still recomputed every ten debounce periods
+        this.dirtyUsers = new DirtyUsers(snapshotDebounceMs, snapshotDebounceMs * 10);
+    }
 
 //  Adds a song to the Songs table, with an entry in the Favorites table
 //  Songs: id, songId, songName, songArtist, fullTitle, dateReleased,
 //  Favorites: id, userId, songId
+//  Returns the songId if the song was stored now, 0 if it was already stored,
+//  -1 if the user does not exist and -2 if the user already favorited the song
     public int addFavoriteSong(FavoriteSongRequest request) {
-        int result = -1;
-
         int userId = getUserId(request.getUsername());
         int songId = request.getSongId();
         if(userId == -1) {
-            return result;
+            return -1;
         }
         try {
-            if(isSongFavorited(songId, userId)) {
-                return -2; // represents song is already favorited
-            }
+            // before borrowing the writer, since loading the matcher borrows it too
+            ensureMatcherReady();
         }
         catch(SQLException e) {
             throw new RuntimeException(e);
         }
 
-        String insertSongsSQL = "INSERT INTO songs (songId, songName, songArtist, fullTitle, dateReleased, lyrics, album) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try(PreparedStatement pst = connection.prepareStatement(insertSongsSQL)) {
-            if(isSongAdded(songId)) {
-                result = 0; // represents song is already in DB
-            }
-            else {
-                pst.setInt(1, songId);
-                pst.setString(2, request.getSongName());
-                pst.setString(3, request.getSongArtist());
-                pst.setString(4, request.getFullTitle());
-                pst.setString(5, request.getDateReleased());
-                pst.setString(6, request.getAlbum());
-                pst.setString(7, request.getLyrics());
-
-                int rowsAffected = pst.executeUpdate();
+        // the unique keys on songs.songId and favorites(userId, songId) decide what already exists, so two
+        // requests for the same song or favorite cannot both insert it
+        String insertSongSQL = "INSERT INTO songs (songId, songName, songArtist, fullTitle, dateReleased, lyrics, album) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT(songId) DO NOTHING RETURNING songId";
+        String insertFavoriteSQL = "INSERT INTO favorites (userId, songId) VALUES (?, ?) " +
+                "ON CONFLICT(userId, songId) DO NOTHING RETURNING id";
+        int result;
+        try(Connection connection = pool.writer()) {
+            long generation;
+            connection.setAutoCommit(false);
+            try(PreparedStatement insertSong = connection.prepareStatement(insertSongSQL);
+                PreparedStatement insertFavorite = connection.prepareStatement(insertFavoriteSQL)) {
+                bindSong(insertSong, request);
+                try(ResultSet rs = insertSong.executeQuery()) {
+                    result = rs.next() ? rs.getInt(1) : 0; // 0 represents song is already in DB
+                }
 
-                if (rowsAffected > 0) {
-                    try (Statement statement = connection.createStatement();
-                         ResultSet rs = statement.executeQuery("SELECT last_insert_rowid()")) {
-                        if (rs.next()) {
-                            result = rs.getInt(1); // Return the generated ID
-                        } else {
-                            throw new SQLException("Failed to retrieve the generated ID in songs.");
-                        }
+                insertFavorite.setInt(1, userId);
+                insertFavorite.setInt(2, songId);
+                try(ResultSet rs = insertFavorite.executeQuery()) {
+                    if(!rs.next()) {
+                        connection.rollback();
+                        return -2; // represents song is already favorited
                     }
-                } else {
-                    throw new SQLException("No rows in Songs affected during the insert.");
                 }
+
+                // analyze the lyrics once; every user who favorites the song reuses this vector
+                if(result > 0) songTermStore.put(songId, countTerms(request.getLyrics()));
+                // fold the song's terms into the user's stored cloud
+                generation = termStore.nextGeneration();
+                termStore.addTerms(userId, songTermStore.load(songId));
+                connection.commit();
             }
+            catch(SQLException | RuntimeException e) {
+                // any failure, not only a database one, must roll back before autocommit is restored,
+                // which would otherwise commit the half-finished transaction
+                connection.rollback();
+                // the vector cached inside the transaction belongs to a song that was never stored
+                songTermStore.invalidate(List.of(songId));
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+
+            // still holding the writer, so changes reach the vector file's journal in generation order
+            songUsers.add(userId, songId);
+            if (topology.owns(userId)) stageChange(userId, generation);
         }
         catch(SQLException e) {
             throw new RuntimeException(e);
         }
 
-        String insertFavoritesSQL = "INSERT INTO favorites (userId, songId) VALUES (?, ?)";
-        try(PreparedStatement pst = connection.prepareStatement(insertFavoritesSQL)) {
-            pst.setInt(1, userId);
-            pst.setInt(2, request.getSongId());
+        return result;
+    }
 
-            int rowsAffected = pst.executeUpdate();
-            if(rowsAffected > 0) {
-                try (Statement statement = connection.createStatement();
-                     ResultSet rs = statement.executeQuery("SELECT last_insert_rowid()")) {
-                    if(!rs.next()) {
-                        throw new SQLException("Failed to retrieve the generated ID in favorites.");
-                    }
+//  Adds many favorites in one transaction, with the songs and the favorites each sent as one JDBC batch.
+//  Returns a code per request, in order, meaning what addFavoriteSong returns; a request repeating an
+//  earlier one in the batch gets -2. Each changed user is re-indexed once, and matches invalidated once.
+    public List<Integer> addFavoriteSongs(List<FavoriteSongRequest> requests) {
+        int[] userIds = userIds(requests.stream().map(FavoriteSongRequest::getUsername).toList());
+        int[] results = new int[requests.size()];
+        List<Integer> valid = new ArrayList<>();
+        for(int i = 0; i < requests.size(); i++) {
+            if(userIds[i] == -1) results[i] = -1;
+            else valid.add(i);
+        }
+        if(valid.isEmpty()) return toList(results);
+        try {
+            // before borrowing the writer, since loading the matcher borrows it too
+            ensureMatcherReady();
+        }
+        catch(SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        String insertSongSQL = "INSERT INTO songs (songId, songName, songArtist, fullTitle, dateReleased, lyrics, album) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT(songId) DO NOTHING";
+        String insertFavoriteSQL = "INSERT INTO favorites (userId, songId) VALUES (?, ?) " +
+                "ON CONFLICT(userId, songId) DO NOTHING";
+        Map<Integer, Long> generations = new LinkedHashMap<>();
+        try(Connection connection = pool.writer()) {
+            connection.setAutoCommit(false);
+            try(PreparedStatement insertSong = connection.prepareStatement(insertSongSQL);
+                PreparedStatement insertFavorite = connection.prepareStatement(insertFavoriteSQL)) {
+                for(int i : valid) {
+                    bindSong(insertSong, requests.get(i));
+                    insertSong.addBatch();
+                    insertFavorite.setInt(1, userIds[i]);
+                    insertFavorite.setInt(2, requests.get(i).getSongId());
+                    insertFavorite.addBatch();
+                }
+                // one update count per row: 0 where the song or favorite was already stored
+                int[] songRows = insertSong.executeBatch();
+                int[] favoriteRows = insertFavorite.executeBatch();
+
+                Map<Integer, Map<String, Integer>> newSongs = new LinkedHashMap<>();
+                for(int k = 0; k < valid.size(); k++) {
+                    FavoriteSongRequest request = requests.get(valid.get(k));
+                    if(songRows[k] > 0) newSongs.put(request.getSongId(), countTerms(request.getLyrics()));
+                    if(favoriteRows[k] == 0) results[valid.get(k)] = -2;
+                    else results[valid.get(k)] = songRows[k] > 0 ? request.getSongId() : 0;
                 }
+                songTermStore.putAll(newSongs);
+
+                // each user's cloud is updated once with the terms of all of their new favorites
+                Map<Integer, Map<String, Integer>> addedTerms = new LinkedHashMap<>();
+                for(int i : valid) {
+                    if(results[i] == -2) continue;
+                    Map<String, Integer> terms = addedTerms.computeIfAbsent(userIds[i], id -> new HashMap<>());
+                    songTermStore.load(requests.get(i).getSongId()).forEach((term, count) -> terms.merge(term, count, Integer::sum));
+                }
+                for(Map.Entry<Integer, Map<String, Integer>> e : addedTerms.entrySet()) {
+                    generations.put(e.getKey(), termStore.nextGeneration());
+                    termStore.addTerms(e.getKey(), e.getValue());
+                }
+                connection.commit();
+            }
+            catch(SQLException | RuntimeException e) {
+                connection.rollback();
+                // the vectors cached inside the transaction may belong to songs that were never stored
+                songTermStore.invalidate(valid.stream().map(i -> requests.get(i).getSongId()).toList());
+                throw e;
             }
-            else {
-                throw new SQLException("No rows in Favorites affected during the insert.");
+            finally {
+                connection.setAutoCommit(true);
             }
 
+            // still holding the writer, so changes reach the vector file's journal in generation order
+            for(int i : valid) {
+                if(results[i] != -2) songUsers.add(userIds[i], requests.get(i).getSongId());
+            }
+            stageChanges(generations);
         }
         catch(SQLException e) {
             throw new RuntimeException(e);
         }
 
-        return result;
+        return toList(results);
     }
 
 //  Removes a favorited song using its songId
@@ -129,14 +273,41 @@ public class FavoriteService {
         }
 
         String sql = "DELETE FROM favorites WHERE userId = ? and songId = ?";
-        try(PreparedStatement pst = connection.prepareStatement(sql)) {
-            pst.setInt(1, userId);
-            pst.setInt(2, request.getSongId());
-            int rowsAffected = pst.executeUpdate();
-            if(rowsAffected == 0) {
-                throw new SQLException("Failed to delete the entry from Favorites.");
+        try {
+            // before borrowing the writer, since loading the matcher borrows it too
+            ensureMatcherReady();
+        }
+        catch(SQLException e) {
+            throw new RuntimeException(e);
+        }
+        try(Connection connection = pool.writer()) {
+            long generation;
+            connection.setAutoCommit(false);
+            try(PreparedStatement pst = connection.prepareStatement(sql)) {
+                pst.setInt(1, userId);
+                pst.setInt(2, request.getSongId());
+                int rowsAffected = pst.executeUpdate();
+                if(rowsAffected == 0) {
+                    throw new SQLException("Failed to delete the entry from Favorites.");
+                }
+                else result = rowsAffected;
+
+                // take the song's terms back out of the user's stored cloud
+                generation = termStore.nextGeneration();
+                termStore.subtractTerms(userId, songTermStore.load(request.getSongId()));
+                connection.commit();
+            }
+            catch(SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
             }
-            else result = rowsAffected;
+            finally {
+                connection.setAutoCommit(true);
+            }
+
+            // still holding the writer, so changes reach the vector file's journal in generation order
+            songUsers.remove(userId, request.getSongId());
+            if (topology.owns(userId)) stageChange(userId, generation);
         }
         catch(SQLException e) {
             throw new RuntimeException(e);
@@ -145,6 +316,100 @@ public class FavoriteService {
         return result;
     }
 
+//  Removes many favorites in one transaction, with the deletes sent as one JDBC batch.
+//  Returns a code per request, in order: 1 if the favorite was removed, 0 if the user had not favorited
+//  the song and -1 if the user does not exist. Each changed user is re-indexed once, and matches invalidated once.
+    public List<Integer> removeFavoriteSongs(List<FavoriteRemoveRequest> requests) {
+        int[] userIds = userIds(requests.stream().map(FavoriteRemoveRequest::getUsername).toList());
+        int[] results = new int[requests.size()];
+        List<Integer> valid = new ArrayList<>();
+        for(int i = 0; i < requests.size(); i++) {
+            if(userIds[i] == -1) results[i] = -1;
+            else valid.add(i);
+        }
+        if(valid.isEmpty()) return toList(results);
+        try {
+            // before borrowing the writer, since loading the matcher borrows it too
+            ensureMatcherReady();
+        }
+        catch(SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        String sql = "DELETE FROM favorites WHERE userId = ? and songId = ?";
+        Map<Integer, Long> generations = new LinkedHashMap<>();
+        try(Connection connection = pool.writer()) {
+            connection.setAutoCommit(false);
+            try(PreparedStatement pst = connection.prepareStatement(sql)) {
+                for(int i : valid) {
+                    pst.setInt(1, userIds[i]);
+                    pst.setInt(2, requests.get(i).getSongId());
+                    pst.addBatch();
+                }
+                int[] rows = pst.executeBatch();
+
+                // each user's cloud is updated once with the terms of all of their removed favorites
+                Map<Integer, Map<String, Integer>> removedTerms = new LinkedHashMap<>();
+                for(int k = 0; k < valid.size(); k++) {
+                    int i = valid.get(k);
+                    results[i] = rows[k] > 0 ? 1 : 0;
+                    if(rows[k] == 0) continue;
+                    Map<String, Integer> terms = removedTerms.computeIfAbsent(userIds[i], id -> new HashMap<>());
+                    songTermStore.load(requests.get(i).getSongId()).forEach((term, count) -> terms.merge(term, count, Integer::sum));
+                }
+                for(Map.Entry<Integer, Map<String, Integer>> e : removedTerms.entrySet()) {
+                    generations.put(e.getKey(), termStore.nextGeneration());
+                    termStore.subtractTerms(e.getKey(), e.getValue());
+                }
+                connection.commit();
+            }
+            catch(SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+
+            // still holding the writer, so changes reach the vector file's journal in generation order
+            for(int i : valid) {
+                if(results[i] == 1) songUsers.remove(userIds[i], requests.get(i).getSongId());
+            }
+            stageChanges(generations);
+        }
+        catch(SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return toList(results);
+    }
+
+//  Binds the song columns of the songs insert, in the insert's column order. The lyrics used to be bound to
+//  the album column and the album to the lyrics column; migration 3 swaps the columns of songs stored before that
+    private void bindSong(PreparedStatement pst, FavoriteSongRequest request) throws SQLException {
+        pst.setInt(1, request.getSongId());
+        pst.setString(2, request.getSongName());
+        pst.setString(3, request.getSongArtist());
+        pst.setString(4, request.getFullTitle());
+        pst.setString(5, request.getDateReleased());
+        pst.setString(6, request.getLyrics());
+        pst.setString(7, request.getAlbum());
+    }
+
+//  The id of every username, -1 for those that do not exist; each distinct username is looked up once
+    private int[] userIds(List<String> usernames) {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] userIds = new int[usernames.size()];
+        for(int i = 0; i < usernames.size(); i++) {
+            userIds[i] = ids.computeIfAbsent(usernames.get(i), this::getUserId);
+        }
+        return userIds;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        return Arrays.stream(values).boxed().toList();
+    }
+
 //  Get all favorite songs of a user
 public List<FavoriteSong> getFavoriteSongs(FavoriteGetRequest request) {
     List<FavoriteSong> result = new ArrayList<>();
@@ -161,7 +426,8 @@ public List<FavoriteSong> getFavoriteSongs(FavoriteGetRequest request) {
         ORDER BY f.id ASC
     """;
 
-    try (PreparedStatement pst = connection.prepareStatement(sql)) {
+    try (Connection connection = pool.reader();
+         PreparedStatement pst = connection.prepareStatement(sql)) {
         pst.setInt(1, userId);
         ResultSet rs = pst.executeQuery();
         while (rs.next()) {
@@ -180,11 +446,32 @@ public List<FavoriteSong> getFavoriteSongs(FavoriteGetRequest request) {
     return result;
 }
 
+//  Get the word cloud of a user's favorites: their most frequent analyzed terms, most frequent first
+    public List<WordFrequency> getWordCloud(FavoriteGetRequest request, int maxWords) {
+        int userId = getUserId(request.getUsername());
+        if (userId == -1) {
+            throw new RuntimeException("User does not exist.");
+        }
+
+        List<WordFrequency> result = new ArrayList<>();
+        try {
+            ensureMatcherReady();
+            for (Map.Entry<String, Integer> e : termStore.loadTop(userId, maxWords).entrySet()) {
+                result.add(new WordFrequency(e.getKey(), e.getValue()));
+            }
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
 //  Helper function for seeing if a song already exists in the SQL database
     public boolean isSongAdded(int songId) throws SQLException {
         String sql = "SELECT * FROM songs WHERE songId = ?";
 
-        try(PreparedStatement pst = connection.prepareStatement(sql)) {
+        try(Connection connection = pool.reader();
+            PreparedStatement pst = connection.prepareStatement(sql)) {
             pst.setInt(1, songId);
             ResultSet rs = pst.executeQuery();
             return rs.next();
@@ -196,7 +483,8 @@ public List<FavoriteSong> getFavoriteSongs(FavoriteGetRequest request) {
 //   Helper function for seeing if a song is already favorited by a certain user
     public boolean isSongFavorited(int songId, int userId) throws SQLException {
         String sql = "SELECT * FROM favorites WHERE songId = ? AND userId = ?";
-        try(PreparedStatement pst = connection.prepareStatement(sql)) {
+        try(Connection connection = pool.reader();
+            PreparedStatement pst = connection.prepareStatement(sql)) {
             pst.setInt(1, songId);
             pst.setInt(2, userId);
             ResultSet rs = pst.executeQuery();
@@ -207,6 +495,18 @@ public List<FavoriteSong> getFavoriteSongs(FavoriteGetRequest request) {
         }
     }
 
+//  Helper function for retrieving the stored lyrics of a song, null if the song is unknown
+    public String getSongLyrics(int songId) throws SQLException {
+        String sql = "SELECT lyrics FROM songs WHERE songId = ?";
+        try (Connection connection = pool.reader();
+             PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setInt(1, songId);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? rs.getString("lyrics") : null;
+            }
+        }
+    }
+
 //  Helper function for retrieving the userId by giving an argument of a username
     public int getUserId(String username) {
         String hashedUsername = Utils.hashUsername(username);
@@ -214,7 +514,8 @@ public List<FavoriteSong> getFavoriteSongs(FavoriteGetRequest request) {
 
         int result = -1;
 
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.reader();
+             PreparedStatement pst = connection.prepareStatement(sql)) {
             pst.setString(1, hashedUsername);
             ResultSet rs = pst.executeQuery();
 
@@ -232,7 +533,8 @@ public List<FavoriteSong> getFavoriteSongs(FavoriteGetRequest request) {
         String sql = "SELECT username FROM users WHERE id = ?";
         String result = null;
 
-        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.reader();
+             PreparedStatement pst = connection.prepareStatement(sql)) {
             pst.setInt(1, userId);
             ResultSet rs = pst.executeQuery();
 
@@ -256,200 +558,440 @@ public List<FavoriteSong> getFavoriteSongs(FavoriteGetRequest request) {
      * @throws SQLException
      */
     public MatchResult findMatches(int userId) throws SQLException {
-
-        // Check if the result is already cached
-        if (matchCache.containsKey(userId)) {
-            return matchCache.get(userId);
+        // the other shards change without bumping our epoch, so sharded results are never cached
+        if (coordinator != null) return findMatchesSharded(userId);
+
+        // Check if the result is already cached for the current state of everybody's favorites
+        long epoch = favoritesEpoch.get();
+        MatchResult cached = matchCache.get(userId, epoch);
+        if (cached != null) {
+            return cached;
         }
 
-        // ---------- STEP 1:  Build a word-frequency map for *every* user ----------
-        // keys:   userId   ->   Map<String, Integer>   (word-> count)
-        Map<Integer, Map<String, Integer>> clouds = new HashMap<>();
-
-        // 1a.     Grab each user’s favourite songIds in one hit
-        Map<Integer, List<Integer>> usersToSongs = new HashMap<>();
-        try (PreparedStatement ps =
-                     connection.prepareStatement("SELECT userId, songId FROM favorites")) {
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    int uid   = rs.getInt("userId");
-                    int song  = rs.getInt("songId");
-                    usersToSongs.computeIfAbsent(uid, k -> new ArrayList<>()).add(song);
-                }
-            }
+        // ---------- STEP 1:  Make sure every user's cloud is in the in-memory index ----------
+        // The clouds are maintained by add/removeFavoriteSong, so nothing is tokenized here.
+        ensureMatcherReady();
+        Integer bestUser, worstUser;
+        boolean mutualBest, mutualWorst;
+        if (engine.isApproximate()) {
+            if (!engine.hasCloud(userId)) return new MatchResult();   // no data – bail early
+
+            // ---------- STEP 2:  Compute the requested user's candidates from the LSH shortlist ----------
+            MatchCandidates mine = engine.findCandidates(userId);
+            bestUser  = mine.hasBest()  ? mine.bestUser  : null;
+            worstUser = mine.hasWorst() ? mine.worstUser : null;
+
+            // ---------- STEP 3:  Reciprocity check (do they pick us back?) ----------
+            // Compares our entry with theirs.
+            mutualBest = bestUser != null && engine.findCandidates(bestUser).bestUser == userId;
+            mutualWorst = worstUser != null && engine.findCandidates(worstUser).worstUser == userId;
         }
-
-        // 1b.     Pull the *lyrics* for all those songs only once
-        Set<Integer> allSongIds = usersToSongs.values()
-                .stream()
-                .flatMap(List::stream)
-                .collect(Collectors.toSet());
-
-        Map<Integer, String> lyricsBySong = new HashMap<>();
-        if (!allSongIds.isEmpty()) {
-            String inClause = allSongIds.stream()
-                    .map(x -> "?")
-                    .collect(Collectors.joining(","));
-            String sql = "SELECT songId, lyrics FROM songs WHERE songId IN (" + inClause + ")";
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                int idx = 1;
-                for (Integer id : allSongIds) ps.setInt(idx++, id);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        lyricsBySong.put(rs.getInt("songId"), rs.getString("lyrics"));
-                    }
-                }
-            }
+        else {
+            // ---------- STEP 2:  Look up the requested user in the published snapshot ----------
+            // Soulmates and enemies are recomputed in the background as favorites change, so this is
+            // a lock-free lookup, not a scan. One snapshot answers both steps, so they agree.
+            MatchSnapshot current = snapshot;
+            if (!current.contains(userId)) return new MatchResult();   // no data – bail early
+            MatchCandidates mine = current.get(userId);
+            bestUser  = mine.hasBest()  ? mine.bestUser  : null;
+            worstUser = mine.hasWorst() ? mine.worstUser : null;
+
+            // ---------- STEP 3:  Reciprocity check (do they pick us back?) ----------
+            mutualBest = current.isMutualBest(userId);
+            mutualWorst = current.isMutualWorst(userId);
         }
 
-        // 1c.     Tokenise + count words for each user
-        for (Map.Entry<Integer, List<Integer>> e : usersToSongs.entrySet()) {
-            Map<String, Integer> freq = new HashMap<>();
-            for (Integer sid : e.getValue()) {
-                String lyrics = lyricsBySong.get(sid);
-                if (lyrics == null) continue;
-                for (String w : tokenize(lyrics)) {
-                    freq.merge(w, 1, Integer::sum);
-                }
-            }
-            clouds.put(e.getKey(), freq);
-        }
+        // ---------- STEP 4:  Cache the result for later use ----------
+MatchResult matchResult = new MatchResult(getUsername(bestUser==null?1:bestUser), mutualBest,
+        getUsername(worstUser==null?1:worstUser), mutualWorst);
 
-        // ---------- STEP 2:  Similarity comparison for the requested user ----------
-        Map<String, Integer> mine = clouds.getOrDefault(userId, Collections.emptyMap());
-        if (mine.isEmpty()) return new MatchResult();              // no data – bail early
+        matchCache.put(userId, epoch, matchResult);
+        return matchResult;
+    }
 
-        double   bestScore = -1.0, worstScore = Double.MAX_VALUE;
-        Integer  bestUser = null,  worstUser = null;
+    /**
+     * findMatches for a coordinator: the user's cloud is scattered to every shard, each shard answers with
+     * its local soulmate and enemy, and the best and worst of those are the global ones. The reciprocity
+     * check scatters the soulmate's and the enemy's clouds the same way.
+     */
+    private MatchResult findMatchesSharded(int userId) throws SQLException {
+        ensureMatcherReady();
+        Map<String, Integer> mine = termStore.load(userId);
+        if (mine.isEmpty()) return new MatchResult();
+
+        MatchCandidates found = coordinator.findCandidates(userId, mine);
+        Integer  bestUser  = found.hasBest()  ? found.bestUser  : null;
+        Integer  worstUser = found.hasWorst() ? found.worstUser : null;
+
+        boolean mutualBest = bestUser != null
+                && coordinator.findCandidates(bestUser, termStore.load(bestUser)).bestUser == userId;
+        boolean mutualWorst = worstUser != null
+                && coordinator.findCandidates(worstUser, termStore.load(worstUser)).worstUser == userId;
+
+        return new MatchResult(getUsername(bestUser==null?1:bestUser), mutualBest,
+                getUsername(worstUser==null?1:worstUser), mutualWorst);
+    }
+
+    /**
+     * This instance's soulmate and enemy for a cloud sent by a coordinator, out of the users it indexes.
+     * @param userId  the user the cloud belongs to, never returned as their own match
+     */
+    public MatchCandidates findLocalCandidates(int userId, Map<String, Integer> terms) throws SQLException {
+        ensureMatcherReady();
+        return engine.searchFor(userId, SparseVector.of(terms, engine.dictionary()));
+    }
 
-        for (Map.Entry<Integer, Map<String, Integer>> e : clouds.entrySet()) {
-            int otherId = e.getKey();
-            if (otherId == userId) continue;
+    /**
+     * Ranked soulmates and enemies of a user, one page at a time. A single scoring pass keeps the
+     * top (page + 1) * size of each list in bounded heaps, and the requested page is cut from those.
+     * @param page  zero-based page number
+     * @param size  entries per list per page
+     * @param metric  how clouds are scored; a match is mutual if the other user ranks us first under it too
+     * @return the page, or an empty list if the user has no favorites
+     */
+    public MatchList findTopMatches(int userId, int page, int size, SimilarityMetric metric) throws SQLException {
+        ensureMatcherReady();
+        int from = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        MatchRanking ranking = engine.rank(userId, (int) Math.min((long) (page + 1) * size, Integer.MAX_VALUE), metric);
+        Map<Integer, MatchCandidates> firstPicks = firstPicks(pageUsers(ranking, from), metric);
+        return new MatchList(
+                rankedPage(userId, ranking.soulmates, ranking.soulmateScores, from, true, firstPicks),
+                rankedPage(userId, ranking.enemies, ranking.enemyScores, from, false, firstPicks),
+                page, size, ranking.candidates);
+    }
 
-            double sim = similarity(mine, e.getValue());           // apply any comparison metric
-            if (sim > bestScore)  { bestScore  = sim; bestUser  = otherId; }
-            if (sim < worstScore) { worstScore = sim; worstUser = otherId; }
+//  Every user on the page, in either list
+    private static int[] pageUsers(MatchRanking ranking, int from) {
+        return IntStream.concat(
+                Arrays.stream(ranking.soulmates, Math.min(from, ranking.soulmates.length), ranking.soulmates.length),
+                Arrays.stream(ranking.enemies, Math.min(from, ranking.enemies.length), ranking.enemies.length))
+                .distinct().toArray();
+    }
+
+    /**
+     * The first soulmate and enemy of every user on a page, to tell which matches are mutual. Under weighted
+     * Jaccard they come from where findMatches reads them, the published snapshot (or in approximate mode the
+     * engine's on-demand lookup), so a page and /get/soulmate agree. Other metrics have no stored picks, so
+     * the engine ranks the whole page in one call.
+     */
+    private Map<Integer, MatchCandidates> firstPicks(int[] users, SimilarityMetric metric) {
+        if (metric != SimilarityMetric.JACCARD) return engine.firstPicks(users, metric);
+        MatchSnapshot current = snapshot;
+        Map<Integer, MatchCandidates> picks = new HashMap<>();
+        for (int user : users) {
+            picks.put(user, engine.isApproximate() ? engine.findCandidates(user) : current.get(user));
         }
+        return picks;
+    }
 
-        // ---------- STEP 3:  Reciprocity check (do they pick us back?) ----------
-        boolean mutualBest = false;
-        boolean mutualWorst = false;
+    private List<RankedMatch> rankedPage(int userId, int[] users, double[] scores, int from, boolean soulmates,
+                                         Map<Integer, MatchCandidates> firstPicks) {
+        List<RankedMatch> result = new ArrayList<>();
+        for (int i = from; i < users.length; i++) {
+            MatchCandidates theirs = firstPicks.get(users[i]);
+            boolean mutual = soulmates ? theirs.bestUser == userId : theirs.worstUser == userId;
+            result.add(new RankedMatch(getUsername(users[i]), scores[i], mutual));
+        }
+        return result;
+    }
 
-        if (bestUser != null) {
-            mutualBest = isTopMatchOf(clouds, bestUser, userId);
+    /**
+     * Why two users match: the words adding most to the overlap of their clouds, from the cached sparse
+     * vectors in one merge pass (see {@link SharedTerms}), so no lyrics are read or analyzed. Only a match
+     * the user is shown can be explained: their soulmate or enemy, or one of the first
+     * {@link #EXPLAINABLE_RANKS} of their ranked soulmates or enemies, so nobody can read the words any
+     * two users share.
+     * @param size  most words to return
+     * @return the explanation, or null if otherUserId is not one of the user's matches
+     */
+    public MatchExplanation explainMatch(int userId, int otherUserId, int size) throws SQLException {
+        ensureMatcherReady();
+        if (!isListedMatch(userId, otherUserId)) return null;
+        SparseVector mine = cloudOf(userId);
+        SparseVector theirs = cloudOf(otherUserId);
+        SharedTerms top = SharedTerms.top(mine, theirs, size);
+
+        TermDictionary dictionary = engine.dictionary();
+        List<SharedWord> words = new ArrayList<>();
+        for (int i = 0; i < top.size(); i++) {
+            words.add(new SharedWord(dictionary.term(top.termIds[i]), top.shared(i), top.countsA[i], top.countsB[i]));
         }
-        if (worstUser != null) {
-            mutualWorst = isBottomMatchOf(clouds, worstUser, userId);
+        return new MatchExplanation(getUsername(otherUserId), SparseVector.weightedJaccard(mine, theirs),
+                SparseVector.sharedCount(mine, theirs), words);
+    }
+
+//  True if otherUserId is the user's soulmate or enemy, where findMatches reads them, or near the top
+//  of their weighted Jaccard ranking. The ranking is only scored when the cheap lookup misses.
+    private boolean isListedMatch(int userId, int otherUserId) throws SQLException {
+        if (userId == otherUserId) return false;
+        MatchCandidates mine;
+        if (coordinator != null) mine = coordinator.findCandidates(userId, termStore.load(userId));
+        else if (engine.isApproximate()) mine = engine.findCandidates(userId);
+        else mine = snapshot.get(userId);
+        if ((mine.hasBest() && mine.bestUser == otherUserId) || (mine.hasWorst() && mine.worstUser == otherUserId)) {
+            return true;
         }
+        MatchRanking ranking = engine.rank(userId, EXPLAINABLE_RANKS);
+        return IntStream.of(ranking.soulmates).anyMatch(u -> u == otherUserId)
+                || IntStream.of(ranking.enemies).anyMatch(u -> u == otherUserId);
+    }
 
-        // ---------- STEP 4:  Cache the result for later use ----------
-MatchResult matchResult = new MatchResult(getUsername(bestUser==null?1:bestUser), mutualBest,
-        getUsername(worstUser==null?1:worstUser), mutualWorst);
+//  A user's cloud from the engine, or from user_terms if another shard indexes the user
+    private SparseVector cloudOf(int userId) throws SQLException {
+        return topology.owns(userId) ? engine.vector(userId) : termStore.loadVector(userId, engine.dictionary());
+    }
 
-        matchCache.put(userId, matchResult);
-        return matchResult;
+    /**
+     * Nightly batch: recomputes every user's soulmate, enemy and mutual flags in one parallel
+     * all-pairs pass and publishes them to the match graph that findMatches reads.
+     */
+    @Scheduled(cron = "${favorites.match-batch.cron:0 0 3 * * *}")
+    public void recomputeAllMatches() throws SQLException {
+        ensureMatcherReady();
+        engine.recomputeAll();
+        if (engine.isApproximate()) invalidateMatches();
+        else publishSnapshot();
+        if (vectorFile != null && vectorFile.journalRecords() > 0) writeVectorFile(-1);
     }
 
     /**
-     * Checks if `targetId` is *the* top match of `userX`.
-     * Uses the already-built clouds cache where possible; otherwise builds on demand.
+     * Background recompute, run every favorites.match-snapshot.rate-ms: the users whose favorite changes
+     * have settled (see {@link DirtyUsers}) are applied to the match graph, and a new snapshot is published
+     * for findMatches. Does nothing before the matcher is loaded or when findMatches does not read snapshots.
      */
-    private boolean isTopMatchOf(
-                                 Map<Integer, Map<String,Integer>> cache,
-                                 int userX,
-                                 int targetId) throws SQLException {
+    @Scheduled(fixedRateString = "${favorites.match-snapshot.rate-ms:1000}")
+    public void publishMatchSnapshot() {
+        if (!matcherReady || engine.isApproximate() || coordinator != null) return;
+        List<Integer> due = dirtyUsers.drainDue(System.currentTimeMillis());
+        if (due.isEmpty()) return;
+        engine.applyStaged(due);
+        publishSnapshot();
+    }
+
+    private void publishSnapshot() {
+        // serialized, so a slow copy of an older graph can never replace a newer snapshot
+        synchronized (publishLock) {
+            snapshot = new MatchSnapshot(engine.copyGraph(), System.currentTimeMillis());
+        }
+        invalidateMatches();
+    }
 
-        Map<String,Integer> cloudX = cache.computeIfAbsent(userX, uid -> {
-            try { return buildCloudFor(uid); } catch (SQLException e) { return Map.of(); }
-        });
+//  Puts a user's new cloud in the index and leaves their matches to the background recompute
+    private void stageChange(int userId, long generation) throws SQLException {
+        stageChanges(Map.of(userId, generation));
+    }
 
-        double best = -1.0;
-        Integer top = null;
-        for (Map.Entry<Integer, Map<String,Integer>> e : cache.entrySet()) {
-            int other = e.getKey();
-            if (other == userX) continue;
-            double s = similarity(cloudX, e.getValue());
-            if (s > best) { best = s; top = other; }
+//  Re-indexes the changed users this instance owns, each with the generation its cloud was changed under,
+//  and invalidates cached matches once for all of them
+    private void stageChanges(Map<Integer, Long> generations) throws SQLException {
+        boolean staged = false;
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, Long> e : generations.entrySet()) {
+            if (!topology.owns(e.getKey())) continue;
+            engine.stage(e.getKey(), uid -> loadVector(uid, e.getValue()));
+            if (!engine.isApproximate()) dirtyUsers.mark(e.getKey(), now);
+            staged = true;
         }
-        return (top != null && top == targetId);
+        if (staged && engine.isApproximate()) invalidateMatches();
+    }
+
+//  How old the matches findMatches answers from are, in milliseconds; 0 when they are computed per request
+    public long getMatchSnapshotAgeMillis() {
+        if (coordinator != null || engine.isApproximate()) return 0L;
+        return snapshot.ageMillis(System.currentTimeMillis());
+    }
+
+//  Size and age of the published match snapshot, and how many users wait for the background recompute
+    public Map<String, Long> getMatchSnapshotStats() {
+        MatchSnapshot current = snapshot;
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("users", (long) current.size());
+        stats.put("ageMillis", current.ageMillis(System.currentTimeMillis()));
+        stats.put("pendingUsers", (long) dirtyUsers.size());
+        return stats;
     }
 
-    /** Analogous to isTopMatchOf but finds the *lowest* similarity.             */
-    private boolean isBottomMatchOf(
-                                    Map<Integer, Map<String,Integer>> cache,
-                                    int userX,
-                                    int targetId) throws SQLException {
+    /**
+     * Starts a new favorites epoch after a change that can affect anyone's matches,
+     * and drops the results cached under older epochs.
+     */
+    private void invalidateMatches() {
+        matchCache.invalidateBefore(favoritesEpoch.incrementAndGet());
+    }
 
-        Map<String,Integer> cloudX = cache.computeIfAbsent(userX, uid -> {
-            try { return buildCloudFor(uid); } catch (SQLException e) { return Map.of(); }
-        });
+//  Hit, miss, eviction and invalidation counters of the match cache
+    public Map<String, Long> getMatchCacheStats() {
+        return matchCache.stats();
+    }
+
+//  Hit, miss and eviction counters of the song vector cache
+    public Map<String, Long> getSongCacheStats() {
+        return songTermStore.cacheStats();
+    }
 
-        double worst = Double.MAX_VALUE;
-        Integer foe = null;
-        for (Map.Entry<Integer, Map<String,Integer>> e : cache.entrySet()) {
-            int other = e.getKey();
-            if (other == userX) continue;
-            double s = similarity(cloudX, e.getValue());
-            if (s < worst) { worst = s; foe = other; }
+    /**
+     * One-time migration for databases built by an older analyzer (or before term vectors were stored):
+     * analyzes every stored song into song_terms, then rebuilds every user's cloud by summing the
+     * vectors of their favorited songs. Afterwards loads every cloud into the match engine. When the
+     * vector file is current and holds a match graph, the engine takes that graph and the journaled
+     * changes are applied over it one at a time; otherwise the clouds come from the file or user_terms
+     * and the engine builds the graph with the parallel batch job. The file is then rewritten if it was
+     * missing, held no graph or had a journal. Runs at startup (see {@link #warmUpMatcher}),
+     * so once loaded this is one volatile read; only requests racing the first load wait for it.
+     */
+    private void ensureMatcherReady() throws SQLException {
+        if (matcherReady) return;
+        synchronized (matcherLock) {
+            if (matcherReady) return;
+            loadMatcher();
+            matcherReady = true;
         }
-        return (foe != null && foe == targetId);
     }
 
+    private void loadMatcher() throws SQLException {
+        boolean songsRebuilt = false;
+        if (songTermStore.getVersion() != LyricAnalyzer.VERSION) {
+            backfillSongTerms();
+            songTermStore.setVersion(LyricAnalyzer.VERSION);
+            songsRebuilt = true;
+        }
+        if (songsRebuilt || termStore.getVersion() != LyricAnalyzer.VERSION) {
+            termStore.rebuildFromSongs();
+            termStore.setVersion(LyricAnalyzer.VERSION);
+        }
+        loadSongUsers();
+        long generation = termStore.getGeneration();
+        VectorFile.Contents saved = readVectorFile(generation);
+        boolean savedGraph = saved != null && saved.graph != null && !engine.isApproximate();
+        if (savedGraph) {
+            engine.load(saved.vectors, saved.graph);
+            for (Map.Entry<Integer, SparseVector> change : saved.changes) {
+                engine.update(change.getKey(), change.getValue());
+            }
+        }
+        else {
+            Map<Integer, SparseVector> vectors = saved != null ? saved.latest() : termStore.loadAllVectors(engine.dictionary());
+            if (topology.isSharded()) vectors.keySet().removeIf(id -> !topology.owns(id));
+            engine.load(vectors);
+        }
+        if (!engine.isApproximate()) publishSnapshot();
+        if (vectorFile != null && (saved == null || vectorFile.journalRecords() > 0
+                || (!savedGraph && !engine.isApproximate()))) {
+            writeVectorFile(generation);
+        }
+    }
 
+    /**
+     * Loads the matcher as soon as the server is up, so the first match request after a restart does not
+     * wait for it. A failure is only logged; the first request that needs the matcher tries again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpMatcher() {
+        try {
+            ensureMatcherReady();
+        }
+        catch (SQLException | RuntimeException e) {
+            logger.warn("Could not load the matcher at startup", e);
+        }
+    }
 
-    /** Builds a cloud for one user from scratch (called only on cache miss).   */
-    private Map<String,Integer> buildCloudFor(int uid) throws SQLException {
-        Map<String,Integer> freq = new HashMap<>();
-        String sql = """
-        SELECT s.lyrics
-        FROM favorites f
-        JOIN songs s ON s.songId = f.songId
-        WHERE f.userId = ?
-    """;
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, uid);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    for (String w : tokenize(rs.getString("lyrics"))) {
-                        freq.merge(w, 1, Integer::sum);
-                    }
-                }
+//  Fills the song index from the favorites table
+    private void loadSongUsers() throws SQLException {
+        songUsers.clear();
+        String sql = "SELECT userId, songId FROM favorites";
+        try (Connection connection = pool.reader();
+             PreparedStatement pst = connection.prepareStatement(sql);
+             ResultSet rs = pst.executeQuery()) {
+            while (rs.next()) {
+                songUsers.add(rs.getInt("userId"), rs.getInt("songId"));
             }
         }
-        return freq;
     }
 
-    /** Tokenize lyric, Very small tokenizer: lowercase letters only, strips non-letters.        */
-    private List<String> tokenize(String text) {
-        return Arrays.stream(text.toLowerCase().split("\\W+"))
-                .filter(t -> !t.isBlank())//filter out spaces, potentially also filter out all "filler" words
-                .collect(Collectors.toList());//output as a list
+//  The vector file's snapshot and journal, or null if there is none or it is not at the given generation
+    private VectorFile.Contents readVectorFile(long generation) {
+        if (vectorFile == null) return null;
+        try {
+            return vectorFile.load(engine.dictionary(), generation);
+        }
+        catch (IOException e) {
+            logger.warn("Could not read the vector file, loading clouds from the database", e);
+            return null;
+        }
     }
 
     /**
-     * Calculate the similarity between two word clouds.
-     * @param a Word cloud A, represented as a map of words and their frequencies.
-     * @param b Word cloud B, represented as a map of words and their frequencies.
-     * @return A similarity score between 0 and 1, where 1 means identical clouds.
+     * Snapshots the engine's clouds, and its match graph while that is exact, into the vector file;
+     * a failure only costs the next start its fast path.
+     * @param generation  the generation the clouds are at, or -1 for the last one journaled
      */
-    private double similarity(Map<String,Integer> a, Map<String,Integer> b) {
-        if (a.isEmpty() || b.isEmpty()) return 0.0;
+    private void writeVectorFile(long generation) {
+        try {
+            // appends need the engine's write lock, so the journal cannot move while the clouds are read
+            engine.readVectors((vectors, graph) -> vectorFile.rewrite(vectors, graph, engine.dictionary(),
+                    generation == -1 ? vectorFile.generation() : generation));
+        }
+        catch (IOException e) {
+            logger.warn("Could not write the vector file", e);
+        }
+    }
 
-        double shared = 0, total = 0;
+//  Reads a user's cloud for the engine and journals it, called under the engine's write lock
+    private SparseVector loadVector(int userId, long generation) throws SQLException {
+        SparseVector vector = termStore.loadVector(userId, engine.dictionary());
+        if (vectorFile != null) {
+            try {
+                vectorFile.append(userId, vector, engine.dictionary(), generation);
+            }
+            catch (IOException e) {
+                logger.warn("Could not journal the cloud of user " + userId, e);
+            }
+        }
+        return vector;
+    }
 
-        // visit every word that appears in either cloud
-        Set<String> vocab = new HashSet<>();
-        vocab.addAll(a.keySet());
-        vocab.addAll(b.keySet());
+    /**
+     * Analyzes the lyrics of every stored song. Songs are read in songId order in chunks of
+     * BACKFILL_CHUNK_SIZE using keyset pagination, so each query is short and the cursor is closed
+     * before the chunk's vectors are written in one transaction. Lyrics are analyzed as rows arrive
+     * and only their term counts are kept, so at most one chunk of vectors is held at a time
+     * however many songs there are.
+     */
+    private void backfillSongTerms() throws SQLException {
+        songTermStore.clear();
+        String sql = "SELECT songId, lyrics FROM songs WHERE songId > ? ORDER BY songId LIMIT ?";
+        Map<Integer, Map<String,Integer>> chunk = new LinkedHashMap<>();
+        long after = Long.MIN_VALUE;
+        do {
+            chunk.clear();
+            try (Connection connection = pool.reader();
+                 PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setLong(1, after);
+                ps.setInt(2, BACKFILL_CHUNK_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int songId = rs.getInt("songId");
+                        chunk.put(songId, countTerms(rs.getString("lyrics")));
+                        after = songId;
+                    }
+                }
+            }
+            songTermStore.putAll(chunk);
+        } while (chunk.size() == BACKFILL_CHUNK_SIZE);
+    }
 
-        for (String w : vocab) {
-            int fa = a.getOrDefault(w, 0);
-            int fb = b.getOrDefault(w, 0);
-            shared += Math.min(fa, fb);   // words in common
-            total  += Math.max(fa, fb);   // words anybody says
-        }
-        return shared / total;            // 0 ≤ score ≤ 1
+    /** Counts how often each analyzed term occurs in a lyric; null lyrics count as empty. */
+    private Map<String,Integer> countTerms(String lyrics) {
+        TermCounter counts = new TermCounter();
+        analyzer.analyze(lyrics, counts);
+        return toTermMap(counts);
     }
 
+    private Map<String,Integer> toTermMap(TermCounter counts) {
+        Map<String,Integer> freq = new HashMap<>(counts.size() * 2);
+        TermDictionary dictionary = engine.dictionary();
+        counts.forEach((termId, count) -> freq.put(dictionary.term(termId), count));
+        return freq;
+    }
 
 }
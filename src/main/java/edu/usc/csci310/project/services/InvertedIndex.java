@@ -0,0 +1,500 @@
+package edu.usc.csci310.project.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * In-memory inverted index from term id to the users whose cloud contains that term.
+ * Users get a dense slot so a query can accumulate min(fa, fb) into a flat array; users that never
+ * show up in the query's posting lists share no word with it and are known to score 0.
+ * A posting list's length is its term's document frequency (how many users have the term), so document
+ * frequencies stay current with every put and remove. Each user's raw L2 norm is computed when the user
+ * is put, so a cosine query is one pass of dot products over the posting lists. TF-IDF norms are kept
+ * current through cloud changes too, see {@link #updateTfidfNorms}.
+ * Not thread-safe: {@link MatchEngine} guards it with a read/write lock.
+ */
+public class InvertedIndex {
+    private Postings[] postings = new Postings[256];
+
+    private final Map<Integer, Integer> slotOf = new HashMap<>();
+    private final TreeSet<Integer> userIds = new TreeSet<>();
+    private int[] userOfSlot = new int[64];
+    private SparseVector[] vectorOfSlot = new SparseVector[64];
+    private int[] freeSlots = new int[16];
+    private int freeCount = 0;
+    private int slotCount = 0;
+    private double[] normOfSlot = new double[64];
+    // sum of every indexed cloud's total, for BM25's average cloud length
+    private long totalCount = 0;
+    // bumped by every put and remove; the users-by-total order is rebuilt when it was built at an older value
+    private long changes = 0;
+    // squared TF-IDF norms by slot, valid while tfidfCurrent; computed on the first TF-IDF query, then updated
+    private double[] tfidfSquareOfSlot = new double[0];
+    private boolean tfidfCurrent = false;
+    private ByTotal byTotal = new ByTotal(new int[0], new long[0]);
+    private long byTotalAt = -1;
+
+    static final double BM25_K1 = 1.2;
+    static final double BM25_B = 0.75;
+
+    /**
+     * One term's posting list: parallel arrays of user slots and counts, sorted by slot. A removed user
+     * is found by binary search and left behind as a tombstone with count 0, which readers skip; once
+     * tombstones outnumber the live entries the list is compacted in one pass, so removal is amortized
+     * O(log n). A tombstone is revived in place if its slot is reused by a user with the term.
+     */
+    private static final class Postings {
+        int[] slots = new int[4];
+        int[] counts = new int[4];
+        // entries in the arrays, tombstones included
+        int size = 0;
+        // entries with a count, the term's document frequency
+        int live = 0;
+
+        void add(int slot, int count) {
+            int k = size == 0 || slots[size - 1] < slot ? -(size + 1) : Arrays.binarySearch(slots, 0, size, slot);
+            if (k >= 0) {
+                counts[k] = count;
+                live++;
+                return;
+            }
+            k = -(k + 1);
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            // new slots are the highest so far and append; only reused slots shift the tail
+            System.arraycopy(slots, k, slots, k + 1, size - k);
+            System.arraycopy(counts, k, counts, k + 1, size - k);
+            slots[k] = slot;
+            counts[k] = count;
+            size++;
+            live++;
+        }
+
+        void remove(int slot) {
+            int k = Arrays.binarySearch(slots, 0, size, slot);
+            if (k < 0 || counts[k] == 0) return;
+            counts[k] = 0;
+            live--;
+            if (size - live > live) compact();
+        }
+
+        private void compact() {
+            int n = 0;
+            for (int k = 0; k < size; k++) {
+                if (counts[k] == 0) continue;
+                slots[n] = slots[k];
+                counts[n++] = counts[k];
+            }
+            size = n;
+        }
+    }
+
+    /**
+     * Reusable per-thread scratch space for {@link #accumulate}: shared counts indexed by slot,
+     * plus the list of slots that were touched so only those need resetting.
+     */
+    public static final class Accumulator {
+        long[] shared = new long[64];
+        double[] score = new double[64];
+        int[] touched = new int[64];
+        int touchedCount = 0;
+
+        void ensureCapacity(int slots) {
+            if (shared.length < slots) {
+                shared = new long[Math.max(slots, shared.length * 2)];
+                score = new double[shared.length];
+                touched = new int[shared.length];
+            }
+        }
+
+        void reset() {
+            for (int k = 0; k < touchedCount; k++) {
+                shared[touched[k]] = 0;
+                score[touched[k]] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+
+//  Replaces the user's vector; an empty vector removes the user from the index
+    public void put(int userId, SparseVector vector) {
+        SparseVector old = vector(userId);
+        int usersBefore = userCount();
+        unindex(userId);
+        if (!vector.isEmpty()) index(userId, vector);
+        updateTfidfNorms(userId, old, vector, usersBefore);
+    }
+
+    public void remove(int userId) {
+        SparseVector old = vector(userId);
+        int usersBefore = userCount();
+        if (unindex(userId)) updateTfidfNorms(userId, old, SparseVector.EMPTY, usersBefore);
+    }
+
+    private void index(int userId, SparseVector vector) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+        if (slot == userOfSlot.length) {
+            userOfSlot = Arrays.copyOf(userOfSlot, slot * 2);
+            vectorOfSlot = Arrays.copyOf(vectorOfSlot, slot * 2);
+            normOfSlot = Arrays.copyOf(normOfSlot, slot * 2);
+        }
+        userOfSlot[slot] = userId;
+        vectorOfSlot[slot] = vector;
+        normOfSlot[slot] = norm(vector);
+        slotOf.put(userId, slot);
+        userIds.add(userId);
+        totalCount += vector.total();
+        changes++;
+
+        for (int i = 0; i < vector.size(); i++) {
+            int term = vector.termId(i);
+            if (term >= postings.length) {
+                postings = Arrays.copyOf(postings, Math.max(term + 1, postings.length * 2));
+            }
+            if (postings[term] == null) postings[term] = new Postings();
+            postings[term].add(slot, vector.count(i));
+        }
+    }
+
+    private boolean unindex(int userId) {
+        Integer slot = slotOf.remove(userId);
+        if (slot == null) return false;
+
+        SparseVector vector = vectorOfSlot[slot];
+        for (int i = 0; i < vector.size(); i++) {
+            postings[vector.termId(i)].remove(slot);
+        }
+        vectorOfSlot[slot] = null;
+        userIds.remove(userId);
+        totalCount -= vector.total();
+        changes++;
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    public void clear() {
+        postings = new Postings[256];
+        slotOf.clear();
+        userIds.clear();
+        Arrays.fill(vectorOfSlot, null);
+        slotCount = 0;
+        freeCount = 0;
+        totalCount = 0;
+        changes++;
+        tfidfCurrent = false;
+    }
+
+    public SparseVector vector(int userId) {
+        Integer slot = slotOf.get(userId);
+        return slot == null ? SparseVector.EMPTY : vectorOfSlot[slot];
+    }
+
+    public boolean contains(int userId) {
+        return slotOf.containsKey(userId);
+    }
+
+    public int userCount() {
+        return slotOf.size();
+    }
+
+//  Greater than every term id of an indexed vector, so a dense array this long can hold any of them
+    public int termCapacity() {
+        return postings.length;
+    }
+
+//  How many indexed users have the term
+    public int documentFrequency(int term) {
+        return term < postings.length && postings[term] != null ? postings[term].live : 0;
+    }
+
+//  ln(1 + users / document frequency); positive for every indexed term
+    double idf(int term) {
+        return Math.log(1.0 + (double) userCount() / documentFrequency(term));
+    }
+
+//  BM25's idf, ln(1 + (users - df + 0.5) / (df + 0.5)); also positive for terms every user has
+    double bm25Idf(int term) {
+        int df = documentFrequency(term);
+        return Math.log(1.0 + (userCount() - df + 0.5) / (df + 0.5));
+    }
+
+    private static double norm(SparseVector vector) {
+        double sum = 0;
+        for (int i = 0; i < vector.size(); i++) sum += (double) vector.count(i) * vector.count(i);
+        return Math.sqrt(sum);
+    }
+
+    private double tfidfSquare(SparseVector vector) {
+        double sum = 0;
+        for (int i = 0; i < vector.size(); i++) {
+            double w = vector.count(i) * idf(vector.termId(i));
+            sum += w * w;
+        }
+        return sum;
+    }
+
+//  idf squared for a term held by df of the given number of users, 0 for a term nobody holds
+    private static double idfSquare(int users, int df) {
+        if (df == 0) return 0;
+        double idf = Math.log(1.0 + (double) users / df);
+        return idf * idf;
+    }
+
+    /**
+     * Every user's squared TF-IDF norm by slot, computed in one pass on the first TF-IDF query and kept
+     * current from then on. Synchronized because concurrent readers share the index.
+     */
+    private synchronized double[] tfidfSquares() {
+        if (!tfidfCurrent) {
+            double[] squares = new double[slotCount];
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (vectorOfSlot[slot] != null) squares[slot] = tfidfSquare(vectorOfSlot[slot]);
+            }
+            tfidfSquareOfSlot = squares;
+            tfidfCurrent = true;
+        }
+        return tfidfSquareOfSlot;
+    }
+
+    /**
+     * Keeps the TF-IDF norms current after a user's cloud changed from old to now. While the number of users
+     * stays the same, only the terms the user gained or lost change their document frequency, so only the
+     * holders of those terms get their squared norm adjusted, by count² times the change of the term's idf²;
+     * the user's own norm is recomputed. A user joining or leaving the index moves every idf, so then the
+     * norms are recomputed on the next TF-IDF query instead.
+     */
+    private synchronized void updateTfidfNorms(int userId, SparseVector old, SparseVector now, int usersBefore) {
+        if (!tfidfCurrent) return;
+        int users = userCount();
+        if (users != usersBefore) {
+            tfidfCurrent = false;
+            return;
+        }
+        if (tfidfSquareOfSlot.length < slotCount) {
+            tfidfSquareOfSlot = Arrays.copyOf(tfidfSquareOfSlot, Math.max(slotCount, tfidfSquareOfSlot.length * 2));
+        }
+        Integer self = slotOf.get(userId);
+        int i = 0, j = 0;
+        while (i < old.size() || j < now.size()) {
+            int a = i < old.size() ? old.termId(i) : Integer.MAX_VALUE;
+            int b = j < now.size() ? now.termId(j) : Integer.MAX_VALUE;
+            if (a == b) { i++; j++; continue; }   // held before and after, so its df did not change
+            int term = Math.min(a, b);
+            int df = documentFrequency(term);
+            // a gained term had one holder less before, a lost one had one more
+            double delta = idfSquare(users, df) - idfSquare(users, a < b ? df + 1 : df - 1);
+            if (a < b) i++; else j++;
+            if (df == 0) continue;
+            Postings p = postings[term];
+            for (int k = 0; k < p.size; k++) {
+                int fu = p.counts[k];
+                if (fu != 0 && (self == null || p.slots[k] != self)) tfidfSquareOfSlot[p.slots[k]] += (double) fu * fu * delta;
+            }
+        }
+        if (self != null) tfidfSquareOfSlot[self] = tfidfSquare(now);
+    }
+
+    /** Every indexed user sorted by cloud total (ties by user id), as parallel arrays. */
+    public static final class ByTotal {
+        public final int[] users;
+        public final long[] totals;
+
+        ByTotal(int[] users, long[] totals) {
+            this.users = users;
+            this.totals = totals;
+        }
+
+//      Index of the first user whose total is at least the given one
+        public int lowerBound(long total) {
+            int lo = 0, hi = totals.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (totals[mid] < total) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Every user ordered by cloud total. Weighted Jaccard can never exceed the ratio of the smaller to the
+     * larger total, so this lets a search visit users in order of their best possible score. Rebuilt on the
+     * first call after a change; synchronized because concurrent readers share the index.
+     */
+    public synchronized ByTotal usersByTotal() {
+        if (byTotalAt != changes) {
+            int n = slotOf.size();
+            int[] users = new int[n];
+            long[] totals = new long[n];
+            long max = 0;
+            int i = 0;
+            for (int userId : userIds) {
+                users[i] = userId;
+                totals[i] = vector(userId).total();
+                max = Math.max(max, totals[i++]);
+            }
+            byTotal = sortByTotal(users, totals, max);
+            byTotalAt = changes;
+        }
+        return byTotal;
+    }
+
+    /**
+     * Sorts users given in id order by total with a byte-wise radix sort, only over the bytes the largest
+     * total uses. Each pass is stable, so ties stay in id order, and nothing is boxed.
+     */
+    private static ByTotal sortByTotal(int[] users, long[] totals, long max) {
+        int n = users.length;
+        int[] usersOut = new int[n];
+        long[] totalsOut = new long[n];
+        int[] buckets = new int[257];
+        for (int shift = 0; shift < Long.SIZE && (max >>> shift) != 0; shift += 8) {
+            Arrays.fill(buckets, 0);
+            for (int i = 0; i < n; i++) buckets[(int) (totals[i] >>> shift & 0xff) + 1]++;
+            for (int b = 0; b < 256; b++) buckets[b + 1] += buckets[b];
+            for (int i = 0; i < n; i++) {
+                int to = buckets[(int) (totals[i] >>> shift & 0xff)]++;
+                usersOut[to] = users[i];
+                totalsOut[to] = totals[i];
+            }
+            int[] u = users; users = usersOut; usersOut = u;
+            long[] t = totals; totals = totalsOut; totalsOut = t;
+        }
+        return new ByTotal(users, totals);
+    }
+
+//  Every indexed user id in ascending order
+    public Iterable<Integer> userIds() {
+        return userIds;
+    }
+
+    /**
+     * Walks the posting lists of the query's terms and adds min(fq, fu) to every user that shares a term.
+     * The query user itself is skipped. The accumulator is reset first and left filled for the caller.
+     */
+    public void accumulate(SparseVector query, int selfUserId, Accumulator acc) {
+        acc.reset();
+        acc.ensureCapacity(slotCount);
+        Integer selfSlot = slotOf.get(selfUserId);
+        int self = selfSlot == null ? -1 : selfSlot;
+
+        for (int i = 0; i < query.size(); i++) {
+            int term = query.termId(i);
+            if (term >= postings.length || postings[term] == null) continue;
+
+            Postings p = postings[term];
+            int fq = query.count(i);
+            for (int k = 0; k < p.size; k++) {
+                int slot = p.slots[k];
+                // tombstones have count 0
+                if (slot == self || p.counts[k] == 0) continue;
+                if (acc.shared[slot] == 0) acc.touched[acc.touchedCount++] = slot;
+                acc.shared[slot] += Math.min(fq, p.counts[k]);
+            }
+        }
+    }
+
+    /**
+     * Scores every user sharing a term with the query under the given metric, in one pass over the
+     * query's posting lists. Read the results with {@link #touchedScore}; {@link #sharedWith} also works
+     * as after {@link #accumulate}. Users not touched score 0 under every metric.
+     */
+    public void score(SparseVector query, int selfUserId, Accumulator acc, SimilarityMetric metric) {
+        if (metric == SimilarityMetric.JACCARD) {
+            accumulate(query, selfUserId, acc);
+            for (int k = 0; k < acc.touchedCount; k++) {
+                int slot = acc.touched[k];
+                long shared = acc.shared[slot];
+                acc.score[slot] = (double) shared / (query.total() + vectorOfSlot[slot].total() - shared);
+            }
+            return;
+        }
+
+        acc.reset();
+        acc.ensureCapacity(slotCount);
+        Integer selfSlot = slotOf.get(selfUserId);
+        int self = selfSlot == null ? -1 : selfSlot;
+        double averageLength = userCount() == 0 ? 1.0 : (double) totalCount / userCount();
+
+        for (int i = 0; i < query.size(); i++) {
+            int term = query.termId(i);
+            if (term >= postings.length || postings[term] == null) continue;
+
+            Postings p = postings[term];
+            int fq = query.count(i);
+            double queryWeight;
+            switch (metric) {
+                case TFIDF: {
+                    double idf = idf(term);
+                    queryWeight = fq * idf * idf;
+                    break;
+                }
+                case BM25:
+                    queryWeight = fq * bm25Idf(term);
+                    break;
+                default:
+                    queryWeight = fq;
+                    break;
+            }
+            for (int k = 0; k < p.size; k++) {
+                int slot = p.slots[k];
+                int fu = p.counts[k];
+                if (slot == self || fu == 0) continue;
+                if (acc.shared[slot] == 0) acc.touched[acc.touchedCount++] = slot;
+                acc.shared[slot] += Math.min(fq, fu);
+                if (metric == SimilarityMetric.BM25) {
+                    double lengthNorm = 1 - BM25_B + BM25_B * vectorOfSlot[slot].total() / averageLength;
+                    acc.score[slot] += queryWeight * fu * (BM25_K1 + 1) / (fu + BM25_K1 * lengthNorm);
+                }
+                else acc.score[slot] += queryWeight * fu;
+            }
+        }
+
+        if (metric == SimilarityMetric.COSINE) {
+            double queryNorm = norm(query);
+            for (int k = 0; k < acc.touchedCount; k++) {
+                int slot = acc.touched[k];
+                acc.score[slot] /= queryNorm * normOfSlot[slot];
+            }
+        }
+        else if (metric == SimilarityMetric.TFIDF) {
+            double[] squares = tfidfSquares();
+            double queryNorm = Math.sqrt(tfidfSquare(query));
+            for (int k = 0; k < acc.touchedCount; k++) {
+                int slot = acc.touched[k];
+                acc.score[slot] /= queryNorm * Math.sqrt(squares[slot]);
+            }
+        }
+    }
+
+    double touchedScore(Accumulator acc, int k) {
+        return acc.score[acc.touched[k]];
+    }
+
+    int touchedCount(Accumulator acc) {
+        return acc.touchedCount;
+    }
+
+    int touchedUser(Accumulator acc, int k) {
+        return userOfSlot[acc.touched[k]];
+    }
+
+    long touchedShared(Accumulator acc, int k) {
+        return acc.shared[acc.touched[k]];
+    }
+
+    long touchedTotal(Accumulator acc, int k) {
+        return vectorOfSlot[acc.touched[k]].total();
+    }
+
+//  Shared count accumulated for the user, 0 if the user shares no term with the query
+    long sharedWith(Accumulator acc, int userId) {
+        Integer slot = slotOf.get(userId);
+        return slot == null || slot >= acc.shared.length ? 0 : acc.shared[slot];
+    }
+}
@@ -1,6 +1,7 @@
 package edu.usc.csci310.project.services;
 
 import edu.usc.csci310.project.Utils;
+import edu.usc.csci310.project.configuration.ConnectionPool;
 import edu.usc.csci310.project.requests.LoginUserRequest;
 import org.springframework.stereotype.Service;
 
@@ -13,28 +14,30 @@ import java.sql.SQLException;
 @Service
 public class LoginService {
 
-    private final Connection conn;
+    private final ConnectionPool pool;
 
-    public LoginService(Connection conn) {
-        this.conn = conn;
+    public LoginService(ConnectionPool pool) {
+        this.pool = pool;
     }
 
     public int loginUser(LoginUserRequest request) throws SQLException {
         String query = "SELECT * FROM users WHERE username = ?";
-        PreparedStatement stmt = conn.prepareStatement(query);
-        stmt.setString(1, Utils.hashUsername(request.getUsername()));
-       ResultSet rs = stmt.executeQuery();
-        if (rs.next()) {
-            if(Utils.verifyPassword(request.getPassword(), rs.getString("password"))) {
-                return rs.getInt("id");
+        try (Connection conn = pool.reader();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, Utils.hashUsername(request.getUsername()));
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                if(Utils.verifyPassword(request.getPassword(), rs.getString("password"))) {
+                    return rs.getInt("id");
+                }
+                else {
+                    return -2; // -2 represents failed password
+                }
             }
             else {
-                return -2; // -2 represents failed password
+                return -1; // represents that the username did not exist
             }
         }
-        else {
-            return -1; // represents that the username did not exist
-        }
     }
 
 
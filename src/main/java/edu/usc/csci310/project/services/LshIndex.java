@@ -0,0 +1,134 @@
+package edu.usc.csci310.project.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locality-sensitive hashing over {@link WeightedMinHash} signatures, used by the approximate match mode.
+ * A signature of bands x rows slots is cut into bands; users whose slots agree on a whole band land in
+ * the same bucket. Two clouds with similarity s share at least one bucket with probability
+ * 1 - (1 - s^rows)^bands, so more bands raise recall and more rows cut down dissimilar candidates.
+ * A query only returns the shortlist of users that collide with it in the most bands.
+ * Not thread-safe: {@link MatchEngine} guards it with its read/write lock.
+ */
+public class LshIndex {
+    public static final int DEFAULT_BANDS = 64;
+    public static final int DEFAULT_ROWS = 2;
+    public static final int DEFAULT_SHORTLIST = 200;
+
+    private final int bands;
+    private final int rows;
+    private final int shortlist;
+    private final WeightedMinHash minHash;
+
+    private final Map<Long, Bucket> buckets = new HashMap<>();
+    private final Map<Integer, long[]> keysOf = new HashMap<>();
+
+    /** The users in one bucket, unordered. */
+    private static final class Bucket {
+        int[] users = new int[2];
+        int size = 0;
+
+        void add(int userId) {
+            if (size == users.length) users = Arrays.copyOf(users, size * 2);
+            users[size++] = userId;
+        }
+
+        void remove(int userId) {
+            for (int k = 0; k < size; k++) {
+                if (users[k] == userId) {
+                    users[k] = users[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    public LshIndex() {
+        this(DEFAULT_BANDS, DEFAULT_ROWS, DEFAULT_SHORTLIST);
+    }
+
+    /**
+     * @param bands      number of bands; higher finds more true soulmates at the cost of more candidates
+     * @param rows       signature slots per band; higher makes a collision require more similarity
+     * @param shortlist  most candidates a query returns for exact scoring
+     */
+    public LshIndex(int bands, int rows, int shortlist) {
+        if (bands < 1 || rows < 1 || shortlist < 1) {
+            throw new IllegalArgumentException("bands, rows and shortlist must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.shortlist = shortlist;
+        this.minHash = new WeightedMinHash(bands * rows, 0x5EED);
+    }
+
+    public int shortlist() {
+        return shortlist;
+    }
+
+//  Replaces the user's signature; an empty vector removes the user
+    public void put(int userId, SparseVector vector) {
+        remove(userId);
+        if (vector.isEmpty()) return;
+
+        int[] signature = minHash.signature(vector);
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            int h = band;
+            for (int r = 0; r < rows; r++) h = 31 * h + signature[band * rows + r];
+            keys[band] = ((long) band << 32) | (h & 0xffffffffL);
+            buckets.computeIfAbsent(keys[band], k -> new Bucket()).add(userId);
+        }
+        keysOf.put(userId, keys);
+    }
+
+    public void remove(int userId) {
+        long[] keys = keysOf.remove(userId);
+        if (keys == null) return;
+        for (long key : keys) {
+            Bucket bucket = buckets.get(key);
+            bucket.remove(userId);
+            if (bucket.size == 0) buckets.remove(key);
+        }
+    }
+
+    public void clear() {
+        buckets.clear();
+        keysOf.clear();
+    }
+
+    public int userCount() {
+        return keysOf.size();
+    }
+
+    /**
+     * Users sharing at least one bucket with the given indexed user, most shared buckets first
+     * (ties by lower user id), at most shortlist of them. Empty if the user is not indexed.
+     */
+    public int[] candidates(int userId) {
+        long[] keys = keysOf.get(userId);
+        if (keys == null) return new int[0];
+
+        Map<Integer, Integer> collisions = new HashMap<>();
+        for (long key : keys) {
+            Bucket bucket = buckets.get(key);
+            for (int k = 0; k < bucket.size; k++) {
+                int other = bucket.users[k];
+                if (other != userId) collisions.merge(other, 1, Integer::sum);
+            }
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(collisions.entrySet());
+        ranked.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? Integer.compare(a.getKey(), b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+
+        int[] result = new int[Math.min(shortlist, ranked.size())];
+        for (int i = 0; i < result.length; i++) result[i] = ranked.get(i).getKey();
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+package edu.usc.csci310.project.services;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Turns lyrics into the terms that word clouds and matching are built from, the same way the
+ * React word cloud does: [Chorus]-style bracket sections are dropped, the rest is tokenized,
+ * stop words and one-letter words are removed, and what remains is Porter-stemmed.
+ *
+ * Every distinct surface word is analyzed once. Its result (the stemmed term's id, or "dropped")
+ * is memoized by word id in an {@link AtomicIntegerArray}, so a word that was seen before costs a dictionary
+ * lookup and an array read, and threads reading the memo see entries written by the one that analyzed the word.
+ */
+public class LyricAnalyzer {
+    /**
+     * Bumped whenever analysis changes, so terms stored by an older version get rebuilt.
+     * 1 = regex split, 2 = character scan, 3 = brackets, stop words and stemming.
+     */
+    public static final int VERSION = 3;
+
+    /** Kept in sync with STOP_WORDS in site/src/components/WordCloudContent.jsx. */
+    public static final Set<String> STOP_WORDS = Set.of(
+            "i", "me", "my", "myself", "we", "our", "ours", "ourselves", "you", "your", "yours", "yourself", "yourselves", "he", "him", "his",
+            "himself", "she", "her", "hers", "herself", "it", "its", "itself", "they", "them", "their", "theirs", "themselves", "what",
+            "which", "who", "whom", "this", "that", "these", "those", "am", "is", "are", "was", "were", "be", "been", "being", "have", "has",
+            "had", "having", "do", "does", "did", "doing", "a", "an", "the", "and", "but", "if", "or", "because", "as", "until", "while", "of",
+            "at", "by", "for", "with", "about", "against", "between", "into", "through", "during", "before", "after", "above", "below", "to",
+            "from", "up", "down", "in", "out", "on", "off", "over", "under", "again", "further", "then", "once", "here", "there", "when", "where",
+            "why", "how", "all", "any", "both", "each", "few", "more", "most", "other", "some", "such", "no", "nor", "not", "only", "own", "same",
+            "so", "than", "too", "very", "s", "t", "can", "will", "just", "don", "should", "now"
+    );
+
+    private static final int UNKNOWN = 0;
+    private static final int DROPPED = -1;
+
+    private final TermDictionary terms;
+    private final TermDictionary words = new TermDictionary();
+    private final LyricTokenizer tokenizer = new LyricTokenizer(words);
+    private final PorterStemmer stemmer = new PorterStemmer();
+    // word id -> term id + 1, UNKNOWN or DROPPED; read without the lock, written and grown under it
+    private volatile AtomicIntegerArray analyzed = new AtomicIntegerArray(256);
+
+    /**
+     * @param terms  the dictionary the analyzed terms are interned into
+     */
+    public LyricAnalyzer(TermDictionary terms) {
+        this.terms = terms;
+    }
+
+//  Adds one count per kept term of the lyrics to the counter; null lyrics add nothing
+    public void analyze(CharSequence lyrics, TermCounter counts) {
+        if (lyrics == null) return;
+
+        LyricTokenizer.WordHandler handler = (buf, len) -> {
+            int term = termOf(words.intern(buf, 0, len));
+            if (term != DROPPED) counts.add(term);
+        };
+
+        int n = lyrics.length();
+        int from = 0;
+        int i = 0;
+        while (i < n) {
+            // like /\[.*?\]/g: a bracket section ends at the first ']' and never spans a line
+            int close = lyrics.charAt(i) == '[' ? sectionEnd(lyrics, i + 1, n) : -1;
+            if (close == -1) {
+                i++;
+                continue;
+            }
+            tokenizer.scan(lyrics, from, i, handler);
+            from = i = close + 1;
+        }
+        tokenizer.scan(lyrics, from, n, handler);
+    }
+
+    private static int sectionEnd(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == ']') return i;
+            if (c == '\n' || c == '\r') return -1;
+        }
+        return -1;
+    }
+
+    // the analyzed term id of a surface word, or DROPPED
+    private int termOf(int wordId) {
+        AtomicIntegerArray cache = analyzed;
+        int entry = wordId < cache.length() ? cache.get(wordId) : UNKNOWN;
+        if (entry != UNKNOWN) return entry == DROPPED ? DROPPED : entry - 1;
+        return memoize(wordId);
+    }
+
+    private synchronized int memoize(int wordId) {
+        AtomicIntegerArray cache = analyzed;
+        if (wordId >= cache.length()) {
+            AtomicIntegerArray grown = new AtomicIntegerArray(Math.max(wordId + 1, cache.length() * 2));
+            for (int i = 0; i < cache.length(); i++) grown.set(i, cache.get(i));
+            analyzed = cache = grown;
+        }
+        int entry = cache.get(wordId);
+        if (entry == UNKNOWN) {
+            String term = analyzeWord(words.term(wordId));
+            entry = term == null ? DROPPED : terms.intern(term) + 1;
+            cache.set(wordId, entry);
+        }
+        return entry == DROPPED ? DROPPED : entry - 1;
+    }
+
+//  The term a single lowercase word is counted as, or null if it is dropped
+    private String analyzeWord(String word) {
+        if (word.length() <= 1 || STOP_WORDS.contains(word)) return null;
+        String stemmed = isStemmable(word) ? stemmer.stem(word) : word;
+        return stemmed.length() > 1 ? stemmed : null;
+    }
+
+    // Porter's rules are only defined for plain a-z (apostrophes pass through as consonants)
+    private static boolean isStemmable(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if ((c < 'a' || c > 'z') && c != '\'') return false;
+        }
+        return true;
+    }
+}
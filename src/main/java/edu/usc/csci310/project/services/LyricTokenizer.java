@@ -0,0 +1,71 @@
+package edu.usc.csci310.project.services;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass lyric tokenizer. Scans the text code point by code point, lowercases word characters
+ * into a single buffer and interns each finished word straight into a {@link TermCounter},
+ * so no List, substring or boxed count is created per word.
+ *
+ * A word is a run of Unicode letters and digits, including the combining marks that follow them
+ * (so "café" and "naïve" stay whole in either normalization form). An apostrophe (' or ’) is kept
+ * only between two word characters: "don't" and "rock'n'roll" are single words, while the quotes
+ * in "'cause" and "lovin'" are dropped.
+ */
+public class LyricTokenizer {
+    private final TermDictionary dictionary;
+
+    public LyricTokenizer(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /** Receives each word as the first len chars of a buffer that is reused for the next word. */
+    public interface WordHandler {
+        void word(char[] buf, int len);
+    }
+
+//  Adds one count per word of the text to the counter; null text adds nothing
+    public void tokenize(CharSequence text, TermCounter counts) {
+        if (text == null) return;
+        scan(text, 0, text.length(), (buf, len) -> counts.add(dictionary.intern(buf, 0, len)));
+    }
+
+//  Hands every lowercased word of text[from, to) to the handler
+    public void scan(CharSequence text, int from, int to, WordHandler handler) {
+        char[] buf = new char[32];
+        int len = 0;
+        int i = from;
+        while (i < to) {
+            int cp = Character.codePointAt(text, i);
+            int next = i + Character.charCount(cp);
+
+            if (isWordStart(cp) || (len > 0 && isMark(cp))) {
+                if (len + 2 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                len += Character.toChars(Character.toLowerCase(cp), buf, len);
+            } else if (len > 0 && isApostrophe(cp) && next < to && isWordStart(Character.codePointAt(text, next))) {
+                if (len + 1 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                buf[len++] = '\'';
+            } else if (len > 0) {
+                handler.word(buf, len);
+                len = 0;
+            }
+            i = next;
+        }
+        if (len > 0) handler.word(buf, len);
+    }
+
+    private static boolean isWordStart(int cp) {
+        return Character.isLetterOrDigit(cp);
+    }
+
+    private static boolean isMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK
+                || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    private static boolean isApostrophe(int cp) {
+        return cp == '\'' || cp == '\u2019';
+    }
+}
@@ -0,0 +1,155 @@
+package edu.usc.csci310.project.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the soulmate and enemy of every user in one pass over the user x user similarity matrix.
+ * The matrix is cut into square tiles; only tiles on or above the diagonal are scored because
+ * sim(a, b) = sim(b, a), and every score updates both the row user and the column user.
+ * Tiles run on a fork/join pool, each folding its results into per-user slots under striped locks.
+ */
+public class MatchBatchJob {
+    public static final int DEFAULT_TILE_SIZE = 128;
+    private static final int LOCK_STRIPES = 64;
+
+    private final ForkJoinPool pool;
+    private final int tileSize;
+
+    public MatchBatchJob() {
+        this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+    }
+
+    public MatchBatchJob(ForkJoinPool pool, int tileSize) {
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    /** Per-user running best/worst, written only under the user's stripe lock. */
+    private static final class Results {
+        final int[] userIds;
+        final int[] bestUser, worstUser;
+        final double[] bestScore, worstScore;
+        final Object[] locks = new Object[LOCK_STRIPES];
+
+        Results(int[] userIds) {
+            int n = userIds.length;
+            this.userIds = userIds;
+            bestUser = new int[n];
+            worstUser = new int[n];
+            bestScore = new double[n];
+            worstScore = new double[n];
+            Arrays.fill(bestUser, -1);
+            Arrays.fill(worstUser, -1);
+            for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new Object();
+        }
+
+        void merge(int i, int best, double bestS, int worst, double worstS) {
+            synchronized (locks[i % LOCK_STRIPES]) {
+                if (best != -1 && MatchGraph.isBetter(bestS, best, bestScore[i], bestUser[i])) {
+                    bestScore[i] = bestS;
+                    bestUser[i] = best;
+                }
+                if (worst != -1 && MatchGraph.isWorse(worstS, worst, worstScore[i], worstUser[i])) {
+                    worstScore[i] = worstS;
+                    worstUser[i] = worst;
+                }
+            }
+        }
+    }
+
+    /** Scores a contiguous range of tile pairs, splitting it in half until it is a single tile. */
+    private final class TileTask extends RecursiveAction {
+        private final SparseVector[] vectors;
+        private final Results results;
+        private final int[][] tiles;
+        private final int from, to;
+
+        TileTask(SparseVector[] vectors, Results results, int[][] tiles, int from, int to) {
+            this.vectors = vectors;
+            this.results = results;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                scoreTile(vectors, results, tiles[from][0], tiles[from][1]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(vectors, results, tiles, from, mid),
+                    new TileTask(vectors, results, tiles, mid, to));
+        }
+    }
+
+    /**
+     * @param userIds  the users to match, in ascending order
+     * @param vectors  their non-empty clouds, parallel to userIds
+     * @return every user's candidates; users are only matched against each other
+     */
+    public Map<Integer, MatchCandidates> computeAll(int[] userIds, SparseVector[] vectors) {
+        int n = userIds.length;
+        Results results = new Results(userIds);
+
+        int tileCount = (n + tileSize - 1) / tileSize;
+        int[][] tiles = new int[tileCount * (tileCount + 1) / 2][];
+        int t = 0;
+        for (int i = 0; i < tileCount; i++) {
+            for (int j = i; j < tileCount; j++) {
+                tiles[t++] = new int[]{i, j};
+            }
+        }
+        if (tiles.length > 0) {
+            pool.invoke(new TileTask(vectors, results, tiles, 0, tiles.length));
+        }
+
+        Map<Integer, MatchCandidates> all = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            all.put(userIds[i], results.bestUser[i] == -1 ? MatchCandidates.NONE
+                    : new MatchCandidates(results.bestUser[i], results.bestScore[i],
+                                          results.worstUser[i], results.worstScore[i]));
+        }
+        return all;
+    }
+
+    private void scoreTile(SparseVector[] vectors, Results results, int tileRow, int tileCol) {
+        int[] ids = results.userIds;
+        int n = ids.length;
+        int rowStart = tileRow * tileSize, rowEnd = Math.min(rowStart + tileSize, n);
+        int colStart = tileCol * tileSize, colEnd = Math.min(colStart + tileSize, n);
+        int cols = colEnd - colStart;
+
+        // column users collect their results locally and are merged once per tile
+        int[] colBest = new int[cols], colWorst = new int[cols];
+        double[] colBestScore = new double[cols], colWorstScore = new double[cols];
+        Arrays.fill(colBest, -1);
+        Arrays.fill(colWorst, -1);
+
+        for (int a = rowStart; a < rowEnd; a++) {
+            int best = -1, worst = -1;
+            double bestScore = 0, worstScore = 0;
+            int start = tileRow == tileCol ? a + 1 : colStart;
+
+            for (int b = start; b < colEnd; b++) {
+                double s = SparseVector.weightedJaccard(vectors[a], vectors[b]);
+
+                if (MatchGraph.isBetter(s, ids[b], bestScore, best)) { bestScore = s; best = ids[b]; }
+                if (MatchGraph.isWorse(s, ids[b], worstScore, worst)) { worstScore = s; worst = ids[b]; }
+
+                int c = b - colStart;
+                if (MatchGraph.isBetter(s, ids[a], colBestScore[c], colBest[c])) { colBestScore[c] = s; colBest[c] = ids[a]; }
+                if (MatchGraph.isWorse(s, ids[a], colWorstScore[c], colWorst[c])) { colWorstScore[c] = s; colWorst[c] = ids[a]; }
+            }
+            results.merge(a, best, bestScore, worst, worstScore);
+        }
+        for (int c = 0; c < cols; c++) {
+            results.merge(colStart + c, colBest[c], colBestScore[c], colWorst[c], colWorstScore[c]);
+        }
+    }
+}
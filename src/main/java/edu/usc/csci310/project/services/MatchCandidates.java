@@ -0,0 +1,30 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * A user's current soulmate and enemy candidates with their similarity scores.
+ * A user id of -1 means there is no candidate (nobody else has favorites yet).
+ */
+public final class MatchCandidates {
+    public static final MatchCandidates NONE = new MatchCandidates(-1, 0.0, -1, 0.0);
+
+    public final int bestUser;
+    public final double bestScore;
+
+    public final int worstUser;
+    public final double worstScore;
+
+    public MatchCandidates(int bestUser, double bestScore, int worstUser, double worstScore) {
+        this.bestUser = bestUser;
+        this.bestScore = bestScore;
+        this.worstUser = worstUser;
+        this.worstScore = worstScore;
+    }
+
+    public boolean hasBest() {
+        return bestUser != -1;
+    }
+
+    public boolean hasWorst() {
+        return worstUser != -1;
+    }
+}
@@ -0,0 +1,646 @@
+package edu.usc.csci310.project.services;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory matcher over every user's word cloud. Clouds are kept as {@link SparseVector}s in an
+ * {@link InvertedIndex}, so a soulmate search only visits users that share at least one word with the query.
+ * Every user's current soulmate and enemy are materialized in a {@link MatchGraph} that is updated
+ * incrementally whenever a cloud changes, so reads never search at all. A change can also be staged:
+ * the index takes it at once and the graph catches up when {@link #applyStaged} runs, so a favorite
+ * change does not pay for re-searching the users it affects.
+ *
+ * Ranking rules (identical to scoring every user with weighted Jaccard): the soulmate has the highest
+ * score, the enemy the lowest, and ties go to the lowest user id. Users without a cloud are not candidates,
+ * and an empty cloud counts as none: a user whose favorites leave no word after stop-word removal is not
+ * indexed, so they are nobody's enemy. The original scan scored such users 0 against everyone instead.
+ *
+ * Approximate mode (constructed with an {@link LshIndex}) is for user bases too large to keep the graph
+ * current. No graph is kept; each lookup takes soulmate candidates from LSH bucket collisions and
+ * scores only that shortlist exactly, so the soulmate may be missed. Users with no collision fall
+ * back to an exact search. The enemy is still exact: LSH only finds similar users, but the enemy
+ * is almost always a user sharing no word, and the lowest such id is found by scanning a few users in order.
+ * Shortlist scoring scatters the query into a dense array once and runs the {@link SimilarityKernel} per candidate.
+ * With a {@link SongUserIndex} attached, users sharing favorite songs with the query are scored first, then
+ * everyone else in order of their best possible score until that bound falls below the best found: a scan
+ * that stops on the bound proves the soulmate exact, one that runs out of its shortlist-sized budget does not.
+ */
+public class MatchEngine {
+    private final TermDictionary dictionary = new TermDictionary();
+    private final InvertedIndex index = new InvertedIndex();
+    private final MatchGraph graph = new MatchGraph();
+    private final MatchBatchJob batchJob;
+    // non-null in approximate mode
+    private final LshIndex lsh;
+    // bumped on every change to the index, so a batch computed without the write lock can tell if it is stale
+    private long version = 0;
+    // users whose cloud is in the index but not yet reflected in the graph, in staging order
+    private final Set<Integer> staged = new LinkedHashSet<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<InvertedIndex.Accumulator> scratch =
+            ThreadLocal.withInitial(InvertedIndex.Accumulator::new);
+    // approximate mode only
+    private final SimilarityKernel kernel;
+    private final ThreadLocal<int[]> denseScratch = ThreadLocal.withInitial(() -> new int[0]);
+    private volatile SongUserIndex songIndex;
+
+    /** Reads one user's current cloud, typically from the {@link UserTermStore}. */
+    public interface VectorLoader {
+        SparseVector load(int userId) throws SQLException;
+    }
+
+    /** Receives a consistent copy of every cloud and of the match graph, see {@link #readVectors}. */
+    public interface VectorReader {
+        void read(Map<Integer, SparseVector> vectors, Map<Integer, MatchCandidates> graph) throws IOException;
+    }
+
+    public MatchEngine() {
+        this(new MatchBatchJob());
+    }
+
+    public MatchEngine(MatchBatchJob batchJob) {
+        this.batchJob = batchJob;
+        this.lsh = null;
+        this.kernel = null;
+    }
+
+//  An approximate-mode engine that finds soulmates through the given LSH index
+    public MatchEngine(LshIndex lsh) {
+        this(lsh, SimilarityKernel.best());
+    }
+
+    public MatchEngine(LshIndex lsh, SimilarityKernel kernel) {
+        this.batchJob = null;
+        this.lsh = lsh;
+        this.kernel = kernel;
+    }
+
+//  Lets approximate mode order its soulmate search by shared favorite songs
+    public void useSongIndex(SongUserIndex songIndex) {
+        this.songIndex = songIndex;
+    }
+
+    public boolean isApproximate() {
+        return lsh != null;
+    }
+
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+//  Replaces the whole index with the given clouds and rebuilds the match graph
+    public void load(Map<Integer, SparseVector> vectors) {
+        load(vectors, null);
+    }
+
+    /**
+     * Like {@link #load(Map)}, but takes the match graph as given instead of computing it, as when both
+     * were saved together. The graph must be exact for these clouds; approximate mode ignores it.
+     * @param saved  every user's soulmate and enemy, or null to compute them
+     */
+    public void load(Map<Integer, SparseVector> vectors, Map<Integer, MatchCandidates> saved) {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            graph.clear();
+            if (lsh != null) lsh.clear();
+            for (Map.Entry<Integer, SparseVector> e : vectors.entrySet()) {
+                index.put(e.getKey(), e.getValue());
+                if (lsh != null) lsh.put(e.getKey(), e.getValue());
+            }
+            version++;
+            staged.clear();
+            if (lsh == null) install(saved != null ? saved : computeAllMatches());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+//  Re-reads one user's cloud while holding the write lock, so concurrent refreshes cannot apply stale vectors
+    public void refresh(int userId, VectorLoader loader) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            apply(userId, loader.load(userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Like {@link #refresh}, but only the index takes the new cloud; searches and rankings see it at once,
+     * the match graph only after {@link #applyStaged}. In approximate mode there is no graph to catch up.
+     */
+    public void stage(int userId, VectorLoader loader) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            SparseVector vector = loader.load(userId);
+            index.put(userId, vector);
+            version++;
+            if (lsh != null) lsh.put(userId, vector);
+            else staged.add(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the match graph up to date with the staged clouds of the given users, one at a time in the
+     * order they were staged. Each one is applied like a refresh of its current cloud, skipping the entries
+     * of users that are still staged. Entries pointing at a user that is still staged may hold an old score
+     * until that user is applied, and applying it re-searches them if needed, so once every staged user
+     * is applied the graph is exact again.
+     * @return how many of the users were staged
+     */
+    public int applyStaged(Iterable<Integer> userIds) {
+        lock.writeLock().lock();
+        try {
+            Set<Integer> wanted = new LinkedHashSet<>();
+            for (int userId : userIds) wanted.add(userId);
+            List<Integer> due = new ArrayList<>();
+            for (int userId : staged) {
+                if (wanted.contains(userId)) due.add(userId);
+            }
+            for (int userId : due) {
+                staged.remove(userId);
+                applyToGraph(userId, index.vector(userId));
+            }
+            return due.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+//  Number of users staged but not yet applied to the match graph
+    public int stagedCount() {
+        lock.readLock().lock();
+        try {
+            return staged.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+//  A copy of every user's soulmate and enemy in the match graph, empty in approximate mode
+    public Map<Integer, MatchCandidates> copyGraph() {
+        lock.readLock().lock();
+        try {
+            return graph.copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void update(int userId, SparseVector vector) {
+        lock.writeLock().lock();
+        try {
+            apply(userId, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean hasCloud(int userId) {
+        lock.readLock().lock();
+        try {
+            return index.contains(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SparseVector vector(int userId) {
+        lock.readLock().lock();
+        try {
+            return index.vector(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+//  Hands every indexed cloud to the reader while holding the read lock, so no cloud changes until it returns.
+//  The graph comes along only while it is exact for them, so it is null in approximate mode or with users staged.
+    public void readVectors(VectorReader reader) throws IOException {
+        lock.readLock().lock();
+        try {
+            Map<Integer, SparseVector> vectors = new HashMap<>();
+            for (int userId : index.userIds()) vectors.put(userId, index.vector(userId));
+            reader.read(vectors, lsh == null && staged.isEmpty() ? graph.copy() : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int userCount() {
+        lock.readLock().lock();
+        try {
+            return index.userCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a user's soulmate and enemy from the match graph; no scoring happens here.
+     * In approximate mode they are computed on demand instead.
+     * @return the candidates, or {@link MatchCandidates#NONE} if the user has no cloud
+     */
+    public MatchCandidates findCandidates(int userId) {
+        lock.readLock().lock();
+        try {
+            return lsh == null ? graph.get(userId) : approximate(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the indexed users for the soulmate and enemy of any cloud, leaving out userId.
+     * A shard answers its coordinator with this, since the query user may be indexed on another shard.
+     * Always exact, also in approximate mode.
+     */
+    public MatchCandidates searchFor(int userId, SparseVector vector) {
+        lock.readLock().lock();
+        try {
+            return vector.isEmpty() ? MatchCandidates.NONE : search(userId, vector);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+//  True if the user's soulmate has the user as their own soulmate
+    public boolean isMutualBest(int userId) {
+        lock.readLock().lock();
+        try {
+            if (lsh == null) return graph.isMutualBest(userId);
+            MatchCandidates mine = approximate(userId);
+            return mine.hasBest() && approximate(mine.bestUser).bestUser == userId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+//  True if the user's enemy has the user as their own enemy
+    public boolean isMutualWorst(int userId) {
+        lock.readLock().lock();
+        try {
+            if (lsh == null) return graph.isMutualWorst(userId);
+            MatchCandidates mine = approximate(userId);
+            return mine.hasWorst() && approximate(mine.worstUser).worstUser == userId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks the k best soulmates and k worst enemies of a user in a single pass over the inverted index,
+     * with a bounded heap for each list. Users sharing no word all score 0; only the k lowest of their ids
+     * can make either list, so the scan for them stops after k. Always exact, also in approximate mode.
+     */
+    public MatchRanking rank(int userId, int k) {
+        return rank(userId, k, SimilarityMetric.JACCARD);
+    }
+
+//  Like rank(userId, k), scoring with the given metric instead of weighted Jaccard
+    public MatchRanking rank(int userId, int k, SimilarityMetric metric) {
+        lock.readLock().lock();
+        try {
+            return rankLocked(userId, k, metric);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The first soulmate and enemy of each of the given users under the metric, as a ranked page needs them
+     * to tell which of its matches are mutual. All of them are ranked in one call under one read lock, so
+     * the answers agree with each other; each user still takes one scoring pass over their own terms.
+     * @return the picks by user id, {@link MatchCandidates#NONE} for users without a cloud
+     */
+    public Map<Integer, MatchCandidates> firstPicks(int[] userIds, SimilarityMetric metric) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, MatchCandidates> picks = new HashMap<>();
+            for (int userId : userIds) {
+                if (picks.containsKey(userId)) continue;
+                MatchRanking ranking = rankLocked(userId, 1, metric);
+                picks.put(userId, ranking.soulmates.length == 0 ? MatchCandidates.NONE
+                        : new MatchCandidates(ranking.soulmates[0], ranking.soulmateScores[0],
+                                ranking.enemies[0], ranking.enemyScores[0]));
+            }
+            return picks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+//  rank() for a caller holding the read lock
+    private MatchRanking rankLocked(int userId, int k, SimilarityMetric metric) {
+        SparseVector mine = index.vector(userId);
+        if (mine.isEmpty()) return MatchRanking.EMPTY;
+
+        int others = index.userCount() - 1;
+        k = Math.min(k, others);
+        InvertedIndex.Accumulator acc = scratch.get();
+        index.score(mine, userId, acc, metric);
+        RankedHeap soulmates = RankedHeap.soulmates(k);
+        RankedHeap enemies = RankedHeap.enemies(k);
+
+        int touched = index.touchedCount(acc);
+        for (int i = 0; i < touched; i++) {
+            double score = index.touchedScore(acc, i);
+            soulmates.offer(index.touchedUser(acc, i), score);
+            enemies.offer(index.touchedUser(acc, i), score);
+        }
+
+        int zeros = 0;
+        if (others > touched) {
+            for (int other : index.userIds()) {
+                if (zeros == k) break;
+                if (other == userId || index.sharedWith(acc, other) != 0) continue;
+                soulmates.offer(other, 0.0);
+                enemies.offer(other, 0.0);
+                zeros++;
+            }
+        }
+
+        int[] topUsers = new int[soulmates.size()];
+        double[] topScores = new double[soulmates.size()];
+        soulmates.drain(topUsers, topScores);
+        int[] bottomUsers = new int[enemies.size()];
+        double[] bottomScores = new double[enemies.size()];
+        enemies.drain(bottomUsers, bottomScores);
+        return new MatchRanking(topUsers, topScores, bottomUsers, bottomScores, others);
+    }
+
+    /**
+     * Recomputes every user's soulmate and enemy with the parallel batch job and replaces the graph.
+     * The batch runs under the read lock, so lookups keep being served; if a favorite change slips in
+     * before the results are installed, the batch is redone under the write lock.
+     */
+    public void recomputeAll() {
+        if (lsh != null) return;   // approximate mode keeps no graph
+
+        long seen;
+        Map<Integer, MatchCandidates> all;
+        lock.readLock().lock();
+        try {
+            seen = version;
+            all = computeAllMatches();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (version != seen) all = computeAllMatches();
+            install(all);
+            staged.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<Integer, MatchCandidates> computeAllMatches() {
+        int n = index.userCount();
+        int[] userIds = new int[n];
+        SparseVector[] vectors = new SparseVector[n];
+        int i = 0;
+        for (int userId : index.userIds()) {
+            userIds[i] = userId;
+            vectors[i++] = index.vector(userId);
+        }
+        return batchJob.computeAll(userIds, vectors);
+    }
+
+    private void install(Map<Integer, MatchCandidates> all) {
+        graph.clear();
+        for (Map.Entry<Integer, MatchCandidates> e : all.entrySet()) {
+            graph.put(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Applies a changed cloud to the index and the match graph. The changed user is re-searched; every
+     * other user only compares their entry against their new score with the changed user, and is
+     * re-searched only if their soulmate got less similar or their enemy got more similar.
+     * Must be called with the write lock held.
+     */
+    private void apply(int userId, SparseVector vector) {
+        index.put(userId, vector);
+        version++;
+        if (lsh != null) {
+            lsh.put(userId, vector);
+            return;
+        }
+        staged.remove(userId);
+        applyToGraph(userId, vector);
+    }
+
+//  The graph half of apply(), for a cloud the index already holds
+    private void applyToGraph(int userId, SparseVector vector) {
+        List<Integer> stale = new ArrayList<>();
+
+        if (vector.isEmpty()) {
+            graph.remove(userId);
+            for (int other : index.userIds()) {
+                if (staged.contains(other)) continue;
+                MatchCandidates entry = graph.get(other);
+                if (entry.bestUser == userId || entry.worstUser == userId) stale.add(other);
+            }
+        }
+        else {
+            InvertedIndex.Accumulator acc = scratch.get();
+            graph.put(userId, search(userId, vector));
+
+            // search() leaves the shared counts of the changed user in the accumulator;
+            // users still staged are searched from scratch when they are applied
+            for (int other : index.userIds()) {
+                if (other == userId || staged.contains(other)) continue;
+
+                long shared = index.sharedWith(acc, other);
+                double score = shared == 0 ? 0.0
+                        : (double) shared / (vector.total() + index.vector(other).total() - shared);
+
+                MatchCandidates entry = graph.get(other);
+                int bestUser = entry.bestUser, worstUser = entry.worstUser;
+                double bestScore = entry.bestScore, worstScore = entry.worstScore;
+
+                if (bestUser == userId) {
+                    if (score < bestScore) { stale.add(other); continue; }
+                    bestScore = score;
+                }
+                else if (MatchGraph.isBetter(score, userId, bestScore, bestUser)) {
+                    bestScore = score;
+                    bestUser = userId;
+                }
+
+                if (worstUser == userId) {
+                    if (score > worstScore) { stale.add(other); continue; }
+                    worstScore = score;
+                }
+                else if (MatchGraph.isWorse(score, userId, worstScore, worstUser)) {
+                    worstScore = score;
+                    worstUser = userId;
+                }
+
+                if (bestUser != entry.bestUser || worstUser != entry.worstUser
+                        || bestScore != entry.bestScore || worstScore != entry.worstScore) {
+                    graph.put(other, new MatchCandidates(bestUser, bestScore, worstUser, worstScore));
+                }
+            }
+        }
+
+        for (int other : stale) {
+            graph.put(other, search(other, index.vector(other)));
+        }
+    }
+
+    /**
+     * Finds the soulmate and enemy of a user by searching the index. Only users sharing a word are
+     * scored; if anyone shares nothing, the lowest such user id scores 0 and is the enemy without being scored.
+     */
+    private MatchCandidates search(int userId, SparseVector mine) {
+        InvertedIndex.Accumulator acc = scratch.get();
+        index.accumulate(mine, userId, acc);
+
+        int bestUser = -1, worstUser = -1;
+        double bestScore = -1.0, worstScore = Double.MAX_VALUE;
+
+        int touched = index.touchedCount(acc);
+        for (int k = 0; k < touched; k++) {
+            int other = index.touchedUser(acc, k);
+            long shared = index.touchedShared(acc, k);
+            double score = (double) shared / (mine.total() + index.touchedTotal(acc, k) - shared);
+
+            if (MatchGraph.isBetter(score, other, bestScore, bestUser)) {
+                bestScore = score;
+                bestUser = other;
+            }
+            if (MatchGraph.isWorse(score, other, worstScore, worstUser)) {
+                worstScore = score;
+                worstUser = other;
+            }
+        }
+
+        // users that never appeared in a posting list share no word with us and score exactly 0
+        int others = index.userCount() - (index.contains(userId) ? 1 : 0);
+        if (others > touched) {
+            int zeroUser = -1;
+            for (int other : index.userIds()) {
+                if (other != userId && index.sharedWith(acc, other) == 0) {
+                    zeroUser = other;
+                    break;
+                }
+            }
+            worstUser = zeroUser;
+            worstScore = 0.0;
+            if (touched == 0) {
+                bestUser = zeroUser;
+                bestScore = 0.0;
+            }
+        }
+        return bestUser == -1 ? MatchCandidates.NONE
+                : new MatchCandidates(bestUser, bestScore, worstUser, worstScore);
+    }
+
+    /**
+     * Approximate-mode lookup: the soulmate is the best exactly-scored user of the LSH shortlist and, with a
+     * song index, of the users sharing favorites and the bounded scan; the enemy is exact.
+     * Must be called with the read lock held.
+     */
+    private MatchCandidates approximate(int userId) {
+        SparseVector mine = index.vector(userId);
+        if (mine.isEmpty()) return MatchCandidates.NONE;
+
+        int[] shortlist = lsh.candidates(userId);
+        SongUserIndex songs = songIndex;
+        int[] sharing = songs == null ? new int[0] : songs.overlap(userId).users;
+        if (shortlist.length == 0 && sharing.length == 0) return search(userId, mine);
+
+        int[] dense = denseScratch.get();
+        if (dense.length < index.termCapacity()) {
+            dense = new int[index.termCapacity()];
+            denseScratch.set(dense);
+        }
+        mine.scatter(dense);
+        try {
+            Best best = new Best();
+            // users sharing favorite songs share their lyrics, so they raise the bar for the bounded scan early
+            for (int other : sharing) {
+                if (index.contains(other)) best.offer(other, score(dense, mine, other));
+            }
+            for (int other : shortlist) {
+                best.offer(other, score(dense, mine, other));
+            }
+            if (songs != null) boundedScan(userId, dense, mine, best);
+
+            // the lowest user id sharing no word is the exact enemy; if none turns up quickly, search
+            int scanned = 0;
+            if (best.user != -1) {
+                for (int other : index.userIds()) {
+                    if (other == userId) continue;
+                    if (kernel.sharedCount(dense, index.vector(other)) == 0) {
+                        return new MatchCandidates(best.user, best.score, other, 0.0);
+                    }
+                    if (++scanned == lsh.shortlist()) break;
+                }
+            }
+        } finally {
+            mine.unscatter(dense);
+        }
+        // the search finds the exact soulmate as well, which is at least as good as the shortlist's
+        return search(userId, mine);
+    }
+
+    /** The best candidate scored so far, with the soulmate ordering of {@link MatchGraph#isBetter}. */
+    private static final class Best {
+        int user = -1;
+        double score = -1.0;
+
+        void offer(int other, double otherScore) {
+            if (MatchGraph.isBetter(otherScore, other, score, user)) {
+                score = otherScore;
+                user = other;
+            }
+        }
+    }
+
+    // weighted Jaccard of the scattered query with an indexed user
+    private double score(int[] dense, SparseVector mine, int other) {
+        SparseVector theirs = index.vector(other);
+        long shared = kernel.sharedCount(dense, theirs);
+        return (double) shared / (mine.total() + theirs.total() - shared);
+    }
+
+    /**
+     * Scores users in decreasing order of min(total) / max(total), which no weighted Jaccard score can exceed,
+     * outward from the query's own total. Stops when that bound drops below the best score (users at an equal
+     * bound could still win a tie on id) or after lsh.shortlist() users. Must be called with the read lock held.
+     */
+    private void boundedScan(int userId, int[] dense, SparseVector mine, Best best) {
+        InvertedIndex.ByTotal order = index.usersByTotal();
+        int n = order.users.length;
+        double total = mine.total();
+        int hi = order.lowerBound(mine.total());   // users at least as large as the query, walking up
+        int lo = hi - 1;                            // smaller users, walking down
+        int budget = lsh.shortlist();
+        while (lo >= 0 || hi < n) {
+            double loBound = lo >= 0 ? order.totals[lo] / total : -1.0;
+            double hiBound = hi < n ? total / order.totals[hi] : -1.0;
+            if (Math.max(loBound, hiBound) < best.score) return;
+
+            int other = hiBound >= loBound ? order.users[hi++] : order.users[lo--];
+            if (other == userId) continue;
+            if (budget-- == 0) return;
+            best.offer(other, score(dense, mine, other));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.usc.csci310.project.services;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Materialized top-1 / bottom-1 match of every user, so reading a user's soulmate and enemy (and checking
+ * whether they pick the user back) is a lookup instead of a scan. {@link MatchEngine} keeps it current:
+ * when one user's cloud changes, only that user and the neighbours whose entry pointed at them are re-searched.
+ * Not thread-safe on its own; the engine's lock guards it.
+ */
+public class MatchGraph {
+    private final Map<Integer, MatchCandidates> entries = new HashMap<>();
+
+    public MatchCandidates get(int userId) {
+        return entries.getOrDefault(userId, MatchCandidates.NONE);
+    }
+
+    public void put(int userId, MatchCandidates candidates) {
+        entries.put(userId, candidates);
+    }
+
+    public void remove(int userId) {
+        entries.remove(userId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+//  An independent copy of every entry
+    public Map<Integer, MatchCandidates> copy() {
+        return new HashMap<>(entries);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+//  True if `userId`'s soulmate picks them back
+    public boolean isMutualBest(int userId) {
+        MatchCandidates mine = get(userId);
+        return mine.hasBest() && get(mine.bestUser).bestUser == userId;
+    }
+
+//  True if `userId`'s enemy picks them back
+    public boolean isMutualWorst(int userId) {
+        MatchCandidates mine = get(userId);
+        return mine.hasWorst() && get(mine.worstUser).worstUser == userId;
+    }
+
+    /** Soulmate ordering: higher score wins, ties go to the lower user id. */
+    static boolean isBetter(double score, int user, double bestScore, int bestUser) {
+        return bestUser == -1 || score > bestScore || (score == bestScore && user < bestUser);
+    }
+
+    /** Enemy ordering: lower score wins, ties go to the lower user id. */
+    static boolean isWorse(double score, int user, double worstScore, int worstUser) {
+        return worstUser == -1 || score < worstScore || (score == worstScore && user < worstUser);
+    }
+}
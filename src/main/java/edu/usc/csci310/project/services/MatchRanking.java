@@ -0,0 +1,23 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * A user's top soulmates and top enemies from one scoring pass, each best first,
+ * with parallel score arrays. candidates is how many users were ranked in total.
+ */
+public final class MatchRanking {
+    public static final MatchRanking EMPTY = new MatchRanking(new int[0], new double[0], new int[0], new double[0], 0);
+
+    public final int[] soulmates;
+    public final double[] soulmateScores;
+    public final int[] enemies;
+    public final double[] enemyScores;
+    public final int candidates;
+
+    public MatchRanking(int[] soulmates, double[] soulmateScores, int[] enemies, double[] enemyScores, int candidates) {
+        this.soulmates = soulmates;
+        this.soulmateScores = soulmateScores;
+        this.enemies = enemies;
+        this.enemyScores = enemyScores;
+        this.candidates = candidates;
+    }
+}
@@ -0,0 +1,93 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.models.MatchResult;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded, thread-safe LRU cache of match results keyed by (userId, favorites epoch).
+ * The epoch is bumped by every favorite change, so an entry computed before a change is never served
+ * after it, even if the computation raced with the change; {@link #invalidateBefore} drops such entries eagerly.
+ */
+public class MatchResultCache {
+    private final int capacity;
+    private final LinkedHashMap<Integer, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Entry {
+        final long epoch;
+        final MatchResult result;
+
+        Entry(long epoch, MatchResult result) {
+            this.epoch = epoch;
+            this.result = result;
+        }
+    }
+
+    public MatchResultCache(int capacity) {
+        this.capacity = capacity;
+        // access-ordered, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > MatchResultCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+//  Returns the cached result for the user at this epoch, or null on a miss
+    public synchronized MatchResult get(int userId, long epoch) {
+        Entry entry = entries.get(userId);
+        if (entry == null || entry.epoch != epoch) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.result;
+    }
+
+    public synchronized void put(int userId, long epoch, MatchResult result) {
+        if (capacity <= 0) return;
+        Entry current = entries.get(userId);
+        // never let a slow computation overwrite a result from a newer epoch
+        if (current != null && current.epoch > epoch) return;
+        entries.put(userId, new Entry(epoch, result));
+    }
+
+//  Drops every entry computed before the given epoch
+    public synchronized void invalidateBefore(long epoch) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().epoch < epoch) {
+                it.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("capacity", (long) capacity);
+        stats.put("size", (long) size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+}
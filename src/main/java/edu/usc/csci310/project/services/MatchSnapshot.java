@@ -0,0 +1,57 @@
+package edu.usc.csci310.project.services;
+
+import java.util.Map;
+
+/**
+ * An immutable copy of every user's soulmate and enemy, published by the background recompute and read
+ * without any lock: readers take the current snapshot from a volatile field and look users up in it,
+ * while the next snapshot is built on the side and swapped in whole.
+ */
+public final class MatchSnapshot {
+    public static final MatchSnapshot EMPTY = new MatchSnapshot(Map.of(), 0L);
+
+    private final Map<Integer, MatchCandidates> entries;
+    private final long publishedAt;
+
+    /**
+     * @param entries      every user with a cloud; the map must not be changed afterwards
+     * @param publishedAt  when the snapshot was published, in epoch milliseconds
+     */
+    public MatchSnapshot(Map<Integer, MatchCandidates> entries, long publishedAt) {
+        this.entries = entries;
+        this.publishedAt = publishedAt;
+    }
+
+//  True if the user had a cloud when the snapshot was taken
+    public boolean contains(int userId) {
+        return entries.containsKey(userId);
+    }
+
+    public MatchCandidates get(int userId) {
+        return entries.getOrDefault(userId, MatchCandidates.NONE);
+    }
+
+//  True if the user's soulmate picks them back
+    public boolean isMutualBest(int userId) {
+        MatchCandidates mine = get(userId);
+        return mine.hasBest() && get(mine.bestUser).bestUser == userId;
+    }
+
+//  True if the user's enemy picks them back
+    public boolean isMutualWorst(int userId) {
+        MatchCandidates mine = get(userId);
+        return mine.hasWorst() && get(mine.worstUser).worstUser == userId;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long publishedAt() {
+        return publishedAt;
+    }
+
+    public long ageMillis(long now) {
+        return Math.max(0L, now - publishedAt);
+    }
+}
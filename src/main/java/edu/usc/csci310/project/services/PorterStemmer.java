@@ -0,0 +1,277 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * Martin Porter's stemming algorithm, the same one the word cloud's porter-stemmer npm package runs,
+ * so server and browser reduce "loving", "loved" and "loves" to the same "love".
+ * Works in place on a char buffer. Not thread-safe; {@link LyricAnalyzer} only calls it under its lock.
+ */
+public class PorterStemmer {
+    private char[] b = new char[32];
+    private int k;   // end of the current word
+    private int j;   // end of the stem found by the last successful ends()
+
+//  Returns the stem of a lowercase ASCII word; words of one or two letters are returned unchanged
+    public String stem(String word) {
+        int len = word.length();
+        if (len <= 2) return word;
+        if (b.length < len + 8) b = new char[len + 8];
+        word.getChars(0, len, b, 0);
+        k = len - 1;
+
+        step1ab();
+        if (k > 0) {
+            step1c();
+            step2();
+            step3();
+            step4();
+            step5();
+        }
+        return unchanged(word) ? word : new String(b, 0, k + 1);
+    }
+
+    private boolean unchanged(String word) {
+        if (k + 1 != word.length()) return false;
+        for (int i = 0; i <= k; i++) {
+            if (b[i] != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // true if b[i] is a consonant; y is a consonant at the start or after a vowel
+    private boolean cons(int i) {
+        switch (b[i]) {
+            case 'a': case 'e': case 'i': case 'o': case 'u':
+                return false;
+            case 'y':
+                return i == 0 || !cons(i - 1);
+            default:
+                return true;
+        }
+    }
+
+    // number of consonant-vowel sequences (the "measure") in b[0..j]
+    private int m() {
+        int n = 0;
+        int i = 0;
+        while (true) {
+            if (i > j) return n;
+            if (!cons(i)) break;
+            i++;
+        }
+        i++;
+        while (true) {
+            while (true) {
+                if (i > j) return n;
+                if (cons(i)) break;
+                i++;
+            }
+            i++;
+            n++;
+            while (true) {
+                if (i > j) return n;
+                if (!cons(i)) break;
+                i++;
+            }
+            i++;
+        }
+    }
+
+    private boolean vowelInStem() {
+        for (int i = 0; i <= j; i++) {
+            if (!cons(i)) return true;
+        }
+        return false;
+    }
+
+    private boolean doubleConsonant(int i) {
+        return i >= 1 && b[i] == b[i - 1] && cons(i);
+    }
+
+    // consonant-vowel-consonant ending at i, where the last consonant is not w, x or y
+    private boolean cvc(int i) {
+        if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) return false;
+        char ch = b[i];
+        return ch != 'w' && ch != 'x' && ch != 'y';
+    }
+
+    private boolean ends(String s) {
+        int len = s.length();
+        int start = k - len + 1;
+        if (start < 0) return false;
+        for (int i = 0; i < len; i++) {
+            if (b[start + i] != s.charAt(i)) return false;
+        }
+        j = k - len;
+        return true;
+    }
+
+    private void setTo(String s) {
+        int len = s.length();
+        s.getChars(0, len, b, j + 1);
+        k = j + len;
+    }
+
+    private void replace(String s) {
+        if (m() > 0) setTo(s);
+    }
+
+    // plurals and -ed / -ing
+    private void step1ab() {
+        if (b[k] == 's') {
+            if (ends("sses")) k -= 2;
+            else if (ends("ies")) setTo("i");
+            else if (b[k - 1] != 's') k--;
+        }
+        if (ends("eed")) {
+            if (m() > 0) k--;
+        } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+            k = j;
+            if (ends("at")) setTo("ate");
+            else if (ends("bl")) setTo("ble");
+            else if (ends("iz")) setTo("ize");
+            else if (doubleConsonant(k)) {
+                k--;
+                char ch = b[k];
+                if (ch == 'l' || ch == 's' || ch == 'z') k++;
+            } else {
+                j = k;
+                if (m() == 1 && cvc(k)) setTo("e");
+            }
+        }
+    }
+
+    // terminal y to i when there is another vowel in the stem
+    private void step1c() {
+        if (ends("y") && vowelInStem()) b[k] = 'i';
+    }
+
+    // double suffixes to single ones, e.g. -ization to -ize
+    private void step2() {
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("ational")) { replace("ate"); break; }
+                if (ends("tional")) { replace("tion"); break; }
+                break;
+            case 'c':
+                if (ends("enci")) { replace("ence"); break; }
+                if (ends("anci")) { replace("ance"); break; }
+                break;
+            case 'e':
+                if (ends("izer")) { replace("ize"); break; }
+                break;
+            case 'l':
+                if (ends("bli")) { replace("ble"); break; }
+                if (ends("alli")) { replace("al"); break; }
+                if (ends("entli")) { replace("ent"); break; }
+                if (ends("eli")) { replace("e"); break; }
+                if (ends("ousli")) { replace("ous"); break; }
+                break;
+            case 'o':
+                if (ends("ization")) { replace("ize"); break; }
+                if (ends("ation")) { replace("ate"); break; }
+                if (ends("ator")) { replace("ate"); break; }
+                break;
+            case 's':
+                if (ends("alism")) { replace("al"); break; }
+                if (ends("iveness")) { replace("ive"); break; }
+                if (ends("fulness")) { replace("ful"); break; }
+                if (ends("ousness")) { replace("ous"); break; }
+                break;
+            case 't':
+                if (ends("aliti")) { replace("al"); break; }
+                if (ends("iviti")) { replace("ive"); break; }
+                if (ends("biliti")) { replace("ble"); break; }
+                break;
+            case 'g':
+                if (ends("logi")) { replace("log"); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // -ic-, -full, -ness etc.
+    private void step3() {
+        switch (b[k]) {
+            case 'e':
+                if (ends("icate")) { replace("ic"); break; }
+                if (ends("ative")) { replace(""); break; }
+                if (ends("alize")) { replace("al"); break; }
+                break;
+            case 'i':
+                if (ends("iciti")) { replace("ic"); break; }
+                break;
+            case 'l':
+                if (ends("ical")) { replace("ic"); break; }
+                if (ends("ful")) { replace(""); break; }
+                break;
+            case 's':
+                if (ends("ness")) { replace(""); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // -ant, -ence etc. in words with a measure above 1
+    private void step4() {
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("al")) break;
+                return;
+            case 'c':
+                if (ends("ance")) break;
+                if (ends("ence")) break;
+                return;
+            case 'e':
+                if (ends("er")) break;
+                return;
+            case 'i':
+                if (ends("ic")) break;
+                return;
+            case 'l':
+                if (ends("able")) break;
+                if (ends("ible")) break;
+                return;
+            case 'n':
+                if (ends("ant")) break;
+                if (ends("ement")) break;
+                if (ends("ment")) break;
+                if (ends("ent")) break;
+                return;
+            case 'o':
+                if (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) break;
+                if (ends("ou")) break;
+                return;
+            case 's':
+                if (ends("ism")) break;
+                return;
+            case 't':
+                if (ends("ate")) break;
+                if (ends("iti")) break;
+                return;
+            case 'u':
+                if (ends("ous")) break;
+                return;
+            case 'v':
+                if (ends("ive")) break;
+                return;
+            case 'z':
+                if (ends("ize")) break;
+                return;
+            default:
+                return;
+        }
+        if (m() > 1) k = j;
+    }
+
+    // final -e and -ll
+    private void step5() {
+        j = k;
+        if (b[k] == 'e') {
+            int a = m();
+            if (a > 1 || a == 1 && !cvc(k - 1)) k--;
+        }
+        if (b[k] == 'l' && doubleConsonant(k) && m() > 1) k--;
+    }
+}
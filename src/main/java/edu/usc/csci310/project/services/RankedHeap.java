@@ -0,0 +1,96 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * Fixed-capacity heap of (user, score) pairs that keeps the k best users seen so far in one pass.
+ * "Best" is either the soulmate order (higher score first) or the enemy order (lower score first);
+ * ties always go to the lower user id, as everywhere in the matcher. The root is the weakest kept
+ * user, so a newcomer only costs a comparison unless it beats the root. Primitive arrays, no boxing.
+ */
+public final class RankedHeap {
+    private final boolean highestFirst;
+    private final int[] users;
+    private final double[] scores;
+    private int size = 0;
+
+    private RankedHeap(int capacity, boolean highestFirst) {
+        this.highestFirst = highestFirst;
+        this.users = new int[capacity];
+        this.scores = new double[capacity];
+    }
+
+//  Keeps the k highest scores (a min-heap on score)
+    public static RankedHeap soulmates(int k) {
+        return new RankedHeap(k, true);
+    }
+
+//  Keeps the k lowest scores (a max-heap on score)
+    public static RankedHeap enemies(int k) {
+        return new RankedHeap(k, false);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(int user, double score) {
+        if (users.length == 0) return;
+        if (size < users.length) {
+            users[size] = user;
+            scores[size] = score;
+            siftUp(size++);
+        }
+        else if (ahead(user, score, users[0], scores[0])) {
+            users[0] = user;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+//  Empties the heap into the arrays, best first; returns the number of users written
+    public int drain(int[] outUsers, double[] outScores) {
+        int n = size;
+        while (size > 0) {
+            int last = --size;
+            outUsers[last] = users[0];
+            outScores[last] = scores[0];
+            users[0] = users[last];
+            scores[0] = scores[last];
+            siftDown(0);
+        }
+        return n;
+    }
+
+    // true if (u1, s1) ranks ahead of (u2, s2)
+    private boolean ahead(int u1, double s1, int u2, double s2) {
+        return highestFirst ? MatchGraph.isBetter(s1, u1, s2, u2) : MatchGraph.isWorse(s1, u1, s2, u2);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ahead(users[parent], scores[parent], users[i], scores[i])) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1, right = left + 1, weakest = i;
+            if (left < size && ahead(users[weakest], scores[weakest], users[left], scores[left])) weakest = left;
+            if (right < size && ahead(users[weakest], scores[weakest], users[right], scores[right])) weakest = right;
+            if (weakest == i) return;
+            swap(i, weakest);
+            i = weakest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int u = users[a];
+        users[a] = users[b];
+        users[b] = u;
+        double s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+    }
+}
@@ -5,6 +5,7 @@ package edu.usc.csci310.project.services;
 import java.sql.*;
 
 import edu.usc.csci310.project.Utils;
+import edu.usc.csci310.project.configuration.ConnectionPool;
 import edu.usc.csci310.project.exceptions.UsernameNotAvailableException;
 import edu.usc.csci310.project.requests.CreateUserRequest;
 import org.springframework.stereotype.Service;
@@ -13,38 +14,28 @@ import static edu.usc.csci310.project.Utils.hashPassword;
 
 @Service
 public class RegisterService {
-    private final Connection connection;
+    private final ConnectionPool pool;
 
-    public RegisterService(Connection connection) {
-        this.connection = connection;
+    public RegisterService(ConnectionPool pool) {
+        this.pool = pool;
     }
 
     public int createUser(CreateUserRequest request) throws SQLException {
+        // hashed before borrowing the writer; the password hash is deliberately slow
+        String hashedUsername = hashUsername(request.getUsername());
+        String hashedPassword = hashPassword(request.getPassword());
 
-        //insert user
-        String sql = "INSERT INTO users (username, password) VALUES (?, ?)";
-        try(PreparedStatement pst = connection.prepareStatement(sql)) {
-            if(!isUsernameAvailable(request.getUsername())) throw new UsernameNotAvailableException("Username not available.");
-            String hashedUsername = hashUsername(request.getUsername());
-            String hashedPassword = hashPassword(request.getPassword());
+        //insert user, unless the unique index on username says it is taken
+        String sql = "INSERT INTO users (username, password) VALUES (?, ?) " +
+                "ON CONFLICT(username) DO NOTHING RETURNING id";
+        try(Connection connection = pool.writer();
+            PreparedStatement pst = connection.prepareStatement(sql)) {
             pst.setString(1, hashedUsername);
             pst.setString(2, hashedPassword);
 
-            int rowsAffected = pst.executeUpdate();
-
-            // Check if insert was successful
-            if (rowsAffected > 0) {
-                // SQLite specific: Retrieve the last inserted row ID
-                try (Statement statement = connection.createStatement();
-                     ResultSet rs = statement.executeQuery("SELECT last_insert_rowid()")) {
-                    if (rs.next()) {
-                        return rs.getInt(1); // Return the generated ID
-                    } else {
-                        throw new SQLException("Failed to retrieve the generated ID.");
-                    }
-                }
-            } else {
-                throw new SQLException("No rows affected during the insert.");
+            try (ResultSet rs = pst.executeQuery()) {
+                if (!rs.next()) throw new UsernameNotAvailableException("Username not available.");
+                return rs.getInt("id"); // Return the generated ID
             }
         }
         catch (SQLException e) {
@@ -65,7 +56,8 @@ public class RegisterService {
         String hashedUsername = hashUsername(username);
         String sql = "SELECT * FROM users WHERE username = ?";
 
-        try(PreparedStatement pst = connection.prepareStatement(sql)) {
+        try(Connection connection = pool.reader();
+            PreparedStatement pst = connection.prepareStatement(sql)) {
             pst.setString(1, hashedUsername);
             ResultSet rs = pst.executeQuery();
             return !rs.next();
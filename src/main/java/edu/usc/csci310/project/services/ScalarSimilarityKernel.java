@@ -0,0 +1,23 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * Plain-Java {@link SimilarityKernel}, used when the Vector API is not available.
+ */
+public class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public long sharedCount(int[] dense, SparseVector candidate) {
+        int[] ids = candidate.termIds();
+        int[] counts = candidate.counts();
+        long shared = 0;
+        for (int i = 0; i < ids.length; i++) {
+            shared += Math.min(dense[ids[i]], counts[i]);
+        }
+        return shared;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,81 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.requests.ShardQueryRequest;
+import edu.usc.csci310.project.responses.ShardCandidatesResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Scatter-gather over the shards of a {@link ShardTopology}: sends a query cloud to every shard's
+ * /api/shard/candidates in parallel and merges the local answers. Each shard scores exactly over its own
+ * users with the same rules as {@link MatchEngine}, so the merge (highest score wins, ties to the lower id,
+ * and the reverse for the enemy) gives the same soulmate and enemy as one engine holding every user.
+ */
+public class ShardCoordinator {
+    // carries favorites.shard.secret on every query, so a shard only answers its coordinator
+    public static final String SECRET_HEADER = "X-Shard-Secret";
+
+    private final RestTemplate restTemplate;
+    private final List<String> shardUrls;
+    private final ExecutorService executor;
+
+    public ShardCoordinator(RestTemplate restTemplate, List<String> shardUrls) {
+        this.restTemplate = restTemplate;
+        this.shardUrls = List.copyOf(shardUrls);
+        this.executor = Executors.newFixedThreadPool(shardUrls.size(), r -> {
+            Thread thread = new Thread(r, "shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The soulmate and enemy of a user with the given cloud across every shard.
+     * @throws IllegalStateException if a shard did not answer; a partial answer could name the wrong users
+     */
+    public MatchCandidates findCandidates(int userId, Map<String, Integer> terms) {
+        ShardQueryRequest query = new ShardQueryRequest(userId, terms);
+        List<CompletableFuture<ShardCandidatesResponse>> calls = new ArrayList<>();
+        for (String url : shardUrls) {
+            calls.add(CompletableFuture.supplyAsync(() ->
+                    restTemplate.postForObject(url + "/api/shard/candidates", query, ShardCandidatesResponse.class), executor));
+        }
+
+        List<MatchCandidates> answers = new ArrayList<>();
+        for (int i = 0; i < calls.size(); i++) {
+            ShardCandidatesResponse answer;
+            try {
+                answer = calls.get(i).join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Shard " + shardUrls.get(i) + " failed", e.getCause());
+            }
+            if (answer == null) throw new IllegalStateException("Shard " + shardUrls.get(i) + " sent no answer");
+            answers.add(new MatchCandidates(answer.bestUser, answer.bestScore, answer.worstUser, answer.worstScore));
+        }
+        return merge(answers);
+    }
+
+//  Combines per-shard answers; shards without a candidate are skipped
+    static MatchCandidates merge(List<MatchCandidates> answers) {
+        int bestUser = -1, worstUser = -1;
+        double bestScore = -1.0, worstScore = Double.MAX_VALUE;
+        for (MatchCandidates answer : answers) {
+            if (answer.hasBest() && MatchGraph.isBetter(answer.bestScore, answer.bestUser, bestScore, bestUser)) {
+                bestScore = answer.bestScore;
+                bestUser = answer.bestUser;
+            }
+            if (answer.hasWorst() && MatchGraph.isWorse(answer.worstScore, answer.worstUser, worstScore, worstUser)) {
+                worstScore = answer.worstScore;
+                worstUser = answer.worstUser;
+            }
+        }
+        return bestUser == -1 ? MatchCandidates.NONE : new MatchCandidates(bestUser, bestScore, worstUser, worstScore);
+    }
+}
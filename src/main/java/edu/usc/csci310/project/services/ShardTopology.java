@@ -0,0 +1,60 @@
+package edu.usc.csci310.project.services;
+
+import java.util.List;
+
+/**
+ * Where users' clouds live when the matcher is split across app instances. Users are assigned to one
+ * of count shards by a hash of their id; an instance with count > 1 only indexes the users of its own
+ * shard and answers local candidate queries for them. An instance with shard URLs is a coordinator: it
+ * scatters match queries to every shard and merges the answers (see {@link ShardCoordinator}).
+ */
+public class ShardTopology {
+    public static final ShardTopology SINGLE = new ShardTopology(0, 1, List.of());
+
+    private final int index;
+    private final int count;
+    private final List<String> shardUrls;
+
+    /**
+     * @param index      this instance's shard, 0 to count - 1
+     * @param count      number of shards; 1 means every instance holds every user
+     * @param shardUrls  base URLs of all shards if this instance coordinates, else empty
+     */
+    public ShardTopology(int index, int count, List<String> shardUrls) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard index " + index + " is not in 0.." + (count - 1));
+        }
+        this.index = index;
+        this.count = count;
+        this.shardUrls = List.copyOf(shardUrls);
+    }
+
+//  The shard a user belongs to out of count; the id is mixed first so consecutive ids spread evenly
+    public static int shardOf(int userId, int count) {
+        return (int) Math.floorMod(WeightedMinHash.mix(userId), (long) count);
+    }
+
+    public boolean owns(int userId) {
+        return count == 1 || shardOf(userId, count) == index;
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    public boolean isCoordinator() {
+        return !shardUrls.isEmpty();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public List<String> getShardUrls() {
+        return shardUrls;
+    }
+}
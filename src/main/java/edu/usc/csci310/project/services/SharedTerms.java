@@ -0,0 +1,61 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * The terms two clouds share that contribute most to their overlap, sum of min(fa, fb), largest
+ * contribution first (ties by term id). Found in a single merge pass over the two sparse vectors with a
+ * {@link RankedHeap} holding the best n, so the cost is O(|a| + |b| + shared * log n) however large n is.
+ */
+public final class SharedTerms {
+    public static final SharedTerms EMPTY = new SharedTerms(new int[0], new int[0], new int[0]);
+
+    public final int[] termIds;
+    public final int[] countsA;   // each term's count in the first cloud
+    public final int[] countsB;   // and in the second; the contribution is the smaller of the two
+
+    private SharedTerms(int[] termIds, int[] countsA, int[] countsB) {
+        this.termIds = termIds;
+        this.countsA = countsA;
+        this.countsB = countsB;
+    }
+
+    public int size() {
+        return termIds.length;
+    }
+
+    public int shared(int i) {
+        return Math.min(countsA[i], countsB[i]);
+    }
+
+    public static SharedTerms top(SparseVector a, SparseVector b, int n) {
+        if (n <= 0 || a.isEmpty() || b.isEmpty()) return EMPTY;
+
+        // heap entries are positions in a, which sort like term ids, with the position in b alongside
+        RankedHeap heap = RankedHeap.soulmates(n);
+        int[] ia = a.termIds(), ib = b.termIds();
+        int[] ca = a.counts(), cb = b.counts();
+        int[] positionInB = new int[ia.length];
+        int i = 0, j = 0;
+        while (i < ia.length && j < ib.length) {
+            int ta = ia[i], tb = ib[j];
+            if (ta == tb) {
+                positionInB[i] = j;
+                heap.offer(i, Math.min(ca[i], cb[j]));
+                i++;
+                j++;
+            }
+            else if (ta < tb) i++;
+            else j++;
+        }
+
+        int[] positions = new int[heap.size()];
+        double[] shared = new double[heap.size()];
+        int k = heap.drain(positions, shared);
+        int[] termIds = new int[k], countsA = new int[k], countsB = new int[k];
+        for (int r = 0; r < k; r++) {
+            termIds[r] = ia[positions[r]];
+            countsA[r] = ca[positions[r]];
+            countsB[r] = cb[positionInB[positions[r]]];
+        }
+        return new SharedTerms(termIds, countsA, countsB);
+    }
+}
@@ -0,0 +1,51 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * The inner loop of exact scoring: the shared count (sum of min counts) of a query cloud against a candidate.
+ * The query is scattered into a dense array indexed by term id, so the kernel is a branch-free
+ * gather-min-sum over the candidate's terms instead of a merge-join, and a SIMD implementation can
+ * process a whole register of terms per step. The max sum follows from the totals, as in {@link SparseVector}.
+ */
+public interface SimilarityKernel {
+
+    /**
+     * Sum of min(dense[term], count) over the candidate's terms.
+     * @param dense  counts of the query cloud by term id, 0 for absent terms; must cover every term of the candidate
+     */
+    long sharedCount(int[] dense, SparseVector candidate);
+
+    String name();
+
+//  The vector kernel when it was built (mvn -Pvector-api) and the JVM was started with
+//  jdk.incubator.vector, else the scalar one
+    static SimilarityKernel best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (SimilarityKernel) Class.forName("edu.usc.csci310.project.services.VectorSimilarityKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // built without the vector-api profile, or the module is unusable on this platform
+            }
+        }
+        return new ScalarSimilarityKernel();
+    }
+
+//  "auto", "scalar" or "vector"; asking for vector without the module is an error
+    static SimilarityKernel named(String name) {
+        switch (name) {
+            case "auto":
+                return best();
+            case "scalar":
+                return new ScalarSimilarityKernel();
+            case "vector": {
+                SimilarityKernel kernel = best();
+                if (kernel instanceof ScalarSimilarityKernel) {
+                    throw new IllegalStateException("The vector kernel needs mvn -Pvector-api and --add-modules jdk.incubator.vector");
+                }
+                return kernel;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown similarity kernel: " + name);
+        }
+    }
+}
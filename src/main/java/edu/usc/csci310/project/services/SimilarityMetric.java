@@ -0,0 +1,37 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * How two clouds are scored when ranking matches. Every metric is 0 for clouds that share no term,
+ * and higher means more alike.
+ * <ul>
+ *   <li>JACCARD: weighted Jaccard on raw counts, what the match graph uses</li>
+ *   <li>COSINE: cosine of the raw count vectors</li>
+ *   <li>TFIDF: cosine of count * ln(1 + users / users with the term) vectors, so words everyone uses count little</li>
+ *   <li>BM25: Okapi BM25 of the other cloud against the query cloud's terms; not bounded by 1 and not symmetric</li>
+ * </ul>
+ */
+public enum SimilarityMetric {
+    JACCARD("jaccard"),
+    COSINE("cosine"),
+    TFIDF("tfidf"),
+    BM25("bm25");
+
+    private final String id;
+
+    SimilarityMetric(String id) {
+        this.id = id;
+    }
+
+    public String id() {
+        return id;
+    }
+
+//  The metric with the given id; null means JACCARD
+    public static SimilarityMetric of(String id) {
+        if (id == null || id.isEmpty()) return JACCARD;
+        for (SimilarityMetric metric : values()) {
+            if (metric.id.equals(id)) return metric;
+        }
+        throw new IllegalArgumentException("Unknown similarity metric: " + id);
+    }
+}
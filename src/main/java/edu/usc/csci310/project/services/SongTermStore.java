@@ -0,0 +1,118 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent analyzed term vector of every song, kept in the song_terms table. A song's lyrics are
+ * analyzed once, when the song is first stored, and user clouds are built by adding these vectors,
+ * so lyrics shared by many users are never re-read or re-analyzed.
+ * Loaded vectors are kept in a {@link SongVectorCache}, so a popular song is read from the table once while it stays hot.
+ */
+@Service
+public class SongTermStore {
+    private final ConnectionPool pool;
+    private final SongVectorCache cache;
+
+    public SongTermStore(ConnectionPool pool, @Value("${favorites.song-cache.max-terms:500000}") long cacheMaxTerms) {
+        this.pool = pool;
+        this.cache = new SongVectorCache(cacheMaxTerms);
+    }
+
+//  Stores the song's term counts, replacing any previously stored vector
+    public void put(int songId, Map<String, Integer> counts) throws SQLException {
+        putAll(Map.of(songId, counts));
+    }
+
+//  Stores the vectors of many songs in one transaction, replacing any previously stored vectors.
+//  Inside a transaction the caller has open on the writer, the vectors become part of that one.
+    public void putAll(Map<Integer, Map<String, Integer>> vectors) throws SQLException {
+        if (vectors.isEmpty()) return;
+
+        try (Connection connection = pool.writer()) {
+            boolean ownTransaction = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM song_terms WHERE songId = ?");
+                 PreparedStatement insert = connection.prepareStatement("INSERT INTO song_terms (songId, term, count) VALUES (?, ?, ?)")) {
+                for (Map.Entry<Integer, Map<String, Integer>> song : vectors.entrySet()) {
+                    delete.setInt(1, song.getKey());
+                    delete.addBatch();
+                    for (Map.Entry<String, Integer> e : song.getValue().entrySet()) {
+                        insert.setInt(1, song.getKey());
+                        insert.setString(2, e.getKey());
+                        insert.setInt(3, e.getValue());
+                        insert.addBatch();
+                    }
+                }
+                delete.executeBatch();
+                insert.executeBatch();
+                if (ownTransaction) connection.commit();
+            }
+            catch (SQLException e) {
+                if (ownTransaction) connection.rollback();
+                throw e;
+            }
+            finally {
+                if (ownTransaction) connection.setAutoCommit(true);
+                for (int songId : vectors.keySet()) cache.invalidate(songId);
+            }
+        }
+    }
+
+//  Drops the cached vectors of the songs, for a caller whose transaction stored them and then rolled back
+    public void invalidate(Collection<Integer> songIds) {
+        for (int songId : songIds) cache.invalidate(songId);
+    }
+
+//  The song's term counts, unmodifiable and empty if the song is unknown or has no terms
+    public Map<String, Integer> load(int songId) throws SQLException {
+        return cache.get(songId, this::read);
+    }
+
+    private Map<String, Integer> read(int songId) throws SQLException {
+        Map<String, Integer> counts = new HashMap<>();
+        String sql = "SELECT term, count FROM song_terms WHERE songId = ?";
+        try (Connection connection = pool.reader();
+             PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setInt(1, songId);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getString("term"), rs.getInt("count"));
+                }
+            }
+        }
+        return counts;
+    }
+
+//  Version of the analyzer the stored vectors were produced with, 0 if never recorded
+    public int getVersion() throws SQLException {
+        try (Connection connection = pool.reader()) {
+            return TermStoreMeta.getVersion(connection, "song_terms");
+        }
+    }
+
+    public void setVersion(int version) throws SQLException {
+        try (Connection connection = pool.writer()) {
+            TermStoreMeta.setVersion(connection, "song_terms", version);
+        }
+    }
+
+    public void clear() throws SQLException {
+        try (Connection connection = pool.writer();
+             Statement st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM song_terms");
+        }
+        cache.clear();
+    }
+
+//  Hit, miss and eviction counters of the song vector cache
+    public Map<String, Long> cacheStats() {
+        return cache.stats();
+    }
+}
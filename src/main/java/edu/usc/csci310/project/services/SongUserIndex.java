@@ -0,0 +1,122 @@
+package edu.usc.csci310.project.services;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Which users favorited which songs: a bitmap of user ids per song (user ids are small and dense,
+ * song ids are not), plus the set of each user's own songs.
+ * Users who share favorite songs share those songs' lyrics, so they are the likeliest soulmates;
+ * {@link MatchEngine} scores them first so its bound on everyone else prunes sooner. The counts are only
+ * a search order, never a score, so the index may lag the clouds without making a match wrong.
+ * Thread-safe.
+ */
+public class SongUserIndex {
+    private final Map<Integer, BitSet> usersOfSong = new HashMap<>();
+    private final Map<Integer, Set<Integer>> songsOfUser = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Users sharing at least one favorite with a query user: most shared songs first, ties by lower id. */
+    public static final class Overlap {
+        public final int[] users;
+        public final int[] sharedSongs;
+
+        Overlap(int[] users, int[] sharedSongs) {
+            this.users = users;
+            this.sharedSongs = sharedSongs;
+        }
+    }
+
+    public void add(int userId, int songId) {
+        lock.writeLock().lock();
+        try {
+            usersOfSong.computeIfAbsent(songId, id -> new BitSet()).set(userId);
+            songsOfUser.computeIfAbsent(userId, id -> new HashSet<>()).add(songId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int userId, int songId) {
+        lock.writeLock().lock();
+        try {
+            BitSet users = usersOfSong.get(songId);
+            if (users != null) {
+                users.clear(userId);
+                if (users.isEmpty()) usersOfSong.remove(songId);
+            }
+            Set<Integer> songs = songsOfUser.get(userId);
+            if (songs != null) {
+                songs.remove(songId);
+                if (songs.isEmpty()) songsOfUser.remove(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            usersOfSong.clear();
+            songsOfUser.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Exact shared-song counts of a user with everyone else, in one pass over the user's favorites:
+     * each favorite's user bitmap is walked once and every bit adds one to that user's count.
+     */
+    public Overlap overlap(int userId) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Set<Integer> songs = songsOfUser.get(userId);
+            if (songs == null) return new Overlap(new int[0], new int[0]);
+            for (int song : songs) {
+                BitSet users = usersOfSong.get(song);
+                for (int other = users.nextSetBit(0); other >= 0; other = users.nextSetBit(other + 1)) {
+                    if (other != userId) counts.merge(other, 1, Integer::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(counts.entrySet());
+        ranked.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? Integer.compare(a.getKey(), b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+        int[] users = new int[ranked.size()];
+        int[] shared = new int[ranked.size()];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = ranked.get(i).getKey();
+            shared[i] = ranked.get(i).getValue();
+        }
+        return new Overlap(users, shared);
+    }
+
+//  Number of the user's favorites that the other user favorited too
+    public int sharedSongs(int userId, int otherUserId) {
+        lock.readLock().lock();
+        try {
+            Set<Integer> mine = songsOfUser.get(userId);
+            if (mine == null) return 0;
+            int shared = 0;
+            for (int song : mine) {
+                if (usersOfSong.get(song).get(otherUserId)) shared++;
+            }
+            return shared;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
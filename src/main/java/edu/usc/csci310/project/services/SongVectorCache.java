@@ -0,0 +1,104 @@
+package edu.usc.csci310.project.services;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe LRU cache of song term vectors keyed by song id, bounded by the total number of terms
+ * it holds rather than by entry count, since one long lyric can have a hundred times the terms of a short one.
+ * Cached vectors are unmodifiable. Misses are loaded outside the lock, so a slow load never blocks hits;
+ * a load that raced with an invalidation is returned but not cached.
+ */
+public class SongVectorCache {
+    private final long maxWeight;
+    private long weight = 0;
+    // bumped by invalidate and clear, so a load that started before one is not cached
+    private long invalidations = 0;
+    // access-ordered, so iteration starts at the least recently used song
+    private final LinkedHashMap<Integer, Map<String, Integer>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /** Reads a song's vector on a miss, typically from song_terms. */
+    public interface Loader {
+        Map<String, Integer> load(int songId) throws SQLException;
+    }
+
+    /**
+     * @param maxWeight  most terms held across all cached songs; 0 disables caching
+     */
+    public SongVectorCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public Map<String, Integer> get(int songId, Loader loader) throws SQLException {
+        long stamp;
+        synchronized (this) {
+            Map<String, Integer> cached = entries.get(songId);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            stamp = invalidations;
+        }
+        misses.increment();
+        Map<String, Integer> loaded = Map.copyOf(loader.load(songId));
+        put(songId, loaded, stamp);
+        return loaded;
+    }
+
+    private synchronized void put(int songId, Map<String, Integer> vector, long stamp) {
+        long entryWeight = weightOf(vector);
+        if (stamp != invalidations || entryWeight > maxWeight) return;
+
+        Map<String, Integer> previous = entries.put(songId, vector);
+        weight += entryWeight - (previous == null ? 0 : weightOf(previous));
+        Iterator<Map.Entry<Integer, Map<String, Integer>>> it = entries.entrySet().iterator();
+        while (weight > maxWeight) {
+            Map.Entry<Integer, Map<String, Integer>> eldest = it.next();
+            weight -= weightOf(eldest.getValue());
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    // an empty vector still costs its entry
+    private static long weightOf(Map<String, Integer> vector) {
+        return Math.max(1, vector.size());
+    }
+
+//  Drops a song whose stored vector changed
+    public synchronized void invalidate(int songId) {
+        invalidations++;
+        Map<String, Integer> removed = entries.remove(songId);
+        if (removed != null) weight -= weightOf(removed);
+    }
+
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("maxWeight", maxWeight);
+        synchronized (this) {
+            stats.put("weight", weight);
+            stats.put("size", (long) entries.size());
+        }
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+}
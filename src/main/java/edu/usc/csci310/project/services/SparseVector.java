@@ -0,0 +1,135 @@
+package edu.usc.csci310.project.services;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable word cloud over a {@link TermDictionary}: term ids in ascending order with their counts.
+ * Two vectors are compared with a merge-join over the sorted ids, so scoring never boxes or allocates.
+ */
+public final class SparseVector {
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new int[0], 0);
+
+    private final int[] termIds;
+    private final int[] counts;
+    private final long total;
+
+    private SparseVector(int[] termIds, int[] counts, long total) {
+        this.termIds = termIds;
+        this.counts = counts;
+        this.total = total;
+    }
+
+//  Builds a vector from a word -> count map, interning every word
+    public static SparseVector of(Map<String, Integer> cloud, TermDictionary dictionary) {
+        int[] ids = new int[cloud.size()];
+        int[] counts = new int[cloud.size()];
+        int n = 0;
+        for (Map.Entry<String, Integer> e : cloud.entrySet()) {
+            ids[n] = dictionary.intern(e.getKey());
+            counts[n++] = e.getValue();
+        }
+        return of(ids, counts, n);
+    }
+
+//  Builds a vector from the first n (id, count) pairs, which may be in any order but must have distinct ids
+    public static SparseVector of(int[] ids, int[] counts, int n) {
+        if (n == 0) return EMPTY;
+
+        // pack (id, count) so a single primitive sort orders both arrays
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) ids[i] << 32) | (counts[i] & 0xffffffffL);
+        }
+        Arrays.sort(packed);
+
+        int[] sortedIds = new int[n];
+        int[] sortedCounts = new int[n];
+        long total = 0;
+        int size = 0;
+        for (long p : packed) {
+            int count = (int) p;
+            if (count <= 0) continue;
+            sortedIds[size] = (int) (p >>> 32);
+            sortedCounts[size++] = count;
+            total += count;
+        }
+        if (size == 0) return EMPTY;
+        if (size < n) {
+            sortedIds = Arrays.copyOf(sortedIds, size);
+            sortedCounts = Arrays.copyOf(sortedCounts, size);
+        }
+        return new SparseVector(sortedIds, sortedCounts, total);
+    }
+
+    public int size() {
+        return termIds.length;
+    }
+
+    public boolean isEmpty() {
+        return termIds.length == 0;
+    }
+
+    public int termId(int i) {
+        return termIds[i];
+    }
+
+    public int count(int i) {
+        return counts[i];
+    }
+
+    // the backing arrays, for kernels in this package; never modified
+    int[] termIds() {
+        return termIds;
+    }
+
+    int[] counts() {
+        return counts;
+    }
+
+//  Writes this cloud's counts into a dense array indexed by term id
+    public void scatter(int[] dense) {
+        for (int i = 0; i < termIds.length; i++) dense[termIds[i]] = counts[i];
+    }
+
+//  Zeroes the entries scatter wrote, so a dense array can be reused without clearing all of it
+    public void unscatter(int[] dense) {
+        for (int termId : termIds) dense[termId] = 0;
+    }
+
+//  Sum of all counts, i.e. the number of words in the cloud
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Sum of min(fa, fb) over the terms the two clouds share.
+     */
+    public static long sharedCount(SparseVector a, SparseVector b) {
+        int[] ia = a.termIds, ib = b.termIds;
+        int[] ca = a.counts, cb = b.counts;
+        int i = 0, j = 0;
+        long shared = 0;
+        while (i < ia.length && j < ib.length) {
+            int ta = ia[i], tb = ib[j];
+            if (ta == tb) {
+                shared += Math.min(ca[i++], cb[j++]);
+            }
+            else if (ta < tb) i++;
+            else j++;
+        }
+        return shared;
+    }
+
+    /**
+     * Weighted Jaccard similarity: sum of min(fa, fb) over sum of max(fa, fb).
+     * The max sum is derived as |a| + |b| - shared, so one merge pass is enough.
+     * @return A similarity score between 0 and 1, where 1 means identical clouds.
+     */
+    public static double weightedJaccard(SparseVector a, SparseVector b) {
+        if (a.isEmpty() || b.isEmpty()) return 0.0;
+
+        long shared = sharedCount(a, b);
+        return (double) shared / (a.total + b.total - shared);
+    }
+}
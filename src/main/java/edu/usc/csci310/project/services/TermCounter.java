@@ -0,0 +1,115 @@
+package edu.usc.csci310.project.services;
+
+import java.util.Arrays;
+
+/**
+ * Counts term ids in an open-addressing int -> int table, so tokenizing a lyric boxes nothing.
+ * Meant to be filled by {@link LyricTokenizer} and reused across songs with {@link #clear()}.
+ * Not thread-safe.
+ */
+public class TermCounter {
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size = 0;
+
+    public TermCounter() {
+        this(64);
+    }
+
+    public TermCounter(int expectedTerms) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedTerms * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /** Functional callback for {@link #forEach}, taking the primitive pair without boxing. */
+    public interface Visitor {
+        void visit(int termId, int count);
+    }
+
+    public void add(int termId) {
+        add(termId, 1);
+    }
+
+    public void add(int termId, int count) {
+        int mask = keys.length - 1;
+        int i = mix(termId) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == termId) {
+                values[i] += count;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = termId;
+        values[i] = count;
+        if (++size * 2 > keys.length) grow();
+    }
+
+//  Count of the term, 0 if it was never added
+    public int get(int termId) {
+        int mask = keys.length - 1;
+        for (int i = mix(termId) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == termId) return values[i];
+        }
+        return 0;
+    }
+
+//  Number of distinct terms
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) visitor.visit(keys[i], values[i]);
+        }
+    }
+
+//  Builds the sparse vector of the counted terms
+    public SparseVector toVector() {
+        int[] ids = new int[size];
+        int[] counts = new int[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                ids[n] = keys[i];
+                counts[n++] = values[i];
+            }
+        }
+        return SparseVector.of(ids, counts, n);
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package edu.usc.csci310.project.services;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Interns lyric terms into dense int ids so word clouds can be stored and compared as primitive arrays.
+ * Ids are handed out in first-seen order and never reused. Terms can be looked up straight from a
+ * char buffer, so a tokenizer never has to build a String for a word the dictionary already knows.
+ * Lookups are lock-free; only new terms synchronize.
+ */
+public class TermDictionary {
+    private volatile String[] terms = new String[256];
+    // open-addressing table of id + 1 (0 = empty), republished whole on resize
+    private volatile AtomicIntegerArray table = new AtomicIntegerArray(512);
+    private volatile int size = 0;
+
+//  Returns the id of the term, assigning the next free id if the term is new
+    public int intern(String term) {
+        int id = find(term, 0, term.length(), term.hashCode());
+        return id != -1 ? id : add(term, term.hashCode());
+    }
+
+//  Returns the id of the term spelled by buf[off, off + len), assigning one if the term is new.
+//  Only a new term allocates (its String); known terms are matched char by char.
+    public int intern(char[] buf, int off, int len) {
+        int hash = hash(buf, off, len);
+        int id = find(buf, off, len, hash);
+        return id != -1 ? id : add(new String(buf, off, len), hash);
+    }
+
+//  Returns the id of the term, or -1 if it has never been interned
+    public int idOf(String term) {
+        return find(term, 0, term.length(), term.hashCode());
+    }
+
+    public String term(int id) {
+        return terms[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // same value as String.hashCode for the same characters
+    private static int hash(char[] buf, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) h = 31 * h + buf[i];
+        return h;
+    }
+
+    private static int slot(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int find(char[] buf, int off, int len, int hash) {
+        AtomicIntegerArray t = table;
+        int mask = t.length() - 1;
+        for (int i = slot(hash, mask); ; i = (i + 1) & mask) {
+            int entry = t.get(i);
+            if (entry == 0) return -1;
+            String candidate = terms[entry - 1];
+            if (candidate.length() == len && candidate.hashCode() == hash && sameChars(candidate, buf, off, len)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int find(String term, int off, int len, int hash) {
+        AtomicIntegerArray t = table;
+        int mask = t.length() - 1;
+        for (int i = slot(hash, mask); ; i = (i + 1) & mask) {
+            int entry = t.get(i);
+            if (entry == 0) return -1;
+            String candidate = terms[entry - 1];
+            if (candidate.length() == len && candidate.hashCode() == hash && candidate.equals(term)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private static boolean sameChars(String s, char[] buf, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(i) != buf[off + i]) return false;
+        }
+        return true;
+    }
+
+    private synchronized int add(String term, int hash) {
+        // another thread may have added it since the lock-free miss
+        int existing = find(term, 0, term.length(), hash);
+        if (existing != -1) return existing;
+
+        int id = size;
+        String[] current = terms;
+        if (id == current.length) current = Arrays.copyOf(current, id * 2);
+        current[id] = term;
+        terms = current;
+
+        AtomicIntegerArray t = table;
+        if ((id + 1) * 2 > t.length()) t = rehash(t.length() * 2, id);
+        insert(t, hash, id);
+        table = t;
+        size = id + 1;
+        return id;
+    }
+
+    private AtomicIntegerArray rehash(int capacity, int count) {
+        AtomicIntegerArray t = new AtomicIntegerArray(capacity);
+        for (int id = 0; id < count; id++) insert(t, terms[id].hashCode(), id);
+        return t;
+    }
+
+    private static void insert(AtomicIntegerArray t, int hash, int id) {
+        int mask = t.length() - 1;
+        int i = slot(hash, mask);
+        while (t.get(i) != 0) i = (i + 1) & mask;
+        t.set(i, id + 1);
+    }
+}
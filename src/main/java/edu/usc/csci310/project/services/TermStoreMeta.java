@@ -0,0 +1,58 @@
+package edu.usc.csci310.project.services;
+
+import java.sql.*;
+
+/**
+ * Reads and writes the analyzer version each term table was built with (the term_store_meta table),
+ * so a table produced by an older {@link LyricAnalyzer} can be detected and rebuilt.
+ * The same table holds change counters, such as the user_terms generation {@link VectorFile} checks.
+ */
+final class TermStoreMeta {
+    private TermStoreMeta() {
+    }
+
+//  Version recorded for the table, 0 if never recorded
+    static int getVersion(Connection connection, String table) throws SQLException {
+        String sql = "SELECT value FROM term_store_meta WHERE name = ?";
+        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setString(1, table);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? rs.getInt("value") : 0;
+            }
+        }
+    }
+
+    static void setVersion(Connection connection, String table, int version) throws SQLException {
+        String sql = "INSERT INTO term_store_meta (name, value) VALUES (?, ?) " +
+                "ON CONFLICT(name) DO UPDATE SET value = excluded.value";
+        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setString(1, table);
+            pst.setInt(2, version);
+            pst.executeUpdate();
+        }
+    }
+
+//  Counter value, 0 if never incremented
+    static long getCounter(Connection connection, String name) throws SQLException {
+        String sql = "SELECT value FROM term_store_meta WHERE name = ?";
+        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setString(1, name);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? rs.getLong("value") : 0;
+            }
+        }
+    }
+
+//  Atomically adds one to the counter and returns the new value
+    static long incrementCounter(Connection connection, String name) throws SQLException {
+        String sql = "INSERT INTO term_store_meta (name, value) VALUES (?, 1) " +
+                "ON CONFLICT(name) DO UPDATE SET value = value + 1 RETURNING value";
+        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setString(1, name);
+            try (ResultSet rs = pst.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 // UserService.java
 package edu.usc.csci310.project.services;
 
+import edu.usc.csci310.project.configuration.ConnectionPool;
 import edu.usc.csci310.project.models.User;
 import org.springframework.stereotype.Service;
 
@@ -15,17 +16,17 @@ import static edu.usc.csci310.project.Utils.unhashUsername;
 @Service
 public class UserService {
 
-    private final Connection conn;
+    private final ConnectionPool pool;
 
-    public UserService(Connection conn) {
-        this.conn = conn;
+    public UserService(ConnectionPool pool) {
+        this.pool = pool;
     }
 
     public List<User> getAllUsers() {
         List<User> users = new ArrayList<>();
-        try {
-            String query = "SELECT id, username FROM users";
-            PreparedStatement stmt = conn.prepareStatement(query);
+        String query = "SELECT id, username FROM users";
+        try (Connection conn = pool.reader();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             ResultSet rs = stmt.executeQuery();
 
 
@@ -0,0 +1,220 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import org.springframework.stereotype.Service;
+
+import java.sql.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent per-user term frequencies (the "word cloud" of every user) kept in the user_terms table.
+ * FavoriteService adds a song's word counts when it is favorited and subtracts them when it is removed,
+ * so the matcher can read finished clouds instead of re-tokenizing every lyric on every request.
+ */
+@Service
+public class UserTermStore {
+    private final ConnectionPool pool;
+
+    public UserTermStore(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+//  Adds every (term, count) pair to the user's cloud, creating rows for new terms
+    public void addTerms(int userId, Map<String, Integer> counts) throws SQLException {
+        if (counts.isEmpty()) return;
+
+        String sql = "INSERT INTO user_terms (userId, term, count) VALUES (?, ?, ?) " +
+                "ON CONFLICT(userId, term) DO UPDATE SET count = count + excluded.count";
+        try (Connection connection = pool.writer();
+             PreparedStatement pst = connection.prepareStatement(sql)) {
+            for (Map.Entry<String, Integer> e : counts.entrySet()) {
+                pst.setInt(1, userId);
+                pst.setString(2, e.getKey());
+                pst.setInt(3, e.getValue());
+                pst.addBatch();
+            }
+            pst.executeBatch();
+        }
+    }
+
+//  Subtracts every (term, count) pair from the user's cloud and drops terms that reach zero
+    public void subtractTerms(int userId, Map<String, Integer> counts) throws SQLException {
+        if (counts.isEmpty()) return;
+
+        String updateSql = "UPDATE user_terms SET count = count - ? WHERE userId = ? AND term = ?";
+        String deleteSql = "DELETE FROM user_terms WHERE userId = ? AND count <= 0";
+        try (Connection connection = pool.writer()) {
+            try (PreparedStatement pst = connection.prepareStatement(updateSql)) {
+                for (Map.Entry<String, Integer> e : counts.entrySet()) {
+                    pst.setInt(1, e.getValue());
+                    pst.setInt(2, userId);
+                    pst.setString(3, e.getKey());
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+
+            try (PreparedStatement pst = connection.prepareStatement(deleteSql)) {
+                pst.setInt(1, userId);
+                pst.executeUpdate();
+            }
+        }
+    }
+
+//  Loads the cloud of a single user, empty if the user has no favorites
+    public Map<String, Integer> load(int userId) throws SQLException {
+        Map<String, Integer> cloud = new HashMap<>();
+        String sql = "SELECT term, count FROM user_terms WHERE userId = ?";
+        try (Connection connection = pool.reader();
+             PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setInt(1, userId);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    cloud.put(rs.getString("term"), rs.getInt("count"));
+                }
+            }
+        }
+        return cloud;
+    }
+
+//  Loads the user's most frequent terms, most frequent first (ties alphabetically)
+    public Map<String, Integer> loadTop(int userId, int limit) throws SQLException {
+        Map<String, Integer> top = new LinkedHashMap<>();
+        String sql = "SELECT term, count FROM user_terms WHERE userId = ? ORDER BY count DESC, term LIMIT ?";
+        try (Connection connection = pool.reader();
+             PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setInt(1, userId);
+            pst.setInt(2, limit);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    top.put(rs.getString("term"), rs.getInt("count"));
+                }
+            }
+        }
+        return top;
+    }
+
+//  Loads the cloud of a single user as a sparse vector over the dictionary
+    public SparseVector loadVector(int userId, TermDictionary dictionary) throws SQLException {
+        return SparseVector.of(load(userId), dictionary);
+    }
+
+//  Loads the clouds of every user that has at least one term, reading rows in userId order
+//  so each vector is assembled straight from primitive arrays
+    public Map<Integer, SparseVector> loadAllVectors(TermDictionary dictionary) throws SQLException {
+        Map<Integer, SparseVector> vectors = new HashMap<>();
+        String sql = "SELECT userId, term, count FROM user_terms ORDER BY userId";
+        try (Connection connection = pool.reader();
+             PreparedStatement pst = connection.prepareStatement(sql);
+             ResultSet rs = pst.executeQuery()) {
+            int current = -1;
+            int n = 0;
+            int[] ids = new int[64];
+            int[] counts = new int[64];
+            while (rs.next()) {
+                int userId = rs.getInt("userId");
+                if (userId != current && n > 0) {
+                    vectors.put(current, SparseVector.of(ids, counts, n));
+                    n = 0;
+                }
+                current = userId;
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                    counts = Arrays.copyOf(counts, n * 2);
+                }
+                ids[n] = dictionary.intern(rs.getString("term"));
+                counts[n++] = rs.getInt("count");
+            }
+            if (n > 0) vectors.put(current, SparseVector.of(ids, counts, n));
+        }
+        return vectors;
+    }
+
+//  Version of the analyzer the stored terms were produced with, 0 if never recorded
+    public int getVersion() throws SQLException {
+        try (Connection connection = pool.reader()) {
+            return TermStoreMeta.getVersion(connection, "user_terms");
+        }
+    }
+
+    public void setVersion(int version) throws SQLException {
+        try (Connection connection = pool.writer()) {
+            TermStoreMeta.setVersion(connection, "user_terms", version);
+        }
+    }
+
+    /**
+     * Change counter of user_terms. Callers bump it before changing a cloud, so a copy of the clouds
+     * stamped with the counter's value (see {@link VectorFile}) can tell whether it is still current.
+     */
+    public long getGeneration() throws SQLException {
+        try (Connection connection = pool.reader()) {
+            return TermStoreMeta.getCounter(connection, "user_terms_generation");
+        }
+    }
+
+    public long nextGeneration() throws SQLException {
+        try (Connection connection = pool.writer()) {
+            return TermStoreMeta.incrementCounter(connection, "user_terms_generation");
+        }
+    }
+
+//  Replaces every cloud with the sum of the term vectors of the user's favorited songs. The generation bump,
+//  the delete and the insert commit together, so a failure leaves the old clouds and their generation in place
+    public void rebuildFromSongs() throws SQLException {
+        String sql = """
+            INSERT INTO user_terms (userId, term, count)
+            SELECT f.userId, t.term, SUM(t.count)
+            FROM favorites f
+            JOIN song_terms t ON t.songId = f.songId
+            GROUP BY f.userId, t.term
+        """;
+        inTransaction(st -> {
+            nextGeneration();
+            st.executeUpdate("DELETE FROM user_terms");
+            st.executeUpdate(sql);
+        });
+    }
+
+    public boolean isEmpty() throws SQLException {
+        try (Connection connection = pool.reader();
+             Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1 FROM user_terms LIMIT 1")) {
+            return !rs.next();
+        }
+    }
+
+    public void clear() throws SQLException {
+        inTransaction(st -> {
+            nextGeneration();
+            st.executeUpdate("DELETE FROM user_terms");
+        });
+    }
+
+    private interface Work {
+        void run(Statement st) throws SQLException;
+    }
+
+//  Runs the work on the writer in one transaction, or in the caller's if one is already open
+    private void inTransaction(Work work) throws SQLException {
+        try (Connection connection = pool.writer();
+             Statement st = connection.createStatement()) {
+            boolean ownTransaction = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                work.run(st);
+                if (ownTransaction) connection.commit();
+            }
+            catch (SQLException | RuntimeException e) {
+                if (ownTransaction) connection.rollback();
+                throw e;
+            }
+            finally {
+                if (ownTransaction) connection.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package edu.usc.csci310.project.services;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Startup cache of every user's cloud and of the match graph, so a restarted server can fill the
+ * {@link MatchEngine} without querying user_terms or running the all-pairs batch. The snapshot holds a
+ * term table, an offset index sorted by user id, one (term, count) array per user and, when the graph
+ * was exact as the clouds were read, every user's soulmate and enemy. {@link #load} reads it through a
+ * read-only mapping, but every cloud is decoded into an on-heap {@link SparseVector}: the engine scores
+ * from its own index as before, so the file shortens warm-up and does not reduce heap use.
+ * Changes since the snapshot are appended to a journal next to it (path + ".journal"), and the
+ * journal is folded into a new snapshot by {@link #rewrite}. The graph is not journaled; the engine
+ * brings it up to date by applying the journaled clouds one at a time, as it did when they were made.
+ *
+ * Term ids are only stable within one process, so both files store terms as strings.
+ *
+ * Every change to user_terms bumps a generation counter in the database before it is made, and the
+ * journal record written after it carries that generation. A load only succeeds if the snapshot and
+ * journal account for every generation up to the database's, so a crash between the database write
+ * and the journal append, a torn record or a missing file all make {@link #load} return null,
+ * and the caller reads user_terms instead.
+ */
+public class VectorFile {
+    private static final int MAGIC = 0x4C474C56;   // "LGLV"
+    private static final int FORMAT = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 4 + 4 + 8 + 4;
+    // user, soulmate, score, enemy, score
+    private static final int GRAPH_ENTRY_BYTES = 4 + 4 + 8 + 4 + 8;
+
+    private final Path snapshot;
+    private final Path journal;
+    // highest generation in the snapshot or journal, and how many journal records follow the snapshot
+    private long generation = 0;
+    private int journalRecords = 0;
+
+    public VectorFile(Path snapshot) {
+        this.snapshot = snapshot;
+        this.journal = snapshot.resolveSibling(snapshot.getFileName() + ".journal");
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized int journalRecords() {
+        return journalRecords;
+    }
+
+    /** What {@link #load} read: the snapshot and the journaled changes after it. */
+    public static final class Contents {
+        public final Map<Integer, SparseVector> vectors;     // every cloud as of the snapshot
+        public final Map<Integer, MatchCandidates> graph;    // the snapshot's match graph, null if it has none
+        public final List<Map.Entry<Integer, SparseVector>> changes;   // journaled clouds, oldest first
+
+        Contents(Map<Integer, SparseVector> vectors, Map<Integer, MatchCandidates> graph,
+                 List<Map.Entry<Integer, SparseVector>> changes) {
+            this.vectors = vectors;
+            this.graph = graph;
+            this.changes = changes;
+        }
+
+//      Every user's current cloud: the snapshot with the journal replayed over it, empty clouds dropped
+        public Map<Integer, SparseVector> latest() {
+            Map<Integer, SparseVector> latest = new HashMap<>(vectors);
+            for (Map.Entry<Integer, SparseVector> change : changes) latest.put(change.getKey(), change.getValue());
+            latest.values().removeIf(SparseVector::isEmpty);
+            return latest;
+        }
+    }
+
+    /**
+     * Decodes the snapshot and the journal and interns every term into the dictionary.
+     * @param expectedGeneration  the database's current generation
+     * @return the snapshot and the changes after it, or null if the files are missing, corrupt, from
+     *         another format or analyzer version or behind the database
+     */
+    public synchronized Contents load(TermDictionary dictionary, long expectedGeneration) throws IOException {
+        if (!Files.exists(snapshot)) return null;
+
+        Map<Integer, SparseVector> vectors = new HashMap<>();
+        Map<Integer, MatchCandidates> graph = new HashMap<>();
+        long snapshotGeneration;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            snapshotGeneration = readSnapshot(buf, dictionary, vectors, graph);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            return null;
+        }
+        if (snapshotGeneration < 0) return null;
+        // a graph must cover exactly the users with a cloud, or the engine computes its own
+        vectors.values().removeIf(SparseVector::isEmpty);
+        if (!graph.keySet().equals(vectors.keySet())) graph = null;
+
+        List<Map.Entry<Integer, SparseVector>> changes = new ArrayList<>();
+        long last = snapshotGeneration;
+        int records = 0;
+        if (Files.exists(journal)) {
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buf.remaining() >= 8) {
+                    int length = buf.getInt();
+                    int crc = buf.getInt();
+                    if (length < 16 || length > buf.remaining()) break;   // torn tail
+                    ByteBuffer payload = buf.slice(buf.position(), length);
+                    buf.position(buf.position() + length);
+                    if (crc != crc(payload)) break;
+
+                    long recordGeneration = payload.getLong();
+                    if (recordGeneration <= snapshotGeneration) return null;
+                    int userId = payload.getInt();
+                    changes.add(Map.entry(userId, readVector(payload, dictionary)));
+                    last = Math.max(last, recordGeneration);
+                    records++;
+                }
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+                return null;
+            }
+        }
+        // every generation since the snapshot has exactly one record, and nothing is missing at the end
+        if (records != last - snapshotGeneration || last != expectedGeneration) return null;
+
+        generation = last;
+        journalRecords = records;
+        return new Contents(vectors, graph, changes);
+    }
+
+    // returns the snapshot's generation, or -1 if it was written by another format or analyzer
+    private static long readSnapshot(ByteBuffer buf, TermDictionary dictionary, Map<Integer, SparseVector> vectors,
+                                     Map<Integer, MatchCandidates> graph) {
+        if (buf.getInt() != MAGIC || buf.getInt() != FORMAT || buf.getInt() != LyricAnalyzer.VERSION) return -1;
+        long generation = buf.getLong();
+        int termCount = buf.getInt();
+        int userCount = buf.getInt();
+        int graphOffset = (int) buf.getLong();
+        int graphCount = buf.getInt();
+
+        int[] termIds = new int[termCount];
+        for (int t = 0; t < termCount; t++) termIds[t] = dictionary.intern(readString(buf));
+
+        int[] ids = new int[64];
+        int[] counts = new int[64];
+        int index = buf.position();
+        for (int u = 0; u < userCount; u++) {
+            int userId = buf.getInt(index + u * 12);
+            int offset = (int) buf.getLong(index + u * 12 + 4);
+            int n = buf.getInt(offset);
+            if (n > ids.length) {
+                ids = new int[n];
+                counts = new int[n];
+            }
+            for (int i = 0; i < n; i++) {
+                ids[i] = termIds[buf.getInt(offset + 4 + i * 8)];
+                counts[i] = buf.getInt(offset + 8 + i * 8);
+            }
+            vectors.put(userId, SparseVector.of(ids, counts, n));
+        }
+        for (int g = 0; g < graphCount; g++) {
+            int at = graphOffset + g * GRAPH_ENTRY_BYTES;
+            graph.put(buf.getInt(at), new MatchCandidates(buf.getInt(at + 4), buf.getDouble(at + 8),
+                    buf.getInt(at + 16), buf.getDouble(at + 20)));
+        }
+        return generation;
+    }
+
+    private static SparseVector readVector(ByteBuffer buf, TermDictionary dictionary) {
+        int n = buf.getInt();
+        int[] ids = new int[n];
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = dictionary.intern(readString(buf));
+            counts[i] = buf.getInt();
+        }
+        return SparseVector.of(ids, counts, n);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0 || length > buf.remaining()) throw new IllegalArgumentException("Bad string length " + length);
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a user's new cloud to the journal. Records must be appended in the order the clouds
+     * were applied, so callers append while holding the {@link MatchEngine} write lock.
+     */
+    public synchronized void append(int userId, SparseVector vector, TermDictionary dictionary, long generation) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(generation);
+        out.writeInt(userId);
+        out.writeInt(vector.size());
+        for (int i = 0; i < vector.size(); i++) {
+            writeString(out, dictionary.term(vector.termId(i)));
+            out.writeInt(vector.count(i));
+        }
+        out.flush();
+
+        ByteBuffer body = ByteBuffer.wrap(payload.toByteArray());
+        ByteBuffer record = ByteBuffer.allocate(8 + body.remaining());
+        record.putInt(body.remaining()).putInt(crc(body)).put(body).flip();
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) channel.write(record);
+        }
+        this.generation = Math.max(this.generation, generation);
+        journalRecords++;
+    }
+
+    /**
+     * Writes every cloud to a new snapshot at the given generation and empties the journal.
+     * The snapshot is written next to the old one and moved over it, so a crash leaves one of the two.
+     * @param graph  every user's soulmate and enemy for exactly these clouds, or null to store none
+     */
+    public synchronized void rewrite(Map<Integer, SparseVector> vectors, Map<Integer, MatchCandidates> graph,
+                                     TermDictionary dictionary, long generation) throws IOException {
+        // file-local term ids, in first-use order
+        Map<Integer, Integer> fileTermIds = new HashMap<>();
+        int[] users = vectors.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int termBytes = 0;
+        String[] terms = new String[16];
+        for (int userId : users) {
+            SparseVector v = vectors.get(userId);
+            for (int i = 0; i < v.size(); i++) {
+                int termId = v.termId(i);
+                if (fileTermIds.containsKey(termId)) continue;
+                if (fileTermIds.size() == terms.length) terms = Arrays.copyOf(terms, terms.length * 2);
+                terms[fileTermIds.size()] = dictionary.term(termId);
+                termBytes += 4 + terms[fileTermIds.size()].getBytes(StandardCharsets.UTF_8).length;
+                fileTermIds.put(termId, fileTermIds.size());
+            }
+        }
+
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(LyricAnalyzer.VERSION);
+            out.writeLong(generation);
+            out.writeInt(fileTermIds.size());
+            out.writeInt(users.length);
+            long graphOffset = HEADER_BYTES + termBytes + (long) users.length * 12;
+            for (int userId : users) graphOffset += 4 + (long) vectors.get(userId).size() * 8;
+            out.writeLong(graphOffset);
+            out.writeInt(graph == null ? 0 : graph.size());
+            for (int t = 0; t < fileTermIds.size(); t++) writeString(out, terms[t]);
+
+            long offset = HEADER_BYTES + termBytes + (long) users.length * 12;
+            for (int userId : users) {
+                out.writeInt(userId);
+                out.writeLong(offset);
+                offset += 4 + (long) vectors.get(userId).size() * 8;
+            }
+            for (int userId : users) {
+                SparseVector v = vectors.get(userId);
+                out.writeInt(v.size());
+                for (int i = 0; i < v.size(); i++) {
+                    out.writeInt(fileTermIds.get(v.termId(i)));
+                    out.writeInt(v.count(i));
+                }
+            }
+            if (graph != null) {
+                for (Map.Entry<Integer, MatchCandidates> e : graph.entrySet()) {
+                    out.writeInt(e.getKey());
+                    out.writeInt(e.getValue().bestUser);
+                    out.writeDouble(e.getValue().bestScore);
+                    out.writeInt(e.getValue().worstUser);
+                    out.writeDouble(e.getValue().worstScore);
+                }
+            }
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journal);
+        this.generation = generation;
+        journalRecords = 0;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int crc(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,44 @@
+package edu.usc.csci310.project.services;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SimilarityKernel} on the incubating JDK Vector API: gathers the query counts for a register's
+ * worth of candidate terms, takes the lane-wise min and adds it into per-lane sums, reducing once at the end.
+ * Only compiled by the vector-api Maven profile and only loadable when the JVM runs with
+ * --add-modules jdk.incubator.vector; {@link SimilarityKernel#best()} falls back to {@link ScalarSimilarityKernel} otherwise.
+ */
+public class VectorSimilarityKernel implements SimilarityKernel {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public long sharedCount(int[] dense, SparseVector candidate) {
+        int[] ids = candidate.termIds();
+        int[] counts = candidate.counts();
+        // int lanes cannot overflow while the candidate's own total fits in an int
+        if (candidate.total() > Integer.MAX_VALUE) return scalar(dense, ids, counts, 0);
+
+        int bound = SPECIES.loopBound(ids.length);
+        IntVector sums = IntVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            IntVector query = IntVector.fromArray(SPECIES, dense, 0, ids, i);
+            sums = sums.add(query.min(IntVector.fromArray(SPECIES, counts, i)));
+        }
+        return sums.reduceLanes(VectorOperators.ADD) + scalar(dense, ids, counts, bound);
+    }
+
+    private static long scalar(int[] dense, int[] ids, int[] counts, int from) {
+        long shared = 0;
+        for (int i = from; i < ids.length; i++) {
+            shared += Math.min(dense[ids[i]], counts[i]);
+        }
+        return shared;
+    }
+
+    @Override
+    public String name() {
+        return "vector" + SPECIES.length();
+    }
+}
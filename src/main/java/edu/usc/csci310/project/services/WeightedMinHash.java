@@ -0,0 +1,71 @@
+package edu.usc.csci310.project.services;
+
+/**
+ * Weighted MinHash signatures using Ioffe's consistent weighted sampling (ICWS). For two clouds the
+ * probability that any one signature slot is equal is their weighted Jaccard similarity
+ * (sum of min counts / sum of max counts), the same score {@link SparseVector#weightedJaccard} computes.
+ * Each slot costs O(terms) and needs no expansion of counts into repeated elements.
+ *
+ * The per (slot, term) random draws are derived by hashing, so the same cloud always gets the same signature.
+ */
+public class WeightedMinHash {
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final int size;
+    private final long seed;
+
+    public WeightedMinHash(int size, long seed) {
+        this.size = size;
+        this.seed = seed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+//  One int per slot; only meaningful for non-empty vectors
+    public int[] signature(SparseVector vector) {
+        int n = vector.size();
+        double[] logWeights = new double[n];
+        for (int i = 0; i < n; i++) logWeights[i] = Math.log(vector.count(i));
+
+        int[] signature = new int[size];
+        for (int slot = 0; slot < size; slot++) {
+            long slotSeed = mix(seed + slot * GOLDEN);
+            double bestLogA = Double.POSITIVE_INFINITY;
+            int bestTerm = -1;
+            long bestT = 0;
+
+            for (int i = 0; i < n; i++) {
+                int term = vector.termId(i);
+                long base = mix(slotSeed ^ (term * GOLDEN));
+                double r = -Math.log(uniform(base, 1) * uniform(base, 2));   // Gamma(2, 1)
+                double c = -Math.log(uniform(base, 3) * uniform(base, 4));   // Gamma(2, 1)
+                double beta = uniform(base, 5);
+
+                double t = Math.floor(logWeights[i] / r + beta);
+                double logY = r * (t - beta);
+                double logA = Math.log(c) - logY - r;
+                if (logA < bestLogA) {
+                    bestLogA = logA;
+                    bestTerm = term;
+                    bestT = (long) t;
+                }
+            }
+            signature[slot] = (int) mix(bestTerm * GOLDEN + bestT);
+        }
+        return signature;
+    }
+
+    // uniform in (0, 1), the k-th draw for a base hash
+    private static double uniform(long base, int k) {
+        return ((mix(base + k * GOLDEN) >>> 11) + 0.5) * 0x1.0p-53;
+    }
+
+    // SplitMix64 finalizer
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
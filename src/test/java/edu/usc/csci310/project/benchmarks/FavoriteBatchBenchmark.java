@@ -0,0 +1,107 @@
+package edu.usc.csci310.project.benchmarks;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.configuration.DatabaseInitializer;
+import edu.usc.csci310.project.requests.FavoriteRemoveRequest;
+import edu.usc.csci310.project.requests.FavoriteSongRequest;
+import edu.usc.csci310.project.services.FavoriteService;
+import edu.usc.csci310.project.services.MatchEngine;
+import edu.usc.csci310.project.services.ShardTopology;
+import edu.usc.csci310.project.services.SongTermStore;
+import edu.usc.csci310.project.services.UserTermStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static edu.usc.csci310.project.Utils.hashUsername;
+
+/**
+ * Imports a 100 song playlist into one user's favorites and clears it again, once as 100 addFavoriteSong
+ * and 100 removeFavoriteSong calls that each commit, and once as one addFavoriteSongs and one
+ * removeFavoriteSongs call. The database is a WAL file on disk with synchronous=NORMAL, as in production.
+ * See the README for how to run benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FavoriteBatchBenchmark {
+    private static final int PLAYLIST = 100;
+
+    private Path dir;
+    private ConnectionPool pool;
+    private FavoriteService favoriteService;
+    private final List<FavoriteSongRequest> adds = new ArrayList<>();
+    private final List<FavoriteRemoveRequest> removes = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        dir = Files.createTempDirectory("favorite-batch");
+        pool = ConnectionPool.open("jdbc:sqlite:" + dir.resolve("favorites.db"), 2, 5000, 30000, 64);
+        new DatabaseInitializer(pool).initializeDatabase();
+        favoriteService = new FavoriteService(pool, new UserTermStore(pool), new SongTermStore(pool, 100_000),
+                new MatchEngine(), 100, "", ShardTopology.SINGLE, new RestTemplate(), 500);
+        try (Connection conn = pool.writer();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO users (username, password) VALUES (?, 'x')")) {
+            pst.setString(1, hashUsername("importer"));
+            pst.executeUpdate();
+        }
+        for (int songId = 1; songId <= PLAYLIST; songId++) {
+            FavoriteSongRequest add = new FavoriteSongRequest();
+            add.setUsername("importer");
+            add.setSongId(songId);
+            add.setSongName("song " + songId);
+            add.setSongArtist("artist");
+            add.setFullTitle("song " + songId + " by artist");
+            add.setDateReleased("2024");
+            add.setAlbum("album");
+            add.setLyrics("love you baby tonight word" + songId + " heart night dance forever");
+            adds.add(add);
+
+            FavoriteRemoveRequest remove = new FavoriteRemoveRequest();
+            remove.setUsername("importer");
+            remove.setSongId(songId);
+            removes.add(remove);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException, IOException {
+        pool.close();
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public int oneCallPerSong() {
+        int n = 0;
+        for (FavoriteSongRequest add : adds) n += favoriteService.addFavoriteSong(add);
+        for (FavoriteRemoveRequest remove : removes) n += favoriteService.removeFavoriteSong(remove);
+        return n;
+    }
+
+    @Benchmark
+    public int oneBatch() {
+        return favoriteService.addFavoriteSongs(adds).size() + favoriteService.removeFavoriteSongs(removes).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FavoriteBatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
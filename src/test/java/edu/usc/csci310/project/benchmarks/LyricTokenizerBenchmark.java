@@ -0,0 +1,72 @@
+package edu.usc.csci310.project.benchmarks;
+
+import edu.usc.csci310.project.services.LyricTokenizer;
+import edu.usc.csci310.project.services.TermCounter;
+import edu.usc.csci310.project.services.TermDictionary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the character-scanning {@link LyricTokenizer} with the regex tokenizer FavoriteService used before it.
+ * Both count the words of a synthetic 400 word lyric. See the README for how to run benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LyricTokenizerBenchmark {
+    private static final String[] WORDS = {
+            "love", "you", "baby", "don't", "I'm", "never", "gonna", "give", "up", "heart", "night",
+            "dance", "café", "corazón", "forever", "tonight", "rock'n'roll", "lovin'", "yeah", "oh"
+    };
+
+    private String lyrics;
+    private TermDictionary dictionary;
+    private LyricTokenizer tokenizer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int line = 0; line < 50; line++) {
+            for (int w = 0; w < 8; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                sb.append(random.nextInt(5) == 0 ? word.toUpperCase() : word).append(w == 7 ? ",\n" : " ");
+            }
+        }
+        lyrics = sb.toString();
+        dictionary = new TermDictionary();
+        tokenizer = new LyricTokenizer(dictionary);
+    }
+
+    @Benchmark
+    public Map<String, Integer> regexSplit() {
+        List<String> tokens = Arrays.stream(lyrics.toLowerCase().split("\\W+"))
+                .filter(t -> !t.isBlank())
+                .collect(Collectors.toList());
+        Map<String, Integer> freq = new HashMap<>();
+        for (String w : tokens) {
+            freq.merge(w, 1, Integer::sum);
+        }
+        return freq;
+    }
+
+    @Benchmark
+    public TermCounter charScan() {
+        TermCounter counts = new TermCounter();
+        tokenizer.tokenize(lyrics, counts);
+        return counts;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LyricTokenizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,145 @@
+package edu.usc.csci310.project.benchmarks;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.configuration.DatabaseInitializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookups every request makes, on the schema before migration 2 (TEXT favorites columns, no indexes)
+ * and after it: a user's id by username, whether a user favorited a song, and a user's favorites
+ * joined with their songs. The database holds 10000 users and 2000 songs, and each user has 20 favorites.
+ * main prints both query plans before running. See the README for how to run benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaIndexBenchmark {
+    private static final int USERS = 10_000;
+    private static final int SONGS = 2_000;
+    private static final int FAVORITES_PER_USER = 20;
+
+    static final String USER_ID = "SELECT id FROM users WHERE username = ?";
+    static final String IS_FAVORITED = "SELECT * FROM favorites WHERE songId = ? AND userId = ?";
+    static final String FAVORITES = "SELECT f.id, s.songName, s.songArtist, s.album, s.songId " +
+            "FROM favorites f JOIN songs s ON f.songId = s.songId WHERE f.userId = ? ORDER BY f.id ASC";
+
+    @Param({"1", "2"})
+    public int schemaVersion;
+
+    private Connection connection;
+    private PreparedStatement userId;
+    private PreparedStatement isFavorited;
+    private PreparedStatement favorites;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = open(schemaVersion);
+        userId = connection.prepareStatement(USER_ID);
+        isFavorited = connection.prepareStatement(IS_FAVORITED);
+        favorites = connection.prepareStatement(FAVORITES);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    static Connection open(int schemaVersion) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        new DatabaseInitializer(ConnectionPool.of(connection)).migrate(schemaVersion);
+        Random random = new Random(7);
+        connection.setAutoCommit(false);
+        try (PreparedStatement users = connection.prepareStatement("INSERT INTO users (username, password) VALUES (?, 'x')");
+             PreparedStatement songs = connection.prepareStatement("INSERT INTO songs VALUES (?, 'n', 'a', 'f', 'd', 'alb', 'l')");
+             PreparedStatement favorites = connection.prepareStatement("INSERT INTO favorites (userId, songId) VALUES (?, ?)")) {
+            for (int u = 1; u <= USERS; u++) {
+                users.setString(1, "user" + u);
+                users.addBatch();
+            }
+            users.executeBatch();
+            for (int s = 1; s <= SONGS; s++) {
+                songs.setInt(1, s);
+                songs.addBatch();
+            }
+            songs.executeBatch();
+            for (int u = 1; u <= USERS; u++) {
+                for (int songId : random.ints(1, SONGS + 1).distinct().limit(FAVORITES_PER_USER).toArray()) {
+                    favorites.setInt(1, u);
+                    favorites.setInt(2, songId);
+                    favorites.addBatch();
+                }
+            }
+            favorites.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement st = connection.createStatement()) {
+            st.execute("ANALYZE");
+        }
+        return connection;
+    }
+
+    @Benchmark
+    public int userIdByUsername() throws SQLException {
+        userId.setString(1, "user" + (1 + random.nextInt(USERS)));
+        try (ResultSet rs = userId.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    @Benchmark
+    public boolean isSongFavorited() throws SQLException {
+        isFavorited.setInt(1, 1 + random.nextInt(SONGS));
+        isFavorited.setInt(2, 1 + random.nextInt(USERS));
+        try (ResultSet rs = isFavorited.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    @Benchmark
+    public int favoriteSongs() throws SQLException {
+        favorites.setInt(1, 1 + random.nextInt(USERS));
+        int n = 0;
+        try (ResultSet rs = favorites.executeQuery()) {
+            while (rs.next()) n++;
+        }
+        return n;
+    }
+
+    static void printPlans() throws SQLException {
+        for (int version = 1; version <= 2; version++) {
+            try (Connection connection = open(version)) {
+                for (String sql : new String[]{USER_ID, IS_FAVORITED, FAVORITES}) {
+                    System.out.println("schema " + version + ": " + sql);
+                    try (PreparedStatement pst = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+                        for (int i = 1; i <= pst.getParameterMetaData().getParameterCount(); i++) pst.setInt(i, 1);
+                        try (ResultSet rs = pst.executeQuery()) {
+                            while (rs.next()) System.out.println("    " + rs.getString("detail"));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, SQLException {
+        printPlans();
+        new Runner(new OptionsBuilder().include(SchemaIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
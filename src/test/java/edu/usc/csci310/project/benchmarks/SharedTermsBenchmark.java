@@ -0,0 +1,69 @@
+package edu.usc.csci310.project.benchmarks;
+
+import edu.usc.csci310.project.services.SharedTerms;
+import edu.usc.csci310.project.services.SparseVector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of explaining a match: the top 10 shared words of two clouds with the bounded heap in
+ * {@link SharedTerms}, against a merge that collects every shared word and sorts them. Clouds hold the given number of
+ * distinct terms out of a vocabulary four times as large. See the README for how to run benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedTermsBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int terms;
+
+    private SparseVector a;
+    private SparseVector b;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        a = randomVector(random);
+        b = randomVector(random);
+    }
+
+    private SparseVector randomVector(Random random) {
+        int[] ids = random.ints(0, terms * 4).distinct().limit(terms).toArray();
+        int[] counts = new int[ids.length];
+        for (int i = 0; i < counts.length; i++) counts[i] = 1 + random.nextInt(20);
+        return SparseVector.of(ids, counts, ids.length);
+    }
+
+    @Benchmark
+    public SharedTerms boundedHeap() {
+        return SharedTerms.top(a, b, 10);
+    }
+
+    @Benchmark
+    public List<int[]> sortEverySharedTerm() {
+        List<int[]> shared = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < a.size() && j < b.size()) {
+            int ta = a.termId(i), tb = b.termId(j);
+            if (ta == tb) shared.add(new int[]{ta, Math.min(a.count(i++), b.count(j++))});
+            else if (ta < tb) i++;
+            else j++;
+        }
+        shared.sort((x, y) -> x[1] == y[1] ? Integer.compare(x[0], y[0]) : Integer.compare(y[1], x[1]));
+        return shared.subList(0, Math.min(10, shared.size()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SharedTermsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
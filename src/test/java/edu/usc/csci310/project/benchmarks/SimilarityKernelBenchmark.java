@@ -0,0 +1,90 @@
+package edu.usc.csci310.project.benchmarks;
+
+import edu.usc.csci310.project.services.SimilarityKernel;
+import edu.usc.csci310.project.services.SparseVector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores one query cloud against 200 candidates (an approximate-mode shortlist) with the merge-join
+ * in {@link SparseVector}, the scalar kernel and the Vector API kernel. Vocabulary is the number of
+ * distinct terms; clouds hold terms up to a quarter of it, capped at 2000.
+ * The Vector API kernel is only built by mvn -Pvector-api; without it, main leaves the vector runs out
+ * and measures the other two. See the README for how to run benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SimilarityKernelBenchmark {
+    @Param({"1000", "10000", "50000"})
+    public int vocabulary;
+
+    @Param({"merge-join", "scalar", "vector"})
+    public String kernel;
+
+    private SparseVector query;
+    private SparseVector[] candidates;
+    private int[] dense;
+    // null for the merge-join
+    private SimilarityKernel similarity;
+
+    @Setup
+    public void setUp() {
+        // created here rather than in a field, so a missing vector kernel only fails its own runs
+        similarity = kernel.equals("merge-join") ? null : SimilarityKernel.named(kernel);
+        Random random = new Random(42);
+        int terms = Math.min(vocabulary / 4, 2000);
+        query = randomVector(random, terms);
+        candidates = new SparseVector[200];
+        for (int i = 0; i < candidates.length; i++) candidates[i] = randomVector(random, terms);
+        dense = new int[vocabulary];
+    }
+
+    private SparseVector randomVector(Random random, int terms) {
+        int[] ids = random.ints(0, vocabulary).distinct().limit(terms).toArray();
+        int[] counts = new int[ids.length];
+        for (int i = 0; i < counts.length; i++) counts[i] = 1 + random.nextInt(10);
+        return SparseVector.of(ids, counts, ids.length);
+    }
+
+    @Benchmark
+    public long sharedCounts() {
+        long sum = 0;
+        if (similarity == null) {
+            for (SparseVector candidate : candidates) sum += SparseVector.sharedCount(query, candidate);
+            return sum;
+        }
+        query.scatter(dense);
+        for (SparseVector candidate : candidates) sum += similarity.sharedCount(dense, candidate);
+        query.unscatter(dense);
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String[] kernels = vectorKernelBuilt()
+                ? new String[]{"merge-join", "scalar", "vector"} : new String[]{"merge-join", "scalar"};
+        if (kernels.length == 2) System.out.println("Skipping the vector kernel: build with mvn -Pvector-api to measure it");
+        new Runner(new OptionsBuilder().include(SimilarityKernelBenchmark.class.getSimpleName())
+                .param("kernel", kernels).build()).run();
+    }
+
+//  The forks add the incubator module themselves, so the kernel can run wherever its class was compiled
+    private static boolean vectorKernelBuilt() {
+        try {
+            Class.forName("edu.usc.csci310.project.services.VectorSimilarityKernel", false,
+                    SimilarityKernelBenchmark.class.getClassLoader());
+            return true;
+        }
+        catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package edu.usc.csci310.project.benchmarks;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookups of {@link SchemaIndexBenchmark} on the migrated schema, written the way the services write
+ * them: borrow a connection, prepare the statement, run it and close both. With a statement cache of 0
+ * every call parses and plans the SQL again. See the README for how to run benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementCacheBenchmark {
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private ConnectionPool pool;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() throws SQLException {
+        pool = new ConnectionPool(SchemaIndexBenchmark.open(2), List.of(), Long.MAX_VALUE, statementCacheSize);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        pool.close();
+    }
+
+    @Benchmark
+    public int userIdByUsername() throws SQLException {
+        try (Connection conn = pool.reader();
+             PreparedStatement pst = conn.prepareStatement(SchemaIndexBenchmark.USER_ID)) {
+            pst.setString(1, "user" + (1 + random.nextInt(10_000)));
+            ResultSet rs = pst.executeQuery();
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    @Benchmark
+    public int favoriteSongs() throws SQLException {
+        try (Connection conn = pool.reader();
+             PreparedStatement pst = conn.prepareStatement(SchemaIndexBenchmark.FAVORITES)) {
+            pst.setInt(1, 1 + random.nextInt(10_000));
+            ResultSet rs = pst.executeQuery();
+            int n = 0;
+            while (rs.next()) n++;
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StatementCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
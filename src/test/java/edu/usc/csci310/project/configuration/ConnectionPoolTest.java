@@ -0,0 +1,207 @@
+package edu.usc.csci310.project.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = ConnectionPool.open("jdbc:sqlite:" + dir.resolve("test.db"), 2, 1000, 200, 16);
+        try (Connection conn = pool.writer();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("CREATE TABLE t (v INTEGER)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        pool.close();
+    }
+
+    @Test
+    void readersSeeCommittedWrites() throws SQLException {
+        try (Connection conn = pool.writer();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO t VALUES (7)");
+        }
+        try (Connection conn = pool.reader();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT v FROM t")) {
+            assertTrue(rs.next());
+            assertEquals(7, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void readersAreReadOnly() throws SQLException {
+        try (Connection conn = pool.reader();
+             Statement st = conn.createStatement()) {
+            assertThrows(SQLException.class, () -> st.executeUpdate("INSERT INTO t VALUES (1)"));
+        }
+    }
+
+    @Test
+    void borrowingIsReentrantPerThread() throws SQLException {
+        try (Connection writer = pool.writer()) {
+            try (Connection nested = pool.writer(); Connection read = pool.reader()) {
+                assertSame(writer.unwrap(Connection.class), nested.unwrap(Connection.class));
+                assertSame(writer.unwrap(Connection.class), read.unwrap(Connection.class));
+            }
+            assertEquals(1L, pool.stats().get("writer").get("inUse"));
+        }
+        try (Connection reader = pool.reader(); Connection nested = pool.reader()) {
+            assertSame(reader.unwrap(Connection.class), nested.unwrap(Connection.class));
+        }
+
+        Map<String, Map<String, Long>> stats = pool.stats();
+        assertEquals(0L, stats.get("writer").get("inUse"));
+        assertEquals(2L, stats.get("writer").get("acquired"));   // one for the table in setUp
+        assertEquals(0L, stats.get("readers").get("inUse"));
+        assertEquals(1L, stats.get("readers").get("acquired"));
+    }
+
+    @Test
+    void closingAHandleTwiceGivesItBackOnce() throws Exception {
+        Connection writer = pool.writer();
+        writer.close();
+        assertDoesNotThrow(writer::close);
+        assertTrue(writer.isClosed());
+        assertThrows(SQLException.class, writer::createStatement);
+        assertEquals(0L, pool.stats().get("writer").get("inUse"));
+
+        // a nested handle closed twice leaves the outer borrow holding the writer
+        try (Connection outer = pool.writer()) {
+            Connection nested = pool.writer();
+            nested.close();
+            nested.close();
+            assertFalse(outer.isClosed());
+            assertThrows(ExecutionException.class, () -> CompletableFuture.supplyAsync(this::borrowWriter).get());
+        }
+        assertDoesNotThrow(() -> CompletableFuture.supplyAsync(this::borrowWriter).get());
+
+        Connection reader = pool.reader();
+        reader.close();
+        assertDoesNotThrow(reader::close);
+        assertEquals(0L, pool.stats().get("readers").get("inUse"));
+        // given back once, so the two readers are both free
+        try (Connection a = pool.reader()) {
+            assertDoesNotThrow(() -> CompletableFuture.supplyAsync(() -> {
+                try (Connection b = pool.reader()) {
+                    return b.isClosed();
+                }
+                catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }).get());
+        }
+    }
+
+    @Test
+    void writerIsHeldByOneThreadAtATime() throws Exception {
+        try (Connection ignored = pool.writer()) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> CompletableFuture.supplyAsync(this::borrowWriter).get());
+            assertInstanceOf(SQLException.class, e.getCause().getCause());
+        }
+        assertEquals(1L, pool.stats().get("writer").get("timeouts"));
+        // free again once given back
+        assertDoesNotThrow(() -> CompletableFuture.supplyAsync(this::borrowWriter).get());
+    }
+
+    @Test
+    void readersTimeOutWhenAllAreBorrowed() throws Exception {
+        CountDownLatch borrowed = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(1);
+        // a thread each, so both hold a reader at once
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        CompletableFuture<?>[] holders = new CompletableFuture<?>[2];
+        for (int i = 0; i < 2; i++) {
+            holders[i] = CompletableFuture.runAsync(() -> {
+                try (Connection ignored = pool.reader()) {
+                    borrowed.countDown();
+                    done.await();
+                }
+                catch (SQLException | InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }, threads);
+        }
+        borrowed.await();
+
+        assertThrows(SQLException.class, () -> pool.reader());
+        Map<String, Long> readers = pool.stats().get("readers");
+        assertEquals(2L, readers.get("peakInUse"));
+        assertEquals(1L, readers.get("timeouts"));
+
+        done.countDown();
+        CompletableFuture.allOf(holders).get();
+        threads.shutdown();
+        try (Connection conn = pool.reader()) {
+            assertFalse(conn.isClosed());
+        }
+    }
+
+    @Test
+    void singleConnectionPoolServesBothRoles() throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        ConnectionPool single = ConnectionPool.of(conn);
+        try (Connection writer = single.writer(); Connection reader = single.reader()) {
+            assertSame(writer.unwrap(Connection.class), reader.unwrap(Connection.class));
+        }
+        assertEquals(0L, single.stats().get("readers").get("size"));
+        // giving a connection back does not close it
+        assertFalse(conn.isClosed());
+        single.close();
+        assertTrue(conn.isClosed());
+    }
+
+    @Test
+    void dataSourceConnectionsAreTheWriter() throws SQLException {
+        DataSource dataSource = pool;
+        try (Connection writer = pool.writer(); Connection conn = dataSource.getConnection()) {
+            assertSame(writer.unwrap(Connection.class), conn.unwrap(Connection.class));
+        }
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            assertEquals(1, st.executeUpdate("INSERT INTO t VALUES (1)"));
+        }
+        assertEquals(0L, pool.stats().get("writer").get("inUse"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> dataSource.getConnection("user", "password"));
+        assertSame(pool, dataSource.unwrap(ConnectionPool.class));
+        assertTrue(dataSource.isWrapperFor(DataSource.class));
+        assertThrows(SQLException.class, () -> dataSource.unwrap(Connection.class));
+    }
+
+    private Connection borrowWriter() {
+        try (Connection conn = pool.writer()) {
+            return conn;
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
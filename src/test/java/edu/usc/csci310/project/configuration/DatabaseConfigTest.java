@@ -1,31 +1,32 @@
 package edu.usc.csci310.project.configuration;
 
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.mockStatic;
 
 class DatabaseConfigTest {
-    @Test
-    void sqliteConnection() throws SQLException {
-        Connection mockedConnection = mock(Connection.class);
-        try(MockedStatic<DriverManager> mockedDM = mockStatic(DriverManager.class)) {
-            mockedDM.when(() -> DriverManager.getConnection("jdbc:sqlite:dataUsers.db")).thenReturn(mockedConnection);
-
-            DatabaseConfig dbConfig = new DatabaseConfig();
-            Connection conn = dbConfig.sqliteConnection();
+    @TempDir
+    Path dir;
 
-            assertNotNull(conn);
-            assertEquals(mockedConnection, conn);
-
-            mockedDM.verify(() -> DriverManager.getConnection("jdbc:sqlite:dataUsers.db"));
+    @Test
+    void connectionPool() throws SQLException {
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        try (ConnectionPool pool = dbConfig.connectionPool("jdbc:sqlite:" + dir.resolve("dataUsers.db"), 2, 1000, 1000, 64)) {
+            assertEquals(2L, pool.stats().get("readers").get("size"));
+            try (Connection conn = pool.writer();
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("PRAGMA journal_mode")) {
+                assertTrue(rs.next());
+                assertEquals("wal", rs.getString(1));
+            }
         }
     }
 
-}
\ No newline at end of file
+}
@@ -1,11 +1,16 @@
 package edu.usc.csci310.project.configuration;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -16,37 +21,170 @@ class DatabaseInitializerTest {
     private Connection conn;
 
     @BeforeEach
-    public void setUp() {
-        conn = mock(Connection.class);
-        dbInitializer = new DatabaseInitializer(conn);
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        dbInitializer = new DatabaseInitializer(ConnectionPool.of(conn));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
     }
 
     @Test
-    void initializeDatabase() throws SQLException {
-        String sqlString = "CREATE TABLE IF NOT EXISTS users (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "username TEXT NOT NULL, " +
-                "password TEXT NOT NULL)";
+    void initializeDatabaseAppliesEveryMigration() throws SQLException {
+        dbInitializer.initializeDatabase();
 
-        Statement st = mock(Statement.class);
-        when(conn.createStatement()).thenReturn(st);
+        assertEquals(DatabaseInitializer.MIGRATIONS.size(), dbInitializer.schemaVersion());
+        assertEquals(List.of("id INTEGER", "userId INTEGER", "songId INTEGER"), columns("favorites"));
+        assertTrue(indexes().containsAll(List.of("favorites_user_song", "favorites_song", "users_username")));
+    }
 
+    @Test
+    void initializeDatabaseOnlyRunsPendingMigrations() throws SQLException {
+        assertEquals(1, dbInitializer.migrate(1));
+        assertEquals(1, dbInitializer.schemaVersion());
+
+        assertEquals(DatabaseInitializer.MIGRATIONS.size() - 1, dbInitializer.migrate(DatabaseInitializer.MIGRATIONS.size()));
+        assertEquals(0, dbInitializer.migrate(DatabaseInitializer.MIGRATIONS.size()));
         dbInitializer.initializeDatabase();
+        assertEquals(DatabaseInitializer.MIGRATIONS.size(), dbInitializer.schemaVersion());
+    }
+
+    @Test
+    void typedFavoritesKeepExistingRows() throws SQLException {
+        dbInitializer.migrate(1);
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO users (username, password) VALUES ('a', 'x'), ('b', 'x')");
+            st.executeUpdate("INSERT INTO songs VALUES (10, 'n', 'a', 'f', 'd', 'alb', 'l'), (20, 'n', 'a', 'f', 'd', 'alb', 'l')");
+            // a duplicate, a favorite of a missing user and one of a missing song
+            st.executeUpdate("INSERT INTO favorites (userId, songId) VALUES " +
+                    "('1', '20'), ('1', '10'), ('2', '20'), ('1', '20'), ('3', '10'), ('2', '30')");
+            st.executeUpdate("INSERT INTO term_store_meta (name, value) VALUES ('user_terms', 3), ('song_terms', 3)");
+        }
 
-        verify(st).executeUpdate(sqlString);
+        dbInitializer.migrate(2);
+
+        List<String> rows = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, userId, songId, typeof(userId) FROM favorites ORDER BY id")) {
+            while (rs.next()) rows.add(rs.getInt(1) + ":" + rs.getInt(2) + ":" + rs.getInt(3) + ":" + rs.getString(4));
+        }
+        assertEquals(List.of("1:1:20:integer", "2:1:10:integer", "3:2:20:integer"), rows);
+
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM term_store_meta")) {
+            assertTrue(rs.next());
+            assertEquals("song_terms", rs.getString(1));
+            assertFalse(rs.next());
+        }
     }
 
     @Test
-    void initializeDatabaseException() throws SQLException {
-        String sqlString = "CREATE TABLE IF NOT EXISTS users (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "username TEXT NOT NULL, " +
-                "password TEXT NOT NULL)";
+    void songsStoredBeforeTheFixGetTheirLyricsBack() throws SQLException {
+        dbInitializer.migrate(2);
+        try (Statement st = conn.createStatement()) {
+            // as the old insert stored it: the lyrics in album and the album in lyrics
+            st.executeUpdate("INSERT INTO songs (songId, songName, songArtist, fullTitle, dateReleased, album, lyrics) " +
+                    "VALUES (10, 'n', 'a', 'f', 'd', 'the lyrics', 'the album')");
+            st.executeUpdate("INSERT INTO term_store_meta (name, value) VALUES ('user_terms', 3), ('song_terms', 3)");
+        }
+
+        dbInitializer.migrate(3);
+
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT lyrics, album FROM songs WHERE songId = 10")) {
+            assertTrue(rs.next());
+            assertEquals("the lyrics", rs.getString("lyrics"));
+            assertEquals("the album", rs.getString("album"));
+        }
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM term_store_meta")) {
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void usernamesRegisteredTwiceAreMerged() throws SQLException {
+        dbInitializer.migrate(1);
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO users (username, password) VALUES ('a', 'x'), ('b', 'x'), ('a', 'y')");
+            st.executeUpdate("INSERT INTO songs VALUES (10, 'n', 'a', 'f', 'd', 'alb', 'l'), (20, 'n', 'a', 'f', 'd', 'alb', 'l')");
+            // both users named a favorited song 10, and only the second one song 20
+            st.executeUpdate("INSERT INTO favorites (userId, songId) VALUES ('1', '10'), ('3', '10'), ('3', '20'), ('2', '20')");
+        }
+
+        dbInitializer.migrate(2);
 
-        Statement st = mock(Statement.class);
-        when(conn.createStatement()).thenThrow(new SQLException("SQL test exception"));
+        List<String> users = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, username FROM users ORDER BY id")) {
+            while (rs.next()) users.add(rs.getInt(1) + ":" + rs.getString(2));
+        }
+        assertEquals(List.of("1:a", "2:b"), users);
 
-        RuntimeException re = assertThrows(RuntimeException.class, () -> dbInitializer.initializeDatabase());
+        List<String> rows = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT userId, songId FROM favorites ORDER BY userId, songId")) {
+            while (rs.next()) rows.add(rs.getInt(1) + ":" + rs.getInt(2));
+        }
+        assertEquals(List.of("1:10", "1:20", "2:20"), rows);
+        assertTrue(indexes().contains("users_username"));
+    }
+
+    @Test
+    void indexesAreUnique() throws SQLException {
+        dbInitializer.initializeDatabase();
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO users (username, password) VALUES ('a', 'x')");
+            st.executeUpdate("INSERT INTO songs VALUES (10, 'n', 'a', 'f', 'd', 'alb', 'l')");
+            st.executeUpdate("INSERT INTO favorites (userId, songId) VALUES (1, 10)");
+
+            assertThrows(SQLException.class, () -> st.executeUpdate("INSERT INTO users (username, password) VALUES ('a', 'y')"));
+            assertThrows(SQLException.class, () -> st.executeUpdate("INSERT INTO favorites (userId, songId) VALUES (1, 10)"));
+        }
+    }
+
+    @Test
+    void failedMigrationIsRolledBack() throws SQLException {
+        dbInitializer.migrate(1);
+        try (Statement st = conn.createStatement()) {
+            // in the way of the table migration 2 copies favorites into
+            st.executeUpdate("CREATE TABLE favorites_typed (id INTEGER)");
+        }
+
+        SQLException e = assertThrows(SQLException.class, () -> dbInitializer.migrate(2));
+        assertEquals("Migration 2 failed", e.getMessage());
+        assertEquals(1, dbInitializer.schemaVersion());
+        assertEquals(List.of("id INTEGER", "userId TEXT", "songId TEXT"), columns("favorites"));
+        assertTrue(conn.getAutoCommit());
+    }
+
+    @Test
+    void initializeDatabaseException() throws SQLException {
+        Connection mocked = mock(Connection.class);
+        when(mocked.createStatement()).thenThrow(new SQLException("SQL test exception"));
+
+        DatabaseInitializer failing = new DatabaseInitializer(ConnectionPool.of(mocked));
+        RuntimeException re = assertThrows(RuntimeException.class, failing::initializeDatabase);
         assertEquals("Error initializing the database schema", re.getMessage());
     }
-}
\ No newline at end of file
+
+    private List<String> columns(String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) columns.add(rs.getString("name") + " " + rs.getString("type"));
+        }
+        return columns;
+    }
+
+    private List<String> indexes() throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index'")) {
+            while (rs.next()) indexes.add(rs.getString(1));
+        }
+        return indexes;
+    }
+}
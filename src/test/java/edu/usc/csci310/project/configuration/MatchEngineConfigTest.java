@@ -0,0 +1,31 @@
+package edu.usc.csci310.project.configuration;
+
+import edu.usc.csci310.project.services.MatchEngine;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchEngineConfigTest {
+    private final MatchEngineConfig config = new MatchEngineConfig();
+
+    @Test
+    void exactByDefault() {
+        assertFalse(config.matchEngine("exact", 64, 2, 200, "auto").isApproximate());
+    }
+
+    @Test
+    void approximateMode() {
+        MatchEngine engine = config.matchEngine("approximate", 16, 4, 50, "scalar");
+        assertTrue(engine.isApproximate());
+    }
+
+    @Test
+    void unknownModeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> config.matchEngine("fast", 64, 2, 200, "auto"));
+    }
+
+    @Test
+    void unknownKernelIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> config.matchEngine("approximate", 64, 2, 200, "gpu"));
+    }
+}
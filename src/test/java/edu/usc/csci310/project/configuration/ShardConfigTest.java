@@ -0,0 +1,31 @@
+package edu.usc.csci310.project.configuration;
+
+import edu.usc.csci310.project.services.ShardTopology;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardConfigTest {
+    private final ShardConfig config = new ShardConfig();
+
+    @Test
+    void unshardedByDefault() {
+        ShardTopology topology = config.shardTopology(0, 1, "");
+        assertFalse(topology.isSharded());
+        assertFalse(topology.isCoordinator());
+    }
+
+    @Test
+    void urlsAreSplitAndTrimmed() {
+        ShardTopology topology = config.shardTopology(1, 2, " http://localhost:8081, http://localhost:8082 ,");
+        assertEquals(List.of("http://localhost:8081", "http://localhost:8082"), topology.getShardUrls());
+        assertEquals(1, topology.getIndex());
+    }
+
+    @Test
+    void indexOutsideCountIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> config.shardTopology(3, 2, ""));
+    }
+}
@@ -0,0 +1,116 @@
+package edu.usc.csci310.project.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // no readers, so every borrow gets the writer and its cache of two statements
+        pool = ConnectionPool.open("jdbc:sqlite:" + dir.resolve("test.db"), 0, 1000, 200, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        pool.close();
+    }
+
+    private Map<String, Long> stats() {
+        return pool.stats().get("statements");
+    }
+
+    @Test
+    void sameSqlReusesTheStatement() throws SQLException {
+        PreparedStatement first;
+        try (Connection conn = pool.reader(); PreparedStatement pst = conn.prepareStatement("SELECT ?")) {
+            pst.setInt(1, 5);
+            try (ResultSet rs = pst.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(5, rs.getInt(1));
+            }
+            first = pst;
+        }
+        try (Connection conn = pool.reader(); PreparedStatement pst = conn.prepareStatement("SELECT ?")) {
+            assertSame(first, pst);
+            // parameters were cleared when the statement was given back
+            ResultSet rs = pst.executeQuery();
+            assertTrue(rs.next());
+            assertNull(rs.getObject(1));
+        }
+        assertEquals(1L, stats().get("misses"));
+        assertEquals(1L, stats().get("hits"));
+        assertEquals(1L, stats().get("cached"));
+    }
+
+    @Test
+    void givingBackClosesTheOpenResultSet() throws SQLException {
+        ResultSet rs;
+        try (Connection conn = pool.reader(); PreparedStatement pst = conn.prepareStatement("SELECT 1 UNION ALL SELECT 2")) {
+            rs = pst.executeQuery();
+            assertTrue(rs.next());
+        }
+        assertTrue(rs.isClosed());
+    }
+
+    @Test
+    void statementStillOutIsNotShared() throws SQLException {
+        try (Connection conn = pool.writer();
+             PreparedStatement outer = conn.prepareStatement("SELECT ?");
+             PreparedStatement inner = conn.prepareStatement("SELECT ?")) {
+            assertNotSame(outer, inner);
+            outer.setInt(1, 1);
+            inner.setInt(1, 2);
+            try (ResultSet a = outer.executeQuery(); ResultSet b = inner.executeQuery()) {
+                assertTrue(a.next() && b.next());
+                assertEquals(1, a.getInt(1));
+                assertEquals(2, b.getInt(1));
+            }
+        }
+        assertEquals(1L, stats().get("inUseMisses"));
+        assertEquals(1L, stats().get("cached"));
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        try (Connection conn = pool.writer()) {
+            for (String sql : new String[]{"SELECT 1", "SELECT 2", "SELECT 1", "SELECT 3", "SELECT 1"}) {
+                try (PreparedStatement pst = conn.prepareStatement(sql)) {
+                    pst.executeQuery();
+                }
+            }
+        }
+        // SELECT 2 was the eldest when SELECT 3 came in, so SELECT 1 stayed
+        assertEquals(2L, stats().get("hits"));
+        assertEquals(3L, stats().get("misses"));
+        assertEquals(1L, stats().get("evictions"));
+        assertEquals(2L, stats().get("cached"));
+    }
+
+    @Test
+    void statementsLeftOpenAreGivenBackWithTheConnection() throws SQLException {
+        try (Connection conn = pool.writer()) {
+            conn.prepareStatement("SELECT 1").executeQuery();
+        }
+        try (Connection conn = pool.writer(); PreparedStatement pst = conn.prepareStatement("SELECT 1")) {
+            assertTrue(pst.executeQuery().next());
+        }
+        assertEquals(1L, stats().get("hits"));
+        assertEquals(0L, stats().get("inUseMisses"));
+    }
+}
@@ -1,146 +1,326 @@
-//package edu.usc.csci310.project.controllers;
-//
-//import edu.usc.csci310.project.models.FavoriteSong;
-//import edu.usc.csci310.project.requests.FavoriteRemoveRequest;
-//import edu.usc.csci310.project.requests.FavoriteSongRequest;
-//import edu.usc.csci310.project.requests.FavoriteGetRequest;
-//import edu.usc.csci310.project.services.FavoriteService;
-//import edu.usc.csci310.project.services.LoginService;
-//import org.junit.jupiter.api.Test;
-//import static org.junit.jupiter.api.Assertions.assertEquals;
-//import org.springframework.http.HttpStatus;
-//
-//import java.util.Arrays;
-//
-//import static org.junit.jupiter.api.Assertions.*;
-//import static org.mockito.Mockito.mock;
-//import static org.mockito.Mockito.when;
-//
-//import edu.usc.csci310.project.responses.UserFavoritesResponse;
-//import org.springframework.http.ResponseEntity;
-//
-//import java.util.Collections;
-//
-//
-//
-//class FavoriteControllerTest {
-//    FavoriteService favoriteService = mock(FavoriteService.class);
-//    FavoriteController favoriteController = new FavoriteController(favoriteService);
-//
-//    FavoriteSongRequest generateValidFavoriteSongRequest() {
-//        FavoriteSongRequest request = new FavoriteSongRequest();
-//        request.setUsername("testuser2");
-//        request.setSongId(42);
-//        request.setSongName("Test Song 2");
-//        request.setSongArtist("Test Artist 2");
-//        request.setFullTitle("Test Song by Test Artist 2");
-//        request.setDateReleased("1969-01-02");
-//        request.setLyrics("Test lyrics 2");
-//        return request;
-//    }
-//
-//    FavoriteRemoveRequest generateValidFavoriteRemoveRequest() {
-//        FavoriteRemoveRequest request = new FavoriteRemoveRequest();
-//        request.setUsername("testuser2");
-//        request.setSongId(42);
-//        return request;
-//    }
-//
-//    FavoriteGetRequest generateValidFavoriteGetRequest() {
-//        FavoriteGetRequest request = new FavoriteGetRequest();
-//        request.setUsername("testuser2");
-//        return request;
-//    }
-//
-//    @Test
-//    void addFavoriteValid() {
-//        FavoriteSongRequest request = generateValidFavoriteSongRequest();
-//        when(favoriteService.addFavoriteSong(request)).thenReturn(1);
-//        assertEquals(200, favoriteController.addFavorite(request).getStatusCode().value());
-//    }
-//
-//    @Test
-//    void addFavoriteUserIdNotFound() {
-//        FavoriteSongRequest request = generateValidFavoriteSongRequest();
-//        when(favoriteService.addFavoriteSong(request)).thenReturn(-1);
-//        assertEquals(400, favoriteController.addFavorite(request).getStatusCode().value());
-//    }
-//
-//    @Test
-//    void addFavoriteException() {
-//        FavoriteSongRequest request = generateValidFavoriteSongRequest();
-//        when(favoriteService.addFavoriteSong(request)).thenThrow(new RuntimeException("Test Exception"));
-//        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), favoriteController.addFavorite(request).getStatusCode().value());
-//    }
-//
-//    @Test
-//    void removeFavoriteValid() {
-//        FavoriteRemoveRequest request = generateValidFavoriteRemoveRequest();
-//        when(favoriteService.removeFavoriteSong(request)).thenReturn(1);
-//        assertEquals(200, favoriteController.removeFavorite(request).getStatusCode().value());
-//    }
-//
-//    @Test
-//    void removeFavoriteUserIdNotFound() {
-//        FavoriteRemoveRequest request = generateValidFavoriteRemoveRequest();
-//        when(favoriteService.removeFavoriteSong(request)).thenReturn(-1);
-//        assertEquals(400, favoriteController.removeFavorite(request).getStatusCode().value());
-//    }
-//
-//    @Test
-//    void removeFavoriteException() {
-//        FavoriteRemoveRequest request = generateValidFavoriteRemoveRequest();
-//        when(favoriteService.removeFavoriteSong(request)).thenThrow(new RuntimeException("Test Exception"));
-//        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), favoriteController.removeFavorite(request).getStatusCode().value());
-//    }
-//
-//    @Test
-//    void getFavoriteSongValid() {
-//        FavoriteGetRequest request = generateValidFavoriteGetRequest();
-//        when(favoriteService.getFavoriteSongs(request)).thenReturn(
-//                Arrays.asList(new FavoriteSong(1, "stop breathing", "carti", "whole lotta red"), new FavoriteSong(2, "pop out", "carti", "i am music"), new FavoriteSong(3, "location", "carti", "selftitled"))
-//        );
-//        ResponseEntity<UserFavoritesResponse> response = favoriteController.getFavoriteSong(request);
-//        assertEquals(200, response.getStatusCode().value());
-//        assertEquals("Favorite songs found.", response.getBody().getMessage());
-//    }
-//
-//    @Test
-//    void getFavoriteSongEmpty() {
-//        FavoriteGetRequest request = generateValidFavoriteGetRequest();
-//        when(favoriteService.getFavoriteSongs(request)).thenReturn(Collections.emptyList());
-//        ResponseEntity<UserFavoritesResponse> response = favoriteController.getFavoriteSong(request);
-//        assertEquals(404, response.getStatusCode().value());
-//        assertEquals(-2, response.getBody().getId());
-//        assertEquals("No favorite songs found.", response.getBody().getMessage());
-//    }
-//
-//    @Test
-//    void getFavoriteSongNull() {
-//        FavoriteGetRequest request = generateValidFavoriteGetRequest();
-//        when(favoriteService.getFavoriteSongs(request)).thenReturn(null);
-//        ResponseEntity<UserFavoritesResponse> response = favoriteController.getFavoriteSong(request);
-//        assertEquals(404, response.getStatusCode().value());
-//        assertEquals(-2, response.getBody().getId());
-//        assertEquals("No favorite songs found.", response.getBody().getMessage());
-//    }
-//
-//    @Test
-//    void getFavoriteSongException() {
-//        FavoriteGetRequest request = generateValidFavoriteGetRequest();
-//        when(favoriteService.getFavoriteSongs(request)).thenThrow(new RuntimeException("Test Exception"));
-//        ResponseEntity<UserFavoritesResponse> response = favoriteController.getFavoriteSong(request);
-//        assertEquals(500, response.getStatusCode().value());
-//        assertEquals(-1, response.getBody().getId());
-//        assertEquals("Test Exception", response.getBody().getMessage());
-//    }
-//    @Test
-//    void getSoulmateValid() {
-////        FavoriteGetRequest request = generateValidFavoriteGetRequest();
-////        when(favoriteService.getSoulmate(request)).thenReturn(new MatchResultResponse(1, "Soulmate found", new ArrayList<>()));
-////        ResponseEntity<MatchResultResponse> response = favoriteController.getSoulmate(request);
-////        assertEquals(200, response.getStatusCode().value());
-////        assertEquals("Soulmate found", response.getBody().getMessage());
-////    }
-//
-//}
+package edu.usc.csci310.project.controllers;
+
+import edu.usc.csci310.project.models.MatchExplanation;
+import edu.usc.csci310.project.models.MatchList;
+import edu.usc.csci310.project.models.RankedMatch;
+import edu.usc.csci310.project.models.SharedWord;
+import edu.usc.csci310.project.models.WordFrequency;
+import edu.usc.csci310.project.requests.FavoriteGetRequest;
+import edu.usc.csci310.project.requests.FavoriteRemoveRequest;
+import edu.usc.csci310.project.requests.FavoriteSongRequest;
+import edu.usc.csci310.project.requests.MatchExplainRequest;
+import edu.usc.csci310.project.requests.MatchListRequest;
+import edu.usc.csci310.project.responses.FavoriteBatchResponse;
+import edu.usc.csci310.project.responses.MatchExplanationResponse;
+import edu.usc.csci310.project.responses.MatchListResponse;
+import edu.usc.csci310.project.responses.WordCloudResponse;
+import edu.usc.csci310.project.services.FavoriteService;
+import edu.usc.csci310.project.services.SimilarityMetric;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FavoriteControllerTest {
+    FavoriteService favoriteService = mock(FavoriteService.class);
+    FavoriteController favoriteController = new FavoriteController(favoriteService);
+
+    FavoriteSongRequest addRequest(String username, int songId) {
+        FavoriteSongRequest request = new FavoriteSongRequest();
+        request.setUsername(username);
+        request.setSongId(songId);
+        request.setSongName("song " + songId);
+        request.setSongArtist("artist");
+        request.setFullTitle("song " + songId + " by artist");
+        request.setDateReleased("2024");
+        request.setLyrics("rain rain thunder");
+        return request;
+    }
+
+    FavoriteRemoveRequest removeRequest(String username, int songId) {
+        FavoriteRemoveRequest request = new FavoriteRemoveRequest();
+        request.setUsername(username);
+        request.setSongId(songId);
+        return request;
+    }
+
+    MatchListRequest matchListRequest(String username, int page, int size, String metric) {
+        MatchListRequest request = new MatchListRequest();
+        request.setUsername(username);
+        request.setPage(page);
+        request.setSize(size);
+        request.setMetric(metric);
+        return request;
+    }
+
+    MatchExplainRequest explainRequest(String username, String otherUsername, int size) {
+        MatchExplainRequest request = new MatchExplainRequest();
+        request.setUsername(username);
+        request.setOtherUsername(otherUsername);
+        request.setSize(size);
+        return request;
+    }
+
+    @Test
+    void addBatchReturnsACodePerItem() {
+        List<FavoriteSongRequest> requests = List.of(
+                addRequest("alice", 10), addRequest("alice", 20), addRequest("nobody", 10), addRequest("bob", 30));
+        when(favoriteService.addFavoriteSongs(requests)).thenReturn(List.of(10, 0, -1, -2));
+
+        ResponseEntity<FavoriteBatchResponse> response = favoriteController.addFavorites(requests);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(1, response.getBody().getId());
+        assertEquals("Added 2 of 4 to favorites!", response.getBody().getMessage());
+        assertEquals(List.of(10, 0, -1, -2), response.getBody().getResults());
+    }
+
+    @Test
+    void addBatchAcceptsUpToTheLimit() {
+        List<FavoriteSongRequest> requests = Collections.nCopies(1000, addRequest("alice", 10));
+        when(favoriteService.addFavoriteSongs(requests)).thenReturn(Collections.nCopies(1000, -2));
+
+        ResponseEntity<FavoriteBatchResponse> response = favoriteController.addFavorites(requests);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("Added 0 of 1000 to favorites!", response.getBody().getMessage());
+    }
+
+    @Test
+    void addBatchRejectsEmptyOrOversizedBatches() {
+        List<List<FavoriteSongRequest>> invalid = new ArrayList<>();
+        invalid.add(null);
+        invalid.add(List.of());
+        invalid.add(Collections.nCopies(1001, addRequest("alice", 10)));
+
+        for (List<FavoriteSongRequest> requests : invalid) {
+            ResponseEntity<FavoriteBatchResponse> response = favoriteController.addFavorites(requests);
+            assertEquals(400, response.getStatusCode().value());
+            assertEquals(-1, response.getBody().getId());
+            assertEquals("Send 1 to 1000 favorites.", response.getBody().getMessage());
+            assertNull(response.getBody().getResults());
+        }
+        verify(favoriteService, never()).addFavoriteSongs(anyList());
+    }
+
+    @Test
+    void addBatchRejectsItemsWithoutAUsername() {
+        assertEquals(400, favoriteController.addFavorites(List.of(addRequest("alice", 10), addRequest(null, 20))).getStatusCode().value());
+        assertEquals(400, favoriteController.addFavorites(Arrays.asList(addRequest("alice", 10), null)).getStatusCode().value());
+        verify(favoriteService, never()).addFavoriteSongs(anyList());
+    }
+
+    @Test
+    void addBatchException() {
+        List<FavoriteSongRequest> requests = List.of(addRequest("alice", 10));
+        when(favoriteService.addFavoriteSongs(requests)).thenThrow(new RuntimeException("Test Exception"));
+
+        ResponseEntity<FavoriteBatchResponse> response = favoriteController.addFavorites(requests);
+        assertEquals(500, response.getStatusCode().value());
+        assertEquals(-1, response.getBody().getId());
+        assertEquals("Test Exception", response.getBody().getMessage());
+        assertNull(response.getBody().getResults());
+    }
+
+    @Test
+    void removeBatchReturnsACodePerItem() {
+        List<FavoriteRemoveRequest> requests = List.of(
+                removeRequest("alice", 10), removeRequest("alice", 99), removeRequest("nobody", 10));
+        when(favoriteService.removeFavoriteSongs(requests)).thenReturn(List.of(1, 0, -1));
+
+        ResponseEntity<FavoriteBatchResponse> response = favoriteController.removeFavorites(requests);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(1, response.getBody().getId());
+        assertEquals("Removed 1 of 3 from favorites!", response.getBody().getMessage());
+        assertEquals(List.of(1, 0, -1), response.getBody().getResults());
+    }
+
+    @Test
+    void removeBatchRejectsInvalidBatches() {
+        assertEquals(400, favoriteController.removeFavorites(null).getStatusCode().value());
+        assertEquals(400, favoriteController.removeFavorites(List.of()).getStatusCode().value());
+        assertEquals(400, favoriteController.removeFavorites(Collections.nCopies(1001, removeRequest("alice", 10))).getStatusCode().value());
+        assertEquals(400, favoriteController.removeFavorites(List.of(removeRequest(null, 10))).getStatusCode().value());
+        verify(favoriteService, never()).removeFavoriteSongs(anyList());
+    }
+
+    @Test
+    void removeBatchException() {
+        List<FavoriteRemoveRequest> requests = List.of(removeRequest("alice", 10));
+        when(favoriteService.removeFavoriteSongs(requests)).thenThrow(new RuntimeException("Test Exception"));
+
+        ResponseEntity<FavoriteBatchResponse> response = favoriteController.removeFavorites(requests);
+        assertEquals(500, response.getStatusCode().value());
+        assertEquals(-1, response.getBody().getId());
+        assertEquals("Test Exception", response.getBody().getMessage());
+    }
+
+    @Test
+    void getMatchesReturnsTheRequestedPage() throws SQLException {
+        MatchList matches = new MatchList(List.of(new RankedMatch("bob", 0.5, true)),
+                List.of(new RankedMatch("carol", 0.0, false)), 2, 5, 12);
+        when(favoriteService.getUserId("alice")).thenReturn(1);
+        when(favoriteService.findTopMatches(1, 2, 5, SimilarityMetric.COSINE)).thenReturn(matches);
+
+        ResponseEntity<MatchListResponse> response = favoriteController.getMatches(matchListRequest("alice", 2, 5, "cosine"));
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(matches, response.getBody().getMatchList());
+    }
+
+    @Test
+    void getMatchesDefaultsToTenByJaccard() throws SQLException {
+        when(favoriteService.getUserId("alice")).thenReturn(1);
+        when(favoriteService.findTopMatches(1, 0, 10, SimilarityMetric.JACCARD)).thenReturn(new MatchList());
+
+        assertEquals(200, favoriteController.getMatches(matchListRequest("alice", 0, 0, null)).getStatusCode().value());
+        verify(favoriteService).findTopMatches(1, 0, 10, SimilarityMetric.JACCARD);
+    }
+
+    @Test
+    void getMatchesRejectsBadRequests() throws SQLException {
+        List<MatchListRequest> invalid = List.of(
+                matchListRequest(null, 0, 10, null),
+                matchListRequest("", 0, 10, null),
+                matchListRequest("alice", -1, 10, null),
+                matchListRequest("alice", 0, 101, null),
+                matchListRequest("alice", 0, 10, "euclid"));
+
+        for (MatchListRequest request : invalid) {
+            ResponseEntity<MatchListResponse> response = favoriteController.getMatches(request);
+            assertEquals(400, response.getStatusCode().value());
+            assertTrue(response.getBody().getMatchList().soulmates.isEmpty());
+        }
+        verify(favoriteService, never()).findTopMatches(anyInt(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void getMatchesForUnknownUserIsEmpty() throws SQLException {
+        when(favoriteService.getUserId("nobody")).thenReturn(-1);
+
+        ResponseEntity<MatchListResponse> response = favoriteController.getMatches(matchListRequest("nobody", 0, 10, null));
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(0, response.getBody().getMatchList().total);
+        verify(favoriteService, never()).findTopMatches(anyInt(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void getMatchesException() throws SQLException {
+        when(favoriteService.getUserId("alice")).thenReturn(1);
+        when(favoriteService.findTopMatches(1, 0, 10, SimilarityMetric.JACCARD)).thenThrow(new SQLException("Test Exception"));
+
+        ResponseEntity<MatchListResponse> response = favoriteController.getMatches(matchListRequest("alice", 0, 10, null));
+        assertEquals(500, response.getStatusCode().value());
+        assertTrue(response.getBody().getMatchList().soulmates.isEmpty());
+    }
+
+    @Test
+    void explainReturnsTheSharedWords() throws SQLException {
+        MatchExplanation explanation = new MatchExplanation("bob", 0.5, 3, List.of(new SharedWord("rain", 2, 2, 3)));
+        when(favoriteService.getUserId("alice")).thenReturn(1);
+        when(favoriteService.getUserId("bob")).thenReturn(2);
+        when(favoriteService.explainMatch(1, 2, 10)).thenReturn(explanation);
+
+        ResponseEntity<MatchExplanationResponse> response = favoriteController.explainMatch(explainRequest("alice", "bob", 0));
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(explanation, response.getBody().getMatchExplanation());
+    }
+
+    @Test
+    void explainRejectsBadRequests() throws SQLException {
+        List<MatchExplainRequest> invalid = List.of(
+                explainRequest(null, "bob", 10),
+                explainRequest("alice", "", 10),
+                explainRequest("alice", null, 10),
+                explainRequest("alice", "bob", 101));
+
+        for (MatchExplainRequest request : invalid) {
+            ResponseEntity<MatchExplanationResponse> response = favoriteController.explainMatch(request);
+            assertEquals(400, response.getStatusCode().value());
+            assertNull(response.getBody().getMatchExplanation().username);
+        }
+        verify(favoriteService, never()).explainMatch(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void explainForUnknownUserIsEmpty() throws SQLException {
+        when(favoriteService.getUserId("alice")).thenReturn(1);
+        when(favoriteService.getUserId("nobody")).thenReturn(-1);
+
+        ResponseEntity<MatchExplanationResponse> response = favoriteController.explainMatch(explainRequest("alice", "nobody", 10));
+        assertEquals(200, response.getStatusCode().value());
+        assertTrue(response.getBody().getMatchExplanation().words.isEmpty());
+        verify(favoriteService, never()).explainMatch(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void explainRefusesSomebodyElsesMatch() throws SQLException {
+        when(favoriteService.getUserId("alice")).thenReturn(1);
+        when(favoriteService.getUserId("mallory")).thenReturn(3);
+        when(favoriteService.explainMatch(1, 3, 10)).thenReturn(null);
+
+        ResponseEntity<MatchExplanationResponse> response = favoriteController.explainMatch(explainRequest("alice", "mallory", 10));
+        assertEquals(403, response.getStatusCode().value());
+        assertNull(response.getBody().getMatchExplanation().username);
+    }
+
+    @Test
+    void explainException() throws SQLException {
+        when(favoriteService.getUserId("alice")).thenReturn(1);
+        when(favoriteService.getUserId("bob")).thenReturn(2);
+        when(favoriteService.explainMatch(1, 2, 10)).thenThrow(new SQLException("Test Exception"));
+
+        ResponseEntity<MatchExplanationResponse> response = favoriteController.explainMatch(explainRequest("alice", "bob", 10));
+        assertEquals(500, response.getStatusCode().value());
+        assertNull(response.getBody().getMatchExplanation().username);
+    }
+
+    @Test
+    void getWordCloudValid() {
+        FavoriteGetRequest request = new FavoriteGetRequest();
+        request.setUsername("alice");
+        List<WordFrequency> words = List.of(new WordFrequency("rain", 3), new WordFrequency("storm", 1));
+        when(favoriteService.getWordCloud(request, 100)).thenReturn(words);
+
+        ResponseEntity<WordCloudResponse> response = favoriteController.getWordCloud(request);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(1, response.getBody().getId());
+        assertEquals("Word cloud found.", response.getBody().getMessage());
+        assertEquals(words, response.getBody().getWords());
+    }
+
+    @Test
+    void getWordCloudEmpty() {
+        FavoriteGetRequest request = new FavoriteGetRequest();
+        request.setUsername("alice");
+        when(favoriteService.getWordCloud(request, 100)).thenReturn(List.of());
+
+        ResponseEntity<WordCloudResponse> response = favoriteController.getWordCloud(request);
+        assertEquals(404, response.getStatusCode().value());
+        assertEquals(-2, response.getBody().getId());
+        assertEquals("No favorite songs found.", response.getBody().getMessage());
+    }
+
+    @Test
+    void getWordCloudException() {
+        FavoriteGetRequest request = new FavoriteGetRequest();
+        request.setUsername("alice");
+        when(favoriteService.getWordCloud(request, 100)).thenThrow(new RuntimeException("Test Exception"));
+
+        ResponseEntity<WordCloudResponse> response = favoriteController.getWordCloud(request);
+        assertEquals(500, response.getStatusCode().value());
+        assertEquals(-1, response.getBody().getId());
+        assertEquals("Test Exception", response.getBody().getMessage());
+        assertNull(response.getBody().getWords());
+    }
+}
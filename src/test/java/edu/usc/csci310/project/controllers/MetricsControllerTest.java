@@ -0,0 +1,53 @@
+package edu.usc.csci310.project.controllers;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.services.FavoriteService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MetricsControllerTest {
+    FavoriteService favoriteService = mock(FavoriteService.class);
+    ConnectionPool connectionPool = mock(ConnectionPool.class);
+    MetricsController metricsController = new MetricsController(favoriteService, connectionPool);
+
+    @Test
+    void getMetricsIncludesMatchCache() {
+        Map<String, Long> cacheStats = Map.of("hits", 3L);
+        when(favoriteService.getMatchCacheStats()).thenReturn(cacheStats);
+
+        Map<String, Object> metrics = metricsController.getMetrics();
+        assertEquals(cacheStats, metrics.get("matchCache"));
+    }
+
+    @Test
+    void getMetricsIncludesSongCache() {
+        Map<String, Long> cacheStats = Map.of("misses", 2L);
+        when(favoriteService.getSongCacheStats()).thenReturn(cacheStats);
+
+        Map<String, Object> metrics = metricsController.getMetrics();
+        assertEquals(cacheStats, metrics.get("songCache"));
+    }
+
+    @Test
+    void getMetricsIncludesMatchSnapshot() {
+        Map<String, Long> snapshotStats = Map.of("ageMillis", 250L);
+        when(favoriteService.getMatchSnapshotStats()).thenReturn(snapshotStats);
+
+        Map<String, Object> metrics = metricsController.getMetrics();
+        assertEquals(snapshotStats, metrics.get("matchSnapshot"));
+    }
+
+    @Test
+    void getMetricsIncludesConnectionPool() {
+        Map<String, Map<String, Long>> poolStats = Map.of("writer", Map.of("timeouts", 1L));
+        when(connectionPool.stats()).thenReturn(poolStats);
+
+        Map<String, Object> metrics = metricsController.getMetrics();
+        assertEquals(poolStats, metrics.get("connectionPool"));
+    }
+}
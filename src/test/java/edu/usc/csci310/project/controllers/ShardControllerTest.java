@@ -0,0 +1,78 @@
+package edu.usc.csci310.project.controllers;
+
+import edu.usc.csci310.project.requests.ShardQueryRequest;
+import edu.usc.csci310.project.responses.ShardCandidatesResponse;
+import edu.usc.csci310.project.services.FavoriteService;
+import edu.usc.csci310.project.services.MatchCandidates;
+import edu.usc.csci310.project.services.ShardTopology;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardControllerTest {
+    FavoriteService favoriteService = mock(FavoriteService.class);
+    ShardController shardController = new ShardController(favoriteService, new ShardTopology(1, 3, List.of()), "s3cret");
+
+    @Test
+    void getCandidatesReturnsLocalCandidates() throws SQLException {
+        when(favoriteService.findLocalCandidates(3, Map.of("love", 2))).thenReturn(new MatchCandidates(4, 0.5, 7, 0.0));
+
+        ResponseEntity<ShardCandidatesResponse> response =
+                shardController.getCandidates("s3cret", new ShardQueryRequest(3, Map.of("love", 2)));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(4, response.getBody().getBestUser());
+        assertEquals(0.5, response.getBody().getBestScore());
+        assertEquals(7, response.getBody().getWorstUser());
+        assertEquals(0.0, response.getBody().getWorstScore());
+    }
+
+    @Test
+    void getCandidatesWithoutTermsFindsNothing() throws SQLException {
+        when(favoriteService.findLocalCandidates(3, Map.of())).thenReturn(MatchCandidates.NONE);
+
+        ResponseEntity<ShardCandidatesResponse> response = shardController.getCandidates("s3cret", new ShardQueryRequest(3, null));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(-1, response.getBody().getBestUser());
+    }
+
+    @Test
+    void getCandidatesReportsFailure() throws SQLException {
+        when(favoriteService.findLocalCandidates(3, Map.of())).thenThrow(new SQLException("locked"));
+
+        ResponseEntity<ShardCandidatesResponse> response = shardController.getCandidates("s3cret", new ShardQueryRequest(3, Map.of()));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    void getCandidatesIsNotFoundWhenUnsharded() throws SQLException {
+        ShardController unsharded = new ShardController(favoriteService, ShardTopology.SINGLE, "s3cret");
+
+        ResponseEntity<ShardCandidatesResponse> response = unsharded.getCandidates("s3cret", new ShardQueryRequest(3, Map.of("love", 2)));
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(favoriteService, never()).findLocalCandidates(anyInt(), anyMap());
+    }
+
+    @Test
+    void getCandidatesRefusesCallersWithoutTheSecret() throws SQLException {
+        ShardQueryRequest query = new ShardQueryRequest(3, Map.of("love", 2));
+
+        assertEquals(HttpStatus.FORBIDDEN, shardController.getCandidates(null, query).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, shardController.getCandidates("guess", query).getStatusCode());
+        // a shard started without a secret answers nobody, not everybody
+        ShardController noSecret = new ShardController(favoriteService, new ShardTopology(1, 3, List.of()), "");
+        assertEquals(HttpStatus.FORBIDDEN, noSecret.getCandidates("", query).getStatusCode());
+        verify(favoriteService, never()).findLocalCandidates(anyInt(), anyMap());
+    }
+}
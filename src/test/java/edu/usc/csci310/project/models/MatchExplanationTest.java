@@ -0,0 +1,32 @@
+package edu.usc.csci310.project.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchExplanationTest {
+
+    @Test
+    void emptyExplanation() {
+        MatchExplanation explanation = new MatchExplanation();
+        assertNull(explanation.username);
+        assertTrue(explanation.words.isEmpty());
+        assertEquals(0L, explanation.sharedTotal);
+    }
+
+    @Test
+    void holdsSharedWords() {
+        SharedWord love = new SharedWord("love", 3, 5, 3);
+        MatchExplanation explanation = new MatchExplanation("u2", 0.25, 4L, List.of(love));
+
+        assertEquals("u2", explanation.username);
+        assertEquals(0.25, explanation.score);
+        assertEquals(4L, explanation.sharedTotal);
+        assertEquals("love", explanation.words.get(0).word);
+        assertEquals(3, explanation.words.get(0).shared);
+        assertEquals(5, explanation.words.get(0).mine);
+        assertEquals(3, explanation.words.get(0).theirs);
+    }
+}
@@ -0,0 +1,33 @@
+package edu.usc.csci310.project.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchListTest {
+
+    @Test
+    void emptyMatchList() {
+        MatchList matchList = new MatchList();
+        assertTrue(matchList.soulmates.isEmpty());
+        assertTrue(matchList.enemies.isEmpty());
+        assertEquals(0, matchList.total);
+    }
+
+    @Test
+    void holdsRankedMatches() {
+        RankedMatch soulmate = new RankedMatch("u2", 0.5, true);
+        RankedMatch enemy = new RankedMatch("u3", 0.0, false);
+        MatchList matchList = new MatchList(List.of(soulmate), List.of(enemy), 1, 10, 12);
+
+        assertEquals("u2", matchList.soulmates.get(0).username);
+        assertEquals(0.5, matchList.soulmates.get(0).score);
+        assertTrue(matchList.soulmates.get(0).mutual);
+        assertFalse(matchList.enemies.get(0).mutual);
+        assertEquals(1, matchList.page);
+        assertEquals(10, matchList.size);
+        assertEquals(12, matchList.total);
+    }
+}
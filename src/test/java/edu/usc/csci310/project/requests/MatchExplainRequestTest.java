@@ -0,0 +1,25 @@
+package edu.usc.csci310.project.requests;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchExplainRequestTest {
+    @Test
+    void getUsernames() {
+        MatchExplainRequest er = new MatchExplainRequest();
+        assertNull(er.getOtherUsername());
+        er.setUsername("testUser");
+        er.setOtherUsername("otherUser");
+        assertEquals("testUser", er.getUsername());
+        assertEquals("otherUser", er.getOtherUsername());
+    }
+
+    @Test
+    void getSize() {
+        MatchExplainRequest er = new MatchExplainRequest();
+        assertEquals(0, er.getSize());
+        er.setSize(5);
+        assertEquals(5, er.getSize());
+    }
+}
@@ -0,0 +1,34 @@
+package edu.usc.csci310.project.requests;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchListRequestTest {
+    @Test
+    void getUsername() {
+        MatchListRequest mr = new MatchListRequest();
+        mr.setUsername("testUser");
+        assertEquals("testUser", mr.getUsername());
+    }
+
+    @Test
+    void getPageAndSize() {
+        MatchListRequest mr = new MatchListRequest();
+        assertEquals(0, mr.getPage());
+        assertEquals(0, mr.getSize());
+
+        mr.setPage(2);
+        mr.setSize(10);
+        assertEquals(2, mr.getPage());
+        assertEquals(10, mr.getSize());
+    }
+
+    @Test
+    void getMetric() {
+        MatchListRequest mr = new MatchListRequest();
+        assertNull(mr.getMetric());
+        mr.setMetric("tfidf");
+        assertEquals("tfidf", mr.getMetric());
+    }
+}
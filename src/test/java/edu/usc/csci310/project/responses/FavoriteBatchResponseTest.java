@@ -0,0 +1,18 @@
+package edu.usc.csci310.project.responses;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FavoriteBatchResponseTest {
+
+    @Test
+    void getters() {
+        FavoriteBatchResponse response = new FavoriteBatchResponse(1, "Added 1 of 2 to favorites!", List.of(42, -2));
+        assertEquals(1, response.getId());
+        assertEquals("Added 1 of 2 to favorites!", response.getMessage());
+        assertEquals(List.of(42, -2), response.getResults());
+    }
+}
@@ -0,0 +1,24 @@
+package edu.usc.csci310.project.responses;
+
+import edu.usc.csci310.project.models.MatchExplanation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchExplanationResponseTest {
+
+    @Test
+    void getMatchExplanation() {
+        MatchExplanation explanation = new MatchExplanation();
+        MatchExplanationResponse response = new MatchExplanationResponse(explanation);
+        assertEquals(explanation, response.getMatchExplanation());
+    }
+
+    @Test
+    void setMatchExplanation() {
+        MatchExplanationResponse response = new MatchExplanationResponse(new MatchExplanation());
+        MatchExplanation newExplanation = new MatchExplanation();
+        response.setMatchExplanation(newExplanation);
+        assertEquals(newExplanation, response.getMatchExplanation());
+    }
+}
@@ -0,0 +1,24 @@
+package edu.usc.csci310.project.responses;
+
+import edu.usc.csci310.project.models.MatchList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchListResponseTest {
+
+    @Test
+    void getMatchList() {
+        MatchList matchList = new MatchList();
+        MatchListResponse response = new MatchListResponse(matchList);
+        assertEquals(matchList, response.getMatchList());
+    }
+
+    @Test
+    void setMatchList() {
+        MatchListResponse response = new MatchListResponse(new MatchList());
+        MatchList newMatchList = new MatchList();
+        response.setMatchList(newMatchList);
+        assertEquals(newMatchList, response.getMatchList());
+    }
+}
@@ -36,4 +36,14 @@ class MatchResultResponseTest {
         // Assert that the getMatchResult method returns the new MatchResult object
         assertEquals(newMatchResult, response.getMatchResult());
     }
-}
\ No newline at end of file
+
+    @Test
+    void snapshotAge() {
+        MatchResultResponse response = new MatchResultResponse(new MatchResult(), 1500L);
+        assertEquals(1500L, response.getSnapshotAgeMillis());
+
+        response.setSnapshotAgeMillis(20L);
+        assertEquals(20L, response.getSnapshotAgeMillis());
+        assertEquals(0L, new MatchResultResponse(new MatchResult()).getSnapshotAgeMillis());
+    }
+}
@@ -0,0 +1,22 @@
+package edu.usc.csci310.project.responses;
+
+import edu.usc.csci310.project.models.WordFrequency;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordCloudResponseTest {
+
+    @Test
+    void getters() {
+        List<WordFrequency> words = List.of(new WordFrequency("love", 3));
+        WordCloudResponse response = new WordCloudResponse(1, "Word cloud found.", words);
+        assertEquals(1, response.getId());
+        assertEquals("Word cloud found.", response.getMessage());
+        assertSame(words, response.getWords());
+        assertEquals("love", response.getWords().get(0).word);
+        assertEquals(3, response.getWords().get(0).frequency);
+    }
+}
@@ -0,0 +1,55 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirtyUsersTest {
+
+    @Test
+    void userIsDueAfterTheDebounce() {
+        DirtyUsers dirty = new DirtyUsers(100, 1000);
+        dirty.mark(1, 0);
+        assertEquals(List.of(), dirty.drainDue(99));
+        assertEquals(List.of(1), dirty.drainDue(100));
+        assertEquals(0, dirty.size());
+        assertEquals(List.of(), dirty.drainDue(500));
+    }
+
+    @Test
+    void laterChangesPushTheUserBack() {
+        DirtyUsers dirty = new DirtyUsers(100, 1000);
+        dirty.mark(1, 0);
+        dirty.mark(2, 0);
+        dirty.mark(1, 80);
+        assertEquals(List.of(2), dirty.drainDue(150));
+        assertEquals(List.of(1), dirty.drainDue(180));
+    }
+
+    @Test
+    void userWhoKeepsChangingIsDueAfterMaxWait() {
+        DirtyUsers dirty = new DirtyUsers(100, 300);
+        for (long now = 0; now < 300; now += 50) {
+            dirty.mark(1, now);
+            assertEquals(List.of(), dirty.drainDue(now));
+        }
+        dirty.mark(1, 300);
+        assertEquals(List.of(1), dirty.drainDue(300));
+    }
+
+    @Test
+    void zeroDebounceIsDueAtOnce() {
+        DirtyUsers dirty = new DirtyUsers(0, 0);
+        dirty.mark(5, 42);
+        assertEquals(1, dirty.size());
+        assertEquals(List.of(5), dirty.drainDue(42));
+    }
+
+    @Test
+    void rejectsMaxWaitBelowDebounce() {
+        assertThrows(IllegalArgumentException.class, () -> new DirtyUsers(100, 50));
+        assertThrows(IllegalArgumentException.class, () -> new DirtyUsers(-1, 50));
+    }
+}
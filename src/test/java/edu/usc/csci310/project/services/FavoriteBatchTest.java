@@ -0,0 +1,227 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.configuration.DatabaseInitializer;
+import edu.usc.csci310.project.requests.FavoriteRemoveRequest;
+import edu.usc.csci310.project.requests.FavoriteSongRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static edu.usc.csci310.project.Utils.hashUsername;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * addFavoriteSongs and removeFavoriteSongs against a real database: a code per item, one cloud update
+ * per user, and a batch that fails leaves nothing behind.
+ */
+class FavoriteBatchTest {
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private UserTermStore termStore;
+    private SongTermStore songTermStore;
+    private FavoriteService favoriteService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = ConnectionPool.open("jdbc:sqlite:" + dir.resolve("favorites.db"), 2, 1000, 5000, 16);
+        new DatabaseInitializer(pool).initializeDatabase();
+        termStore = new UserTermStore(pool);
+        songTermStore = new SongTermStore(pool, 1000);
+        favoriteService = new FavoriteService(pool, termStore, songTermStore,
+                new MatchEngine(), 100, "", ShardTopology.SINGLE, new RestTemplate(), 0);
+        try (Connection conn = pool.writer();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO users (username, password) VALUES (?, 'x')")) {
+            for (String username : new String[]{"alice", "bob"}) {
+                pst.setString(1, hashUsername(username));
+                pst.executeUpdate();
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        pool.close();
+    }
+
+    @Test
+    void addReturnsACodePerItem() throws SQLException {
+        favoriteService.addFavoriteSong(add("bob", 30, "rain"));
+
+        List<Integer> results = favoriteService.addFavoriteSongs(List.of(
+                add("alice", 10, "rain rain thunder"),
+                add("nobody", 11, "rain"),
+                add("bob", 10, "ignored, the song is stored"),
+                add("alice", 10, "rain rain thunder"),
+                add("bob", 30, "rain"),
+                add("alice", 20, "rain storm")));
+
+        assertEquals(List.of(10, -1, 0, -2, -2, 20), results);
+        assertEquals(3, count("SELECT COUNT(*) FROM songs"));
+        assertEquals(4, count("SELECT COUNT(*) FROM favorites"));
+        assertEquals(3, termStore.load(1).get("rain"));
+        assertEquals(1, termStore.load(1).get("storm"));
+        assertEquals(3, termStore.load(2).get("rain"));
+    }
+
+    @Test
+    void addStoresTheLyricsAndTheAlbumInTheirOwnColumns() throws SQLException {
+        favoriteService.addFavoriteSongs(List.of(add("alice", 10, "rain rain thunder")));
+
+        try (Connection conn = pool.reader();
+             PreparedStatement pst = conn.prepareStatement("SELECT lyrics, album FROM songs WHERE songId = 10");
+             ResultSet rs = pst.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals("rain rain thunder", rs.getString("lyrics"));
+            assertEquals("album", rs.getString("album"));
+        }
+        assertEquals(2, termStore.load(1).get("rain"));
+        assertFalse(termStore.load(1).containsKey("album"));
+    }
+
+    @Test
+    void addUpdatesEachUsersCloudOnce() throws SQLException {
+        // the first change loads the matcher, which rebuilds the clouds
+        favoriteService.addFavoriteSong(add("bob", 30, "rain"));
+        long generation = termStore.getGeneration();
+
+        favoriteService.addFavoriteSongs(List.of(
+                add("alice", 10, "rain"), add("alice", 20, "storm"), add("bob", 10, "rain")));
+
+        assertEquals(generation + 2, termStore.getGeneration());
+    }
+
+    @Test
+    void failedAddLeavesNothingBehind() throws SQLException {
+        FavoriteSongRequest broken = add("alice", 20, "storm");
+        broken.setSongName(null);
+
+        assertThrows(RuntimeException.class, () -> favoriteService.addFavoriteSongs(List.of(add("alice", 10, "rain"), broken)));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM songs"));
+        assertEquals(0, count("SELECT COUNT(*) FROM favorites"));
+        assertTrue(termStore.load(1).isEmpty());
+        // nothing was committed, so the batch can be sent again
+        assertEquals(List.of(10), favoriteService.addFavoriteSongs(List.of(add("alice", 10, "rain"))));
+    }
+
+    @Test
+    void failedCloudUpdateCachesNoSongVectors() throws SQLException {
+        try (Connection conn = pool.writer();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("CREATE TRIGGER fail_cloud BEFORE INSERT ON user_terms BEGIN SELECT RAISE(ABORT, 'cloud'); END");
+        }
+
+        assertThrows(RuntimeException.class, () -> favoriteService.addFavoriteSongs(List.of(add("alice", 10, "rain"), add("bob", 20, "storm"))));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM songs"));
+        assertTrue(songTermStore.load(10).isEmpty());
+        assertTrue(songTermStore.load(20).isEmpty());
+    }
+
+    @Test
+    void addFailingOutsideTheDatabaseCommitsNothing() throws SQLException {
+        FavoriteService failing = serviceWithFailingCloudStore();
+
+        assertThrows(IllegalStateException.class, () -> failing.addFavoriteSongs(List.of(add("alice", 10, "rain"), add("bob", 20, "storm"))));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM songs"));
+        assertEquals(0, count("SELECT COUNT(*) FROM favorites"));
+        assertTrue(songTermStore.load(10).isEmpty());
+        assertTrue(songTermStore.load(20).isEmpty());
+    }
+
+    @Test
+    void removalFailingOutsideTheDatabaseKeepsTheFavorites() throws SQLException {
+        favoriteService.addFavoriteSongs(List.of(add("alice", 10, "rain rain"), add("bob", 10, "rain rain")));
+        FavoriteService failing = serviceWithFailingCloudStore();
+
+        assertThrows(IllegalStateException.class, () -> failing.removeFavoriteSongs(List.of(remove("alice", 10), remove("bob", 10))));
+
+        assertEquals(2, count("SELECT COUNT(*) FROM favorites"));
+        assertEquals(2, termStore.load(1).get("rain"));
+    }
+
+    @Test
+    void removeReturnsACodePerItem() throws SQLException {
+        favoriteService.addFavoriteSongs(List.of(
+                add("alice", 10, "rain rain"), add("alice", 20, "rain storm"), add("bob", 10, "rain rain")));
+
+        List<Integer> results = favoriteService.removeFavoriteSongs(List.of(
+                remove("alice", 10), remove("alice", 10), remove("alice", 99), remove("nobody", 10), remove("bob", 10)));
+
+        assertEquals(List.of(1, 0, 0, -1, 1), results);
+        assertEquals(1, count("SELECT COUNT(*) FROM favorites"));
+        assertEquals(1, termStore.load(1).get("rain"));
+        assertTrue(termStore.load(2).isEmpty());
+    }
+
+    @Test
+    void batchOfUnknownUsersWritesNothing() throws SQLException {
+        long generation = termStore.getGeneration();
+
+        assertEquals(List.of(-1, -1), favoriteService.addFavoriteSongs(List.of(add("nobody", 10, "rain"), add("nobody", 20, "rain"))));
+        assertEquals(List.of(-1), favoriteService.removeFavoriteSongs(List.of(remove("nobody", 10))));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM songs"));
+        assertEquals(generation, termStore.getGeneration());
+    }
+
+    private FavoriteSongRequest add(String username, int songId, String lyrics) {
+        FavoriteSongRequest request = new FavoriteSongRequest();
+        request.setUsername(username);
+        request.setSongId(songId);
+        request.setSongName("song " + songId);
+        request.setSongArtist("artist");
+        request.setFullTitle("song " + songId + " by artist");
+        request.setDateReleased("2024");
+        request.setAlbum("album");
+        request.setLyrics(lyrics);
+        return request;
+    }
+
+    private FavoriteRemoveRequest remove(String username, int songId) {
+        FavoriteRemoveRequest request = new FavoriteRemoveRequest();
+        request.setUsername(username);
+        request.setSongId(songId);
+        return request;
+    }
+
+    // a service whose cloud updates fail with an unchecked exception, after the favorite rows are written
+    private FavoriteService serviceWithFailingCloudStore() {
+        UserTermStore failing = new UserTermStore(pool) {
+            @Override
+            public void addTerms(int userId, Map<String, Integer> counts) {
+                throw new IllegalStateException("cloud");
+            }
+
+            @Override
+            public void subtractTerms(int userId, Map<String, Integer> counts) {
+                throw new IllegalStateException("cloud");
+            }
+        };
+        return new FavoriteService(pool, failing, songTermStore,
+                new MatchEngine(), 100, "", ShardTopology.SINGLE, new RestTemplate(), 0);
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection conn = pool.reader();
+             PreparedStatement pst = conn.prepareStatement(sql);
+             ResultSet rs = pst.executeQuery()) {
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.configuration.DatabaseInitializer;
+import edu.usc.csci310.project.models.MatchResult;
+import edu.usc.csci310.project.models.WordFrequency;
+import edu.usc.csci310.project.requests.FavoriteGetRequest;
+import edu.usc.csci310.project.requests.FavoriteRemoveRequest;
+import edu.usc.csci310.project.requests.FavoriteSongRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.usc.csci310.project.Utils.hashUsername;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * addFavoriteSong and removeFavoriteSong against a real database: the return codes, what they store,
+ * that requests racing for the same song or favorite store it once, and that a failed write leaves nothing behind.
+ * Also that a match can only be explained to the user it was listed for, and that a restart from the
+ * vector file takes the saved match graph instead of recomputing it.
+ */
+class FavoriteTransactionTest {
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private UserTermStore termStore;
+    private SongTermStore songTermStore;
+    private FavoriteService favoriteService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = ConnectionPool.open("jdbc:sqlite:" + dir.resolve("favorites.db"), 2, 1000, 5000, 16);
+        new DatabaseInitializer(pool).initializeDatabase();
+        termStore = new UserTermStore(pool);
+        songTermStore = new SongTermStore(pool, 1000);
+        favoriteService = new FavoriteService(pool, termStore, songTermStore,
+                new MatchEngine(), 100, "", ShardTopology.SINGLE, new RestTemplate(), 0);
+        try (Connection conn = pool.writer();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO users (username, password) VALUES (?, 'x')")) {
+            for (String username : new String[]{"alice", "bob"}) {
+                pst.setString(1, hashUsername(username));
+                pst.executeUpdate();
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        pool.close();
+    }
+
+    @Test
+    void returnCodes() {
+        assertEquals(-1, favoriteService.addFavoriteSong(request("nobody", 10)));
+        assertEquals(10, favoriteService.addFavoriteSong(request("alice", 10)));
+        assertEquals(0, favoriteService.addFavoriteSong(request("bob", 10)));
+        assertEquals(-2, favoriteService.addFavoriteSong(request("alice", 10)));
+    }
+
+    @Test
+    void storesTheLyricsAndFoldsThemIntoTheCloud() throws SQLException {
+        favoriteService.addFavoriteSong(request("alice", 10));
+
+        try (Connection conn = pool.reader();
+             PreparedStatement pst = conn.prepareStatement("SELECT lyrics, album FROM songs WHERE songId = 10");
+             ResultSet rs = pst.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals("rain rain thunder", rs.getString("lyrics"));
+            assertEquals("cover", rs.getString("album"));
+        }
+        assertEquals(2, termStore.load(1).get("rain"));
+        assertFalse(termStore.load(1).containsKey("cover"));
+    }
+
+    @Test
+    void alreadyFavoritedLeavesEverythingAsItWas() throws SQLException {
+        favoriteService.addFavoriteSong(request("alice", 10));
+        long generation = termStore.getGeneration();
+
+        assertEquals(-2, favoriteService.addFavoriteSong(request("alice", 10)));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM favorites"));
+        assertEquals(2, termStore.load(1).get("rain"));
+        assertEquals(generation, termStore.getGeneration());
+    }
+
+    @Test
+    void concurrentRequestsStoreTheFavoriteOnce() throws Exception {
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return favoriteService.addFavoriteSong(request("alice", 10));
+            }));
+        }
+        start.countDown();
+        List<Integer> codes = new ArrayList<>();
+        for (Future<Integer> result : results) codes.add(result.get());
+        executor.shutdown();
+
+        assertEquals(1, codes.stream().filter(code -> code == 10).count());
+        assertEquals(threads - 1, codes.stream().filter(code -> code == -2).count());
+        assertEquals(1, count("SELECT COUNT(*) FROM songs"));
+        assertEquals(1, count("SELECT COUNT(*) FROM favorites"));
+        assertEquals(2, termStore.load(1).get("rain"));
+    }
+
+    @Test
+    void concurrentFirstRequestsLoadTheMatcherOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        MatchEngine engine = new MatchEngine() {
+            @Override
+            public void load(Map<Integer, SparseVector> vectors) {
+                loads.incrementAndGet();
+                super.load(vectors);
+            }
+        };
+        FavoriteService service = new FavoriteService(pool, termStore, songTermStore,
+                engine, 100, "", ShardTopology.SINGLE, new RestTemplate(), 0);
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int songId = 10 + i;
+            results.add(executor.submit(() -> {
+                start.await();
+                return service.addFavoriteSong(request("alice", songId));
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> result : results) assertTrue(result.get() > 0);
+        executor.shutdown();
+
+        assertEquals(1, loads.get());
+        assertEquals(2 * threads, termStore.load(1).get("rain"));
+    }
+
+    @Test
+    void failedRemovalKeepsTheFavorite() throws SQLException {
+        favoriteService.addFavoriteSong(request("alice", 10));
+        failCloudUpdates();
+
+        FavoriteRemoveRequest remove = new FavoriteRemoveRequest();
+        remove.setUsername("alice");
+        remove.setSongId(10);
+        assertThrows(RuntimeException.class, () -> favoriteService.removeFavoriteSong(remove));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM favorites"));
+        assertEquals(2, termStore.load(1).get("rain"));
+        try (Connection conn = pool.writer()) {
+            assertTrue(conn.getAutoCommit());
+        }
+    }
+
+    @Test
+    void failedAddCachesNoVectorForTheSong() throws SQLException {
+        failCloudUpdates();
+
+        assertThrows(RuntimeException.class, () -> favoriteService.addFavoriteSong(request("alice", 10)));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM songs"));
+        assertTrue(songTermStore.load(10).isEmpty());
+    }
+
+    @Test
+    void songsStoredBeforeTheColumnFixGetCloudsFromTheirLyrics() throws SQLException {
+        ConnectionPool old = ConnectionPool.open("jdbc:sqlite:" + dir.resolve("old.db"), 2, 1000, 5000, 16);
+        try {
+            DatabaseInitializer initializer = new DatabaseInitializer(old);
+            initializer.migrate(2);
+            try (Connection conn = old.writer();
+                 Statement st = conn.createStatement()) {
+                // as the old insert stored the song, with the cloud built from the album name
+                st.executeUpdate("INSERT INTO users (username, password) VALUES ('" + hashUsername("alice") + "', 'x')");
+                st.executeUpdate("INSERT INTO songs (songId, songName, songArtist, fullTitle, dateReleased, album, lyrics) " +
+                        "VALUES (10, 'n', 'a', 'f', 'd', 'rain rain thunder', 'cover')");
+                st.executeUpdate("INSERT INTO favorites (userId, songId) VALUES (1, 10)");
+                st.executeUpdate("INSERT INTO song_terms (songId, term, count) VALUES (10, 'cover', 1)");
+                st.executeUpdate("INSERT INTO user_terms (userId, term, count) VALUES (1, 'cover', 1)");
+                st.executeUpdate("INSERT INTO term_store_meta (name, value) VALUES ('song_terms', " + LyricAnalyzer.VERSION
+                        + "), ('user_terms', " + LyricAnalyzer.VERSION + ")");
+            }
+
+            initializer.migrate(3);
+            FavoriteService service = new FavoriteService(old, new UserTermStore(old), new SongTermStore(old, 1000),
+                    new MatchEngine(), 100, "", ShardTopology.SINGLE, new RestTemplate(), 0);
+            FavoriteGetRequest get = new FavoriteGetRequest();
+            get.setUsername("alice");
+
+            List<WordFrequency> cloud = service.getWordCloud(get, 10);
+            assertEquals("rain", cloud.get(0).word);
+            assertEquals(2, cloud.get(0).frequency);
+            assertTrue(cloud.stream().noneMatch(word -> word.word.equals("cover")));
+        }
+        finally {
+            old.close();
+        }
+    }
+
+    @Test
+    void addFailingOutsideTheDatabaseCommitsNothing() throws SQLException {
+        FavoriteService failing = serviceWithFailingCloudStore();
+
+        assertThrows(IllegalStateException.class, () -> failing.addFavoriteSong(request("alice", 10)));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM songs"));
+        assertEquals(0, count("SELECT COUNT(*) FROM favorites"));
+        assertTrue(songTermStore.load(10).isEmpty());
+        try (Connection conn = pool.writer()) {
+            assertTrue(conn.getAutoCommit());
+        }
+    }
+
+    @Test
+    void removalFailingOutsideTheDatabaseKeepsTheFavorite() throws SQLException {
+        favoriteService.addFavoriteSong(request("alice", 10));
+        FavoriteService failing = serviceWithFailingCloudStore();
+
+        FavoriteRemoveRequest remove = new FavoriteRemoveRequest();
+        remove.setUsername("alice");
+        remove.setSongId(10);
+        assertThrows(IllegalStateException.class, () -> failing.removeFavoriteSong(remove));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM favorites"));
+        assertEquals(2, termStore.load(1).get("rain"));
+    }
+
+    @Test
+    void explainOnlyCoversTheUsersOwnMatches() throws SQLException {
+        favoriteService.addFavoriteSong(request("alice", 10));
+        favoriteService.addFavoriteSong(request("bob", 10));
+        try (Connection conn = pool.writer();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO users (username, password) VALUES (?, 'x')")) {
+            pst.setString(1, hashUsername("carol"));   // no favorites, so nobody's match
+            pst.executeUpdate();
+        }
+        int alice = favoriteService.getUserId("alice");
+        int bob = favoriteService.getUserId("bob");
+        int carol = favoriteService.getUserId("carol");
+
+        assertEquals(hashUsername("bob"), favoriteService.explainMatch(alice, bob, 10).username);
+        assertNull(favoriteService.explainMatch(alice, carol, 10));
+        assertNull(favoriteService.explainMatch(alice, alice, 10));
+    }
+
+    @Test
+    void restartFromACurrentVectorFileSkipsTheAllPairsPass() throws SQLException {
+        String vectorFile = dir.resolve("users.vec").toString();
+        try (Connection conn = pool.writer();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO users (username, password) VALUES (?, 'x')")) {
+            for (String username : new String[]{"carol", "dave"}) {
+                pst.setString(1, hashUsername(username));
+                pst.executeUpdate();
+            }
+        }
+        FavoriteService first = new FavoriteService(pool, termStore, songTermStore,
+                new MatchEngine(), 100, vectorFile, ShardTopology.SINGLE, new RestTemplate(), 0);
+        first.addFavoriteSong(request("alice", 10, "rain rain thunder"));
+        first.addFavoriteSong(request("bob", 11, "rain sun"));
+        first.warmUpMatcher();
+        // changes after the snapshot only reach the journal
+        first.addFavoriteSong(request("carol", 12, "thunder storm storm"));
+        first.addFavoriteSong(request("dave", 13, "sun sun beach"));
+        FavoriteRemoveRequest remove = new FavoriteRemoveRequest();
+        remove.setUsername("bob");
+        remove.setSongId(11);
+        first.removeFavoriteSong(remove);
+
+        FavoriteService restarted = new FavoriteService(pool, termStore, songTermStore,
+                new MatchEngine(new MatchBatchJob() {
+                    @Override
+                    public Map<Integer, MatchCandidates> computeAll(int[] userIds, SparseVector[] vectors) {
+                        throw new AssertionError("the saved match graph should have been used");
+                    }
+                }), 100, vectorFile, ShardTopology.SINGLE, new RestTemplate(), 0);
+        restarted.warmUpMatcher();
+        FavoriteService fresh = new FavoriteService(pool, termStore, songTermStore,
+                new MatchEngine(), 100, "", ShardTopology.SINGLE, new RestTemplate(), 0);
+
+        for (String username : new String[]{"alice", "carol", "dave"}) {
+            int userId = fresh.getUserId(username);
+            MatchResult expected = fresh.findMatches(userId);
+            MatchResult actual = restarted.findMatches(userId);
+            assertEquals(expected.bestUsername, actual.bestUsername);
+            assertEquals(expected.mutualBest, actual.mutualBest);
+            assertEquals(expected.enemyUsername, actual.enemyUsername);
+            assertEquals(expected.mutualEnemy, actual.mutualEnemy);
+        }
+    }
+
+    private FavoriteSongRequest request(String username, int songId, String lyrics) {
+        FavoriteSongRequest request = request(username, songId);
+        request.setLyrics(lyrics);
+        return request;
+    }
+
+    private FavoriteSongRequest request(String username, int songId) {
+        FavoriteSongRequest request = new FavoriteSongRequest();
+        request.setUsername(username);
+        request.setSongId(songId);
+        request.setSongName("song " + songId);
+        request.setSongArtist("artist");
+        request.setFullTitle("song " + songId + " by artist");
+        request.setDateReleased("2024");
+        request.setAlbum("cover");
+        request.setLyrics("rain rain thunder");
+        return request;
+    }
+
+    // a service whose cloud updates fail with an unchecked exception, after the favorite row is written
+    private FavoriteService serviceWithFailingCloudStore() {
+        UserTermStore failing = new UserTermStore(pool) {
+            @Override
+            public void addTerms(int userId, Map<String, Integer> counts) {
+                throw new IllegalStateException("cloud");
+            }
+
+            @Override
+            public void subtractTerms(int userId, Map<String, Integer> counts) {
+                throw new IllegalStateException("cloud");
+            }
+        };
+        return new FavoriteService(pool, failing, songTermStore,
+                new MatchEngine(), 100, "", ShardTopology.SINGLE, new RestTemplate(), 0);
+    }
+
+    private void failCloudUpdates() throws SQLException {
+        try (Connection conn = pool.writer();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("CREATE TRIGGER fail_cloud_update BEFORE UPDATE ON user_terms BEGIN SELECT RAISE(ABORT, 'cloud'); END");
+            st.executeUpdate("CREATE TRIGGER fail_cloud_insert BEFORE INSERT ON user_terms BEGIN SELECT RAISE(ABORT, 'cloud'); END");
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection conn = pool.reader();
+             PreparedStatement pst = conn.prepareStatement(sql);
+             ResultSet rs = pst.executeQuery()) {
+            return rs.getInt(1);
+        }
+    }
+}
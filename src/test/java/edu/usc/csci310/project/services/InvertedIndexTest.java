@@ -0,0 +1,266 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    private static SparseVector vector(int... idCountPairs) {
+        int n = idCountPairs.length / 2;
+        int[] ids = new int[n];
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = idCountPairs[2 * i];
+            counts[i] = idCountPairs[2 * i + 1];
+        }
+        return SparseVector.of(ids, counts, n);
+    }
+
+    @Test
+    void accumulateSumsMinCountsOfSharedTerms() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, vector(0, 3, 1, 1));
+        index.put(2, vector(0, 1, 2, 5));
+        index.put(3, vector(7, 2));
+
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        index.accumulate(index.vector(1), 1, acc);
+
+        assertEquals(1, index.touchedCount(acc));
+        assertEquals(2, index.touchedUser(acc, 0));
+        assertEquals(1, index.touchedShared(acc, 0));
+        assertEquals(6, index.touchedTotal(acc, 0));
+        assertEquals(0, index.sharedWith(acc, 3));
+        assertEquals(0, index.sharedWith(acc, 1));
+    }
+
+    @Test
+    void putReplacesAndEmptyVectorRemoves() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, vector(0, 3));
+        index.put(2, vector(0, 2));
+        index.put(2, vector(5, 2));
+
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        index.accumulate(index.vector(1), 1, acc);
+        assertEquals(0, index.touchedCount(acc));
+
+        index.put(2, SparseVector.EMPTY);
+        assertFalse(index.contains(2));
+        assertEquals(1, index.userCount());
+        assertTrue(index.vector(2).isEmpty());
+    }
+
+    @Test
+    void freedSlotsAreReused() {
+        InvertedIndex index = new InvertedIndex();
+        for (int u = 0; u < 100; u++) index.put(u, vector(u % 3, 1));
+        for (int u = 0; u < 100; u += 2) index.remove(u);
+        for (int u = 100; u < 150; u++) index.put(u, vector(0, 1));
+
+        assertEquals(100, index.userCount());
+        List<Integer> ids = new ArrayList<>();
+        index.userIds().forEach(ids::add);
+        assertEquals(1, ids.get(0));
+        assertEquals(149, ids.get(ids.size() - 1));
+
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        index.accumulate(vector(0, 1), -1, acc);
+        // users 3, 9, 15, ... (odd and divisible by 3) plus the 50 new users
+        assertEquals(17 + 50, index.touchedCount(acc));
+    }
+
+    @Test
+    void randomChurnKeepsPostingsExact() {
+        Random random = new Random(7);
+        InvertedIndex index = new InvertedIndex();
+        Map<Integer, SparseVector> clouds = new HashMap<>();
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        for (int step = 0; step < 3000; step++) {
+            int userId = random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                index.remove(userId);
+                clouds.remove(userId);
+            }
+            else {
+                SparseVector cloud = vector(random.nextInt(10), 1 + random.nextInt(4), 10 + random.nextInt(10), 1);
+                index.put(userId, cloud);
+                clouds.put(userId, cloud);
+            }
+            if (step % 100 != 0) continue;
+
+            SparseVector query = vector(random.nextInt(10), 3, 10 + random.nextInt(10), 2);
+            index.accumulate(query, -1, acc);
+            int touching = 0;
+            for (Map.Entry<Integer, SparseVector> e : clouds.entrySet()) {
+                long shared = SparseVector.sharedCount(query, e.getValue());
+                assertEquals(shared, index.sharedWith(acc, e.getKey()));
+                if (shared > 0) touching++;
+            }
+            assertEquals(touching, index.touchedCount(acc));
+            for (int term = 0; term < 20; term++) {
+                int t = term;
+                long holders = clouds.values().stream()
+                        .filter(v -> IntStream.range(0, v.size()).anyMatch(i -> v.termId(i) == t)).count();
+                assertEquals(holders, index.documentFrequency(term));
+            }
+        }
+    }
+
+    @Test
+    void usersByTotalFollowChanges() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(4, vector(0, 3));
+        index.put(2, vector(0, 1, 1, 2));
+        index.put(7, vector(1, 1));
+
+        InvertedIndex.ByTotal order = index.usersByTotal();
+        assertArrayEquals(new int[]{7, 2, 4}, order.users);
+        assertArrayEquals(new long[]{1, 3, 3}, order.totals);
+        assertEquals(1, order.lowerBound(2));
+        assertEquals(1, order.lowerBound(3));
+        assertEquals(3, order.lowerBound(4));
+        assertSame(order, index.usersByTotal());
+
+        index.put(7, vector(1, 9));
+        index.remove(2);
+        assertArrayEquals(new int[]{4, 7}, index.usersByTotal().users);
+    }
+
+    @Test
+    void clearEmptiesTheIndex() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, vector(0, 3));
+        index.clear();
+        assertEquals(0, index.userCount());
+        assertFalse(index.userIds().iterator().hasNext());
+    }
+
+    @Test
+    void documentFrequencyFollowsPutAndRemove() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, vector(0, 3, 1, 1));
+        index.put(2, vector(0, 1));
+        assertEquals(2, index.documentFrequency(0));
+        assertEquals(1, index.documentFrequency(1));
+        assertEquals(0, index.documentFrequency(9));
+
+        index.put(1, vector(1, 2));
+        assertEquals(1, index.documentFrequency(0));
+        index.remove(2);
+        assertEquals(0, index.documentFrequency(0));
+    }
+
+    @Test
+    void cosineScoreIsNormalizedDotProduct() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, vector(0, 3, 1, 4));
+        index.put(2, vector(0, 1, 2, 1));
+
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        index.score(index.vector(1), 1, acc, SimilarityMetric.COSINE);
+        assertEquals(1, index.touchedCount(acc));
+        assertEquals(3.0 / (5.0 * Math.sqrt(2)), index.touchedScore(acc, 0), 1e-12);
+    }
+
+    @Test
+    void tfidfDiscountsTermsEveryoneHas() {
+        InvertedIndex index = new InvertedIndex();
+        // everyone has term 0; only users 1 and 2 have term 1
+        index.put(1, vector(0, 4, 1, 2));
+        index.put(2, vector(0, 1, 1, 2));
+        index.put(3, vector(0, 4, 2, 1));
+        index.put(4, vector(0, 1, 3, 1));
+
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        index.score(index.vector(1), 1, acc, SimilarityMetric.COSINE);
+        double cosine2 = index.touchedScore(acc, indexOf(index, acc, 2));
+        double cosine3 = index.touchedScore(acc, indexOf(index, acc, 3));
+        assertTrue(cosine3 > cosine2);
+
+        index.score(index.vector(1), 1, acc, SimilarityMetric.TFIDF);
+        double tfidf2 = index.touchedScore(acc, indexOf(index, acc, 2));
+        double tfidf3 = index.touchedScore(acc, indexOf(index, acc, 3));
+        assertTrue(tfidf2 > tfidf3);
+    }
+
+    @Test
+    void tfidfNormsFollowChanges() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, vector(0, 1, 1, 1));
+        index.put(2, vector(0, 1, 1, 1));
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        index.score(index.vector(1), 1, acc, SimilarityMetric.TFIDF);
+        assertEquals(1.0, index.touchedScore(acc, 0), 1e-12);
+
+        // term 1 becomes rarer than term 0, so user 2's norm and the score change
+        index.put(3, vector(0, 1));
+        index.put(2, vector(0, 1, 1, 1, 2, 1));
+        index.score(index.vector(1), 1, acc, SimilarityMetric.TFIDF);
+        double i0 = Math.log(1 + 3.0 / 3), i1 = Math.log(1 + 3.0 / 2), i2 = Math.log(1 + 3.0 / 1);
+        double expected = (i0 * i0 + i1 * i1) / (Math.sqrt(i0 * i0 + i1 * i1) * Math.sqrt(i0 * i0 + i1 * i1 + i2 * i2));
+        assertEquals(expected, index.touchedScore(acc, indexOf(index, acc, 2)), 1e-12);
+    }
+
+    @Test
+    void tfidfNormsKeptThroughChangesMatchAFreshIndex() {
+        Random random = new Random(11);
+        InvertedIndex index = new InvertedIndex();
+        Map<Integer, SparseVector> clouds = new HashMap<>();
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        InvertedIndex.Accumulator freshAcc = new InvertedIndex.Accumulator();
+        for (int step = 0; step < 600; step++) {
+            int userId = random.nextInt(40);
+            // mostly changes to clouds already indexed, which keep the norms instead of recomputing them
+            SparseVector cloud = random.nextInt(10) == 0 ? SparseVector.EMPTY
+                    : vector(random.nextInt(5), 1 + random.nextInt(4), 5 + random.nextInt(5), 1 + random.nextInt(3), 10 + random.nextInt(20), 1);
+            index.put(userId, cloud);
+            if (cloud.isEmpty()) clouds.remove(userId);
+            else clouds.put(userId, cloud);
+            if (step % 20 != 0 || clouds.isEmpty()) continue;
+
+            InvertedIndex fresh = new InvertedIndex();
+            clouds.forEach(fresh::put);
+            int probe = clouds.keySet().iterator().next();
+            index.score(clouds.get(probe), probe, acc, SimilarityMetric.TFIDF);
+            fresh.score(clouds.get(probe), probe, freshAcc, SimilarityMetric.TFIDF);
+            assertEquals(fresh.touchedCount(freshAcc), index.touchedCount(acc));
+            for (int k = 0; k < index.touchedCount(acc); k++) {
+                int other = index.touchedUser(acc, k);
+                assertEquals(fresh.touchedScore(freshAcc, indexOf(fresh, freshAcc, other)), index.touchedScore(acc, k), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void bm25FavorsShortCloudsWithTheSameMatches() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, vector(0, 1));
+        index.put(2, vector(0, 2, 1, 1));
+        index.put(3, vector(0, 2, 1, 1, 2, 9));
+
+        InvertedIndex.Accumulator acc = new InvertedIndex.Accumulator();
+        index.score(index.vector(1), 1, acc, SimilarityMetric.BM25);
+        double idf = Math.log(1 + (3 - 3 + 0.5) / (3 + 0.5));
+        double average = (1 + 3 + 12) / 3.0;
+        double k1 = InvertedIndex.BM25_K1, b = InvertedIndex.BM25_B;
+        double expected2 = idf * 2 * (k1 + 1) / (2 + k1 * (1 - b + b * 3 / average));
+        assertEquals(expected2, index.touchedScore(acc, indexOf(index, acc, 2)), 1e-12);
+        assertTrue(index.touchedScore(acc, indexOf(index, acc, 3)) < expected2);
+    }
+
+    private static int indexOf(InvertedIndex index, InvertedIndex.Accumulator acc, int userId) {
+        for (int k = 0; k < index.touchedCount(acc); k++) {
+            if (index.touchedUser(acc, k) == userId) return k;
+        }
+        throw new AssertionError("user " + userId + " not touched");
+    }
+}
@@ -1,6 +1,7 @@
 package edu.usc.csci310.project.services;
 
 import edu.usc.csci310.project.Utils;
+import edu.usc.csci310.project.configuration.ConnectionPool;
 import edu.usc.csci310.project.requests.LoginUserRequest;
 import edu.usc.csci310.project.services.LoginService;
 import org.junit.jupiter.api.Test;
@@ -33,7 +34,7 @@ class LoginServiceTest {
         try (MockedStatic<Utils> mockedUtils = mockStatic(Utils.class)) {
             mockedUtils.when(() -> Utils.verifyPassword("Password0", "Password0")).thenReturn(true);
 
-            LoginService loginService = new LoginService(conn);
+            LoginService loginService = new LoginService(ConnectionPool.of(conn));
             LoginUserRequest loginUserRequest = new LoginUserRequest();
             loginUserRequest.setUsername("testuser");
             loginUserRequest.setPassword("Password0");
@@ -51,7 +52,7 @@ class LoginServiceTest {
         when(ps.executeQuery()).thenReturn(rs);
         when(rs.next()).thenReturn(false);
 
-        LoginService loginService = new LoginService(conn);
+        LoginService loginService = new LoginService(ConnectionPool.of(conn));
         LoginUserRequest loginUserRequest = new LoginUserRequest();
         loginUserRequest.setUsername("testuser");
         loginUserRequest.setPassword("Password0");
@@ -72,7 +73,7 @@ class LoginServiceTest {
         try (MockedStatic<Utils> mockedUtils = mockStatic(Utils.class)) {
             mockedUtils.when(() -> Utils.verifyPassword("Password0", "Password0")).thenReturn(false);
 
-            LoginService loginService = new LoginService(conn);
+            LoginService loginService = new LoginService(ConnectionPool.of(conn));
             LoginUserRequest loginUserRequest = new LoginUserRequest();
             loginUserRequest.setUsername("testuser");
             loginUserRequest.setPassword("Password0");
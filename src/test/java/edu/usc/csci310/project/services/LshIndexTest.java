@@ -0,0 +1,59 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LshIndexTest {
+    private final TermDictionary dictionary = new TermDictionary();
+
+    private SparseVector cloud(Map<String, Integer> words) {
+        return SparseVector.of(words, dictionary);
+    }
+
+    @Test
+    void identicalCloudsCollideAheadOfSimilarOnes() {
+        LshIndex lsh = new LshIndex(32, 2, 10);
+        lsh.put(1, cloud(Map.of("love", 3, "night", 2, "dance", 1)));
+        lsh.put(2, cloud(Map.of("love", 3, "night", 2, "dance", 1)));
+        lsh.put(3, cloud(Map.of("love", 3, "night", 2, "rain", 1)));
+        lsh.put(4, cloud(Map.of("war", 5, "guns", 2)));
+
+        int[] candidates = lsh.candidates(1);
+        assertTrue(candidates.length >= 2);
+        assertEquals(2, candidates[0]);
+        assertEquals(3, candidates[1]);
+        for (int c : candidates) assertNotEquals(1, c);
+    }
+
+    @Test
+    void shortlistBoundsCandidates() {
+        LshIndex lsh = new LshIndex(8, 1, 2);
+        for (int u = 1; u <= 5; u++) lsh.put(u, cloud(Map.of("love", 1)));
+
+        assertArrayEquals(new int[]{2, 3}, lsh.candidates(1));
+    }
+
+    @Test
+    void removedAndEmptyUsersAreNotCandidates() {
+        LshIndex lsh = new LshIndex();
+        lsh.put(1, cloud(Map.of("love", 1)));
+        lsh.put(2, cloud(Map.of("love", 1)));
+        lsh.put(3, cloud(Map.of("love", 1)));
+        lsh.remove(2);
+        lsh.put(3, SparseVector.EMPTY);
+
+        assertEquals(1, lsh.userCount());
+        assertEquals(0, lsh.candidates(1).length);
+        assertEquals(0, lsh.candidates(2).length);
+    }
+
+    @Test
+    void rejectsNonPositiveKnobs() {
+        assertThrows(IllegalArgumentException.class, () -> new LshIndex(0, 2, 10));
+        assertThrows(IllegalArgumentException.class, () -> new LshIndex(4, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new LshIndex(4, 2, 0));
+    }
+}
@@ -0,0 +1,84 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LyricAnalyzerTest {
+    private final TermDictionary dictionary = new TermDictionary();
+    private final LyricAnalyzer analyzer = new LyricAnalyzer(dictionary);
+
+    private Map<String, Integer> analyze(String lyrics) {
+        TermCounter counts = new TermCounter();
+        analyzer.analyze(lyrics, counts);
+        Map<String, Integer> terms = new HashMap<>();
+        counts.forEach((termId, count) -> terms.put(dictionary.term(termId), count));
+        return terms;
+    }
+
+    @Test
+    void dropsStopWordsAndStems() {
+        assertEquals(Map.of("love", 3, "danc", 1, "night", 1),
+                analyze("I loved the dancing, and you love me. Loving all night"));
+    }
+
+    @Test
+    void dropsBracketSections() {
+        assertEquals(Map.of("hello", 2), analyze("[Verse 1: Adele]\nHello [Chorus] hello"));
+    }
+
+    @Test
+    void unclosedBracketDoesNotSwallowTheNextLine() {
+        assertEquals(Map.of("intro", 1, "hello", 1, "world", 1), analyze("[Intro\nhello world"));
+    }
+
+    @Test
+    void dropsSingleLetterWords() {
+        assertEquals(Map.of("rock'n'rol", 1), analyze("x y z rock'n'roll"));
+    }
+
+    @Test
+    void nonLatinWordsAreKeptUnstemmed() {
+        assertEquals(Map.of("corazón", 2), analyze("corazón Corazón"));
+    }
+
+    @Test
+    void resultsAreMemoizedAcrossCalls() {
+        assertEquals(Map.of("sing", 2), analyze("singing sings"));
+        int size = dictionary.size();
+        assertEquals(Map.of("sing", 4), analyze("singing sings singing sings"));
+        assertEquals(size, dictionary.size());
+    }
+
+    @Test
+    void concurrentCallsSeeTheSameTerms() throws Exception {
+        // hundreds of new words per call, so threads race to memoize them and to grow the memo
+        StringBuilder lyrics = new StringBuilder();
+        for (int i = 0; i < 2000; i++) lyrics.append("singing w").append(i).append(" the ");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Map<String, Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) results.add(pool.submit(() -> analyze(lyrics.toString())));
+            Map<String, Integer> expected = results.get(0).get();
+            assertEquals(2000, expected.get("sing"));
+            assertEquals(2001, expected.size());
+            for (Future<Map<String, Integer>> result : results) assertEquals(expected, result.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void nullLyricsAddNothing() {
+        assertTrue(analyze(null).isEmpty());
+        assertTrue(analyze("[Chorus]").isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LyricTokenizerTest {
+    private final TermDictionary dictionary = new TermDictionary();
+    private final LyricTokenizer tokenizer = new LyricTokenizer(dictionary);
+
+    private Map<String, Integer> count(String text) {
+        TermCounter counts = new TermCounter();
+        tokenizer.tokenize(text, counts);
+        Map<String, Integer> words = new HashMap<>();
+        counts.forEach((termId, count) -> words.put(dictionary.term(termId), count));
+        return words;
+    }
+
+    @Test
+    void lowercasesAndSplitsOnPunctuation() {
+        assertEquals(Map.of("love", 2, "me", 1, "do", 1), count("Love, love me -- DO!"));
+    }
+
+    @Test
+    void keepsApostrophesInsideWords() {
+        assertEquals(Map.of("don't", 1, "rock'n'roll", 1, "cause", 1, "lovin", 1),
+                count("Don't 'cause rock'n'roll lovin'"));
+        assertEquals(Map.of("can't", 2), count("can't can’t"));
+    }
+
+    @Test
+    void keepsAccentedAndNonLatinWordsWhole() {
+        assertEquals(Map.of("café", 1, "naïve", 1), count("CAFÉ naïve"));
+        // decomposed form: e followed by a combining acute accent
+        assertEquals(Map.of("café", 1), count("Café!"));
+        assertEquals(Map.of("привет", 1, "мир", 1), count("Привет, мир"));
+        assertEquals(Map.of("愛してる", 1), count("愛してる"));
+    }
+
+    @Test
+    void digitsAreWordCharacters() {
+        assertEquals(Map.of("99", 1, "problems", 1), count("99 problems"));
+    }
+
+    @Test
+    void emptyAndNullTextAddNothing() {
+        assertTrue(count("").isEmpty());
+        assertTrue(count(null).isEmpty());
+        assertTrue(count(" ... '' ").isEmpty());
+    }
+
+    @Test
+    void longWordsGrowTheBuffer() {
+        String longWord = "a".repeat(100);
+        assertEquals(Map.of(longWord, 1), count(longWord + " "));
+    }
+
+    @Test
+    void scanOnlyReadsTheGivenRange() {
+        StringBuilder seen = new StringBuilder();
+        tokenizer.scan("skip hello world skip", 5, 16, (buf, len) -> seen.append(buf, 0, len).append('|'));
+        assertEquals("hello|world|", seen.toString());
+    }
+}
@@ -0,0 +1,60 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static edu.usc.csci310.project.services.MatchEngineTest.assertSameCandidates;
+import static edu.usc.csci310.project.services.MatchEngineTest.bruteForce;
+import static edu.usc.csci310.project.services.MatchEngineTest.randomClouds;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchBatchJobTest {
+
+    private static Map<Integer, MatchCandidates> run(MatchBatchJob job, Map<Integer, SparseVector> clouds) {
+        TreeMap<Integer, SparseVector> sorted = new TreeMap<>();
+        clouds.forEach((u, v) -> { if (!v.isEmpty()) sorted.put(u, v); });
+
+        int[] ids = new int[sorted.size()];
+        SparseVector[] vectors = new SparseVector[sorted.size()];
+        int i = 0;
+        for (Map.Entry<Integer, SparseVector> e : sorted.entrySet()) {
+            ids[i] = e.getKey();
+            vectors[i++] = e.getValue();
+        }
+        return job.computeAll(ids, vectors);
+    }
+
+    @Test
+    void computeAllMatchesBruteForceAcrossTileSizes() {
+        Random random = new Random(2024);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int tileSize : new int[]{1, 7, 16, 500}) {
+                Map<Integer, SparseVector> clouds = randomClouds(random, new TermDictionary(), 90, 25);
+                Map<Integer, MatchCandidates> all = run(new MatchBatchJob(pool, tileSize), clouds);
+
+                for (Map.Entry<Integer, SparseVector> e : clouds.entrySet()) {
+                    if (e.getValue().isEmpty()) {
+                        assertFalse(all.containsKey(e.getKey()));
+                        continue;
+                    }
+                    assertSameCandidates(bruteForce(clouds, e.getKey()), all.get(e.getKey()));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void singleUserHasNoCandidates() {
+        TermDictionary d = new TermDictionary();
+        Map<Integer, MatchCandidates> all = run(new MatchBatchJob(), Map.of(1, SparseVector.of(Map.of("love", 1), d)));
+        assertSame(MatchCandidates.NONE, all.get(1));
+        assertTrue(run(new MatchBatchJob(), Map.of()).isEmpty());
+    }
+}
@@ -0,0 +1,641 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MatchEngineTest {
+
+    // scores every other user, in ascending user id order, like the original findMatches loop,
+    // except that users with an empty cloud are skipped as the engine does
+    static MatchCandidates bruteForce(Map<Integer, SparseVector> clouds, int userId) {
+        SparseVector mine = clouds.get(userId);
+        if (mine == null || mine.isEmpty()) return MatchCandidates.NONE;
+
+        double bestScore = -1.0, worstScore = Double.MAX_VALUE;
+        int bestUser = -1, worstUser = -1;
+        for (Map.Entry<Integer, SparseVector> e : new TreeMap<>(clouds).entrySet()) {
+            if (e.getKey() == userId || e.getValue().isEmpty()) continue;
+            double sim = SparseVector.weightedJaccard(mine, e.getValue());
+            if (sim > bestScore) { bestScore = sim; bestUser = e.getKey(); }
+            if (sim < worstScore) { worstScore = sim; worstUser = e.getKey(); }
+        }
+        return bestUser == -1 ? MatchCandidates.NONE : new MatchCandidates(bestUser, bestScore, worstUser, worstScore);
+    }
+
+    static Map<Integer, SparseVector> randomClouds(Random random, TermDictionary dictionary, int users, int vocabulary) {
+        Map<Integer, SparseVector> clouds = new HashMap<>();
+        for (int u = 1; u <= users; u++) {
+            clouds.put(u * 7 % 1000 + 1, randomCloud(random, dictionary, vocabulary));
+        }
+        return clouds;
+    }
+
+    static SparseVector randomCloud(Random random, TermDictionary dictionary, int vocabulary) {
+        Map<String, Integer> cloud = new HashMap<>();
+        int words = random.nextInt(12);
+        for (int i = 0; i < words; i++) {
+            cloud.merge("w" + random.nextInt(vocabulary), 1 + random.nextInt(4), Integer::sum);
+        }
+        return SparseVector.of(cloud, dictionary);
+    }
+
+    static void assertSameCandidates(MatchCandidates expected, MatchCandidates actual) {
+        assertEquals(expected.bestUser, actual.bestUser);
+        assertEquals(expected.bestScore, actual.bestScore);
+        assertEquals(expected.worstUser, actual.worstUser);
+        assertEquals(expected.worstScore, actual.worstScore);
+    }
+
+    @Test
+    void findCandidatesMatchesBruteForce() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            MatchEngine engine = new MatchEngine();
+            Map<Integer, SparseVector> clouds = randomClouds(random, engine.dictionary(), 60, 10 + round * 5);
+            engine.load(clouds);
+
+            for (int userId : clouds.keySet()) {
+                assertSameCandidates(bruteForce(clouds, userId), engine.findCandidates(userId));
+            }
+        }
+    }
+
+    @Test
+    void updatesAreReflectedInSearch() {
+        Random random = new Random(7);
+        MatchEngine engine = new MatchEngine();
+        Map<Integer, SparseVector> clouds = randomClouds(random, engine.dictionary(), 40, 30);
+        engine.load(clouds);
+
+        Integer[] ids = clouds.keySet().toArray(new Integer[0]);
+        for (int step = 0; step < 200; step++) {
+            int userId = ids[random.nextInt(ids.length)];
+            // every fifth change empties the cloud, which takes the user out of the graph
+            SparseVector next = step % 5 == 0 ? SparseVector.EMPTY : randomCloud(random, engine.dictionary(), 30);
+            clouds.put(userId, next);
+            engine.update(userId, next);
+
+            // the incrementally maintained graph must equal a full recomputation for everybody
+            for (int probe : ids) {
+                assertSameCandidates(bruteForce(clouds, probe), engine.findCandidates(probe));
+            }
+        }
+    }
+
+    @Test
+    void stagedChangesAreExactOnceApplied() throws SQLException {
+        Random random = new Random(19);
+        MatchEngine engine = new MatchEngine();
+        Map<Integer, SparseVector> clouds = randomClouds(random, engine.dictionary(), 40, 30);
+        engine.load(clouds);
+
+        Integer[] ids = clouds.keySet().toArray(new Integer[0]);
+        for (int batch = 0; batch < 40; batch++) {
+            // several users change before the graph catches up, some of them more than once
+            List<Integer> changed = new ArrayList<>();
+            for (int step = 0; step < 1 + random.nextInt(6); step++) {
+                int userId = ids[random.nextInt(ids.length)];
+                SparseVector next = random.nextInt(5) == 0 ? SparseVector.EMPTY : randomCloud(random, engine.dictionary(), 30);
+                clouds.put(userId, next);
+                engine.stage(userId, uid -> next);
+                changed.add(userId);
+            }
+            // searches see staged clouds at once
+            int probe = changed.get(0);
+            if (!clouds.get(probe).isEmpty()) {
+                assertSameCandidates(bruteForce(clouds, probe), engine.searchFor(probe, clouds.get(probe)));
+            }
+
+            engine.applyStaged(changed);
+            assertEquals(0, engine.stagedCount());
+            for (int userId : ids) {
+                assertSameCandidates(bruteForce(clouds, userId), engine.findCandidates(userId));
+            }
+        }
+    }
+
+    @Test
+    void applyStagedOnlyAppliesTheGivenUsers() throws SQLException {
+        MatchEngine engine = new MatchEngine();
+        TermDictionary dictionary = engine.dictionary();
+        engine.load(Map.of(1, SparseVector.of(Map.of("love", 1), dictionary),
+                2, SparseVector.of(Map.of("war", 1), dictionary)));
+
+        engine.stage(3, uid -> SparseVector.of(Map.of("love", 1), dictionary));
+        engine.stage(4, uid -> SparseVector.of(Map.of("war", 1), dictionary));
+        assertEquals(2, engine.stagedCount());
+        assertEquals(2, engine.copyGraph().size());
+
+        assertEquals(1, engine.applyStaged(List.of(3, 7)));
+        assertEquals(1, engine.stagedCount());
+        assertEquals(3, engine.findCandidates(1).bestUser);
+        assertFalse(engine.copyGraph().containsKey(4));
+
+        engine.recomputeAll();
+        assertEquals(0, engine.stagedCount());
+        assertEquals(4, engine.findCandidates(2).bestUser);
+    }
+
+    @Test
+    void recomputeAllKeepsTheGraphExact() {
+        Random random = new Random(11);
+        MatchEngine engine = new MatchEngine(new MatchBatchJob(ForkJoinPool.commonPool(), 8));
+        Map<Integer, SparseVector> clouds = randomClouds(random, engine.dictionary(), 50, 20);
+        engine.load(clouds);
+
+        Integer[] ids = clouds.keySet().toArray(new Integer[0]);
+        for (int step = 0; step < 20; step++) {
+            SparseVector next = randomCloud(random, engine.dictionary(), 20);
+            clouds.put(ids[step], next);
+            engine.update(ids[step], next);
+        }
+        engine.recomputeAll();
+
+        for (int probe : ids) {
+            assertSameCandidates(bruteForce(clouds, probe), engine.findCandidates(probe));
+        }
+    }
+
+    @Test
+    void mutualFlagsCompareGraphEntries() {
+        MatchEngine engine = new MatchEngine();
+        TermDictionary d = engine.dictionary();
+        engine.load(Map.of(
+                1, SparseVector.of(Map.of("love", 2, "you", 1), d),
+                2, SparseVector.of(Map.of("love", 2, "you", 2), d),
+                3, SparseVector.of(Map.of("love", 1, "war", 3), d)));
+
+        assertTrue(engine.isMutualBest(1));
+        assertTrue(engine.isMutualBest(2));
+        assertFalse(engine.isMutualBest(3));
+        assertTrue(engine.isMutualWorst(2));
+        assertTrue(engine.isMutualWorst(3));
+        assertFalse(engine.isMutualWorst(1));
+    }
+
+    @Test
+    void userWithoutCloudHasNoCandidates() throws Exception {
+        MatchEngine engine = new MatchEngine();
+        engine.refresh(1, uid -> SparseVector.of(Map.of("love", 1), engine.dictionary()));
+
+        assertTrue(engine.hasCloud(1));
+        assertFalse(engine.hasCloud(2));
+        assertSame(MatchCandidates.NONE, engine.findCandidates(2));
+        // alone in the index: a cloud but nobody to match with
+        assertFalse(engine.findCandidates(1).hasBest());
+        assertEquals(1, engine.userCount());
+        assertEquals(1, engine.vector(1).total());
+    }
+
+    @Test
+    void usersSharingNothingBecomeEnemiesWithoutScoring() {
+        MatchEngine engine = new MatchEngine();
+        TermDictionary d = engine.dictionary();
+        engine.load(Map.of(
+                1, SparseVector.of(Map.of("love", 2), d),
+                2, SparseVector.of(Map.of("love", 1, "baby", 1), d),
+                3, SparseVector.of(Map.of("war", 3), d),
+                4, SparseVector.of(Map.of("guns", 3), d)));
+
+        MatchCandidates one = engine.findCandidates(1);
+        assertEquals(2, one.bestUser);
+        assertEquals(1.0 / 3.0, one.bestScore);
+        assertEquals(3, one.worstUser);
+        assertEquals(0.0, one.worstScore);
+
+        MatchCandidates three = engine.findCandidates(3);
+        assertEquals(1, three.bestUser);
+        assertEquals(0.0, three.bestScore);
+        assertEquals(1, three.worstUser);
+    }
+
+    @Test
+    void usersWithAnEmptyCloudAreNobodysEnemy() throws SQLException {
+        MatchEngine engine = new MatchEngine();
+        TermDictionary d = engine.dictionary();
+        engine.load(Map.of(
+                1, SparseVector.EMPTY,
+                2, SparseVector.of(Map.of("love", 2), d),
+                3, SparseVector.of(Map.of("love", 1, "baby", 1), d)));
+
+        // user 1 would score 0 with everyone; only indexed clouds are candidates
+        assertFalse(engine.hasCloud(1));
+        assertSame(MatchCandidates.NONE, engine.findCandidates(1));
+        assertEquals(3, engine.findCandidates(2).worstUser);
+        assertEquals(1.0 / 3.0, engine.findCandidates(2).worstScore);
+        assertArrayEquals(new int[]{3}, engine.rank(2, 5).enemies);
+
+        // a cloud that becomes empty leaves the index the same way
+        engine.refresh(3, uid -> SparseVector.EMPTY);
+        assertFalse(engine.findCandidates(2).hasWorst());
+    }
+
+    // users drawn from a few hundred "genres" of shared vocabulary plus some noise, like real lyric clouds
+    static Map<Integer, SparseVector> topicClouds(Random random, TermDictionary dictionary, int users) {
+        Map<Integer, SparseVector> clouds = new HashMap<>();
+        for (int u = 1; u <= users; u++) {
+            int topic = random.nextInt(users / 10);
+            Map<String, Integer> cloud = new HashMap<>();
+            for (int i = 0; i < 20; i++) {
+                cloud.merge("t" + topic + "_" + random.nextInt(30), 1 + random.nextInt(5), Integer::sum);
+            }
+            for (int i = 0; i < 5; i++) {
+                cloud.merge("w" + random.nextInt(5000), 1, Integer::sum);
+            }
+            clouds.put(u, SparseVector.of(cloud, dictionary));
+        }
+        return clouds;
+    }
+
+    @Test
+    void approximateModeKeepsExactEnemiesAndNeverOverstatesSoulmates() {
+        Random random = new Random(5);
+        MatchEngine engine = new MatchEngine(new LshIndex(16, 2, 20));
+        Map<Integer, SparseVector> clouds = randomClouds(random, engine.dictionary(), 80, 40);
+        engine.load(clouds);
+        assertTrue(engine.isApproximate());
+
+        for (int userId : clouds.keySet()) {
+            MatchCandidates exact = bruteForce(clouds, userId);
+            MatchCandidates approx = engine.findCandidates(userId);
+            assertEquals(exact.worstUser, approx.worstUser);
+            assertEquals(exact.worstScore, approx.worstScore);
+            if (exact.hasBest()) {
+                assertTrue(approx.bestScore <= exact.bestScore);
+                assertEquals(SparseVector.weightedJaccard(clouds.get(userId), clouds.get(approx.bestUser)), approx.bestScore);
+            }
+        }
+
+        // updates go straight to the LSH index; there is no graph to recompute
+        int someone = clouds.keySet().iterator().next();
+        engine.update(someone, SparseVector.EMPTY);
+        engine.recomputeAll();
+        assertFalse(engine.findCandidates(someone).hasBest());
+    }
+
+    @Test
+    void approximateModeRecallAgainstBruteForce() {
+        Random random = new Random(11);
+        TermDictionary dictionary = new TermDictionary();
+        Map<Integer, SparseVector> clouds = topicClouds(random, dictionary, 3000);
+
+        MatchEngine exact = new MatchEngine();
+        exact.load(clouds);
+        MatchEngine approx = new MatchEngine(new LshIndex());
+        approx.load(clouds);
+
+        int hits = 0;
+        long exactNanos = 0, approxNanos = 0;
+        for (int userId : clouds.keySet()) {
+            long t0 = System.nanoTime();
+            MatchCandidates truth = bruteForce(clouds, userId);
+            long t1 = System.nanoTime();
+            MatchCandidates found = approx.findCandidates(userId);
+            long t2 = System.nanoTime();
+            exactNanos += t1 - t0;
+            approxNanos += t2 - t1;
+
+            assertSameCandidates(truth, exact.findCandidates(userId));
+            assertEquals(truth.worstUser, found.worstUser);
+            if (found.bestScore == truth.bestScore) hits++;
+        }
+        double recall = (double) hits / clouds.size();
+        System.out.printf("LSH recall@1 %.3f over %d users; brute force %.1f us/query, approximate %.1f us/query%n",
+                recall, clouds.size(), exactNanos / 1e3 / clouds.size(), approxNanos / 1e3 / clouds.size());
+        assertTrue(recall >= 0.9, "recall " + recall);
+    }
+
+    // users who each favorite a few songs from a shared catalogue; a cloud is the sum of its songs' clouds
+    static Map<Integer, SparseVector> songClouds(Random random, TermDictionary dictionary, int users, SongUserIndex songUsers) {
+        int songs = users * 2;
+        List<Map<String, Integer>> lyrics = new ArrayList<>();
+        for (int s = 0; s < songs; s++) {
+            int topic = random.nextInt(songs / 20);
+            Map<String, Integer> song = new HashMap<>();
+            for (int i = 0; i < 15; i++) song.merge("t" + topic + "_" + random.nextInt(40), 1 + random.nextInt(3), Integer::sum);
+            for (int i = 0; i < 5; i++) song.merge("w" + random.nextInt(5000), 1, Integer::sum);
+            lyrics.add(song);
+        }
+        Map<Integer, SparseVector> clouds = new HashMap<>();
+        for (int u = 1; u <= users; u++) {
+            Map<String, Integer> cloud = new HashMap<>();
+            int favorites = 1 + random.nextInt(6);
+            for (int f = 0; f < favorites; f++) {
+                int song = random.nextInt(songs);
+                songUsers.add(u, song);
+                lyrics.get(song).forEach((term, count) -> cloud.merge(term, count, Integer::sum));
+            }
+            clouds.put(u, SparseVector.of(cloud, dictionary));
+        }
+        return clouds;
+    }
+
+    @Test
+    void songIndexWithAnUnlimitedBudgetFindsExactSoulmates() {
+        Random random = new Random(29);
+        SongUserIndex songUsers = new SongUserIndex();
+        MatchEngine engine = new MatchEngine(new LshIndex(8, 2, 100_000));
+        engine.useSongIndex(songUsers);
+        Map<Integer, SparseVector> clouds = songClouds(random, engine.dictionary(), 300, songUsers);
+        engine.load(clouds);
+
+        for (int userId : clouds.keySet()) {
+            assertSameCandidates(bruteForce(clouds, userId), engine.findCandidates(userId));
+        }
+    }
+
+    @Test
+    void songIndexRaisesApproximateRecall() {
+        Random random = new Random(31);
+        SongUserIndex songUsers = new SongUserIndex();
+        TermDictionary dictionary = new TermDictionary();
+        Map<Integer, SparseVector> clouds = songClouds(random, dictionary, 3000, songUsers);
+
+        MatchEngine lshOnly = new MatchEngine(new LshIndex());
+        lshOnly.load(clouds);
+        MatchEngine withSongs = new MatchEngine(new LshIndex());
+        withSongs.useSongIndex(songUsers);
+        withSongs.load(clouds);
+
+        int lshHits = 0, songHits = 0;
+        long lshNanos = 0, songNanos = 0;
+        for (int userId : clouds.keySet()) {
+            MatchCandidates truth = bruteForce(clouds, userId);
+            long t0 = System.nanoTime();
+            MatchCandidates a = lshOnly.findCandidates(userId);
+            long t1 = System.nanoTime();
+            MatchCandidates b = withSongs.findCandidates(userId);
+            long t2 = System.nanoTime();
+            lshNanos += t1 - t0;
+            songNanos += t2 - t1;
+
+            assertTrue(b.bestScore <= truth.bestScore);
+            assertEquals(truth.worstUser, b.worstUser);
+            if (a.bestScore == truth.bestScore) lshHits++;
+            if (b.bestScore == truth.bestScore) songHits++;
+        }
+        System.out.printf("recall@1 over %d users: LSH %.3f (%.1f us/query), LSH + song overlap %.3f (%.1f us/query)%n",
+                clouds.size(), (double) lshHits / clouds.size(), lshNanos / 1e3 / clouds.size(),
+                (double) songHits / clouds.size(), songNanos / 1e3 / clouds.size());
+        assertTrue(songHits >= lshHits);
+    }
+
+    @Test
+    void rankMatchesSortedBruteForce() {
+        Random random = new Random(13);
+        for (int round = 0; round < 10; round++) {
+            MatchEngine engine = new MatchEngine();
+            Map<Integer, SparseVector> clouds = randomClouds(random, engine.dictionary(), 50, 15 + round * 10);
+            engine.load(clouds);
+
+            for (int userId : clouds.keySet()) {
+                SparseVector mine = clouds.get(userId);
+                MatchRanking ranking = engine.rank(userId, 7);
+                if (mine.isEmpty()) {
+                    assertSame(MatchRanking.EMPTY, ranking);
+                    continue;
+                }
+
+                List<double[]> all = new ArrayList<>();
+                for (Map.Entry<Integer, SparseVector> e : clouds.entrySet()) {
+                    if (e.getKey() == userId || e.getValue().isEmpty()) continue;
+                    all.add(new double[]{SparseVector.weightedJaccard(mine, e.getValue()), e.getKey()});
+                }
+                assertEquals(all.size(), ranking.candidates);
+
+                all.sort(Comparator.<double[]>comparingDouble(e -> -e[0]).thenComparingDouble(e -> e[1]));
+                assertEquals(Math.min(7, all.size()), ranking.soulmates.length);
+                for (int i = 0; i < ranking.soulmates.length; i++) {
+                    assertEquals((int) all.get(i)[1], ranking.soulmates[i]);
+                    assertEquals(all.get(i)[0], ranking.soulmateScores[i]);
+                }
+
+                all.sort(Comparator.<double[]>comparingDouble(e -> e[0]).thenComparingDouble(e -> e[1]));
+                for (int i = 0; i < ranking.enemies.length; i++) {
+                    assertEquals((int) all.get(i)[1], ranking.enemies[i]);
+                    assertEquals(all.get(i)[0], ranking.enemyScores[i]);
+                }
+
+                // the first entries agree with the single-result lookup
+                if (ranking.soulmates.length > 0) {
+                    assertEquals(engine.findCandidates(userId).bestUser, ranking.soulmates[0]);
+                    assertEquals(engine.findCandidates(userId).worstUser, ranking.enemies[0]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void approximateModeGivesTheSameResultWithEitherKernel() {
+        // the vector kernel is only there under mvn -Pvector-api
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        Random random = new Random(23);
+        MatchEngine scalar = new MatchEngine(new LshIndex(16, 2, 20), new ScalarSimilarityKernel());
+        MatchEngine vector = new MatchEngine(new LshIndex(16, 2, 20), SimilarityKernel.named("vector"));
+        Map<Integer, SparseVector> clouds = randomClouds(random, scalar.dictionary(), 80, 60);
+        scalar.load(clouds);
+        vector.load(clouds);
+
+        for (int userId : clouds.keySet()) {
+            MatchCandidates a = scalar.findCandidates(userId);
+            MatchCandidates b = vector.findCandidates(userId);
+            assertEquals(a.bestUser, b.bestUser);
+            assertEquals(a.bestScore, b.bestScore);
+            assertEquals(a.worstUser, b.worstUser);
+        }
+    }
+
+    @Test
+    void readVectorsSeesEveryCloud() throws Exception {
+        MatchEngine engine = new MatchEngine();
+        Map<Integer, SparseVector> clouds = randomClouds(new Random(29), engine.dictionary(), 20, 30);
+        engine.load(clouds);
+
+        Map<Integer, SparseVector> read = new HashMap<>();
+        engine.readVectors((vectors, graph) -> read.putAll(vectors));
+        for (Map.Entry<Integer, SparseVector> e : clouds.entrySet()) {
+            if (e.getValue().isEmpty()) continue;
+            assertSame(e.getValue(), read.get(e.getKey()));
+        }
+    }
+
+    @Test
+    void readVectorsHandsOverTheGraphOnlyWhileItIsExact() throws Exception {
+        MatchEngine engine = new MatchEngine();
+        engine.load(randomClouds(new Random(31), engine.dictionary(), 20, 30));
+        List<Map<Integer, MatchCandidates>> graphs = new ArrayList<>();
+        int users = engine.userCount();
+
+        engine.readVectors((vectors, graph) -> graphs.add(graph));
+        engine.stage(8, uid -> SparseVector.of(Map.of("w1", 3), engine.dictionary()));
+        engine.readVectors((vectors, graph) -> graphs.add(graph));
+        engine.applyStaged(List.of(8));
+        engine.readVectors((vectors, graph) -> graphs.add(graph));
+
+        assertEquals(users, graphs.get(0).size());
+        assertNull(graphs.get(1));
+        assertEquals(engine.copyGraph().keySet(), graphs.get(2).keySet());
+
+        MatchEngine approx = new MatchEngine(new LshIndex());
+        approx.load(randomClouds(new Random(31), approx.dictionary(), 20, 30));
+        approx.readVectors((vectors, graph) -> graphs.add(graph));
+        assertNull(graphs.get(3));
+    }
+
+    @Test
+    void savedGraphWithChangesReplayedMatchesAFreshLoad() throws Exception {
+        Random random = new Random(37);
+        MatchEngine before = new MatchEngine();
+        Map<Integer, SparseVector> clouds = randomClouds(random, before.dictionary(), 60, 40);
+        before.load(clouds);
+        Map<Integer, SparseVector> saved = new HashMap<>();
+        Map<Integer, MatchCandidates> savedGraph = new HashMap<>();
+        before.readVectors((vectors, graph) -> {
+            saved.putAll(vectors);
+            savedGraph.putAll(graph);
+        });
+
+        // a restarted engine whose batch job must not run
+        MatchEngine restarted = new MatchEngine(new MatchBatchJob() {
+            @Override
+            public Map<Integer, MatchCandidates> computeAll(int[] userIds, SparseVector[] vectors) {
+                throw new AssertionError("the saved graph should have been used");
+            }
+        });
+        restarted.load(saved, savedGraph);
+        List<Integer> users = new ArrayList<>(clouds.keySet());
+        for (int i = 0; i < 15; i++) {
+            int userId = users.get(random.nextInt(users.size()));
+            SparseVector changed = i % 5 == 0 ? SparseVector.EMPTY : randomCloud(random, before.dictionary(), 40);
+            clouds.put(userId, changed);
+            restarted.update(userId, changed);
+        }
+
+        MatchEngine fresh = new MatchEngine();
+        fresh.load(clouds);
+        Map<Integer, MatchCandidates> expected = fresh.copyGraph();
+        Map<Integer, MatchCandidates> actual = restarted.copyGraph();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (int userId : expected.keySet()) assertSameCandidates(expected.get(userId), actual.get(userId));
+    }
+
+    // reference scores computed straight from the definitions over every pair
+    private static double referenceScore(Map<Integer, SparseVector> clouds, SparseVector a, SparseVector b,
+                                         SimilarityMetric metric) {
+        Map<Integer, Integer> df = new HashMap<>();
+        long totalLength = 0;
+        int users = 0;
+        for (SparseVector v : clouds.values()) {
+            if (v.isEmpty()) continue;
+            users++;
+            totalLength += v.total();
+            for (int i = 0; i < v.size(); i++) df.merge(v.termId(i), 1, Integer::sum);
+        }
+        Map<Integer, Integer> bCounts = new HashMap<>();
+        for (int i = 0; i < b.size(); i++) bCounts.put(b.termId(i), b.count(i));
+
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.size(); i++) {
+            int term = a.termId(i);
+            double idf = metric == SimilarityMetric.TFIDF ? Math.log(1.0 + (double) users / df.get(term)) : 1.0;
+            double wa = a.count(i) * idf;
+            normA += wa * wa;
+            Integer fb = bCounts.get(term);
+            if (fb == null) continue;
+            if (metric == SimilarityMetric.BM25) {
+                double bm25Idf = Math.log(1.0 + (users - df.get(term) + 0.5) / (df.get(term) + 0.5));
+                double lengthNorm = 1 - InvertedIndex.BM25_B + InvertedIndex.BM25_B * b.total() / ((double) totalLength / users);
+                dot += a.count(i) * bm25Idf * fb * (InvertedIndex.BM25_K1 + 1) / (fb + InvertedIndex.BM25_K1 * lengthNorm);
+            }
+            else dot += wa * fb * idf;
+        }
+        if (metric == SimilarityMetric.BM25) return dot;
+        for (int i = 0; i < b.size(); i++) {
+            double idf = metric == SimilarityMetric.TFIDF ? Math.log(1.0 + (double) users / df.get(b.termId(i))) : 1.0;
+            double wb = b.count(i) * idf;
+            normB += wb * wb;
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    @Test
+    void rankWithEveryMetricMatchesReferenceScores() {
+        Random random = new Random(31);
+        MatchEngine engine = new MatchEngine();
+        Map<Integer, SparseVector> clouds = randomClouds(random, engine.dictionary(), 60, 25);
+        engine.load(clouds);
+
+        for (SimilarityMetric metric : new SimilarityMetric[]{SimilarityMetric.COSINE, SimilarityMetric.TFIDF, SimilarityMetric.BM25}) {
+            for (int userId : clouds.keySet()) {
+                SparseVector mine = clouds.get(userId);
+                MatchRanking ranking = engine.rank(userId, 5, metric);
+                if (mine.isEmpty()) continue;
+
+                List<Double> expected = new ArrayList<>();
+                for (Map.Entry<Integer, SparseVector> e : clouds.entrySet()) {
+                    if (e.getKey() == userId || e.getValue().isEmpty()) continue;
+                    double score = SparseVector.sharedCount(mine, e.getValue()) == 0 ? 0.0
+                            : referenceScore(clouds, mine, e.getValue(), metric);
+                    expected.add(score);
+                }
+                expected.sort(Comparator.reverseOrder());
+                for (int i = 0; i < ranking.soulmates.length; i++) {
+                    assertEquals(expected.get(i), ranking.soulmateScores[i], 1e-9, metric + " soulmate " + i);
+                    assertEquals(referenceScore(clouds, mine, clouds.get(ranking.soulmates[i]), metric),
+                            ranking.soulmateScores[i], 1e-9);
+                }
+                expected.sort(Comparator.naturalOrder());
+                for (int i = 0; i < ranking.enemies.length; i++) {
+                    assertEquals(expected.get(i), ranking.enemyScores[i], 1e-9, metric + " enemy " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void jaccardRankingIsTheDefault() {
+        MatchEngine engine = new MatchEngine();
+        Map<Integer, SparseVector> clouds = randomClouds(new Random(37), engine.dictionary(), 30, 20);
+        engine.load(clouds);
+        for (int userId : clouds.keySet()) {
+            MatchRanking a = engine.rank(userId, 4);
+            MatchRanking b = engine.rank(userId, 4, SimilarityMetric.JACCARD);
+            assertArrayEquals(a.soulmates, b.soulmates);
+            assertArrayEquals(a.enemies, b.enemies);
+        }
+    }
+
+    @Test
+    void firstPicksAreTheTopOfEachUsersRanking() {
+        MatchEngine engine = new MatchEngine();
+        Map<Integer, SparseVector> clouds = randomClouds(new Random(41), engine.dictionary(), 40, 20);
+        engine.load(clouds);
+        int[] users = clouds.keySet().stream().mapToInt(Integer::intValue).toArray();
+
+        for (SimilarityMetric metric : SimilarityMetric.values()) {
+            Map<Integer, MatchCandidates> picks = engine.firstPicks(users, metric);
+            for (int userId : users) {
+                MatchRanking ranking = engine.rank(userId, 1, metric);
+                MatchCandidates pick = picks.get(userId);
+                if (ranking.soulmates.length == 0) {
+                    assertSame(MatchCandidates.NONE, pick);
+                    continue;
+                }
+                assertEquals(ranking.soulmates[0], pick.bestUser, metric + " soulmate of " + userId);
+                assertEquals(ranking.enemies[0], pick.worstUser, metric + " enemy of " + userId);
+            }
+        }
+    }
+}
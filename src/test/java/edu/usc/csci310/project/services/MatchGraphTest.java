@@ -0,0 +1,50 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchGraphTest {
+
+    @Test
+    void getMissingUserIsNone() {
+        MatchGraph graph = new MatchGraph();
+        assertSame(MatchCandidates.NONE, graph.get(1));
+        assertFalse(graph.isMutualBest(1));
+        assertFalse(graph.isMutualWorst(1));
+    }
+
+    @Test
+    void mutualFlagsCompareBothEntries() {
+        MatchGraph graph = new MatchGraph();
+        graph.put(1, new MatchCandidates(2, 0.5, 3, 0.0));
+        graph.put(2, new MatchCandidates(1, 0.5, 3, 0.1));
+        graph.put(3, new MatchCandidates(2, 0.1, 1, 0.0));
+
+        assertTrue(graph.isMutualBest(1));
+        assertTrue(graph.isMutualBest(2));
+        assertFalse(graph.isMutualBest(3));
+        assertTrue(graph.isMutualWorst(1));
+        assertFalse(graph.isMutualWorst(2));
+        assertTrue(graph.isMutualWorst(3));
+        assertEquals(3, graph.size());
+
+        graph.remove(2);
+        assertFalse(graph.isMutualBest(1));
+        graph.clear();
+        assertEquals(0, graph.size());
+    }
+
+    @Test
+    void orderingBreaksTiesOnLowerUserId() {
+        assertTrue(MatchGraph.isBetter(0.1, 5, 0.0, -1));
+        assertTrue(MatchGraph.isBetter(0.5, 5, 0.4, 2));
+        assertTrue(MatchGraph.isBetter(0.5, 2, 0.5, 5));
+        assertFalse(MatchGraph.isBetter(0.5, 5, 0.5, 2));
+
+        assertTrue(MatchGraph.isWorse(0.9, 5, 0.0, -1));
+        assertTrue(MatchGraph.isWorse(0.1, 5, 0.2, 2));
+        assertTrue(MatchGraph.isWorse(0.2, 2, 0.2, 5));
+        assertFalse(MatchGraph.isWorse(0.2, 5, 0.2, 2));
+    }
+}
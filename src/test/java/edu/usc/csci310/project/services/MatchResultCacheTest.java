@@ -0,0 +1,94 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.models.MatchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchResultCacheTest {
+
+    @Test
+    void getOnlyServesTheSameEpoch() {
+        MatchResultCache cache = new MatchResultCache(10);
+        MatchResult result = new MatchResult("a", true, "b", false);
+        cache.put(1, 3, result);
+
+        assertSame(result, cache.get(1, 3));
+        assertNull(cache.get(1, 4));
+        assertNull(cache.get(2, 3));
+
+        Map<String, Long> stats = cache.stats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+    }
+
+    @Test
+    void putNeverOverwritesANewerEpoch() {
+        MatchResultCache cache = new MatchResultCache(10);
+        MatchResult fresh = new MatchResult("a", true, "b", false);
+        cache.put(1, 5, fresh);
+        cache.put(1, 4, new MatchResult());
+        assertSame(fresh, cache.get(1, 5));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        MatchResultCache cache = new MatchResultCache(2);
+        cache.put(1, 0, new MatchResult());
+        cache.put(2, 0, new MatchResult());
+        cache.get(1, 0);
+        cache.put(3, 0, new MatchResult());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1, 0));
+        assertNull(cache.get(2, 0));
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void invalidateBeforeDropsOlderEntries() {
+        MatchResultCache cache = new MatchResultCache(10);
+        cache.put(1, 1, new MatchResult());
+        cache.put(2, 2, new MatchResult());
+        cache.invalidateBefore(2);
+
+        assertEquals(1, cache.size());
+        assertEquals(1L, cache.stats().get("invalidations"));
+    }
+
+    @Test
+    void zeroCapacityCachesNothing() {
+        MatchResultCache cache = new MatchResultCache(0);
+        cache.put(1, 0, new MatchResult());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void concurrentAccessStaysBounded() throws Exception {
+        MatchResultCache cache = new MatchResultCache(50);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    int user = (i * 31 + offset) % 200;
+                    if (cache.get(user, i % 3) == null) cache.put(user, i % 3, new MatchResult());
+                    if (i % 500 == 0) cache.invalidateBefore(i % 3);
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+
+        assertTrue(cache.size() <= 50);
+        assertEquals(16000L, cache.stats().get("hits") + cache.stats().get("misses"));
+    }
+}
@@ -0,0 +1,42 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchSnapshotTest {
+    private final MatchSnapshot snapshot = new MatchSnapshot(Map.of(
+            1, new MatchCandidates(2, 0.5, 3, 0.0),
+            2, new MatchCandidates(1, 0.5, 3, 0.0),
+            3, new MatchCandidates(2, 0.1, 1, 0.0),
+            4, MatchCandidates.NONE), 1000L);
+
+    @Test
+    void looksUpCandidates() {
+        assertTrue(snapshot.contains(4));
+        assertFalse(snapshot.contains(5));
+        assertEquals(2, snapshot.get(1).bestUser);
+        assertSame(MatchCandidates.NONE, snapshot.get(5));
+        assertEquals(4, snapshot.size());
+    }
+
+    @Test
+    void mutualFlagsComeFromTheSameSnapshot() {
+        assertTrue(snapshot.isMutualBest(1));
+        assertFalse(snapshot.isMutualBest(3));
+        assertTrue(snapshot.isMutualWorst(3));
+        assertFalse(snapshot.isMutualWorst(2));
+        assertFalse(snapshot.isMutualBest(4));
+        assertFalse(snapshot.isMutualWorst(4));
+    }
+
+    @Test
+    void ageIsMeasuredFromPublication() {
+        assertEquals(1000L, snapshot.publishedAt());
+        assertEquals(250L, snapshot.ageMillis(1250L));
+        assertEquals(0L, snapshot.ageMillis(900L));
+        assertFalse(MatchSnapshot.EMPTY.contains(1));
+    }
+}
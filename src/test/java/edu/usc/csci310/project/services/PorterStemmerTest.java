@@ -0,0 +1,50 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PorterStemmerTest {
+    private final PorterStemmer stemmer = new PorterStemmer();
+
+    // pairs from Porter's published sample vocabulary and the steps of the original paper
+    private static final String[][] PAIRS = {
+            {"caresses", "caress"}, {"ponies", "poni"}, {"ties", "ti"}, {"caress", "caress"}, {"cats", "cat"},
+            {"feed", "feed"}, {"agreed", "agre"}, {"plastered", "plaster"}, {"bled", "bled"}, {"motoring", "motor"},
+            {"sing", "sing"}, {"conflated", "conflat"}, {"troubled", "troubl"}, {"sized", "size"}, {"hopping", "hop"},
+            {"tanned", "tan"}, {"falling", "fall"}, {"hissing", "hiss"}, {"fizzed", "fizz"}, {"failing", "fail"},
+            {"filing", "file"}, {"happy", "happi"}, {"sky", "sky"}, {"relational", "relat"}, {"conditional", "condit"},
+            {"rational", "ration"}, {"digitizer", "digit"}, {"conformabli", "conform"}, {"radicalli", "radic"},
+            {"differentli", "differ"}, {"vileli", "vile"}, {"analogousli", "analog"}, {"vietnamization", "vietnam"},
+            {"predication", "predic"}, {"operator", "oper"}, {"feudalism", "feudal"}, {"decisiveness", "decis"},
+            {"hopefulness", "hope"}, {"callousness", "callous"}, {"formaliti", "formal"}, {"sensitiviti", "sensit"},
+            {"sensibiliti", "sensibl"}, {"triplicate", "triplic"}, {"formative", "form"}, {"formalize", "formal"},
+            {"electriciti", "electr"}, {"electrical", "electr"}, {"hopeful", "hope"}, {"goodness", "good"},
+            {"revival", "reviv"}, {"allowance", "allow"}, {"inference", "infer"}, {"airliner", "airlin"},
+            {"gyroscopic", "gyroscop"}, {"adjustable", "adjust"}, {"defensible", "defens"}, {"irritant", "irrit"},
+            {"replacement", "replac"}, {"adjustment", "adjust"}, {"dependent", "depend"}, {"adoption", "adopt"},
+            {"homologou", "homolog"}, {"communism", "commun"}, {"activate", "activ"}, {"angulariti", "angular"},
+            {"homologous", "homolog"}, {"effective", "effect"}, {"bowdlerize", "bowdler"}, {"probate", "probat"},
+            {"rate", "rate"}, {"cease", "ceas"}, {"controll", "control"}, {"roll", "roll"},
+            {"generalizations", "gener"}, {"oscillators", "oscil"}, {"loving", "love"}, {"loved", "love"}, {"loves", "love"}
+    };
+
+    @Test
+    void stemsSampleVocabulary() {
+        for (String[] pair : PAIRS) {
+            assertEquals(pair[1], stemmer.stem(pair[0]), pair[0]);
+        }
+    }
+
+    @Test
+    void shortWordsAreUnchanged() {
+        assertEquals("is", stemmer.stem("is"));
+        assertEquals("a", stemmer.stem("a"));
+    }
+
+    @Test
+    void unchangedWordsKeepTheirInstance() {
+        String word = "sing";
+        assertSame(word, stemmer.stem(word));
+    }
+}
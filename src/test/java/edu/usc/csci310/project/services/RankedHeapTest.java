@@ -0,0 +1,74 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedHeapTest {
+
+    @Test
+    void soulmatesKeepHighestScoresBestFirst() {
+        RankedHeap heap = RankedHeap.soulmates(3);
+        heap.offer(1, 0.2);
+        heap.offer(2, 0.9);
+        heap.offer(3, 0.5);
+        heap.offer(4, 0.1);
+        heap.offer(5, 0.5);
+
+        int[] users = new int[3];
+        double[] scores = new double[3];
+        assertEquals(3, heap.drain(users, scores));
+        assertArrayEquals(new int[]{2, 3, 5}, users);
+        assertArrayEquals(new double[]{0.9, 0.5, 0.5}, scores);
+        assertEquals(0, heap.size());
+    }
+
+    @Test
+    void enemiesKeepLowestScoresAndLowerIdsOnTies() {
+        RankedHeap heap = RankedHeap.enemies(2);
+        heap.offer(9, 0.0);
+        heap.offer(4, 0.3);
+        heap.offer(7, 0.0);
+        heap.offer(8, 0.0);
+
+        int[] users = new int[2];
+        double[] scores = new double[2];
+        heap.drain(users, scores);
+        assertArrayEquals(new int[]{7, 8}, users);
+    }
+
+    @Test
+    void matchesFullSortOnRandomInput() {
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            int n = 1 + random.nextInt(200);
+            int k = 1 + random.nextInt(20);
+            double[][] entries = new double[n][];
+            RankedHeap heap = RankedHeap.soulmates(k);
+            for (int u = 0; u < n; u++) {
+                double score = random.nextInt(10) / 10.0;
+                entries[u] = new double[]{score, u};
+                heap.offer(u, score);
+            }
+            Arrays.sort(entries, Comparator.<double[]>comparingDouble(e -> -e[0]).thenComparingDouble(e -> e[1]));
+
+            int[] users = new int[Math.min(k, n)];
+            double[] scores = new double[users.length];
+            heap.drain(users, scores);
+            for (int i = 0; i < users.length; i++) {
+                assertEquals((int) entries[i][1], users[i]);
+            }
+        }
+    }
+
+    @Test
+    void zeroCapacityKeepsNothing() {
+        RankedHeap heap = RankedHeap.enemies(0);
+        heap.offer(1, 0.5);
+        assertEquals(0, heap.size());
+    }
+}
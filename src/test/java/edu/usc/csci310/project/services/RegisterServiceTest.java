@@ -1,6 +1,7 @@
 package edu.usc.csci310.project.services;
 
 import edu.usc.csci310.project.Utils;
+import edu.usc.csci310.project.configuration.ConnectionPool;
 import edu.usc.csci310.project.exceptions.UsernameNotAvailableException;
 import edu.usc.csci310.project.requests.CreateUserRequest;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,7 +28,7 @@ class RegisterServiceTest {
     @BeforeEach
     void setUpBeforeClass() throws Exception {
         conn = mock(Connection.class);
-        registerService = spy(new RegisterService(conn));
+        registerService = spy(new RegisterService(ConnectionPool.of(conn)));
         st = mock(Statement.class);
         pst = mock(PreparedStatement.class);
         rs = mock(ResultSet.class);
@@ -148,40 +149,40 @@ class RegisterServiceTest {
         String username = "test";
         String password = "TestPassword1";
         CreateUserRequest createUserRequest = generateValidCreateUserRequest(username, password);
-        String sqlString = "INSERT INTO users (username, password) VALUES (?, ?)";
+        String sqlString = "INSERT INTO users (username, password) VALUES (?, ?) " +
+                "ON CONFLICT(username) DO NOTHING RETURNING id";
 
-        Statement st = mock(Statement.class);
         PreparedStatement pst = mock(PreparedStatement.class);
         ResultSet rs = mock(ResultSet.class);
 
         when(rs.next()).thenReturn(rsNextReturns);
         if (rsNextReturns && expectedId != null) {
-            when(rs.getInt(1)).thenReturn(expectedId);
+            when(rs.getInt("id")).thenReturn(expectedId);
         }
 
-        doReturn(true).when(registerService).isUsernameAvailable(username);
         doReturn("hashedUsername").when(registerService).hashUsername(username);
-        when(conn.createStatement()).thenReturn(st);
         when(conn.prepareStatement(sqlString)).thenReturn(pst);
-        when(pst.executeUpdate()).thenReturn(1);
-        when(st.executeQuery("SELECT last_insert_rowid()")).thenReturn(rs);
+        when(pst.executeQuery()).thenReturn(rs);
 
         try (MockedStatic<Utils> mockedUtils = mockStatic(Utils.class)) {
             mockedUtils.when(() -> Utils.hashPassword(password)).thenReturn("hashedPassword");
 
             if (!rsNextReturns) {
-                SQLException sqle = assertThrows(SQLException.class,
+                // the username is taken, so the insert returned no row
+                UsernameNotAvailableException unae = assertThrows(UsernameNotAvailableException.class,
                         () -> registerService.createUser(createUserRequest));
-                assertTrue(sqle.getMessage().contains("Failed to retrieve the generated ID"));
+                assertTrue(unae.getMessage().contains("Username not available"));
             } else {
                 int actualId = registerService.createUser(createUserRequest);
                 assertEquals(expectedId, actualId);
+                verify(pst).setString(1, "hashedUsername");
+                verify(pst).setString(2, "hashedPassword");
             }
         }
     }
 
     @Test
-    void createRegistrationRsNextFalse() throws SQLException {
+    void createRegistrationUserNotAvailable() throws SQLException {
         testCreateUserScenario(false, null);
     }
 
@@ -190,43 +191,16 @@ class RegisterServiceTest {
         testCreateUserScenario(true, 200);
     }
 
-
-    // Refactored method to set up mocks for createUser, let createRegistrationNoRowsAffected and createRegistrationUserNotAvailable use this method
-    private void setupCreateUserMocks(String username, String password, boolean isUsernameAvailable) throws SQLException {
-        doReturn(isUsernameAvailable).when(registerService).isUsernameAvailable(username);
-        doReturn("hashedUsername").when(registerService).hashUsername(username);
-
-        try (MockedStatic<Utils> mockedUtils = mockStatic(Utils.class)) {
-            mockedUtils.when(() -> Utils.hashPassword(password)).thenReturn("hashedPassword");
-        }
-    }
-
     @Test
-    void createRegistrationNoRowsAffected() throws SQLException {
+    void createRegistrationInsertFails() throws SQLException {
         String username = "test";
         String password = "TestPassword1";
-        String sqlString = "INSERT INTO users (username, password) VALUES (?, ?)";
 
-        setupCreateUserMocks(username, password, true);
-
-        when(conn.createStatement()).thenReturn(st);
-        when(conn.prepareStatement(sqlString)).thenReturn(pst);
-        when(pst.executeUpdate()).thenReturn(-1);
+        when(conn.prepareStatement(anyString())).thenReturn(pst);
+        when(pst.executeQuery()).thenThrow(new SQLException("disk I/O error"));
 
         SQLException sqle = assertThrows(SQLException.class, () -> registerService.createUser(generateValidCreateUserRequest(username, password)));
-      
-        assertTrue(sqle.getMessage().contains("No rows affected"));
-    }
-
-    @Test
-    void createRegistrationUserNotAvailable() throws SQLException {
-        String username = "test";
-        String password = "TestPassword1";
-
-        setupCreateUserMocks(username, password, false);
-
-        UsernameNotAvailableException unae = assertThrows(UsernameNotAvailableException.class, () -> registerService.createUser(generateValidCreateUserRequest(username, password)));
-        assertTrue(unae.getMessage().contains("Username not available"));
+        assertTrue(sqle.getMessage().contains("disk I/O error"));
     }
 
 }
\ No newline at end of file
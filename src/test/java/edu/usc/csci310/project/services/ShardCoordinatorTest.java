@@ -0,0 +1,171 @@
+package edu.usc.csci310.project.services;
+
+import com.sun.net.httpserver.HttpServer;
+import edu.usc.csci310.project.configuration.ShardConfig;
+import edu.usc.csci310.project.requests.ShardQueryRequest;
+import edu.usc.csci310.project.responses.ShardCandidatesResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static edu.usc.csci310.project.services.MatchEngineTest.assertSameCandidates;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardCoordinatorTest {
+
+    static Map<Integer, Map<String, Integer>> randomTermClouds(Random random, int users, int vocabulary) {
+        Map<Integer, Map<String, Integer>> clouds = new HashMap<>();
+        for (int u = 1; u <= users; u++) {
+            Map<String, Integer> cloud = new HashMap<>();
+            int words = random.nextInt(12);
+            for (int i = 0; i < words; i++) {
+                cloud.merge("w" + random.nextInt(vocabulary), 1 + random.nextInt(4), Integer::sum);
+            }
+            clouds.put(u * 7 % 1000 + 1, cloud);
+        }
+        return clouds;
+    }
+
+    // one engine per shard with its own dictionary, as in separate processes
+    static MatchEngine[] shardEngines(Map<Integer, Map<String, Integer>> clouds, int count) {
+        MatchEngine[] engines = new MatchEngine[count];
+        for (int i = 0; i < count; i++) {
+            ShardTopology topology = new ShardTopology(i, count, List.of());
+            MatchEngine engine = new MatchEngine();
+            Map<Integer, SparseVector> owned = new HashMap<>();
+            clouds.forEach((userId, cloud) -> {
+                if (topology.owns(userId)) owned.put(userId, SparseVector.of(cloud, engine.dictionary()));
+            });
+            engine.load(owned);
+            engines[i] = engine;
+        }
+        return engines;
+    }
+
+    @Test
+    void mergedShardAnswersMatchSingleEngine() {
+        Random random = new Random(17);
+        for (int round = 0; round < 10; round++) {
+            Map<Integer, Map<String, Integer>> clouds = randomTermClouds(random, 80, 10 + round * 10);
+            MatchEngine single = new MatchEngine();
+            Map<Integer, SparseVector> all = new HashMap<>();
+            clouds.forEach((userId, cloud) -> all.put(userId, SparseVector.of(cloud, single.dictionary())));
+            single.load(all);
+
+            for (int count = 1; count <= 4; count++) {
+                MatchEngine[] shards = shardEngines(clouds, count);
+                for (Map.Entry<Integer, Map<String, Integer>> e : clouds.entrySet()) {
+                    if (e.getValue().isEmpty()) continue;
+                    List<MatchCandidates> answers = new ArrayList<>();
+                    for (MatchEngine shard : shards) {
+                        answers.add(shard.searchFor(e.getKey(), SparseVector.of(e.getValue(), shard.dictionary())));
+                    }
+                    assertSameCandidates(single.findCandidates(e.getKey()), ShardCoordinator.merge(answers));
+                }
+            }
+        }
+    }
+
+    @Test
+    void mergeSkipsShardsWithoutCandidates() {
+        MatchCandidates merged = ShardCoordinator.merge(List.of(MatchCandidates.NONE,
+                new MatchCandidates(4, 0.5, 9, 0.0), new MatchCandidates(3, 0.5, 2, 0.0)));
+        assertSameCandidates(new MatchCandidates(3, 0.5, 2, 0.0), merged);
+        assertSame(MatchCandidates.NONE, ShardCoordinator.merge(List.of(MatchCandidates.NONE)));
+    }
+
+    @Test
+    void findCandidatesScattersToEveryShard() {
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.postForObject(eq("http://a/api/shard/candidates"), any(ShardQueryRequest.class), eq(ShardCandidatesResponse.class)))
+                .thenReturn(new ShardCandidatesResponse(5, 0.25, 8, 0.1));
+        when(restTemplate.postForObject(eq("http://b/api/shard/candidates"), any(ShardQueryRequest.class), eq(ShardCandidatesResponse.class)))
+                .thenReturn(new ShardCandidatesResponse(6, 0.75, 7, 0.1));
+
+        ShardCoordinator coordinator = new ShardCoordinator(restTemplate, List.of("http://a", "http://b"));
+        assertSameCandidates(new MatchCandidates(6, 0.75, 7, 0.1), coordinator.findCandidates(1, Map.of("love", 2)));
+    }
+
+    @Test
+    void findCandidatesFailsIfAShardFails() {
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.postForObject(eq("http://a/api/shard/candidates"), any(ShardQueryRequest.class), eq(ShardCandidatesResponse.class)))
+                .thenReturn(new ShardCandidatesResponse(5, 0.25, 8, 0.1));
+        when(restTemplate.postForObject(eq("http://b/api/shard/candidates"), any(ShardQueryRequest.class), eq(ShardCandidatesResponse.class)))
+                .thenThrow(new ResourceAccessException("connection refused"));
+
+        ShardCoordinator coordinator = new ShardCoordinator(restTemplate, List.of("http://a", "http://b"));
+        assertThrows(IllegalStateException.class, () -> coordinator.findCandidates(1, Map.of("love", 2)));
+    }
+
+    @Test
+    void findCandidatesSendsTheSecret() throws Exception {
+        List<String> received = new ArrayList<>();
+        HttpServer shard = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        shard.createContext("/api/shard/candidates", exchange -> {
+            received.add(exchange.getRequestHeaders().getFirst(ShardCoordinator.SECRET_HEADER));
+            byte[] body = "{\"bestUser\":-1,\"bestScore\":0,\"worstUser\":-1,\"worstScore\":0}".getBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        shard.start();
+        try {
+            RestTemplate restTemplate = new ShardConfig().shardRestTemplate(new RestTemplateBuilder(), 2000, "s3cret");
+            ShardCoordinator coordinator = new ShardCoordinator(restTemplate,
+                    List.of("http://localhost:" + shard.getAddress().getPort()));
+
+            assertSame(MatchCandidates.NONE, coordinator.findCandidates(1, Map.of("love", 2)));
+            assertEquals(List.of("s3cret"), received);
+        } finally {
+            shard.stop(0);
+        }
+    }
+
+    @Test
+    void findCandidatesGivesUpOnASlowShard() throws Exception {
+        // a shard that accepts the query and never answers within the timeout
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer slowShard = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        slowShard.createContext("/api/shard/candidates", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        slowShard.setExecutor(Executors.newSingleThreadExecutor());
+        slowShard.start();
+        try {
+            RestTemplate restTemplate = new ShardConfig().shardRestTemplate(new RestTemplateBuilder(), 200, "s3cret");
+            ShardCoordinator coordinator = new ShardCoordinator(restTemplate,
+                    List.of("http://localhost:" + slowShard.getAddress().getPort()));
+
+            long start = System.nanoTime();
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> coordinator.findCandidates(1, Map.of("love", 2)));
+            assertInstanceOf(ResourceAccessException.class, e.getCause());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            release.countDown();
+            slowShard.stop(0);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardTopologyTest {
+
+    @Test
+    void everyUserBelongsToExactlyOneShard() {
+        ShardTopology[] shards = new ShardTopology[3];
+        for (int i = 0; i < 3; i++) shards[i] = new ShardTopology(i, 3, List.of());
+
+        int[] sizes = new int[3];
+        for (int userId = 1; userId <= 3000; userId++) {
+            int owners = 0;
+            for (int i = 0; i < 3; i++) {
+                if (shards[i].owns(userId)) {
+                    owners++;
+                    sizes[i]++;
+                }
+            }
+            assertEquals(1, owners);
+        }
+        // consecutive ids are spread out rather than handed out in runs
+        for (int size : sizes) assertTrue(size > 800, "shard sizes " + sizes[0] + ", " + sizes[1] + ", " + sizes[2]);
+    }
+
+    @Test
+    void singleOwnsEveryone() {
+        assertFalse(ShardTopology.SINGLE.isSharded());
+        assertFalse(ShardTopology.SINGLE.isCoordinator());
+        for (int userId = -5; userId < 100; userId++) assertTrue(ShardTopology.SINGLE.owns(userId));
+    }
+
+    @Test
+    void coordinatorHasShardUrls() {
+        ShardTopology topology = new ShardTopology(1, 2, List.of("http://a", "http://b"));
+        assertTrue(topology.isSharded());
+        assertTrue(topology.isCoordinator());
+        assertEquals(List.of("http://a", "http://b"), topology.getShardUrls());
+        assertEquals(1, topology.getIndex());
+        assertEquals(2, topology.getCount());
+    }
+
+    @Test
+    void rejectsIndexOutsideCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardTopology(2, 2, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new ShardTopology(-1, 2, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new ShardTopology(0, 0, List.of()));
+    }
+}
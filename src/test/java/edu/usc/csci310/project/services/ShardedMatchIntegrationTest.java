@@ -0,0 +1,161 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.SpringBootAPI;
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.configuration.DatabaseInitializer;
+import edu.usc.csci310.project.configuration.ShardConfig;
+import edu.usc.csci310.project.models.MatchResult;
+import edu.usc.csci310.project.requests.FavoriteSongRequest;
+import edu.usc.csci310.project.requests.ShardQueryRequest;
+import edu.usc.csci310.project.responses.ShardCandidatesResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static edu.usc.csci310.project.Utils.hashUsername;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts three shards of the app as separate JVMs over one database and checks that a coordinator
+ * scattering to them over HTTP finds the same matches as a single unsharded instance.
+ */
+class ShardedMatchIntegrationTest {
+    private static final int SHARDS = 3;
+    private static final int USERS = 40;
+    private static final String SECRET = "integration";
+
+    @TempDir
+    Path dir;
+
+    private final List<Process> processes = new ArrayList<>();
+
+    @AfterEach
+    void stopShards() throws InterruptedException {
+        for (Process process : processes) process.destroy();
+        for (Process process : processes) {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+        }
+    }
+
+    @Test
+    void shardedMatchesEqualSingleNodeMatches() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("dataUsers.db"));
+        ConnectionPool pool = ConnectionPool.of(connection);
+        new DatabaseInitializer(pool).initializeDatabase();
+        FavoriteService single = new FavoriteService(pool, new UserTermStore(pool),
+                new SongTermStore(pool, 1000), new MatchEngine(), 100, "", ShardTopology.SINGLE, new RestTemplate(), 0);
+        addRandomFavorites(connection, single);
+        single.publishMatchSnapshot();
+
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) urls.add(startShard(i));
+        for (String url : urls) awaitShard(url);
+
+        FavoriteService coordinator = new FavoriteService(pool, new UserTermStore(pool),
+                new SongTermStore(pool, 1000), new MatchEngine(), 100, "", new ShardTopology(0, 1, urls),
+                new ShardConfig().shardRestTemplate(new RestTemplateBuilder(), 10_000, SECRET), 0);
+        for (int userId = 1; userId <= USERS; userId++) {
+            MatchResult expected = single.findMatches(userId);
+            MatchResult actual = coordinator.findMatches(userId);
+            assertEquals(expected.bestUsername, actual.bestUsername, "soulmate of " + userId);
+            assertEquals(expected.mutualBest, actual.mutualBest, "mutual soulmate of " + userId);
+            assertEquals(expected.enemyUsername, actual.enemyUsername, "enemy of " + userId);
+            assertEquals(expected.mutualEnemy, actual.mutualEnemy, "mutual enemy of " + userId);
+        }
+    }
+
+    private void addRandomFavorites(Connection connection, FavoriteService service) throws Exception {
+        try (PreparedStatement pst = connection.prepareStatement("INSERT INTO users (username, password) VALUES (?, 'x')")) {
+            for (int u = 1; u <= USERS; u++) {
+                pst.setString(1, hashUsername("user" + u));
+                pst.executeUpdate();
+            }
+        }
+
+        Random random = new Random(3);
+        String[] words = new String[60];
+        for (int w = 0; w < words.length; w++) words[w] = "word" + (char) ('a' + w % 26) + (char) ('a' + w / 26);
+        for (int songId = 1; songId <= 80; songId++) {
+            StringBuilder lyrics = new StringBuilder();
+            for (int w = 0; w < 8; w++) lyrics.append(words[random.nextInt(words.length)]).append(' ');
+
+            FavoriteSongRequest request = new FavoriteSongRequest();
+            request.setUsername("user" + (1 + random.nextInt(USERS - 5)));   // the last users have no favorites
+            request.setSongId(songId);
+            request.setSongName("song " + songId);
+            request.setSongArtist("artist");
+            request.setFullTitle("song " + songId + " by artist");
+            request.setDateReleased("2024");
+            request.setAlbum("album");
+            request.setLyrics(lyrics.toString());
+            service.addFavoriteSong(request);
+        }
+    }
+
+    private String startShard(int index) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            command.add("--add-modules");
+            command.add("jdk.incubator.vector");
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SpringBootAPI.class.getName());
+        command.add("--server.port=" + port);
+        command.add("--favorites.shard.index=" + index);
+        command.add("--favorites.shard.count=" + SHARDS);
+        command.add("--favorites.shard.secret=" + SECRET);
+        command.add("--favorites.vector-file=");
+        command.add("--GENIUS_CLIENT_ACCESS_TOKEN=unused");
+
+        // the database URL is relative, so each shard runs in the directory holding the test database
+        processes.add(new ProcessBuilder(command)
+                .directory(dir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(new File(dir.toFile(), "shard" + index + ".log"))
+                .start());
+        return "http://localhost:" + port;
+    }
+
+    private void awaitShard(String url) throws InterruptedException, IOException {
+        RestTemplate restTemplate = new ShardConfig().shardRestTemplate(new RestTemplateBuilder(), 10_000, SECRET);
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (true) {
+            try {
+                restTemplate.postForObject(url + "/api/shard/candidates", new ShardQueryRequest(0, Map.of()),
+                        ShardCandidatesResponse.class);
+                return;
+            } catch (RestClientException e) {
+                for (int i = 0; i < processes.size(); i++) {
+                    if (!processes.get(i).isAlive()) {
+                        fail("Shard " + i + " exited during startup:\n" + Files.readString(dir.resolve("shard" + i + ".log")));
+                    }
+                }
+                if (System.currentTimeMillis() > deadline) fail("Shard " + url + " did not start");
+                Thread.sleep(500);
+            }
+        }
+    }
+}
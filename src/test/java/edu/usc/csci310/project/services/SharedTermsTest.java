@@ -0,0 +1,68 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedTermsTest {
+
+    @Test
+    void topMatchesSortingEverySharedTerm() {
+        Random random = new Random(37);
+        TermDictionary dictionary = new TermDictionary();
+        for (int round = 0; round < 200; round++) {
+            SparseVector a = MatchEngineTest.randomCloud(random, dictionary, 20);
+            SparseVector b = MatchEngineTest.randomCloud(random, dictionary, 20);
+            int n = random.nextInt(8);
+
+            // every shared term as {term, count in a, count in b}, by contribution then term id
+            List<int[]> all = new ArrayList<>();
+            for (int i = 0; i < a.size(); i++) {
+                for (int j = 0; j < b.size(); j++) {
+                    if (a.termId(i) == b.termId(j)) all.add(new int[]{a.termId(i), a.count(i), b.count(j)});
+                }
+            }
+            all.sort(Comparator.<int[]>comparingInt(t -> -Math.min(t[1], t[2])).thenComparingInt(t -> t[0]));
+
+            SharedTerms top = SharedTerms.top(a, b, n);
+            assertEquals(Math.min(n, all.size()), top.size());
+            for (int k = 0; k < top.size(); k++) {
+                assertEquals(all.get(k)[0], top.termIds[k]);
+                assertEquals(all.get(k)[1], top.countsA[k]);
+                assertEquals(all.get(k)[2], top.countsB[k]);
+                assertEquals(Math.min(all.get(k)[1], all.get(k)[2]), top.shared(k));
+            }
+        }
+    }
+
+    @Test
+    void countsBelongToTheirOwnCloud() {
+        TermDictionary d = new TermDictionary();
+        SparseVector a = SparseVector.of(Map.of("love", 5, "war", 1, "baby", 2), d);
+        SparseVector b = SparseVector.of(Map.of("love", 3, "baby", 4, "guns", 7), d);
+
+        SharedTerms top = SharedTerms.top(a, b, 10);
+        assertEquals(2, top.size());
+        assertEquals("love", d.term(top.termIds[0]));
+        assertEquals(5, top.countsA[0]);
+        assertEquals(3, top.countsB[0]);
+        assertEquals("baby", d.term(top.termIds[1]));
+        assertEquals(2, top.shared(1));
+    }
+
+    @Test
+    void nothingSharedOrNothingAsked() {
+        TermDictionary d = new TermDictionary();
+        SparseVector a = SparseVector.of(Map.of("love", 5), d);
+        SparseVector b = SparseVector.of(Map.of("war", 3), d);
+        assertSame(SharedTerms.EMPTY, SharedTerms.top(a, SparseVector.EMPTY, 5));
+        assertSame(SharedTerms.EMPTY, SharedTerms.top(a, a, 0));
+        assertEquals(0, SharedTerms.top(a, b, 5).size());
+    }
+}
@@ -0,0 +1,70 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SimilarityKernelTest {
+
+    private static SparseVector randomVector(Random random, int vocabulary, int terms) {
+        int[] ids = random.ints(0, vocabulary).distinct().limit(terms).toArray();
+        int[] counts = new int[ids.length];
+        for (int i = 0; i < counts.length; i++) counts[i] = 1 + random.nextInt(20);
+        return SparseVector.of(ids, counts, ids.length);
+    }
+
+    private static void assertMatchesMergeJoin(SimilarityKernel kernel) {
+        Random random = new Random(5);
+        int vocabulary = 2000;
+        int[] dense = new int[vocabulary];
+        for (int round = 0; round < 200; round++) {
+            SparseVector a = randomVector(random, vocabulary, random.nextInt(300));
+            SparseVector b = randomVector(random, vocabulary, random.nextInt(300));
+            a.scatter(dense);
+            assertEquals(SparseVector.sharedCount(a, b), kernel.sharedCount(dense, b));
+            a.unscatter(dense);
+        }
+        for (int count : dense) assertEquals(0, count);
+    }
+
+    @Test
+    void scalarKernelMatchesMergeJoin() {
+        assertMatchesMergeJoin(new ScalarSimilarityKernel());
+    }
+
+    private static boolean vectorModuleLoaded() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    @Test
+    void vectorKernelMatchesMergeJoin() {
+        // only mvn -Pvector-api builds the kernel and runs surefire with --add-modules jdk.incubator.vector
+        assumeTrue(vectorModuleLoaded());
+        SimilarityKernel kernel = SimilarityKernel.named("vector");
+        assertTrue(kernel.name().startsWith("vector"));
+        assertMatchesMergeJoin(kernel);
+    }
+
+    @Test
+    void autoPrefersTheVectorKernel() {
+        assumeTrue(vectorModuleLoaded());
+        assertTrue(SimilarityKernel.best().name().startsWith("vector"));
+        assertEquals("scalar", SimilarityKernel.named("scalar").name());
+    }
+
+    @Test
+    void autoFallsBackToScalarWithoutTheModule() {
+        assumeFalse(vectorModuleLoaded());
+        assertEquals("scalar", SimilarityKernel.best().name());
+        assertThrows(IllegalStateException.class, () -> SimilarityKernel.named("vector"));
+    }
+
+    @Test
+    void unknownKernelIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SimilarityKernel.named("gpu"));
+    }
+}
@@ -0,0 +1,26 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityMetricTest {
+
+    @Test
+    void ofParsesIds() {
+        for (SimilarityMetric metric : SimilarityMetric.values()) {
+            assertEquals(metric, SimilarityMetric.of(metric.id()));
+        }
+    }
+
+    @Test
+    void missingIdIsJaccard() {
+        assertEquals(SimilarityMetric.JACCARD, SimilarityMetric.of(null));
+        assertEquals(SimilarityMetric.JACCARD, SimilarityMetric.of(""));
+    }
+
+    @Test
+    void unknownIdIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SimilarityMetric.of("euclid"));
+    }
+}
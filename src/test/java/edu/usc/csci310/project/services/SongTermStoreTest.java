@@ -0,0 +1,86 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.configuration.DatabaseInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongTermStoreTest {
+    private Connection conn;
+    private SongTermStore songTermStore;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        new DatabaseInitializer(ConnectionPool.of(conn)).initializeDatabase();
+        songTermStore = new SongTermStore(ConnectionPool.of(conn), 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void putReplacesTheSongVector() throws SQLException {
+        songTermStore.put(7, Map.of("love", 2, "night", 1));
+        songTermStore.put(7, Map.of("love", 3));
+
+        assertEquals(Map.of("love", 3), songTermStore.load(7));
+        assertTrue(songTermStore.load(8).isEmpty());
+    }
+
+    @Test
+    void putWithNoTermsClearsTheSong() throws SQLException {
+        songTermStore.put(7, Map.of("love", 2));
+        songTermStore.put(7, Map.of());
+        assertTrue(songTermStore.load(7).isEmpty());
+    }
+
+    @Test
+    void versionIsTrackedSeparatelyFromUserTerms() throws SQLException {
+        assertEquals(0, songTermStore.getVersion());
+        songTermStore.setVersion(3);
+        assertEquals(3, songTermStore.getVersion());
+        assertEquals(0, new UserTermStore(ConnectionPool.of(conn)).getVersion());
+    }
+
+    @Test
+    void clearRemovesEverything() throws SQLException {
+        songTermStore.put(7, Map.of("love", 2));
+        songTermStore.clear();
+        assertTrue(songTermStore.load(7).isEmpty());
+    }
+
+    @Test
+    void putAllStoresEverySong() throws SQLException {
+        songTermStore.put(1, Map.of("stale", 1));
+        songTermStore.putAll(Map.of(1, Map.of("love", 2), 2, Map.of(), 3, Map.of("night", 1, "love", 1)));
+
+        assertEquals(Map.of("love", 2), songTermStore.load(1));
+        assertTrue(songTermStore.load(2).isEmpty());
+        assertEquals(Map.of("night", 1, "love", 1), songTermStore.load(3));
+        assertTrue(conn.getAutoCommit());
+    }
+
+    @Test
+    void loadsAreCachedUntilTheSongChanges() throws SQLException {
+        songTermStore.put(7, Map.of("love", 2));
+        songTermStore.load(7);
+        songTermStore.load(7);
+        assertEquals(1L, songTermStore.cacheStats().get("misses"));
+        assertEquals(1L, songTermStore.cacheStats().get("hits"));
+
+        songTermStore.put(7, Map.of("love", 5));
+        assertEquals(Map.of("love", 5), songTermStore.load(7));
+        assertEquals(2L, songTermStore.cacheStats().get("misses"));
+    }
+}
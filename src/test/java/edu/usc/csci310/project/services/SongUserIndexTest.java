@@ -0,0 +1,49 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongUserIndexTest {
+
+    @Test
+    void overlapCountsSharedSongsMostFirst() {
+        SongUserIndex index = new SongUserIndex();
+        index.add(1, 100);
+        index.add(1, 200);
+        index.add(1, 300);
+        index.add(2, 100);
+        index.add(3, 100);
+        index.add(3, 200);
+        index.add(4, 999);
+        index.add(5, 300);
+
+        SongUserIndex.Overlap overlap = index.overlap(1);
+        assertArrayEquals(new int[]{3, 2, 5}, overlap.users);
+        assertArrayEquals(new int[]{2, 1, 1}, overlap.sharedSongs);
+        assertEquals(2, index.sharedSongs(1, 3));
+        assertEquals(0, index.sharedSongs(1, 4));
+    }
+
+    @Test
+    void removeTakesTheFavoriteBackOut() {
+        SongUserIndex index = new SongUserIndex();
+        index.add(1, 100);
+        index.add(2, 100);
+        index.remove(2, 100);
+        index.remove(2, 555);
+
+        assertEquals(0, index.overlap(1).users.length);
+        assertEquals(0, index.sharedSongs(2, 1));
+    }
+
+    @Test
+    void userWithoutFavoritesOverlapsNobody() {
+        SongUserIndex index = new SongUserIndex();
+        index.add(1, 100);
+        assertEquals(0, index.overlap(9).users.length);
+
+        index.clear();
+        assertEquals(0, index.sharedSongs(1, 1));
+    }
+}
@@ -0,0 +1,88 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongVectorCacheTest {
+
+    private static Map<String, Integer> vectorOf(int terms) {
+        Map<String, Integer> vector = new HashMap<>();
+        for (int i = 0; i < terms; i++) vector.put("w" + i, 1);
+        return vector;
+    }
+
+    @Test
+    void hitsDoNotCallTheLoader() throws SQLException {
+        SongVectorCache cache = new SongVectorCache(100);
+        AtomicInteger loads = new AtomicInteger();
+        SongVectorCache.Loader loader = songId -> {
+            loads.incrementAndGet();
+            return Map.of("love", songId);
+        };
+
+        assertEquals(Map.of("love", 7), cache.get(7, loader));
+        assertEquals(Map.of("love", 7), cache.get(7, loader));
+        assertEquals(1, loads.get());
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedByWeight() throws SQLException {
+        SongVectorCache cache = new SongVectorCache(10);
+        cache.get(1, songId -> vectorOf(4));
+        cache.get(2, songId -> vectorOf(4));
+        cache.get(1, songId -> vectorOf(4));   // song 2 is now the least recently used
+        cache.get(3, songId -> vectorOf(4));
+
+        assertEquals(2, cache.size());
+        assertEquals(8L, cache.stats().get("weight"));
+        assertEquals(1L, cache.stats().get("evictions"));
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1, songId -> {
+            loads.incrementAndGet();
+            return vectorOf(4);
+        });
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void vectorHeavierThanTheCacheIsNotCached() throws SQLException {
+        SongVectorCache cache = new SongVectorCache(10);
+        assertEquals(11, cache.get(1, songId -> vectorOf(11)).size());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateDropsTheSong() throws SQLException {
+        SongVectorCache cache = new SongVectorCache(10);
+        cache.get(1, songId -> Map.of("love", 1));
+        cache.invalidate(1);
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.stats().get("weight"));
+        assertEquals(Map.of("hate", 1), cache.get(1, songId -> Map.of("hate", 1)));
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotCached() throws SQLException {
+        SongVectorCache cache = new SongVectorCache(10);
+        cache.get(1, songId -> {
+            cache.invalidate(1);   // the song changes while its old vector is being read
+            return Map.of("stale", 1);
+        });
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void cachedVectorsAreUnmodifiable() throws SQLException {
+        SongVectorCache cache = new SongVectorCache(10);
+        Map<String, Integer> vector = cache.get(1, songId -> new HashMap<>(Map.of("love", 1)));
+        assertThrows(UnsupportedOperationException.class, () -> vector.put("hate", 1));
+    }
+}
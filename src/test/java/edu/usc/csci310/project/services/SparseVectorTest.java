@@ -0,0 +1,90 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseVectorTest {
+
+    // the original map-based weighted Jaccard, kept as the reference answer
+    private static double mapSimilarity(Map<String, Integer> a, Map<String, Integer> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0.0;
+        double shared = 0, total = 0;
+        Set<String> vocab = new HashSet<>(a.keySet());
+        vocab.addAll(b.keySet());
+        for (String w : vocab) {
+            int fa = a.getOrDefault(w, 0);
+            int fb = b.getOrDefault(w, 0);
+            shared += Math.min(fa, fb);
+            total += Math.max(fa, fb);
+        }
+        return shared / total;
+    }
+
+    @Test
+    void ofSortsByTermId() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.intern("a");
+        dictionary.intern("b");
+        dictionary.intern("c");
+
+        SparseVector v = SparseVector.of(Map.of("c", 3, "a", 1), dictionary);
+        assertEquals(2, v.size());
+        assertEquals(0, v.termId(0));
+        assertEquals(1, v.count(0));
+        assertEquals(2, v.termId(1));
+        assertEquals(3, v.count(1));
+        assertEquals(4, v.total());
+    }
+
+    @Test
+    void ofDropsZeroCounts() {
+        SparseVector v = SparseVector.of(new int[]{5, 2}, new int[]{0, 0}, 2);
+        assertSame(SparseVector.EMPTY, v);
+        assertTrue(SparseVector.of(new int[0], new int[0], 0).isEmpty());
+    }
+
+    @Test
+    void weightedJaccardOfIdenticalAndDisjointClouds() {
+        TermDictionary dictionary = new TermDictionary();
+        SparseVector a = SparseVector.of(Map.of("love", 2, "you", 1), dictionary);
+        SparseVector b = SparseVector.of(Map.of("hate", 2), dictionary);
+
+        assertEquals(1.0, SparseVector.weightedJaccard(a, a));
+        assertEquals(0.0, SparseVector.weightedJaccard(a, b));
+        assertEquals(0.0, SparseVector.weightedJaccard(a, SparseVector.EMPTY));
+        assertEquals(0, SparseVector.sharedCount(a, b));
+    }
+
+    @Test
+    void weightedJaccardMatchesMapImplementation() {
+        Random random = new Random(310);
+        TermDictionary dictionary = new TermDictionary();
+        for (int round = 0; round < 200; round++) {
+            Map<String, Integer> a = new HashMap<>();
+            Map<String, Integer> b = new HashMap<>();
+            for (int i = 0; i < random.nextInt(40); i++) a.put("w" + random.nextInt(60), 1 + random.nextInt(9));
+            for (int i = 0; i < random.nextInt(40); i++) b.put("w" + random.nextInt(60), 1 + random.nextInt(9));
+
+            double expected = mapSimilarity(a, b);
+            double actual = SparseVector.weightedJaccard(SparseVector.of(a, dictionary), SparseVector.of(b, dictionary));
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void scatterAndUnscatterDenseCounts() {
+        SparseVector v = SparseVector.of(new int[]{4, 1}, new int[]{3, 2}, 2);
+        int[] dense = new int[6];
+        v.scatter(dense);
+        assertArrayEquals(new int[]{0, 2, 0, 0, 3, 0}, dense);
+        v.unscatter(dense);
+        assertArrayEquals(new int[6], dense);
+    }
+}
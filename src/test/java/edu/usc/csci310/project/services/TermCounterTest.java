@@ -0,0 +1,67 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermCounterTest {
+
+    @Test
+    void addCountsEachTerm() {
+        TermCounter counts = new TermCounter();
+        counts.add(3);
+        counts.add(3);
+        counts.add(7, 5);
+
+        assertEquals(2, counts.size());
+        assertEquals(2, counts.get(3));
+        assertEquals(5, counts.get(7));
+        assertEquals(0, counts.get(4));
+    }
+
+    @Test
+    void growsAndMatchesMapReference() {
+        Random random = new Random(7);
+        TermCounter counts = new TermCounter(2);
+        Map<Integer, Integer> reference = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int term = random.nextInt(800);
+            counts.add(term);
+            reference.merge(term, 1, Integer::sum);
+        }
+
+        assertEquals(reference.size(), counts.size());
+        Map<Integer, Integer> visited = new HashMap<>();
+        counts.forEach(visited::put);
+        assertEquals(reference, visited);
+    }
+
+    @Test
+    void toVectorIsSortedByTermId() {
+        TermCounter counts = new TermCounter();
+        counts.add(9, 2);
+        counts.add(1, 4);
+
+        SparseVector vector = counts.toVector();
+        assertEquals(2, vector.size());
+        assertEquals(1, vector.termId(0));
+        assertEquals(4, vector.count(0));
+        assertEquals(9, vector.termId(1));
+        assertEquals(6, vector.total());
+    }
+
+    @Test
+    void clearEmptiesForReuse() {
+        TermCounter counts = new TermCounter();
+        counts.add(1);
+        counts.clear();
+
+        assertTrue(counts.isEmpty());
+        assertEquals(0, counts.get(1));
+        assertTrue(counts.toVector().isEmpty());
+    }
+}
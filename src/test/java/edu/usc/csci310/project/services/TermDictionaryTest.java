@@ -0,0 +1,72 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermDictionaryTest {
+
+    @Test
+    void internAssignsStableDenseIds() {
+        TermDictionary dictionary = new TermDictionary();
+        assertEquals(0, dictionary.intern("love"));
+        assertEquals(1, dictionary.intern("you"));
+        assertEquals(0, dictionary.intern("love"));
+        assertEquals(2, dictionary.size());
+        assertEquals("you", dictionary.term(1));
+    }
+
+    @Test
+    void idOfUnknownTerm() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.intern("love");
+        assertEquals(0, dictionary.idOf("love"));
+        assertEquals(-1, dictionary.idOf("hate"));
+    }
+
+    @Test
+    void internGrowsPastInitialCapacity() {
+        TermDictionary dictionary = new TermDictionary();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, dictionary.intern("w" + i));
+        }
+        assertEquals("w999", dictionary.term(999));
+        assertEquals(1000, dictionary.size());
+    }
+
+    @Test
+    void internCharRangeMatchesStringIntern() {
+        TermDictionary dictionary = new TermDictionary();
+        char[] buf = "xxloveyou".toCharArray();
+        int love = dictionary.intern(buf, 2, 4);
+        assertEquals(love, dictionary.intern("love"));
+        assertEquals(love, dictionary.intern(buf, 2, 4));
+        assertEquals(dictionary.intern("you"), dictionary.intern(buf, 6, 3));
+        assertEquals("love", dictionary.term(love));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    void concurrentInternAgreesOnIds() throws InterruptedException {
+        TermDictionary dictionary = new TermDictionary();
+        int[][] seen = new int[4][2000];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    char[] word = ("w" + i).toCharArray();
+                    seen[thread][i] = dictionary.intern(word, 0, word.length);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(2000, dictionary.size());
+        for (int i = 0; i < 2000; i++) {
+            for (int t = 1; t < threads.length; t++) assertEquals(seen[0][i], seen[t][i]);
+            assertEquals("w" + i, dictionary.term(seen[0][i]));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package edu.usc.csci310.project.services;
 
 import edu.usc.csci310.project.Utils;
+import edu.usc.csci310.project.configuration.ConnectionPool;
 import edu.usc.csci310.project.models.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,7 +28,7 @@ class UserServiceTest {
         conn = mock(Connection.class);
         pst = mock(PreparedStatement.class);
         rs = mock(ResultSet.class);
-        userService = new UserService(conn);
+        userService = new UserService(ConnectionPool.of(conn));
     }
 
     @Test
@@ -0,0 +1,144 @@
+package edu.usc.csci310.project.services;
+
+import edu.usc.csci310.project.configuration.ConnectionPool;
+import edu.usc.csci310.project.configuration.DatabaseInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserTermStoreTest {
+    private Connection conn;
+    private UserTermStore termStore;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        new DatabaseInitializer(ConnectionPool.of(conn)).initializeDatabase();
+        termStore = new UserTermStore(ConnectionPool.of(conn));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void addTermsAccumulatesCounts() throws SQLException {
+        assertTrue(termStore.isEmpty());
+
+        termStore.addTerms(1, Map.of("love", 2, "you", 1));
+        termStore.addTerms(1, Map.of("love", 3));
+
+        assertFalse(termStore.isEmpty());
+        assertEquals(Map.of("love", 5, "you", 1), termStore.load(1));
+    }
+
+    @Test
+    void subtractTermsDropsEmptyTerms() throws SQLException {
+        termStore.addTerms(1, Map.of("love", 2, "you", 1));
+        termStore.subtractTerms(1, Map.of("love", 1, "you", 1));
+
+        assertEquals(Map.of("love", 1), termStore.load(1));
+    }
+
+    @Test
+    void loadAllVectorsGroupsByUser() throws SQLException {
+        TermDictionary dictionary = new TermDictionary();
+        termStore.addTerms(1, Map.of("love", 2, "you", 1));
+        termStore.addTerms(2, Map.of("hate", 4));
+
+        Map<Integer, SparseVector> clouds = termStore.loadAllVectors(dictionary);
+        assertEquals(2, clouds.size());
+        assertEquals(2, clouds.get(1).size());
+        assertEquals(3, clouds.get(1).total());
+        assertEquals(1, clouds.get(2).size());
+        assertEquals(dictionary.idOf("hate"), clouds.get(2).termId(0));
+        assertEquals(4, clouds.get(2).count(0));
+        assertTrue(termStore.load(3).isEmpty());
+        assertTrue(termStore.loadVector(3, dictionary).isEmpty());
+    }
+
+    @Test
+    void clearRemovesEverything() throws SQLException {
+        termStore.addTerms(1, Map.of("love", 2));
+        termStore.clear();
+        assertTrue(termStore.isEmpty());
+    }
+
+    @Test
+    void emptyCountsAreIgnored() throws SQLException {
+        termStore.addTerms(1, Map.of());
+        termStore.subtractTerms(1, Map.of());
+        assertTrue(termStore.isEmpty());
+    }
+
+    @Test
+    void versionIsRecorded() throws SQLException {
+        assertEquals(0, termStore.getVersion());
+        termStore.setVersion(2);
+        termStore.setVersion(3);
+        assertEquals(3, termStore.getVersion());
+    }
+
+    @Test
+    void loadTopOrdersByCountThenTerm() throws SQLException {
+        termStore.addTerms(1, Map.of("love", 2, "baby", 5, "heart", 2, "night", 1));
+
+        Map<String, Integer> top = termStore.loadTop(1, 3);
+        assertEquals(List.of("baby", "heart", "love"), List.copyOf(top.keySet()));
+        assertEquals(5, top.get("baby"));
+    }
+
+    @Test
+    void rebuildFromSongsSumsFavoritedSongVectors() throws SQLException {
+        SongTermStore songTermStore = new SongTermStore(ConnectionPool.of(conn), 1000);
+        songTermStore.put(10, Map.of("love", 2, "night", 1));
+        songTermStore.put(20, Map.of("love", 1));
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO favorites (userId, songId) VALUES ('1', '10'), ('1', '20'), ('2', '20')");
+        }
+        termStore.addTerms(3, Map.of("stale", 1));
+
+        termStore.rebuildFromSongs();
+
+        assertEquals(Map.of("love", 3, "night", 1), termStore.load(1));
+        assertEquals(Map.of("love", 1), termStore.load(2));
+        assertTrue(termStore.load(3).isEmpty());
+    }
+
+    @Test
+    void failedRebuildKeepsTheOldCloudsAndGeneration() throws SQLException {
+        SongTermStore songTermStore = new SongTermStore(ConnectionPool.of(conn), 1000);
+        songTermStore.put(10, Map.of("love", 2));
+        termStore.addTerms(1, Map.of("stale", 1));
+        long generation = termStore.getGeneration();
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO favorites (userId, songId) VALUES ('1', '10')");
+            st.executeUpdate("CREATE TRIGGER fail_rebuild BEFORE INSERT ON user_terms BEGIN SELECT RAISE(ABORT, 'rebuild'); END");
+        }
+
+        assertThrows(SQLException.class, () -> termStore.rebuildFromSongs());
+
+        assertEquals(Map.of("stale", 1), termStore.load(1));
+        assertEquals(generation, termStore.getGeneration());
+        assertTrue(conn.getAutoCommit());
+    }
+
+    @Test
+    void generationCountsChanges() throws SQLException {
+        assertEquals(0, termStore.getGeneration());
+        assertEquals(1, termStore.nextGeneration());
+        assertEquals(2, termStore.nextGeneration());
+        termStore.rebuildFromSongs();
+        assertEquals(3, termStore.getGeneration());
+    }
+}
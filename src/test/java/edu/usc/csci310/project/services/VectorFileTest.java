@@ -0,0 +1,160 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorFileTest {
+    @TempDir
+    Path dir;
+
+    private static SparseVector cloud(TermDictionary dictionary, Object... termsAndCounts) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < termsAndCounts.length; i += 2) {
+            counts.put((String) termsAndCounts[i], (Integer) termsAndCounts[i + 1]);
+        }
+        return SparseVector.of(counts, dictionary);
+    }
+
+    private static Map<String, Integer> terms(SparseVector vector, TermDictionary dictionary) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < vector.size(); i++) counts.put(dictionary.term(vector.termId(i)), vector.count(i));
+        return counts;
+    }
+
+    @Test
+    void missingFileLoadsNothing() throws IOException {
+        assertNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 0));
+    }
+
+    @Test
+    void snapshotRoundTripsIntoAnotherDictionary() throws IOException {
+        TermDictionary written = new TermDictionary();
+        Map<Integer, SparseVector> vectors = new HashMap<>();
+        vectors.put(7, cloud(written, "love", 3, "baby", 1));
+        vectors.put(2, cloud(written, "war", 2, "café", 5));
+        VectorFile file = new VectorFile(dir.resolve("users.vec"));
+        file.rewrite(vectors, null, written, 4);
+
+        // a fresh process interns terms in a different order
+        TermDictionary read = new TermDictionary();
+        read.intern("unrelated");
+        VectorFile.Contents contents = new VectorFile(dir.resolve("users.vec")).load(read, 4);
+        assertNotNull(contents);
+        Map<Integer, SparseVector> loaded = contents.latest();
+        assertEquals(Map.of("love", 3, "baby", 1), terms(loaded.get(7), read));
+        assertEquals(Map.of("war", 2, "café", 5), terms(loaded.get(2), read));
+    }
+
+    @Test
+    void journalIsReplayedOverTheSnapshot() throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        VectorFile file = new VectorFile(dir.resolve("users.vec"));
+        file.rewrite(Map.of(1, cloud(dictionary, "love", 1), 2, cloud(dictionary, "hate", 1)), null, dictionary, 10);
+        file.append(1, cloud(dictionary, "love", 2, "you", 1), dictionary, 11);
+        file.append(2, SparseVector.EMPTY, dictionary, 12);
+        file.append(3, cloud(dictionary, "war", 4), dictionary, 13);
+        assertEquals(13, file.generation());
+        assertEquals(3, file.journalRecords());
+
+        TermDictionary read = new TermDictionary();
+        VectorFile.Contents contents = new VectorFile(dir.resolve("users.vec")).load(read, 13);
+        assertNotNull(contents);
+        Map<Integer, SparseVector> loaded = contents.latest();
+        assertEquals(Map.of("love", 2, "you", 1), terms(loaded.get(1), read));
+        assertFalse(loaded.containsKey(2));
+        assertEquals(Map.of("war", 4), terms(loaded.get(3), read));
+        // the snapshot and the changes after it stay apart, in the order they were made
+        assertEquals(Map.of("love", 1), terms(contents.vectors.get(1), read));
+        assertEquals(List.of(1, 2, 3), contents.changes.stream().map(Map.Entry::getKey).toList());
+    }
+
+    @Test
+    void matchGraphRoundTripsWithTheSnapshot() throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        VectorFile file = new VectorFile(dir.resolve("users.vec"));
+        Map<Integer, SparseVector> vectors = Map.of(1, cloud(dictionary, "love", 1), 2, cloud(dictionary, "love", 2, "war", 1));
+        file.rewrite(vectors, Map.of(1, new MatchCandidates(2, 0.5, 2, 0.5), 2, new MatchCandidates(1, 0.5, 1, 0.5)),
+                dictionary, 3);
+
+        Map<Integer, MatchCandidates> graph = new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 3).graph;
+        assertEquals(2, graph.size());
+        assertEquals(2, graph.get(1).bestUser);
+        assertEquals(0.5, graph.get(1).bestScore);
+        assertEquals(1, graph.get(2).worstUser);
+        assertEquals(0.5, graph.get(2).worstScore);
+
+        // written without a graph, or with one that does not cover every cloud: the caller computes its own
+        file.rewrite(vectors, null, dictionary, 3);
+        assertNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 3).graph);
+        file.rewrite(vectors, Map.of(1, new MatchCandidates(2, 0.5, 2, 0.5)), dictionary, 3);
+        assertNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 3).graph);
+    }
+
+    @Test
+    void rewriteEmptiesTheJournal() throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        VectorFile file = new VectorFile(dir.resolve("users.vec"));
+        file.rewrite(Map.of(), null, dictionary, 0);
+        file.append(1, cloud(dictionary, "love", 1), dictionary, 1);
+        file.rewrite(Map.of(1, cloud(dictionary, "love", 1)), null, dictionary, 1);
+
+        assertEquals(0, file.journalRecords());
+        assertFalse(Files.exists(dir.resolve("users.vec.journal")));
+        assertEquals(1, new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 1).latest().size());
+    }
+
+    @Test
+    void fileBehindTheDatabaseIsRejected() throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        VectorFile file = new VectorFile(dir.resolve("users.vec"));
+        file.rewrite(Map.of(1, cloud(dictionary, "love", 1)), null, dictionary, 5);
+        file.append(1, cloud(dictionary, "love", 2), dictionary, 6);
+
+        // a change was made to the database but never journaled
+        assertNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 7));
+        assertNotNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 6));
+    }
+
+    @Test
+    void missingJournalRecordIsRejected() throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        VectorFile file = new VectorFile(dir.resolve("users.vec"));
+        file.rewrite(Map.of(), null, dictionary, 0);
+        file.append(1, cloud(dictionary, "love", 1), dictionary, 2);
+
+        assertNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 2));
+    }
+
+    @Test
+    void tornJournalTailIsRejected() throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        VectorFile file = new VectorFile(dir.resolve("users.vec"));
+        file.rewrite(Map.of(), null, dictionary, 0);
+        file.append(1, cloud(dictionary, "love", 1), dictionary, 1);
+        file.append(2, cloud(dictionary, "hate", 1), dictionary, 2);
+
+        Path journal = dir.resolve("users.vec.journal");
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        assertNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 2));
+        assertNotNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 1));
+    }
+
+    @Test
+    void corruptSnapshotIsRejected() throws IOException {
+        Files.write(dir.resolve("users.vec"), new byte[]{1, 2, 3});
+        assertNull(new VectorFile(dir.resolve("users.vec")).load(new TermDictionary(), 0));
+    }
+}
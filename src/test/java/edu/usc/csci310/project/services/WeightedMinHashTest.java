@@ -0,0 +1,48 @@
+package edu.usc.csci310.project.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedMinHashTest {
+    private final TermDictionary dictionary = new TermDictionary();
+
+    @Test
+    void signatureIsDeterministic() {
+        SparseVector v = SparseVector.of(Map.of("love", 3, "night", 1), dictionary);
+        assertArrayEquals(new WeightedMinHash(64, 1).signature(v), new WeightedMinHash(64, 1).signature(v));
+    }
+
+    @Test
+    void equalSlotRateEstimatesWeightedJaccard() {
+        SparseVector a = SparseVector.of(Map.of("love", 4, "night", 2, "dance", 1, "heart", 3), dictionary);
+        SparseVector b = SparseVector.of(Map.of("love", 2, "night", 2, "rain", 5), dictionary);
+        WeightedMinHash minHash = new WeightedMinHash(2048, 7);
+
+        int[] sa = minHash.signature(a);
+        int[] sb = minHash.signature(b);
+        int equal = 0;
+        for (int i = 0; i < sa.length; i++) {
+            if (sa[i] == sb[i]) equal++;
+        }
+        // 4 shared / 14 max = 0.2857
+        assertEquals(SparseVector.weightedJaccard(a, b), (double) equal / sa.length, 0.04);
+    }
+
+    @Test
+    void countsMatterNotJustTerms() {
+        SparseVector a = SparseVector.of(Map.of("love", 1), dictionary);
+        SparseVector b = SparseVector.of(Map.of("love", 10), dictionary);
+        WeightedMinHash minHash = new WeightedMinHash(512, 3);
+
+        int[] sa = minHash.signature(a);
+        int[] sb = minHash.signature(b);
+        int equal = 0;
+        for (int i = 0; i < sa.length; i++) {
+            if (sa[i] == sb[i]) equal++;
+        }
+        assertEquals(0.1, (double) equal / sa.length, 0.04);
+    }
+}